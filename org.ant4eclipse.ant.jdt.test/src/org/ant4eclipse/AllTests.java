@@ -17,6 +17,7 @@ import org.ant4eclipse.ant.jdt.ClasspathVariablesTest;
 import org.ant4eclipse.ant.jdt.ExecuteJdtProjectTest;
 import org.ant4eclipse.ant.jdt.GetJdtClassPathTest;
 import org.ant4eclipse.ant.jdt.GetJdtClassPath_UnkownContainerTest;
+import org.ant4eclipse.ant.jdt.IncrementalCompilationTest;
 import org.ant4eclipse.ant.jdt.UserLibrariesTest;
 import org.ant4eclipse.lib.jdt.tools.BuildOrderResolverTest;
 import org.junit.runner.RunWith;
@@ -25,6 +26,6 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( { GetJdtClassPathTest.class, GetJdtClassPath_UnkownContainerTest.class,
     ExecuteJdtProjectTest.class, ClasspathVariablesTest.class, ClasspathContainersTest.class,
-    BuildOrderResolverTest.class, UserLibrariesTest.class })
+    BuildOrderResolverTest.class, UserLibrariesTest.class, IncrementalCompilationTest.class })
 public class AllTests {
 }
@@ -0,0 +1,220 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.jdt;
+
+import java.io.File;
+
+import org.ant4eclipse.ant.core.AntConfigurator;
+import org.ant4eclipse.ant.jdt.ecj.IncrementalBuildState;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.platform.test.AbstractWorkspaceBasedBuildFileTest;
+import org.apache.tools.ant.BuildException;
+
+public class IncrementalCompilationTest extends AbstractWorkspaceBasedBuildFileTest {
+
+  /** the time stamp the class files are set to before each compilation */
+  private static final long OUTDATED = 1000000000000L;
+
+  private File              _srcDir;
+
+  private File              _destDir;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    setupBuildFile("incrementalCompilation.xml");
+
+    // the javac task doesn't configure ant4eclipse on its own
+    AntConfigurator.configureAnt4Eclipse(getProject());
+
+    this._srcDir = new File(getTestWorkspaceDirectory(), "src");
+    this._destDir = Utilities.getCanonicalFile(new File(getTestWorkspaceDirectory(), "classes"));
+    Utilities.mkdirs(this._destDir);
+
+    getProject().setProperty("srcDir", this._srcDir.getAbsolutePath());
+    getProject().setProperty("destDir", this._destDir.getAbsolutePath());
+    getProject().setProperty("bootClasspath", new File(System.getProperty("java.home"), "lib/rt.jar")
+        .getAbsolutePath());
+
+    writeSource("a/A.java", "package a; public class A { public int value() { return 1; } }");
+    writeSource("b/B.java", "package b; public class B { public int get() { return new a.A().value(); } }");
+    writeSource("c/C.java", "package c; public class C { }");
+  }
+
+  public void testBodyChange() {
+    compile();
+    writeSource("a/A.java", "package a; public class A { public int value() { return 2; } }");
+    compile();
+
+    assertTrue(isRecompiled("a/A.class"));
+    assertFalse(isRecompiled("b/B.class"));
+    assertFalse(isRecompiled("c/C.class"));
+  }
+
+  public void testSignatureChange() {
+    compile();
+    writeSource("a/A.java", "package a; public class A { public int value() { return 1; } public void other() { } }");
+    compile();
+
+    // the dependent is compiled again
+    assertTrue(isRecompiled("a/A.class"));
+    assertTrue(isRecompiled("b/B.class"));
+    assertFalse(isRecompiled("c/C.class"));
+  }
+
+  public void testDeletedSource() {
+    compile();
+    assertTrue(new File(this._srcDir, "c/C.java").delete());
+    compile();
+
+    assertFalse(new File(this._destDir, "c/C.class").exists());
+    assertFalse(isRecompiled("a/A.class"));
+    assertFalse(isRecompiled("b/B.class"));
+  }
+
+  public void testDeletedType() {
+    compile();
+    assertTrue(new File(this._srcDir, "a/A.java").delete());
+    try {
+      compile();
+      fail();
+    } catch (BuildException ex) {
+      // the dependent doesn't compile anymore
+    }
+    assertFalse(new File(this._destDir, "a/A.class").exists());
+
+    // a failed compilation doesn't leave a state behind
+    assertFalse(getStateFile().exists());
+  }
+
+  public void testFailedCompilation() {
+    compile();
+    writeSource("a/A.java", "package a; public class A { }");
+    try {
+      compile();
+      fail();
+    } catch (BuildException ex) {
+      // B refers to the removed method
+    }
+    assertFalse(getStateFile().exists());
+
+    // the next compilation is a full compilation
+    writeSource("a/A.java", "package a; public class A { public int value() { return 1; } }");
+    compile();
+    assertTrue(getStateFile().isFile());
+    assertTrue(isRecompiled("a/A.class"));
+    assertTrue(isRecompiled("b/B.class"));
+    assertTrue(isRecompiled("c/C.class"));
+  }
+
+  public void testMissingStateFile() {
+    compile();
+    File stale = createStaleClassFile();
+    assertTrue(getStateFile().delete());
+    compile();
+
+    // full compilation without the class files of unknown source files
+    assertFalse(stale.exists());
+    assertTrue(isRecompiled("a/A.class"));
+    assertTrue(isRecompiled("b/B.class"));
+    assertTrue(isRecompiled("c/C.class"));
+    assertTrue(getStateFile().isFile());
+  }
+
+  public void testCorruptStateFile() {
+    compile();
+    File stale = createStaleClassFile();
+    Utilities.writeFile(getStateFile(), "corrupt", "UTF-8");
+    compile();
+
+    assertFalse(stale.exists());
+    assertTrue(isRecompiled("a/A.class"));
+    assertTrue(isRecompiled("b/B.class"));
+    assertTrue(isRecompiled("c/C.class"));
+
+    // the state is valid again
+    compile();
+    assertFalse(isRecompiled("a/A.class"));
+  }
+
+  public void testSeparateOutputFolder() {
+    File outputFolder = new File(getTestWorkspaceDirectory(), "bin");
+    Utilities.mkdirs(outputFolder);
+    EcjAdditionalCompilerArguments compilerArguments = new EcjAdditionalCompilerArguments();
+    compilerArguments.addOutputFolderForSourceFolder(this._srcDir, outputFolder);
+    compilerArguments.addSourceFolderForOutputFolder(outputFolder, new File[] { this._srcDir });
+    getProject().addReference("incrementalCompilation.compiler.args", compilerArguments);
+
+    // the class files are written to the output folder and to the destination directory
+    executeTarget("compileWithOutputFolder");
+    for (String name : new String[] { "a/A.class", "b/B.class", "c/C.class" }) {
+      assertTrue(new File(outputFolder, name).isFile());
+      assertTrue(new File(this._destDir, name).isFile());
+      assertTrue(new File(outputFolder, name).setLastModified(OUTDATED));
+    }
+
+    // the destination directory has been cleaned, the class files of the unchanged source files are copied
+    Utilities.delete(this._destDir);
+    Utilities.mkdirs(this._destDir);
+    writeSource("a/A.java", "package a; public class A { public int value() { return 2; } }");
+    executeTarget("compileWithOutputFolder");
+    assertTrue(new File(outputFolder, "a/A.class").lastModified() != OUTDATED);
+    assertEquals(OUTDATED, new File(outputFolder, "b/B.class").lastModified());
+    assertEquals(OUTDATED, new File(outputFolder, "c/C.class").lastModified());
+    for (String name : new String[] { "a/A.class", "b/B.class", "c/C.class" }) {
+      assertEquals(new File(outputFolder, name).length(), new File(this._destDir, name).length());
+    }
+  }
+
+  /**
+   * <p>
+   * Marks all class files as outdated and runs the compilation, so the class files that have been written again can
+   * be identified afterwards.
+   * </p>
+   */
+  private void compile() {
+    for (String name : new String[] { "a/A.class", "b/B.class", "c/C.class" }) {
+      File classFile = new File(this._destDir, name);
+      if (classFile.isFile()) {
+        assertTrue(classFile.setLastModified(OUTDATED));
+      }
+    }
+    executeTarget("compile");
+  }
+
+  private boolean isRecompiled(String classFileName) {
+    File classFile = new File(this._destDir, classFileName);
+    assertTrue(classFileName, classFile.isFile());
+    return classFile.lastModified() != OUTDATED;
+  }
+
+  private void writeSource(String name, String content) {
+    File sourceFile = new File(this._srcDir, name);
+    Utilities.mkdirs(sourceFile.getParentFile());
+    long lastModified = sourceFile.lastModified();
+    Utilities.writeFile(sourceFile, content, "UTF-8");
+    // the time stamp might have a granularity of seconds
+    sourceFile.setLastModified(Math.max(lastModified + 10000, System.currentTimeMillis()));
+  }
+
+  private File createStaleClassFile() {
+    File result = new File(this._destDir, "d/Removed.class");
+    Utilities.mkdirs(result.getParentFile());
+    Utilities.writeFile(result, new byte[] { 1, 2, 3 });
+    return result;
+  }
+
+  private File getStateFile() {
+    return IncrementalBuildState.getStateFile(this._destDir);
+  }
+
+} /* ENDCLASS */
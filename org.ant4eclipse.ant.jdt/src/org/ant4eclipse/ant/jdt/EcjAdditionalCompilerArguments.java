@@ -51,6 +51,9 @@ public class EcjAdditionalCompilerArguments {
   /** the boot class path access restrictions */
   private String               _bootClassPathAccessRestrictions;
 
+  /** the number of threads the compiler may use, 0 if not specified */
+  private int                  _parallelism;
+
   /**
    * <p>
    * Creates a new instance of type CompilerArguments.
@@ -245,6 +248,41 @@ public class EcjAdditionalCompilerArguments {
     this._sourceFilteredFilesetPath = sourceFilteredFilesetPath;
   }
 
+  /**
+   * <p>
+   * Returns <code>true</code>, if the number of threads the compiler may use has been specified.
+   * </p>
+   * 
+   * @return <code>true</code>, if the number of threads the compiler may use has been specified.
+   */
+  public boolean hasParallelism() {
+    return this._parallelism > 0;
+  }
+
+  /**
+   * <p>
+   * Returns the number of threads the compiler may use.
+   * </p>
+   * 
+   * @return the number of threads the compiler may use or <code>0</code> if not specified.
+   */
+  public int getParallelism() {
+    return this._parallelism;
+  }
+
+  /**
+   * <p>
+   * Sets the number of threads the compiler may use. This overrides the parallelism of the compiler adapter.
+   * </p>
+   * 
+   * @param parallelism
+   *          the number of threads the compiler may use or <code>0</code> if not specified.
+   */
+  public void setParallelism(int parallelism) {
+    Assure.assertTrue(parallelism >= 0, "The parallelism must not be negative.");
+    this._parallelism = parallelism;
+  }
+
   /**
    * @see java.lang.Object#toString()
    */
@@ -253,6 +291,6 @@ public class EcjAdditionalCompilerArguments {
     return "EcjAdditionalCompilerArguments [_sourceFolderMap=" + this._sourceFolderMap + ", _outputFolderMap="
         + this._outputFolderMap + ", _bootClassPathAccessRestrictions=" + this._bootClassPathAccessRestrictions
         + ", _accessRestrictions=" + this._accessRestrictions + ", _sourceFilteredFilesetPath="
-        + this._sourceFilteredFilesetPath + "]";
+        + this._sourceFilteredFilesetPath + ", _parallelism=" + this._parallelism + "]";
   }
 }
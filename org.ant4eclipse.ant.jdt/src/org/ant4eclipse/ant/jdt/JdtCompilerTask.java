@@ -13,6 +13,8 @@ package org.ant4eclipse.ant.jdt;
 
 import java.io.File;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.ant4eclipse.ant.jdt.ecj.A4ECompilerAdapter;
 import org.ant4eclipse.ant.jdt.ecj.EcjCompilerAdapter;
@@ -37,6 +39,12 @@ public class JdtCompilerTask extends Javac {
 
   private static final String MSG_FAILURE           = "The compilation failed. Check the output for more information.";
 
+  /** the system property that enables the incremental compilation by default */
+  public static final String  PROP_INCREMENTAL      = "ant4eclipse.incremental";
+
+  /** the system property that specifies the number of threads the compiler may use by default */
+  public static final String  PROP_PARALLELISM      = "ant4eclipse.ecj.parallelism";
+
   private String              _errprop              = null;
 
   private String              _updateprop           = null;
@@ -45,6 +53,13 @@ public class JdtCompilerTask extends Javac {
 
   private boolean             _warnings             = true;
 
+  private boolean             _incremental          = Boolean.getBoolean(PROP_INCREMENTAL);
+
+  private int                 _parallelism          = Integer.getInteger(PROP_PARALLELISM, 0).intValue();
+
+  /** all source files (not only the outdated ones) */
+  private List<File>          _sourceFiles          = new ArrayList<File>();
+
   /**
    * The CompilerAdapter for this compilation
    */
@@ -60,6 +75,32 @@ public class JdtCompilerTask extends Javac {
     this._warnings = enable;
   }
 
+  /**
+   * Enables/disables the incremental compilation. Only the changed source files (and the source files depending on
+   * them) will be compiled, no matter which class files are outdated. Requires the ecj compiler.
+   * 
+   * @param enable
+   *          <code>true</code> <=> Enables the incremental compilation.
+   */
+  public void setIncremental(boolean enable) {
+    this._incremental = enable;
+  }
+
+  /**
+   * Sets the number of threads the ecj compiler may use. With a parallelism greater than <code>1</code> the source
+   * files are read, processed and written concurrently. Defaults to <code>0</code> (single threaded compilation with
+   * background writing of the class files).
+   * 
+   * @param parallelism
+   *          The number of threads the ecj compiler may use.
+   */
+  public void setParallelism(int parallelism) {
+    if (parallelism < 0) {
+      throw new BuildException("The attribute 'parallelism' must not be negative.");
+    }
+    this._parallelism = parallelism;
+  }
+
   /**
    * Enables/disables the use of the ecj compiler.
    * 
@@ -106,10 +147,36 @@ public class JdtCompilerTask extends Javac {
         this._a4eCompilerAdapter = new JavacCompilerAdapter();
       }
       this._a4eCompilerAdapter.setWarnings(this._warnings);
+      this._a4eCompilerAdapter.setIncremental(this._incremental);
+      this._a4eCompilerAdapter.setParallelism(this._parallelism);
     }
     return this._a4eCompilerAdapter;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void resetFileLists() {
+    super.resetFileLists();
+    this._sourceFiles.clear();
+  }
+
+  /**
+   * Remembers all source files as the incremental compilation decides on its own which ones have to be compiled.
+   * 
+   * {@inheritDoc}
+   */
+  @Override
+  protected void scanDir(File srcDir, File destDir, String[] files) {
+    for (String file : files) {
+      if (file.endsWith(".java")) {
+        this._sourceFiles.add(new File(srcDir, file));
+      }
+    }
+    super.scanDir(srcDir, destDir, files);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -118,11 +185,18 @@ public class JdtCompilerTask extends Javac {
 
     File destdir = super.getDestdir();
 
+    if (this._incremental && this._useecj) {
+      this.compileList = this._sourceFiles.toArray(new File[this._sourceFiles.size()]);
+    }
+
     if (this.compileList.length > 0) {
 
       File current = new File(".");
       String dest = destdir != null ? String.valueOf(destdir) : String.valueOf(current);
-      if (this.compileList.length == 1) {
+      if (this._incremental && this._useecj) {
+        A4ELogging.info("Compiling %d source files incrementally to '%s' !", Integer.valueOf(this.compileList.length),
+            dest);
+      } else if (this.compileList.length == 1) {
         A4ELogging.info("Compiling 1 source file '%s' to '%s' !", this.compileList[0], dest);
       } else {
         A4ELogging.info("Compiling %d source files to '%s' !", Integer.valueOf(this.compileList.length), dest);
@@ -77,30 +77,18 @@ public class JdtExecutorValuesProvider implements JdtExecutorValues {
     EcjAdditionalCompilerArguments compilerArguments = new EcjAdditionalCompilerArguments();
     executionValues.getReferences().put(COMPILER_ARGS, compilerArguments);
 
-    // resolve (boot) class path
-    ResolvedClasspath cpAbsoluteCompiletime = null;
-    if (requestedPaths.contains(ExecuteJdtProjectTask.CLASSPATH_ABSOLUTE_COMPILETIME)) {
-      cpAbsoluteCompiletime = JdtResolver.resolveProjectClasspath(javaProjectRole.getEclipseProject(), false, false,
-          jdtClasspathContainerArguments);
-    }
-
-    ResolvedClasspath cpRelativeCompiletime = null;
-    if (requestedPaths.contains(ExecuteJdtProjectTask.CLASSPATH_RELATIVE_COMPILETIME)) {
-      cpRelativeCompiletime = JdtResolver.resolveProjectClasspath(javaProjectRole.getEclipseProject(), true, false,
-          jdtClasspathContainerArguments);
-    }
-
-    ResolvedClasspath cpAbsoluteRuntime = null;
-    if (requestedPaths.contains(ExecuteJdtProjectTask.CLASSPATH_ABSOLUTE_RUNTIME)) {
-      cpAbsoluteRuntime = JdtResolver.resolveProjectClasspath(javaProjectRole.getEclipseProject(), false, true,
-          jdtClasspathContainerArguments);
-    }
-
-    ResolvedClasspath cpRelativeRuntime = null;
-    if (requestedPaths.contains(ExecuteJdtProjectTask.CLASSPATH_RELATIVE_RUNTIME)) {
-      cpRelativeRuntime = JdtResolver.resolveProjectClasspath(javaProjectRole.getEclipseProject(), true, true,
-          jdtClasspathContainerArguments);
-    }
+    // resolve (boot) class path: the absolute and the relative variant are resolved in a single pass
+    ResolvedClasspath[] cpCompiletime = resolveProjectClasspaths(javaProjectRole, false, requestedPaths
+        .contains(ExecuteJdtProjectTask.CLASSPATH_ABSOLUTE_COMPILETIME), requestedPaths
+        .contains(ExecuteJdtProjectTask.CLASSPATH_RELATIVE_COMPILETIME), jdtClasspathContainerArguments);
+    ResolvedClasspath cpAbsoluteCompiletime = cpCompiletime[JdtResolver.ABSOLUTE];
+    ResolvedClasspath cpRelativeCompiletime = cpCompiletime[JdtResolver.RELATIVE];
+
+    ResolvedClasspath[] cpRuntime = resolveProjectClasspaths(javaProjectRole, true, requestedPaths
+        .contains(ExecuteJdtProjectTask.CLASSPATH_ABSOLUTE_RUNTIME), requestedPaths
+        .contains(ExecuteJdtProjectTask.CLASSPATH_RELATIVE_RUNTIME), jdtClasspathContainerArguments);
+    ResolvedClasspath cpAbsoluteRuntime = cpRuntime[JdtResolver.ABSOLUTE];
+    ResolvedClasspath cpRelativeRuntime = cpRuntime[JdtResolver.RELATIVE];
 
     if (cpAbsoluteCompiletime != null) {
 
@@ -231,6 +219,26 @@ public class JdtExecutorValuesProvider implements JdtExecutorValues {
     return compilerArguments;
   }
 
+  /**
+   * <p>
+   * Resolves the requested variants of the (runtime or compile time) class path of the given project.
+   * </p>
+   * 
+   * @return an array that contains the absolute class path at index {@link JdtResolver#ABSOLUTE} and the relative class
+   *         path at index {@link JdtResolver#RELATIVE}. Class paths that have not been requested are <code>null</code>.
+   */
+  private ResolvedClasspath[] resolveProjectClasspaths(JavaProjectRole javaProjectRole, boolean runtime,
+      boolean absolute, boolean relative, List<JdtClasspathContainerArgument> jdtClasspathContainerArguments) {
+
+    // nothing to resolve
+    if (!absolute && !relative) {
+      return new ResolvedClasspath[2];
+    }
+
+    return JdtResolver.resolveProjectClasspaths(javaProjectRole.getEclipseProject(), absolute, relative, runtime,
+        jdtClasspathContainerArguments);
+  }
+
   /**
    * <p>
    * Returns an ant {@link Path} that contains a file set with all included source files.
@@ -15,36 +15,52 @@ import java.io.BufferedReader;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.ant4eclipse.ant.core.AntConfigurator;
 import org.ant4eclipse.ant.jdt.EcjAdditionalCompilerArguments;
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
-import org.ant4eclipse.lib.core.util.PerformanceLogging;
 import org.ant4eclipse.lib.core.util.StringMap;
 import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileSink;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoaderFactory;
 import org.ant4eclipse.lib.jdt.ecj.CompileJobDescription;
 import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.CompiledUnit;
 import org.ant4eclipse.lib.jdt.ecj.DefaultCompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.DirectoryClassFileSink;
 import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
 import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
 import org.ant4eclipse.lib.jdt.ecj.SourceFileFactory;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.CompileJobResultImpl;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClassFileLoaderCache;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.taskdefs.compilers.DefaultCompilerAdapter;
 import org.apache.tools.ant.taskdefs.condition.Os;
 import org.apache.tools.ant.types.Path;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.util.Util;
 
 /**
  * <p>
@@ -60,6 +76,13 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
 
   private static final String ANT4ECLIPSE_COMPILE_ERRORS_FILE   = "ant4eclipse.compile.errors.file";
 
+  /**
+   * System-Property that causes the class files to be copied to the destination directory once the compilation has
+   * succeeded instead of writing them while they are compiled, so a failed compilation doesn't touch the destination
+   * directory.
+   */
+  private static final String ANT4ECLIPSE_COPY_DESTDIR_LATE     = "ant4eclipse.copyDestdirAfterCompilation";
+
   /** format of the compile problem message */
   private static final String COMPILE_PROBLEM_MESSAGE           = "----------\n%s. %s in %s (at line %s)\n%s\n%s\n%s\n";
 
@@ -83,6 +106,10 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
 
   private boolean             _warnings                         = true;
 
+  private boolean             _incremental                      = false;
+
+  private int                 _parallelism                      = 0;
+
   /**
    * Enables/disables the generation of warn messages.
    * 
@@ -93,6 +120,38 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
     this._warnings = newwarnings;
   }
 
+  /**
+   * Enables/disables the incremental compilation. If enabled, the javac task has to pass all source files (not only
+   * the outdated ones) as the adapter decides which source files have to be compiled.
+   * 
+   * @param newincremental
+   *          <code>true</code> <=> Only compile changed source files and their dependents.
+   */
+  public void setIncremental(boolean newincremental) {
+    this._incremental = newincremental;
+  }
+
+  /**
+   * Sets the number of threads the compiler may use (see {@link CompileJobDescription#getParallelism()}). The
+   * parallelism can be overridden per project using the {@link EcjAdditionalCompilerArguments}.
+   * 
+   * @param newparallelism
+   *          The number of threads the compiler may use or <code>0</code> for the default.
+   */
+  public void setParallelism(int newparallelism) {
+    this._parallelism = newparallelism;
+  }
+
+  /**
+   * Returns <code>true</code> if this adapter is able to compile incrementally, which requires the references of the
+   * compiled source files (see {@link CompiledUnit}).
+   * 
+   * @return <code>true</code> if this adapter is able to compile incrementally.
+   */
+  protected boolean supportsIncrementalCompilation() {
+    return false;
+  }
+
   /**
    * <p>
    * Checks the preconditions of the A4ECompilerAdapter
@@ -129,6 +188,11 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
     SourceFile[] sourceFiles = getSourceFilesToCompile(ecjAdditionalCompilerArguments);
     compileJobDescription.setSourceFiles(sourceFiles);
     compileJobDescription.setClassFileLoader(createClassFileLoader(ecjAdditionalCompilerArguments));
+    if ((ecjAdditionalCompilerArguments != null) && ecjAdditionalCompilerArguments.hasParallelism()) {
+      compileJobDescription.setParallelism(ecjAdditionalCompilerArguments.getParallelism());
+    } else {
+      compileJobDescription.setParallelism(this._parallelism);
+    }
 
     // Step 5: set the compiler options
     String compilerOptionsFileName = extractJavacCompilerArg(COMPILER_OPTIONS_FILE, null);
@@ -137,14 +201,32 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
         defaultCompilerOptionsFileName);
     compileJobDescription.setCompilerOptions(compilerOptions);
 
+    // Step 6: if the destination directory has been specified for the javac task the class files are written to it
+    // while they are compiled (or copied to it once the compilation has succeeded if this has been enabled)
+    DirectoryClassFileSink destdirSink = null;
+    if (getJavac().getDestdir() != null) {
+      /**
+       * @todo [12-Apr-2011:KASI] This needs to be supported for Javac, too. It would be possible to use the destdir
+       *       alternatively but references like the EcjAdditionalCompilerArguments need to be adopted in this case.
+       */
+      destdirSink = new DirectoryClassFileSink(getJavac().getDestdir(), !Boolean
+          .getBoolean(ANT4ECLIPSE_COPY_DESTDIR_LATE));
+      compileJobDescription.setClassFileSinks(new ClassFileSink[] { destdirSink });
+    }
+
     if (A4ELogging.isTraceingEnabled()) {
       A4ELogging.trace("CompileJobDescription: %s", compileJobDescription);
     }
 
-    // Step 6: Compile
-    CompileJobResult compileJobResult = compile(compileJobDescription);
+    // Step 7: Compile
+    CompileJobResult compileJobResult = null;
+    if (this._incremental && supportsIncrementalCompilation() && (getJavac().getDestdir() != null)) {
+      compileJobResult = compileIncrementally(compileJobDescription, destdirSink);
+    } else {
+      compileJobResult = compile(compileJobDescription);
+    }
 
-    // Step 7: dump result
+    // Step 8: dump result
     CategorizedProblem[] categorizedProblems = compileJobResult.getCategorizedProblems();
 
     // Buffer for messages
@@ -191,52 +273,326 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
       }
     }
 
-    // if the destination directory has been specified for the javac task we might need
-    // to copy the generated class files
-    if (compileJobResult.succeeded() && (getJavac().getDestdir() != null)) {
-      /**
-       * @todo [12-Apr-2011:KASI] This needs to be supported for Javac, too. It would be possible to use the destdir
-       *       alternatively but references like the EcjAdditionalCompilerArguments need to be adopted in this case.
-       */
-      File destdir = Utilities.getCanonicalFile(getJavac().getDestdir());
-
-      PerformanceLogging.start(A4ECompilerAdapter.class, "cloneClasses");
-      try {
-        cloneClasses(destdir, compileJobResult.getCompiledClassFiles());
-      } finally {
-        PerformanceLogging.stop(A4ECompilerAdapter.class, "cloneClasses");
-      }
-    }
-
     // throw Exception if compilation was not successful
     if (!compileJobResult.succeeded()) {
       throw new Ant4EclipseException(EcjExceptionCodes.COMPILATION_WAS_NOT_SUCCESFUL);
     }
 
-    // Step 8: Return
+    // Step 9: copy the class files to the destination directory (if they haven't been written while compiled)
+    if (destdirSink != null) {
+      destdirSink.commit();
+    }
+
+    // Step 10: Return
     return true;
 
   }
 
   /**
-   * Clones all generated class files while copying them into the user specified directory.
+   * <p>
+   * Compiles the changed source files and (transitively) the source files that depend on structurally changed types.
+   * The state of the previous compilation is read from (and written to) a file next to the destination directory (see
+   * {@link IncrementalBuildState}). A full compilation is performed if there's no such state, if the compiler options
+   * or the class path have been changed or if one of the jar files on the class path has been modified.
+   * </p>
+   * 
+   * @param description
+   *          The description which provides all source files of the project.
+   * @param destdirSink
+   *          The sink for the destination directory. It receives the class files of the source files that haven't been
+   *          compiled in this run, too.
+   * 
+   * @return A result that provides the class files of all source files (including the ones that haven't been compiled
+   *         in this run) and the problems of this run.
+   */
+  private CompileJobResult compileIncrementally(DefaultCompileJobDescription description,
+      DirectoryClassFileSink destdirSink) {
+
+    File destdir = Utilities.getCanonicalFile(getJavac().getDestdir());
+    File stateFile = IncrementalBuildState.getStateFile(destdir);
+
+    // Step 1: collect the source files and the output folders (together with their source folders)
+    Map<String, SourceFile> sourceFiles = new LinkedHashMap<String, SourceFile>();
+    Map<File, List<File>> outputFolders = new LinkedHashMap<File, List<File>>();
+    for (SourceFile sourceFile : description.getSourceFiles()) {
+      sourceFiles.put(IncrementalBuildState.getKey(sourceFile), sourceFile);
+      File outputFolder = Utilities.getCanonicalFile(sourceFile.getDestinationFolder());
+      List<File> sourceFolders = outputFolders.get(outputFolder);
+      if (sourceFolders == null) {
+        sourceFolders = new LinkedList<File>();
+        outputFolders.put(outputFolder, sourceFolders);
+      }
+      if (!sourceFolders.contains(sourceFile.getSourceFolder())) {
+        sourceFolders.add(sourceFile.getSourceFolder());
+      }
+    }
+
+    // Step 2: the class path (without the output folders of this project) is used to detect changed binary types
+    List<File> classpath = new ArrayList<File>();
+    for (File entry : description.getClassFileLoader().getClasspath()) {
+      entry = Utilities.getCanonicalFile(entry);
+      if (!entry.equals(destdir) && !outputFolders.containsKey(entry)) {
+        classpath.add(entry);
+      }
+    }
+
+    // Step 3: load the previous state and compute the source files that have to be compiled
+    String configuration = IncrementalBuildState.hash(getConfiguration(description));
+    IncrementalBuildState state = IncrementalBuildState.load(stateFile);
+    Set<String> changedTypes = new HashSet<String>();
+    Set<String> toCompile = new LinkedHashSet<String>();
+
+    if (state == null) {
+      // without a (valid) state the class files in the destination directory are unknown, so they are removed as they
+      // might belong to source files that don't exist anymore
+      A4ELogging.debug("No incremental build state for '%s', removing all class files.", destdir);
+      removeAllClassFiles(destdir);
+    } else {
+      // the class files of removed source files are deleted
+      for (String key : state.getSourceFiles()) {
+        if (!sourceFiles.containsKey(key)) {
+          for (String classFileName : removeClassFiles(state, key, destdir, null)) {
+            changedTypes.add(IncrementalBuildState.getTypeName(classFileName));
+          }
+          state.remove(key);
+        }
+      }
+    }
+
+    Set<String> changedClasspathTypes = null;
+    if ((state != null) && configuration.equals(state.getConfiguration())) {
+      changedClasspathTypes = state.updateClasspath(classpath.toArray(new File[classpath.size()]));
+    }
+
+    if (changedClasspathTypes == null) {
+      // full compilation (the class files of the previous compilation are still removed before compiling)
+      if (state == null) {
+        state = new IncrementalBuildState(configuration);
+      } else {
+        state.setConfiguration(configuration);
+      }
+      state.updateClasspath(classpath.toArray(new File[classpath.size()]));
+      toCompile.addAll(sourceFiles.keySet());
+    } else {
+      changedTypes.addAll(changedClasspathTypes);
+      for (Map.Entry<String, SourceFile> entry : sourceFiles.entrySet()) {
+        if (!state.isUpToDate(entry.getValue())) {
+          toCompile.add(entry.getKey());
+        }
+      }
+      for (String key : state.getDependents(changedTypes)) {
+        if (sourceFiles.containsKey(key)) {
+          toCompile.add(key);
+        }
+      }
+    }
+
+    A4ELogging.info("Incremental compilation: %d of %d source files have to be compiled.", Integer.valueOf(toCompile
+        .size()), Integer.valueOf(sourceFiles.size()));
+
+    // Step 4: compile until there are no more dependents of structurally changed types (a broken build leads to a
+    // full compilation next time, as the state file is only written when the compilation has been successful)
+    stateFile.delete();
+    List<CategorizedProblem> categorizedProblems = new LinkedList<CategorizedProblem>();
+    List<CompiledUnit> compiledUnits = new LinkedList<CompiledUnit>();
+    Set<String> compiled = new HashSet<String>();
+    boolean succeeded = true;
+    while (!toCompile.isEmpty()) {
+
+      // remember and remove the class files of the source files to compile
+      Map<String, byte[]> previousClassFiles = new HashMap<String, byte[]>();
+      List<SourceFile> roundSourceFiles = new ArrayList<SourceFile>(toCompile.size());
+      for (String key : toCompile) {
+        roundSourceFiles.add(sourceFiles.get(key));
+        removeClassFiles(state, key, destdir, previousClassFiles);
+      }
+      compiled.addAll(toCompile);
+
+      // the binary types of the other source files are loaded from the output folders
+      DefaultCompileJobDescription roundDescription = new DefaultCompileJobDescription();
+      roundDescription.setSourceFiles(roundSourceFiles.toArray(new SourceFile[roundSourceFiles.size()]));
+      roundDescription.setClassFileLoader(createOutputFolderClassFileLoader(outputFolders, description
+          .getClassFileLoader()));
+      roundDescription.setCompilerOptions(description.getCompilerOptions());
+      roundDescription.setProduceReferenceInfo(true);
+      roundDescription.setClassFileSinks(description.getClassFileSinks());
+      roundDescription.setParallelism(description.getParallelism());
+      CompileJobResult roundResult = compile(roundDescription);
+
+      succeeded = succeeded && roundResult.succeeded();
+      categorizedProblems.addAll(Arrays.asList(roundResult.getCategorizedProblems()));
+
+      // compare the new class files with the previous ones
+      Set<String> structurallyChangedTypes = new HashSet<String>();
+      for (CompiledUnit compiledUnit : roundResult.getCompiledUnits()) {
+        compiledUnits.add(compiledUnit);
+        File destination = compiledUnit.getSourceFile().getDestinationFolder();
+        for (String classFileName : compiledUnit.getClassFileNames()) {
+          byte[] previous = previousClassFiles.remove(classFileName);
+          if ((previous == null) || hasStructuralChanges(previous, new File(destination, classFileName))) {
+            structurallyChangedTypes.add(IncrementalBuildState.getTypeName(classFileName));
+          }
+        }
+        // source files with errors will be compiled again next time
+        if (compiledUnit.hasErrors()) {
+          state.remove(IncrementalBuildState.getKey(compiledUnit.getSourceFile()));
+        } else {
+          state.update(compiledUnit);
+        }
+      }
+
+      // class files that haven't been produced again
+      for (String classFileName : previousClassFiles.keySet()) {
+        structurallyChangedTypes.add(IncrementalBuildState.getTypeName(classFileName));
+      }
+
+      // compile the dependents that haven't been compiled yet
+      toCompile = new LinkedHashSet<String>();
+      for (String key : state.getDependents(structurallyChangedTypes)) {
+        if (sourceFiles.containsKey(key) && !compiled.contains(key)) {
+          toCompile.add(key);
+        }
+      }
+      if (!toCompile.isEmpty()) {
+        A4ELogging.debug("Compiling %d dependent source files.", Integer.valueOf(toCompile.size()));
+      }
+    }
+
+    // Step 5: save the state if the compilation succeeded (otherwise the state file stays deleted)
+    if (succeeded) {
+      state.save(stateFile);
+    }
+
+    // Step 6: the result provides the class files of all source files, the ones that haven't been compiled in this run
+    // are copied to the destination directory (which might have been cleaned or might differ from the output folder)
+    Map<String, File> allClassFiles = new HashMap<String, File>();
+    for (String key : sourceFiles.keySet()) {
+      File destination = state.getDestinationFolder(key);
+      for (String classFileName : state.getClassFileNames(key)) {
+        allClassFiles.put(classFileName, new File(destination, classFileName));
+        if (!compiled.contains(key)) {
+          destdirSink.copy(destination, classFileName);
+        }
+      }
+    }
+    CompileJobResultImpl result = new CompileJobResultImpl();
+    result.setSucceeded(succeeded);
+    result.setCategorizedProblems(categorizedProblems.toArray(new CategorizedProblem[categorizedProblems.size()]));
+    result.setCompiledClassFiles(allClassFiles);
+    result.setCompiledUnits(compiledUnits.toArray(new CompiledUnit[compiledUnits.size()]));
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the configuration of the compilation that invalidates the incremental state if changed.
+   * </p>
+   */
+  private String getConfiguration(CompileJobDescription description) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(getDefaultEncoding());
+    for (Map.Entry<String, String> option : new TreeMap<String, String>(description.getCompilerOptions()).entrySet()) {
+      builder.append('|');
+      builder.append(option.getKey());
+      builder.append('=');
+      builder.append(option.getValue());
+    }
+    return builder.toString();
+  }
+
+  /**
+   * <p>
+   * Removes the class files that have been produced for the given source file (including the copies in the destination
+   * directory of the javac task).
+   * </p>
    * 
-   * @param destdir
-   *          The destination director to save the classes to. Not <code>null</code>.
-   * @param compiledclasses
-   *          A map which provides all compiled classes. Not <code>null</code>.
+   * @param previousClassFiles
+   *          receives the content of the removed class files, maybe <code>null</code>.
+   * @return the names of the class files.
    */
-  private void cloneClasses(File destdir, Map<String, File> compiledclasses) {
-    if (!destdir.isAbsolute()) {
-      destdir = destdir.getAbsoluteFile();
+  private String[] removeClassFiles(IncrementalBuildState state, String key, File destdir,
+      Map<String, byte[]> previousClassFiles) {
+    String[] classFileNames = state.getClassFileNames(key);
+    File destination = state.getDestinationFolder(key);
+    for (String classFileName : classFileNames) {
+      File classFile = new File(destination, classFileName);
+      if (classFile.isFile()) {
+        if (previousClassFiles != null) {
+          try {
+            previousClassFiles.put(classFileName, Util.getFileByteContent(classFile));
+          } catch (IOException ex) {
+            A4ELogging.debug("Could not read class file '%s': %s", classFile, ex.getMessage());
+          }
+        }
+        classFile.delete();
+      }
+      File copy = new File(destdir, classFileName);
+      if (copy.isFile()) {
+        copy.delete();
+      }
+    }
+    return classFileNames;
+  }
+
+  /**
+   * <p>
+   * Removes all class files from the given directory (recursively).
+   * </p>
+   * 
+   * @param directory
+   *          the directory.
+   */
+  private void removeAllClassFiles(File directory) {
+    File[] children = directory.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      if (child.isDirectory()) {
+        removeAllClassFiles(child);
+      } else if (child.getName().endsWith(".class")) {
+        child.delete();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given class file is structurally different from its previous version.
+   * </p>
+   */
+  private boolean hasStructuralChanges(byte[] previous, File classFile) {
+    try {
+      ClassFileReader reader = new ClassFileReader(previous, classFile.getName().toCharArray());
+      return reader.hasStructuralChanges(Util.getFileByteContent(classFile));
+    } catch (ClassFormatException ex) {
+      return true;
+    } catch (IOException ex) {
+      return true;
     }
-    for (Map.Entry<String, File> entry : compiledclasses.entrySet()) {
-      File destfile = Utilities.getCanonicalFile(new File(destdir, entry.getKey()));
-      Utilities.mkdirs(destfile.getParentFile());
-      if (!destfile.equals(entry.getValue())) {
-        Utilities.copy(entry.getValue(), destfile);
+  }
+
+  /**
+   * <p>
+   * Creates a class file loader that loads the binary types of this project from the given output folders (and their
+   * source folders, so that types without class files can be compiled from source) before delegating to the given
+   * class file loader.
+   * </p>
+   */
+  private ClassFileLoader createOutputFolderClassFileLoader(Map<File, List<File>> outputFolders,
+      ClassFileLoader classFileLoader) {
+    List<ClassFileLoader> classFileLoaders = new LinkedList<ClassFileLoader>();
+    for (Map.Entry<File, List<File>> entry : outputFolders.entrySet()) {
+      if (!entry.getKey().isDirectory()) {
+        continue;
       }
+      List<File> sourceFolders = entry.getValue();
+      classFileLoaders.add(ClassFileLoaderFactory.createClasspathClassFileLoader(entry.getKey(), EcjAdapter.PROJECT,
+          new File[] { entry.getKey() }, sourceFolders.toArray(new File[sourceFolders.size()])));
     }
+    classFileLoaders.add(classFileLoader);
+    return ClassFileLoaderFactory.createCompoundClassFileLoader(classFileLoaders
+        .toArray(new ClassFileLoader[classFileLoaders.size()]));
   }
 
   /**
@@ -435,16 +791,11 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
         File classesFile = fileResource.getFile();
         ClassFileLoader myclassFileLoader = null;
 
-        // jar files
+        // jar files (the class file loaders are cached by the ClassFileLoaderFactory)
         if (classesFile.isFile()) {
 
-          // if (ClassFileLoaderCache.getInstance().hasClassFileLoader(classesFile)) {
-          // myclassFileLoader = ClassFileLoaderCache.getInstance().getClassFileLoader(classesFile);
-          // } else {
           myclassFileLoader = ClassFileLoaderFactory.createClasspathClassFileLoader(classesFile, EcjAdapter.LIBRARY,
               new File[] { classesFile }, new File[] {});
-          // ClassFileLoaderCache.getInstance().storeClassFileLoader(classesFile, myclassFileLoader);
-          // }
 
         } else {
 
@@ -492,18 +843,27 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
     // Step 1: get the boot class path as specified in the javac task
     Path bootclasspath = getJavac().getBootclasspath();
 
-    // if (ClassFileLoaderCache.getInstance().hasClassFileLoader(bootclasspath.toString())) {
-    // return ClassFileLoaderCache.getInstance().getClassFileLoader(bootclasspath.toString());
-    // }
+    // the boot class path (e.g. the JRE) is usually shared by all projects, so it only has to be indexed once per build
+    String accessRestrictions = "";
+    if (compilerArguments != null && compilerArguments.hasBootClassPathAccessRestrictions()) {
+      accessRestrictions = compilerArguments.getBootClassPathAccessRestrictions();
+    }
+    String cacheKey = "bootclasspath:" + bootclasspath.toString() + "|" + accessRestrictions;
+    ClassFileLoader cachedClassFileLoader = ClassFileLoaderCache.getInstance().getClassFileLoader(cacheKey);
+    if (cachedClassFileLoader != null) {
+      return cachedClassFileLoader;
+    }
 
     // Step 2: create ClassFileLoaders for each entry in the boot class path
     List<ClassFileLoader> bootClassFileLoaders = new LinkedList<ClassFileLoader>();
+    List<File> bootClassPathEntries = new LinkedList<File>();
 
     // Step 3: iterate over the boot class path entries as specified in the ant path
     for (Iterator<FileResource> iterator = bootclasspath.iterator(); iterator.hasNext();) {
 
       // get the file resource
       FileResource fileResource = iterator.next();
+      bootClassPathEntries.add(fileResource.getFile());
 
       // create class file loader
       if (fileResource.getFile().exists()) {
@@ -530,7 +890,8 @@ public abstract class A4ECompilerAdapter extends DefaultCompilerAdapter {
           compilerArguments.getBootClassPathAccessRestrictions());
     }
 
-    // ClassFileLoaderCache.getInstance().storeClassFileLoader(bootclasspath.toString(), classFileLoader);
+    ClassFileLoaderCache.getInstance().storeClassFileLoader(cacheKey, classFileLoader,
+        bootClassPathEntries.toArray(new File[bootClassPathEntries.size()]));
 
     return classFileLoader;
   }
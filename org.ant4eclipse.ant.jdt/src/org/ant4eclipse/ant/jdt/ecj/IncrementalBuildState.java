@@ -0,0 +1,689 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.ant.jdt.ecj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.CompiledUnit;
+import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+
+/**
+ * <p>
+ * The persistent state of an incremental compilation. For each compiled source file the state contains a hash of the
+ * source file, the class files that have been produced and the names the source file refers to (as recorded by the
+ * eclipse java compiler). Additionally the state contains the time stamps of the class path entries, so that changed
+ * binary types can be detected.
+ * </p>
+ * <p>
+ * The state is stored next to the destination directory of the javac task and is only written after a successful
+ * compilation. Whenever the state cannot be read (or has been written by a different version) all class files are
+ * removed from the destination directory and a full compilation is performed.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class IncrementalBuildState {
+
+  /** the version of the file format */
+  private static final int            FORMAT_VERSION = 1;
+
+  /** the suffix of the state file */
+  private static final String         STATE_SUFFIX   = ".a4e-state";
+
+  /** the suffix of class files */
+  private static final String         CLASS_SUFFIX   = ".class";
+
+  /** - */
+  private static final String[]       NO_NAMES       = new String[0];
+
+  /** the hash of the configuration (compiler options, encoding) the state has been created with */
+  private String                      _configuration;
+
+  /** the state of the compiled source files, keyed by the absolute path of the source file */
+  private Map<String, UnitState>      _units;
+
+  /** the state of the class path entries (in class path order), keyed by the absolute path of the entry */
+  private Map<String, ClasspathStamp> _classpath;
+
+  /**
+   * <p>
+   * Creates a new (empty) instance of type {@link IncrementalBuildState}.
+   * </p>
+   *
+   * @param configuration
+   *          the hash of the configuration the state has been created with.
+   */
+  public IncrementalBuildState(String configuration) {
+    Assure.notNull("configuration", configuration);
+    this._configuration = configuration;
+    this._units = new LinkedHashMap<String, UnitState>();
+    this._classpath = new LinkedHashMap<String, ClasspathStamp>();
+  }
+
+  /**
+   * <p>
+   * Returns the file that contains the state for the given destination directory.
+   * </p>
+   *
+   * @param destdir
+   *          the destination directory of the javac task.
+   * @return the file that contains the state.
+   */
+  public static File getStateFile(File destdir) {
+    Assure.notNull("destdir", destdir);
+    return new File(destdir.getParentFile(), "." + destdir.getName() + STATE_SUFFIX);
+  }
+
+  /**
+   * <p>
+   * Returns the key that is used to identify the given source file.
+   * </p>
+   *
+   * @param sourceFile
+   *          the source file.
+   * @return the key that is used to identify the given source file.
+   */
+  public static String getKey(SourceFile sourceFile) {
+    return sourceFile.getSourceFile().getAbsolutePath();
+  }
+
+  /**
+   * <p>
+   * Returns the name of the top level type (e.g. <code>org/example/Outer</code>) for the given class file name (e.g.
+   * <code>org/example/Outer$Inner.class</code>).
+   * </p>
+   *
+   * @param classFileName
+   *          the name of the class file.
+   * @return the name of the top level type.
+   */
+  public static String getTypeName(String classFileName) {
+    String result = classFileName;
+    if (result.endsWith(CLASS_SUFFIX)) {
+      result = result.substring(0, result.length() - CLASS_SUFFIX.length());
+    }
+    int lastSlash = result.lastIndexOf('/');
+    int dollar = result.indexOf('$', lastSlash + 1);
+    if (dollar > 0) {
+      result = result.substring(0, dollar);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the hash of the given configuration.
+   * </p>
+   *
+   * @param configuration
+   *          the configuration (e.g. the compiler options).
+   * @return the hash of the given configuration.
+   */
+  public static String hash(String configuration) {
+    try {
+      byte[] digest = MessageDigest.getInstance("MD5").digest(configuration.getBytes("UTF-8"));
+      StringBuilder builder = new StringBuilder();
+      for (byte b : digest) {
+        builder.append(Integer.toHexString((b >> 4) & 0xF));
+        builder.append(Integer.toHexString(b & 0xF));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      return configuration;
+    } catch (IOException ex) {
+      return configuration;
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the hash of the configuration the state has been created with.
+   * </p>
+   *
+   * @return the hash of the configuration the state has been created with.
+   */
+  public String getConfiguration() {
+    return this._configuration;
+  }
+
+  /**
+   * <p>
+   * Changes the configuration of this state. As the class files produced with the previous configuration are still
+   * known, they can be removed before the source files are compiled again.
+   * </p>
+   *
+   * @param configuration
+   *          the hash of the new configuration.
+   */
+  public void setConfiguration(String configuration) {
+    Assure.notNull("configuration", configuration);
+    this._configuration = configuration;
+    this._classpath.clear();
+  }
+
+  /**
+   * <p>
+   * Returns the keys of all source files that are contained in this state.
+   * </p>
+   *
+   * @return the keys of all source files that are contained in this state.
+   */
+  public Set<String> getSourceFiles() {
+    return new LinkedHashSet<String>(this._units.keySet());
+  }
+
+  /**
+   * <p>
+   * Returns the destination folder of the source file with the given key.
+   * </p>
+   *
+   * @param key
+   *          the key of the source file.
+   * @return the destination folder or <code>null</code> if the source file is not contained in this state.
+   */
+  public File getDestinationFolder(String key) {
+    UnitState unit = this._units.get(key);
+    return unit == null ? null : new File(unit._destination);
+  }
+
+  /**
+   * <p>
+   * Returns the names of the class files that have been produced for the source file with the given key.
+   * </p>
+   *
+   * @param key
+   *          the key of the source file.
+   * @return the names of the class files. Not <code>null</code>.
+   */
+  public String[] getClassFileNames(String key) {
+    UnitState unit = this._units.get(key);
+    return unit == null ? NO_NAMES : unit._classFileNames;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given source file has not been changed since it has been compiled the last time
+   * and all of its class files still exist.
+   * </p>
+   *
+   * @param sourceFile
+   *          the source file.
+   * @return <code>true</code> if the given source file doesn't need to be compiled.
+   */
+  public boolean isUpToDate(SourceFile sourceFile) {
+    UnitState unit = this._units.get(getKey(sourceFile));
+    if (unit == null) {
+      return false;
+    }
+    if (!unit._destination.equals(sourceFile.getDestinationFolder().getAbsolutePath())) {
+      return false;
+    }
+    for (String classFileName : unit._classFileNames) {
+      if (!new File(unit._destination, classFileName).isFile()) {
+        return false;
+      }
+    }
+    File file = sourceFile.getSourceFile();
+    if ((file.length() == unit._length) && (file.lastModified() == unit._lastModified)) {
+      return true;
+    }
+    // the file has been touched, so the content decides
+    byte[] hash = computeHash(file);
+    if ((hash != null) && Arrays.equals(hash, unit._hash)) {
+      unit._length = file.length();
+      unit._lastModified = file.lastModified();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * <p>
+   * Updates the state of a source file that has been compiled successfully.
+   * </p>
+   *
+   * @param compiledUnit
+   *          the compiled unit as returned by the compiler.
+   */
+  public void update(CompiledUnit compiledUnit) {
+    Assure.notNull("compiledUnit", compiledUnit);
+    SourceFile sourceFile = compiledUnit.getSourceFile();
+    File file = sourceFile.getSourceFile();
+
+    UnitState unit = new UnitState();
+    unit._destination = sourceFile.getDestinationFolder().getAbsolutePath();
+    unit._packageName = getPackageName(sourceFile);
+    unit._length = file.length();
+    unit._lastModified = file.lastModified();
+    unit._hash = computeHash(file);
+    if (unit._hash == null) {
+      // not recognized as up to date next time
+      unit._hash = new byte[0];
+    }
+    unit._classFileNames = compiledUnit.getClassFileNames();
+    unit._qualifiedReferences = new HashSet<String>(Arrays.asList(compiledUnit.getQualifiedReferences()));
+    unit._simpleNameReferences = new HashSet<String>(Arrays.asList(compiledUnit.getSimpleNameReferences()));
+    this._units.put(getKey(sourceFile), unit);
+  }
+
+  /**
+   * <p>
+   * Removes the source file with the given key from this state.
+   * </p>
+   *
+   * @param key
+   *          the key of the source file.
+   */
+  public void remove(String key) {
+    this._units.remove(key);
+  }
+
+  /**
+   * <p>
+   * Returns the keys of all source files that refer to one of the given types. A source file refers to a type if it
+   * refers to its simple name and either to its package or to its qualified name, or if the type is located in the
+   * package of the source file (or in the default package).
+   * </p>
+   *
+   * @param typeNames
+   *          the names of the top level types (e.g. <code>org/example/Outer</code>).
+   * @return the keys of all source files that refer to one of the given types.
+   */
+  public Set<String> getDependents(Set<String> typeNames) {
+    Set<String> result = new LinkedHashSet<String>();
+    if (typeNames.isEmpty()) {
+      return result;
+    }
+
+    // split the type names once
+    String[][] types = new String[typeNames.size()][];
+    int index = 0;
+    for (String typeName : typeNames) {
+      int lastSlash = typeName.lastIndexOf('/');
+      types[index++] = new String[] { lastSlash < 0 ? "" : typeName.substring(0, lastSlash),
+          typeName.substring(lastSlash + 1), typeName };
+    }
+
+    for (Map.Entry<String, UnitState> entry : this._units.entrySet()) {
+      UnitState unit = entry.getValue();
+      for (String[] type : types) {
+        if (unit.dependsOn(type[0], type[1], type[2])) {
+          result.add(entry.getKey());
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Updates the time stamps of the given class path entries and returns the names of the types that have been changed
+   * since the state has been saved the last time. If one of the jar files has been changed or if the class path itself
+   * has been changed, <code>null</code> will be returned as the changed types can't be determined.
+   * </p>
+   *
+   * @param classpath
+   *          the class path entries (without the output folders of the compiled source files).
+   * @return the names of the changed top level types (e.g. <code>org/example/Outer</code>) or <code>null</code>.
+   */
+  public Set<String> updateClasspath(File[] classpath) {
+    Assure.notNull("classpath", classpath);
+
+    Map<String, ClasspathStamp> previous = this._classpath;
+    this._classpath = new LinkedHashMap<String, ClasspathStamp>();
+    for (File entry : classpath) {
+      this._classpath.put(entry.getAbsolutePath(), ClasspathStamp.create(entry));
+    }
+
+    // the order of the class path matters
+    if (!Arrays.equals(previous.keySet().toArray(), this._classpath.keySet().toArray())) {
+      return null;
+    }
+
+    Set<String> result = new HashSet<String>();
+    Iterator<ClasspathStamp> iterator = previous.values().iterator();
+    for (ClasspathStamp current : this._classpath.values()) {
+      ClasspathStamp stamp = iterator.next();
+      if (stamp._directory != current._directory) {
+        return null;
+      }
+      if (!current._directory) {
+        if ((stamp._length != current._length) || (stamp._lastModified != current._lastModified)) {
+          return null;
+        }
+      } else {
+        for (Map.Entry<String, Long> classFile : current._classFiles.entrySet()) {
+          if (!classFile.getValue().equals(stamp._classFiles.get(classFile.getKey()))) {
+            result.add(getTypeName(classFile.getKey()));
+          }
+        }
+        for (String classFileName : stamp._classFiles.keySet()) {
+          if (!current._classFiles.containsKey(classFileName)) {
+            result.add(getTypeName(classFileName));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Loads the state from the given file.
+   * </p>
+   *
+   * @param stateFile
+   *          the file that contains the state.
+   * @return the state or <code>null</code> if the file doesn't exist or can't be read.
+   */
+  public static IncrementalBuildState load(File stateFile) {
+    if (!stateFile.isFile()) {
+      return null;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+      if (input.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      IncrementalBuildState result = new IncrementalBuildState(input.readUTF());
+
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String path = input.readUTF();
+        ClasspathStamp stamp = new ClasspathStamp();
+        stamp._directory = input.readBoolean();
+        stamp._length = input.readLong();
+        stamp._lastModified = input.readLong();
+        if (stamp._directory) {
+          int classFiles = input.readInt();
+          stamp._classFiles = new HashMap<String, Long>(classFiles * 4 / 3 + 1);
+          for (int j = 0; j < classFiles; j++) {
+            stamp._classFiles.put(input.readUTF(), Long.valueOf(input.readLong()));
+          }
+        }
+        result._classpath.put(path, stamp);
+      }
+
+      // the (usually small number of) distinct names are shared between the units
+      Map<String, String> names = new HashMap<String, String>();
+      count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String key = input.readUTF();
+        UnitState unit = new UnitState();
+        unit._destination = input.readUTF();
+        unit._packageName = input.readUTF();
+        unit._length = input.readLong();
+        unit._lastModified = input.readLong();
+        unit._hash = new byte[input.readInt()];
+        input.readFully(unit._hash);
+        unit._classFileNames = readNames(input, names);
+        unit._qualifiedReferences = new HashSet<String>(Arrays.asList(readNames(input, names)));
+        unit._simpleNameReferences = new HashSet<String>(Arrays.asList(readNames(input, names)));
+        result._units.put(key, unit);
+      }
+      return result;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read incremental build state '%s': %s", stateFile, ex.getMessage());
+      return null;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Saves this state to the given file.
+   * </p>
+   *
+   * @param stateFile
+   *          the file that contains the state.
+   */
+  public void save(File stateFile) {
+    File tempFile = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(FORMAT_VERSION);
+      output.writeUTF(this._configuration);
+
+      output.writeInt(this._classpath.size());
+      for (Map.Entry<String, ClasspathStamp> entry : this._classpath.entrySet()) {
+        ClasspathStamp stamp = entry.getValue();
+        output.writeUTF(entry.getKey());
+        output.writeBoolean(stamp._directory);
+        output.writeLong(stamp._length);
+        output.writeLong(stamp._lastModified);
+        if (stamp._directory) {
+          output.writeInt(stamp._classFiles.size());
+          for (Map.Entry<String, Long> classFile : stamp._classFiles.entrySet()) {
+            output.writeUTF(classFile.getKey());
+            output.writeLong(classFile.getValue().longValue());
+          }
+        }
+      }
+
+      output.writeInt(this._units.size());
+      for (Map.Entry<String, UnitState> entry : this._units.entrySet()) {
+        UnitState unit = entry.getValue();
+        output.writeUTF(entry.getKey());
+        output.writeUTF(unit._destination);
+        output.writeUTF(unit._packageName);
+        output.writeLong(unit._length);
+        output.writeLong(unit._lastModified);
+        output.writeInt(unit._hash.length);
+        output.write(unit._hash);
+        writeNames(output, unit._classFileNames);
+        writeNames(output, unit._qualifiedReferences.toArray(new String[unit._qualifiedReferences.size()]));
+        writeNames(output, unit._simpleNameReferences.toArray(new String[unit._simpleNameReferences.size()]));
+      }
+      output.close();
+      output = null;
+      if (!tempFile.renameTo(stateFile)) {
+        // the target may exist on some platforms
+        stateFile.delete();
+        if (!tempFile.renameTo(stateFile)) {
+          tempFile.delete();
+        }
+      }
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not write incremental build state '%s': %s", stateFile, ex.getMessage());
+      Utilities.close((Closeable) output);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the package name (e.g. <code>org/example</code>) of the given source file.
+   * </p>
+   */
+  private static String getPackageName(SourceFile sourceFile) {
+    String sourceFileName = sourceFile.getSourceFileName().replace(File.separatorChar, '/');
+    int lastSlash = sourceFileName.lastIndexOf('/');
+    return lastSlash < 0 ? "" : sourceFileName.substring(0, lastSlash);
+  }
+
+  /**
+   * <p>
+   * Computes the hash of the content of the given file.
+   * </p>
+   *
+   * @return the hash or <code>null</code> if the file could not be read.
+   */
+  private static byte[] computeHash(File file) {
+    InputStream input = null;
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      input = new FileInputStream(file);
+      byte[] buffer = new byte[8192];
+      int read = input.read(buffer);
+      while (read != -1) {
+        digest.update(buffer, 0, read);
+        read = input.read(buffer);
+      }
+      return digest.digest();
+    } catch (NoSuchAlgorithmException ex) {
+      return null;
+    } catch (IOException ex) {
+      return null;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  private static void writeNames(DataOutputStream output, String[] names) throws IOException {
+    output.writeInt(names.length);
+    for (String name : names) {
+      output.writeUTF(name);
+    }
+  }
+
+  private static String[] readNames(DataInputStream input, Map<String, String> names) throws IOException {
+    String[] result = new String[input.readInt()];
+    for (int i = 0; i < result.length; i++) {
+      String name = input.readUTF();
+      String shared = names.get(name);
+      if (shared == null) {
+        names.put(name, name);
+        shared = name;
+      }
+      result[i] = shared;
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * The state of a single compiled source file.
+   * </p>
+   */
+  private static class UnitState {
+
+    /** the absolute path of the destination folder */
+    private String      _destination;
+
+    /** the package name of the source file (e.g. <code>org/example</code>) */
+    private String      _packageName;
+
+    /** the length of the source file */
+    private long        _length;
+
+    /** the time stamp of the source file */
+    private long        _lastModified;
+
+    /** the hash of the content of the source file */
+    private byte[]      _hash;
+
+    /** the names of the class files (relative to the destination folder) */
+    private String[]    _classFileNames;
+
+    /** the qualified references (e.g. <code>org/example</code>) */
+    private Set<String> _qualifiedReferences;
+
+    /** the simple name references */
+    private Set<String> _simpleNameReferences;
+
+    /**
+     * <p>
+     * Returns <code>true</code> if this source file depends on the given type.
+     * </p>
+     */
+    public boolean dependsOn(String packageName, String simpleName, String typeName) {
+      if (!this._simpleNameReferences.contains(simpleName)) {
+        return false;
+      }
+      if ((packageName.length() == 0) || packageName.equals(this._packageName)) {
+        return true;
+      }
+      return this._qualifiedReferences.contains(packageName) || this._qualifiedReferences.contains(typeName);
+    }
+  }
+
+  /**
+   * <p>
+   * The time stamps of a class path entry. For directories the time stamps of all class files are recorded.
+   * </p>
+   */
+  private static class ClasspathStamp {
+
+    /** indicates whether the entry is a directory */
+    private boolean           _directory;
+
+    /** the length of the entry (jar files only) */
+    private long              _length;
+
+    /** the time stamp of the entry (jar files only) */
+    private long              _lastModified;
+
+    /** the time stamps of the class files (directories only) */
+    private Map<String, Long> _classFiles;
+
+    /**
+     * <p>
+     * Creates the time stamps for the given class path entry.
+     * </p>
+     */
+    public static ClasspathStamp create(File entry) {
+      ClasspathStamp result = new ClasspathStamp();
+      result._directory = entry.isDirectory();
+      if (result._directory) {
+        result._classFiles = new HashMap<String, Long>();
+        collectClassFiles(entry, "", result._classFiles);
+      } else {
+        result._length = entry.length();
+        result._lastModified = entry.lastModified();
+      }
+      return result;
+    }
+
+    private static void collectClassFiles(File directory, String prefix, Map<String, Long> classFiles) {
+      File[] children = directory.listFiles();
+      if (children == null) {
+        return;
+      }
+      for (File child : children) {
+        String name = prefix + child.getName();
+        if (child.isDirectory()) {
+          collectClassFiles(child, name + "/", classFiles);
+        } else if (name.endsWith(CLASS_SUFFIX)) {
+          classFiles.put(name, Long.valueOf(child.lastModified()));
+        }
+      }
+    }
+  }
+
+} /* ENDCLASS */
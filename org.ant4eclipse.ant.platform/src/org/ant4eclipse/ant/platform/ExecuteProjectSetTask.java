@@ -12,12 +12,9 @@
 package org.ant4eclipse.ant.platform;
 
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
 
 import org.ant4eclipse.ant.platform.core.MacroExecutionComponent;
 import org.ant4eclipse.ant.platform.core.MacroExecutionValues;
@@ -29,6 +26,9 @@ import org.ant4eclipse.ant.platform.core.delegate.MacroExecutionValuesProvider;
 import org.ant4eclipse.ant.platform.core.delegate.ProjectReferenceAwareDelegate;
 import org.ant4eclipse.ant.platform.core.delegate.SubElementAndAttributesDelegate;
 import org.ant4eclipse.ant.platform.core.task.AbstractProjectSetPathBasedTask;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraph;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphExecutor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexHandler;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
 import org.ant4eclipse.lib.core.util.StopWatchService;
@@ -173,9 +173,6 @@ public class ExecuteProjectSetTask extends AbstractProjectSetPathBasedTask imple
   protected void preconditions() throws BuildException {
     super.preconditions();
 
-    if (this._resolveBuildOrder && this._threadCount > 1) {
-      throw new BuildException("In parallel mode (threadCount>1) build order can not be resolved");
-    }
     if (this._threadCount < 1) {
       throw new BuildException("ThreadCount must at least be 1");
     }
@@ -195,100 +192,41 @@ public class ExecuteProjectSetTask extends AbstractProjectSetPathBasedTask imple
 
     // get all eclipse projects and calculate the build order if necessary
     List<EclipseProject> projects = null;
+    DependencyGraph<EclipseProject> dependencyGraph = null;
     if (this._resolveBuildOrder) {
 
       // resolve the build order
-      projects = BuildOrderResolver.resolveBuildOrder(getWorkspace(), getProjectNames(),
+      dependencyGraph = BuildOrderResolver.resolveDependencyGraph(getWorkspace(), getProjectNames(),
           this._projectReferenceAwareDelegate.getProjectReferenceTypes(),
           this._subElementAndAttributeDelegate.getSubElements());
+      projects = BuildOrderResolver.resolveBuildOrder(dependencyGraph, getProjectNames());
     } else {
       // only get the specified projects
       projects = Arrays.asList(getWorkspace().getProjects(getProjectNames(), false));
     }
 
-    final BuildCallable[] buildCallables = new BuildCallable[this._threadCount];
-    for (int i = 0; i < buildCallables.length; i++) {
-      buildCallables[i] = new BuildCallable();
-    }
-
-    int callableIndex = 0;
-    for (final EclipseProject eclipseProject : projects) {
-      buildCallables[callableIndex].addProject(eclipseProject);
-      callableIndex++;
-      if (callableIndex >= buildCallables.length) {
-        callableIndex = 0;
-      }
-    }
-
     // execute the macro definitions
     for (ScopedMacroDefinition<Scope> scopedMacroDefinition : getScopedMacroDefinitions()) {
 
-      //
-      for (BuildCallable buildCallable : buildCallables) {
-        buildCallable.setScopedMacroDefinition(scopedMacroDefinition);
-      }
-
-      if (buildCallables.length > 1) {
-
-        // create the future tasks
-        @SuppressWarnings("unchecked")
-        FutureTask<Void>[] futureTasks = new FutureTask[this._threadCount];
-        for (int i = 0; i < futureTasks.length; i++) {
-          futureTasks[i] = new FutureTask<Void>(buildCallables[i]);
-
-          Thread thread = new Thread(futureTasks[i]);
-          thread.setName("A4E-" + thread.getName());
-          thread.start();
-        }
-
-        // collect the result
-
-        BuildException buildException = null;
-
-        for (FutureTask<Void> futureTask : futureTasks) {
-          if (buildException != null) {
-            // At least one task crashed: cancel all others
-            try {
-              A4ELogging.debug("One task crashed, canceling task " + futureTask);
-              futureTask.cancel(true);
-            } catch (Exception ex) {
-              // ignore
-            }
+      ProjectHandler projectHandler = new ProjectHandler(scopedMacroDefinition);
 
-            continue;
-          }
+      if (this._threadCount > 1) {
 
-          // Wait for task to complete
-          try {
-            futureTask.get();
-          } catch (Exception e) {
-            Throwable t = e;
-            if (e instanceof ExecutionException) {
-              t = ((ExecutionException) e).getCause();
-            }
-            if (t instanceof BuildException) {
-              buildException = (BuildException) t;
-            }
-            buildException = new BuildException(e);
+        // each project is executed as soon as all projects it depends on have been executed
+        try {
+          new DependencyGraphExecutor<EclipseProject>(this._threadCount).execute(projects, dependencyGraph,
+              projectHandler);
+        } catch (ExecutionException e) {
+          Throwable t = e.getCause();
+          if (t instanceof RuntimeException) {
+            // BuildExceptions and Ant4EclipseExceptions
+            throw (RuntimeException) t;
           }
-        }
-
-        if (buildException != null) {
-          throw buildException;
+          throw new BuildException(t);
         }
       } else {
-        try {
-          buildCallables[0].call();
-        } catch (Exception e) {
-          Throwable t = e;
-          if (e instanceof ExecutionException) {
-            t = ((ExecutionException) e).getCause();
-          }
-          if (t instanceof BuildException) {
-            throw (BuildException) t;
-          }
-          throw new BuildException(e);
-
+        for (EclipseProject eclipseProject : projects) {
+          projectHandler.handleVertex(eclipseProject);
         }
       }
 
@@ -298,49 +236,36 @@ public class ExecuteProjectSetTask extends AbstractProjectSetPathBasedTask imple
 
   }
 
-  class BuildCallable implements Callable<Void> {
-    private final List<EclipseProject>   _projects = new LinkedList<EclipseProject>();
+  /**
+   * <p>
+   * Executes a scoped macro definition for a single project.
+   * </p>
+   */
+  class ProjectHandler implements VertexHandler<EclipseProject> {
 
     private ScopedMacroDefinition<Scope> _scopedMacroDefinition;
 
-    public void addProject(EclipseProject project) {
-      this._projects.add(project);
-
-    }
-
-    public void setScopedMacroDefinition(ScopedMacroDefinition<Scope> scopedMacroDefinition) {
+    public ProjectHandler(ScopedMacroDefinition<Scope> scopedMacroDefinition) {
       this._scopedMacroDefinition = scopedMacroDefinition;
-
     }
 
-    public Void call() throws Exception {
-
-      // System.out.println(String.format("ExecuteProjectSetTask[%s] 1: %s", Thread.currentThread(), this._projects));
-
-      for (final EclipseProject eclipseProject : this._projects) {
+    public void handleVertex(final EclipseProject eclipseProject) {
 
-        // System.out.println(String.format("ExecuteProjectSetTask[%s] 2: %s", Thread.currentThread(),
-        // eclipseProject.getSpecifiedName()));
+      A4ELogging.debug("ExecuteProjectSetTask[%s]: executing project '%s'", Thread.currentThread().getName(),
+          eclipseProject.getSpecifiedName());
 
-        // execute macro instance
-        ExecuteProjectSetTask.this._macroExecutionDelegate.executeMacroInstance(
-            this._scopedMacroDefinition.getMacroDef(), new MacroExecutionValuesProvider() {
+      // execute macro instance
+      ExecuteProjectSetTask.this._macroExecutionDelegate.executeMacroInstance(
+          this._scopedMacroDefinition.getMacroDef(), new MacroExecutionValuesProvider() {
 
-              public MacroExecutionValues provideMacroExecutionValues(MacroExecutionValues values) {
-                // set the values
-                ExecuteProjectSetTask.this._platformExecutorValuesProvider
-                    .provideExecutorValues(eclipseProject, values);
+            public MacroExecutionValues provideMacroExecutionValues(MacroExecutionValues values) {
+              // set the values
+              ExecuteProjectSetTask.this._platformExecutorValuesProvider.provideExecutorValues(eclipseProject, values);
 
-                // System.out.println(String.format("ExecuteProjectSetTask[%s] 3: %s", Thread.currentThread(),
-                // values.getProperties()));
-
-                // return result
-                return values;
-              }
-            });
-
-      }
-      return null;
+              // return result
+              return values;
+            }
+          });
     }
   }
 
@@ -41,6 +41,11 @@ public class WorkspaceDefinitionDataType extends AbstractAnt4EclipseDataType {
    */
   private boolean      recursive;
 
+  /**
+   * the number of threads used to read the projects of the workspace
+   */
+  private int          _threadCount = 1;
+
   /**
    * <p>
    * Creates a new instance of type {@link WorkspaceDefinitionDataType}.
@@ -70,6 +75,19 @@ public class WorkspaceDefinitionDataType extends AbstractAnt4EclipseDataType {
     this.recursive = recursive;
   }
 
+  /**
+   * <p>
+   * Sets the number of threads used to read the projects of the workspace. The default is 1, i.e. the projects are read
+   * one after another.
+   * </p>
+   * 
+   * @param threadCount
+   *          the number of threads
+   */
+  public void setThreadCount(int threadCount) {
+    this._threadCount = threadCount;
+  }
+
   /**
    * <p>
    * </p>
@@ -92,6 +110,10 @@ public class WorkspaceDefinitionDataType extends AbstractAnt4EclipseDataType {
     if (this._id == null) {
       throw new BuildException("Workspace registration requires the identifier property to be set!");
     }
+
+    if (this._threadCount < 1) {
+      throw new BuildException("ThreadCount must at least be 1");
+    }
     // create a workspace from the filesets
     List<File> projectDirectories = new ArrayList<File>();
     for (DirSet fs : this._dirSet) {
@@ -106,8 +128,8 @@ public class WorkspaceDefinitionDataType extends AbstractAnt4EclipseDataType {
       A4ELogging.warn("No directories found for workspace %s", this._id);
     }
     WorkspaceRegistry registry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
-    registry.registerWorkspace(this._id,
-        new FilesetWorkspaceDefinition(projectDirectories.toArray(new File[projectDirectories.size()])));
+    registry.registerWorkspace(this._id, new FilesetWorkspaceDefinition(projectDirectories
+        .toArray(new File[projectDirectories.size()])), this._threadCount);
   }
 
   /**
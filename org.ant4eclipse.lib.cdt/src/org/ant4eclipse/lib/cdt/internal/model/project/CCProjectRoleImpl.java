@@ -26,7 +26,10 @@ import org.ant4eclipse.lib.platform.model.resource.role.AbstractProjectRole;
  */
 public class CCProjectRoleImpl extends AbstractProjectRole implements CProjectRole {
 
-  public static final String NAME = "CCProjectRole";
+  /** serialVersionUID */
+  private static final long  serialVersionUID = 1L;
+
+  public static final String NAME             = "CCProjectRole";
 
   /**
    * <p>
@@ -36,6 +36,13 @@ public final class CCRoleIdentifier implements ProjectRoleIdentifier {
     return project.hasNature(CCProjectRole.CC_NATURE);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public Class<? extends ProjectRole> getRoleType() {
+    return CCProjectRole.class;
+  }
+
   /**
    * <p>
    * Adds a {@link CProjectRole} to the given project and parses the pathes.
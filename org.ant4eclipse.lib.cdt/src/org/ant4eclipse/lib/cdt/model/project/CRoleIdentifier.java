@@ -36,6 +36,13 @@ public final class CRoleIdentifier implements ProjectRoleIdentifier {
     return project.hasNature(CProjectRole.C_NATURE);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public Class<? extends ProjectRole> getRoleType() {
+    return CProjectRole.class;
+  }
+
   /**
    * <p>
    * Adds a {@link CProjectRole} to the given project and parses the pathes.
@@ -12,13 +12,20 @@
 package org.ant4eclipse.testframework;
 
 import org.ant4eclipse.lib.core.DefaultConfigurator;
+import org.ant4eclipse.lib.core.configuration.Ant4EclipseConfigurationImpl;
 import org.ant4eclipse.lib.core.service.ServiceRegistry;
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
 import org.ant4eclipse.lib.core.util.StringMap;
+import org.ant4eclipse.lib.core.util.Utilities;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+
 /**
  * <p>
  * Base class for all AntEclipse test cases that require a configured {@link ServiceRegistry} and are not executed
@@ -29,6 +36,12 @@ import org.junit.Before;
  */
 public class ConfigurableAnt4EclipseTestCase {
 
+  /** the temporary ant4eclipse cache directory or <code>null</code> */
+  private File   _cacheDir;
+
+  /** the previous value of the ant4eclipse cache directory property */
+  private String _oldCacheDir;
+
   /**
    * This setup method sets up the {@link Ant4EclipseConfigurationProperties} and the {@link ServiceRegistry}.
    * 
@@ -38,6 +51,11 @@ public class ConfigurableAnt4EclipseTestCase {
    */
   @Before
   public void setup() {
+    if (useTemporaryCacheDir()) {
+      this._oldCacheDir = System.getProperty(Utilities.PROP_A4ECACHEDIR);
+      this._cacheDir = JUnitUtilities.createTempDir();
+      System.setProperty(Utilities.PROP_A4ECACHEDIR, this._cacheDir.getAbsolutePath());
+    }
     StringMap properties = customAnt4EclipseConfiguration(new StringMap());
     if (properties == null) {
       DefaultConfigurator.configureAnt4Eclipse();
@@ -56,9 +74,40 @@ public class ConfigurableAnt4EclipseTestCase {
       System.err.println("[Ant4EclipseTestCase] Could not reset ServiceRegistry: " + ex);
       ex.printStackTrace();
       Assert.fail(ex.getMessage());
+    } finally {
+      if (this._cacheDir != null) {
+        if (this._oldCacheDir == null) {
+          System.clearProperty(Utilities.PROP_A4ECACHEDIR);
+        } else {
+          System.setProperty(Utilities.PROP_A4ECACHEDIR, this._oldCacheDir);
+        }
+        Utilities.delete(this._cacheDir);
+        this._cacheDir = null;
+      }
     }
   }
 
+  /**
+   * Returns <code>true</code> if the ant4eclipse cache directory (see {@link Utilities#PROP_A4ECACHEDIR}) is supposed
+   * to be a temporary directory that is removed after the test. This keeps tests of the persistent caches independent
+   * from each other and from the cache directory of the user.
+   * 
+   * @return <code>true</code> if a temporary cache directory is used. Default is <code>false</code>.
+   */
+  protected boolean useTemporaryCacheDir() {
+    return false;
+  }
+
+  /**
+   * Returns the temporary ant4eclipse cache directory.
+   * 
+   * @return The temporary cache directory or <code>null</code> if {@link #useTemporaryCacheDir()} returns
+   *         <code>false</code>.
+   */
+  protected File getCacheDir() {
+    return this._cacheDir;
+  }
+
   /**
    * Provides a set of properties used for the configuration. The supplied set is supposed to be altered and returned.
    * If a <code>null</code> value is returned the default configuration takes place.
@@ -72,4 +121,24 @@ public class ConfigurableAnt4EclipseTestCase {
     return null;
   }
 
+  /**
+   * Adds the entries of all ant4eclipse configuration files on the class path to the supplied set of properties. This
+   * allows {@link #customAnt4EclipseConfiguration(StringMap)} to extend the default configuration instead of replacing
+   * it.
+   * 
+   * @param properties
+   *          The set of properties which is supposed to be altered. Not <code>null</code>.
+   */
+  protected void addDefaultAnt4EclipseConfiguration(StringMap properties) {
+    try {
+      Enumeration<URL> configurationFiles = getClass().getClassLoader().getResources(
+          Ant4EclipseConfigurationImpl.A4E_CONFIGURATION_PROPERTIES);
+      while (configurationFiles.hasMoreElements()) {
+        properties.extendProperties(configurationFiles.nextElement());
+      }
+    } catch (IOException ex) {
+      Assert.fail(ex.getMessage());
+    }
+  }
+
 } /* ENDCLASS */
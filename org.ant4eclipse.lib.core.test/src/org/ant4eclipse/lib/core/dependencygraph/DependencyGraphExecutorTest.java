@@ -0,0 +1,134 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.dependencygraph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.ant4eclipse.lib.core.CoreExceptionCode;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test: DependencyGraphExecutor
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class DependencyGraphExecutorTest {
+
+  @Test
+  public void dependencyOrder() throws Exception {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+    for (String vertex : new String[] { "o1", "o11", "o12", "o121", "o2" }) {
+      graph.addVertex(vertex);
+    }
+    graph.addEdge("o1", "o11");
+    graph.addEdge("o1", "o12");
+    graph.addEdge("o12", "o121");
+    graph.addEdge("o1", "o2");
+
+    final List<String> handled = Collections.synchronizedList(new LinkedList<String>());
+    new DependencyGraphExecutor<String>(4).execute(graph.calculateOrder(), graph, new VertexHandler<String>() {
+      public void handleVertex(String vertex) throws Exception {
+        Thread.sleep(10);
+        handled.add(vertex);
+      }
+    });
+
+    Assert.assertEquals(5, handled.size());
+    Assert.assertTrue(handled.indexOf("o121") < handled.indexOf("o12"));
+    Assert.assertTrue(handled.indexOf("o11") < handled.indexOf("o1"));
+    Assert.assertTrue(handled.indexOf("o12") < handled.indexOf("o1"));
+    Assert.assertTrue(handled.indexOf("o2") < handled.indexOf("o1"));
+  }
+
+  @Test
+  public void unselectedVertices() throws Exception {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+    graph.addVertex("o1");
+    graph.addVertex("o2");
+    graph.addVertex("o3");
+    graph.addEdge("o1", "o2");
+    graph.addEdge("o2", "o3");
+
+    // o1 indirectly depends on o3 even though o2 is not handled
+    final List<String> handled = Collections.synchronizedList(new LinkedList<String>());
+    new DependencyGraphExecutor<String>(2).execute(Arrays.asList("o1", "o3"), graph, new VertexHandler<String>() {
+      public void handleVertex(String vertex) throws Exception {
+        if ("o3".equals(vertex)) {
+          Thread.sleep(50);
+        }
+        handled.add(vertex);
+      }
+    });
+
+    Assert.assertEquals(Arrays.asList("o3", "o1"), handled);
+  }
+
+  @Test
+  public void failure() {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+    graph.addVertex("o1");
+    graph.addVertex("o2");
+    graph.addEdge("o1", "o2");
+
+    final List<String> handled = Collections.synchronizedList(new LinkedList<String>());
+    final RuntimeException failure = new RuntimeException("o2");
+    try {
+      new DependencyGraphExecutor<String>(2).execute(graph.calculateOrder(), graph, new VertexHandler<String>() {
+        public void handleVertex(String vertex) throws Exception {
+          handled.add(vertex);
+          if ("o2".equals(vertex)) {
+            throw failure;
+          }
+        }
+      });
+      Assert.fail();
+    } catch (ExecutionException ex) {
+      Assert.assertSame(failure, ex.getCause());
+    }
+
+    // o1 must not be handled after o2 has failed
+    Assert.assertEquals(Arrays.asList("o2"), handled);
+  }
+
+  @Test
+  public void cycle() throws Exception {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+    graph.addEdge("a", "b");
+    graph.addEdge("b", "a");
+    graph.addEdge("c", "a");
+    graph.addVertex("d");
+
+    final List<String> handled = Collections.synchronizedList(new LinkedList<String>());
+    try {
+      new DependencyGraphExecutor<String>(2).execute(Arrays.asList("a", "b", "c", "d"), graph,
+          new VertexHandler<String>() {
+            public void handleVertex(String vertex) throws Exception {
+              handled.add(vertex);
+            }
+          });
+      Assert.fail();
+    } catch (Ant4EclipseException ex) {
+      Assert.assertEquals(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, ex.getExceptionCode());
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("'a -> b -> a'"));
+    }
+
+    // only the vertices that don't depend on the cycle have been handled
+    Assert.assertEquals(Arrays.asList("d"), handled);
+  }
+
+} /* ENDCLASS */
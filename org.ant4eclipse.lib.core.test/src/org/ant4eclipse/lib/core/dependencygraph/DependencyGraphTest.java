@@ -18,6 +18,7 @@ import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -87,6 +88,49 @@ public class DependencyGraphTest {
     }
   }
 
+  @Test
+  public void allCycles() {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+
+    graph.addEdge("a", "b");
+    graph.addEdge("b", "a");
+    graph.addEdge("c", "d");
+    graph.addEdge("d", "e");
+    graph.addEdge("e", "c");
+    graph.addEdge("f", "f");
+    graph.addEdge("g", "a");
+    graph.addEdge("h", "i");
+
+    try {
+      graph.calculateOrder();
+      Assert.fail();
+    } catch (Ant4EclipseException ex) {
+      Assert.assertEquals(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, ex.getExceptionCode());
+      Assert.assertTrue(ex.getMessage(), ex.getMessage().contains("'a -> b -> a', 'c -> d -> e -> c', 'f -> f'"));
+    }
+  }
+
+  @Test
+  public void levels() {
+    DependencyGraph<String> graph = new DependencyGraph<String>();
+
+    graph.addVertex("o1");
+    graph.addEdge("o1", "o11");
+    graph.addEdge("o1", "o12");
+    graph.addEdge("o12", "o121");
+    graph.addEdge("o1", "o2");
+    graph.addEdge("o1", "o2");
+    graph.addVertex("o3");
+
+    List<List<String>> levels = graph.calculateLevels();
+
+    Assert.assertEquals(3, levels.size());
+    Assert.assertEquals(Arrays.asList("o11", "o121", "o2", "o3"), levels.get(0));
+    Assert.assertEquals(Arrays.asList("o12"), levels.get(1));
+    Assert.assertEquals(Arrays.asList("o1"), levels.get(2));
+    Assert.assertEquals(Arrays.asList("o11", "o12", "o2"), graph.getChildren("o1"));
+  }
+
   @Test
   public void edge() {
     Object parent = new Object();
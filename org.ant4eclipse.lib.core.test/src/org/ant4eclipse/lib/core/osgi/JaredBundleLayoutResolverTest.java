@@ -0,0 +1,198 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.osgi;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.UUID;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+public class JaredBundleLayoutResolverTest extends ConfigurableAnt4EclipseTestCase {
+
+  private File _workDir;
+
+  private File _expansionDir;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._workDir = JUnitUtilities.createTempDir();
+    this._expansionDir = new File(this._workDir, "expanded");
+    Utilities.mkdirs(this._expansionDir);
+  }
+
+  @Override
+  public void dispose() {
+    Utilities.delete(this._workDir);
+    super.dispose();
+  }
+
+  @Test
+  public void noExpansion() throws Exception {
+    File jar = createBundle("b", "1.0.0", ".");
+    File[] entries = new JaredBundleLayoutResolver(jar, this._expansionDir).resolveBundleClasspathEntries();
+    Assert.assertEquals(1, entries.length);
+    Assert.assertEquals(jar, entries[0]);
+    Assert.assertEquals(0, this._expansionDir.list().length);
+  }
+
+  @Test
+  public void digestDirectory() throws Exception {
+    File jar = createBundle("b", "1.0.0", ".,lib/nested.jar");
+    File[] entries = new JaredBundleLayoutResolver(jar, this._expansionDir).resolveBundleClasspathEntries();
+
+    // '.' is the jar file itself, the nested jar is expanded to a directory named by the digest of the jar file
+    Assert.assertEquals(2, entries.length);
+    Assert.assertEquals(jar, entries[0]);
+    File destination = new File(this._expansionDir, "b_1.0.0_" + md5(jar));
+    Assert.assertEquals(new File(destination, "lib/nested.jar"), entries[1]);
+    Assert.assertTrue(entries[1].isFile());
+
+    // only the bundle class path has been expanded
+    Assert.assertFalse(new File(destination, "a/A.class").exists());
+    Assert.assertEquals(1, this._expansionDir.list().length);
+
+    // the expanded bundle is reused...
+    Assert.assertTrue(destination.setLastModified(destination.lastModified() - 100000));
+    long lastModified = destination.lastModified();
+    entries = new JaredBundleLayoutResolver(jar, this._expansionDir).resolveBundleClasspathEntries();
+    Assert.assertEquals(new File(destination, "lib/nested.jar"), entries[1]);
+    Assert.assertEquals(1, this._expansionDir.list().length);
+    Assert.assertTrue(destination.lastModified() > lastModified);
+
+    // ... but not for a modified jar file
+    Assert.assertTrue(jar.delete());
+    createBundle("b", "1.0.0", "lib/nested.jar,.");
+    Assert.assertTrue(jar.setLastModified(jar.lastModified() + 10000));
+    entries = new JaredBundleLayoutResolver(jar, this._expansionDir).resolveBundleClasspathEntries();
+    Assert.assertEquals(new File(this._expansionDir, "b_1.0.0_" + md5(jar) + "/lib/nested.jar"), entries[0]);
+    Assert.assertEquals(jar, entries[1]);
+    Assert.assertEquals(2, this._expansionDir.list().length);
+  }
+
+  @Test
+  public void renameRace() {
+    File destination = new File(this._expansionDir, "b_1.0.0_" + zeros());
+    File tempDirectory = new File(this._expansionDir, destination.getName() + "." + UUID.randomUUID());
+
+    // another build has renamed its temporary directory first
+    writeNestedJar(destination, "first");
+    writeNestedJar(tempDirectory, "second");
+    JaredBundleLayoutResolver.moveTo(tempDirectory, destination);
+    Assert.assertFalse(tempDirectory.exists());
+    Assert.assertEquals("first", Utilities.readTextContent(new File(destination, "lib/nested.jar"), "UTF-8", false)
+        .toString());
+
+    // no other build
+    Assert.assertTrue(Utilities.delete(destination));
+    writeNestedJar(tempDirectory, "second");
+    JaredBundleLayoutResolver.moveTo(tempDirectory, destination);
+    Assert.assertFalse(tempDirectory.exists());
+    Assert.assertEquals("second", Utilities.readTextContent(new File(destination, "lib/nested.jar"), "UTF-8", false)
+        .toString());
+  }
+
+  @Test
+  public void cleanup() {
+    long now = System.currentTimeMillis();
+    File used = createDirectory("b_1.0.0_" + zeros(), now - 1000);
+    File unused = createDirectory("c_1.0.0_" + zeros(), now - JaredBundleLayoutResolver.MAX_AGE - 1000);
+    File expanding = createDirectory("b_1.0.0_" + zeros() + "." + UUID.randomUUID(), now - 1000);
+    File leftBehind = createDirectory("c_1.0.0_" + zeros() + "." + UUID.randomUUID(), now
+        - JaredBundleLayoutResolver.TEMP_MAX_AGE - 1000);
+    File other = createDirectory("other", now - JaredBundleLayoutResolver.MAX_AGE - 1000);
+
+    JaredBundleLayoutResolver.cleanup(this._expansionDir, now);
+    Assert.assertTrue(used.isDirectory());
+    Assert.assertFalse(unused.exists());
+    Assert.assertTrue(expanding.isDirectory());
+    Assert.assertFalse(leftBehind.exists());
+    Assert.assertTrue(other.isDirectory());
+  }
+
+  private void writeNestedJar(File directory, String content) {
+    File nestedJar = new File(directory, "lib/nested.jar");
+    Utilities.mkdirs(nestedJar.getParentFile());
+    Utilities.writeFile(nestedJar, content, "UTF-8");
+  }
+
+  private File createDirectory(String name, long lastModified) {
+    File result = new File(this._expansionDir, name);
+    Utilities.mkdirs(result);
+    Assert.assertTrue(result.setLastModified(lastModified));
+    return result;
+  }
+
+  /**
+   * <p>
+   * Creates a jared bundle that contains a class file and a nested jar file.
+   * </p>
+   */
+  private File createBundle(String symbolicName, String version, String bundleClasspath) throws IOException {
+    Manifest manifest = new Manifest();
+    Attributes attributes = manifest.getMainAttributes();
+    attributes.putValue("Manifest-Version", "1.0");
+    attributes.putValue("Bundle-ManifestVersion", "2");
+    attributes.putValue("Bundle-SymbolicName", symbolicName);
+    attributes.putValue("Bundle-Version", version);
+    attributes.putValue("Bundle-ClassPath", bundleClasspath);
+
+    File result = new File(this._workDir, symbolicName + ".jar");
+    JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(result), manifest);
+    try {
+      outputStream.putNextEntry(new JarEntry("a/A.class"));
+      outputStream.write(new byte[] { 1, 2, 3 });
+      outputStream.putNextEntry(new JarEntry("lib/nested.jar"));
+      outputStream.write(new byte[] { 4, 5, 6 });
+    } finally {
+      outputStream.close();
+    }
+    return result;
+  }
+
+  private String md5(File file) throws Exception {
+    MessageDigest digest = MessageDigest.getInstance("MD5");
+    InputStream inputStream = new FileInputStream(file);
+    try {
+      byte[] buffer = new byte[1024];
+      for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      inputStream.close();
+    }
+    StringBuilder builder = new StringBuilder();
+    for (byte b : digest.digest()) {
+      builder.append(Integer.toHexString((b >> 4) & 0xF));
+      builder.append(Integer.toHexString(b & 0xF));
+    }
+    return builder.toString();
+  }
+
+  private String zeros() {
+    return "00000000000000000000000000000000";
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,84 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.util;
+
+import java.io.File;
+import java.util.jar.JarFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JarFilePoolTest {
+
+  @Test
+  public void sharedHandles() throws Exception {
+    File jar = Utilities.exportResource("/util/test-jar.jar");
+    JarFilePoolImpl pool = new JarFilePoolImpl(4);
+
+    JarFile first = pool.acquire(jar);
+    JarFile second = pool.acquire(jar.getAbsoluteFile());
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, pool.getOpenHandleCount());
+
+    pool.release(first);
+    pool.release(second);
+    Assert.assertEquals(1, pool.getOpenHandleCount());
+
+    pool.closeUnused();
+    Assert.assertEquals(0, pool.getOpenHandleCount());
+    pool.dispose();
+  }
+
+  @Test
+  public void eviction() throws Exception {
+    File jar1 = Utilities.exportResource("/util/test-jar.jar");
+    File jar2 = Utilities.exportResource("/util/test-jar.jar");
+    JarFilePoolImpl pool = new JarFilePoolImpl(1);
+
+    JarFile first = pool.acquire(jar1);
+    JarFile second = pool.acquire(jar2);
+
+    // both handles are still referenced
+    Assert.assertEquals(2, pool.getOpenHandleCount());
+
+    pool.release(first);
+    Assert.assertEquals(1, pool.getOpenHandleCount());
+
+    // the evicted handle will be reopened
+    JarFile third = pool.acquire(jar1);
+    Assert.assertNotSame(first, third);
+    pool.release(second);
+    pool.release(third);
+    Assert.assertEquals(1, pool.getOpenHandleCount());
+    pool.dispose();
+  }
+
+  @Test
+  public void modifiedFile() throws Exception {
+    File jar = Utilities.exportResource("/util/test-jar.jar");
+    JarFilePoolImpl pool = new JarFilePoolImpl(4);
+
+    JarFile first = pool.acquire(jar);
+    Assert.assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+    JarFile second = pool.acquire(jar);
+    Assert.assertNotSame(first, second);
+    Assert.assertEquals(2, pool.getOpenHandleCount());
+
+    // the outdated handle is closed as soon as it's released
+    pool.release(first);
+    Assert.assertEquals(1, pool.getOpenHandleCount());
+    pool.release(second);
+    pool.dispose();
+    Assert.assertEquals(0, pool.getOpenHandleCount());
+  }
+
+} /* ENDCLASS */
@@ -52,6 +52,27 @@ public class UtilitiesTest extends ConfigurableAnt4EclipseTestCase {
 
   }
 
+  @Test
+  public void expandJarEntries() throws IOException {
+
+    File file = Utilities.exportResource("/util/test-jar.jar");
+    File destdir = JUnitUtilities.createTempDir(false);
+    JarFile jarfile = new JarFile(file);
+    try {
+      Utilities.expandJarEntries(jarfile, new String[] { "test.jar", "/META-INF", "missing.jar" }, destdir);
+    } finally {
+      jarfile.close();
+    }
+    Assert.assertTrue(new File(destdir, "test.jar").isFile());
+    Assert.assertTrue(new File(destdir, "META-INF/MANIFEST.MF").isFile());
+    Assert.assertFalse(new File(destdir, "test2.jar").exists());
+    Assert.assertFalse(new File(destdir, "test.txt").exists());
+    Assert.assertFalse(new File(destdir, "missing.jar").exists());
+
+    Assert.assertTrue(Utilities.delete(destdir));
+
+  }
+
   /**
    * This function would be necessary under TestNG !
    * 
@@ -367,6 +388,18 @@ public class UtilitiesTest extends ConfigurableAnt4EclipseTestCase {
 
   }
 
+  @Test
+  public void readTextContentNewlines() throws IOException {
+    String text = "a\r\nb\rc\n\nd";
+
+    StringBuffer buffer1 = Utilities.readTextContent(new ByteArrayInputStream(text.getBytes("UTF-8")), "UTF-8", true);
+    Assert.assertEquals("a" + Utilities.NL + "b" + Utilities.NL + "c" + Utilities.NL + Utilities.NL + "d"
+        + Utilities.NL, buffer1.toString());
+
+    StringBuffer buffer2 = Utilities.readTextContent(new ByteArrayInputStream(text.getBytes("UTF-8")), "UTF-8", false);
+    Assert.assertEquals("abcd", buffer2.toString());
+  }
+
   @Test
   public void removeTrailingPathSeparator() {
     Assert.assertEquals(null, Utilities.removeTrailingPathSeparator(null));
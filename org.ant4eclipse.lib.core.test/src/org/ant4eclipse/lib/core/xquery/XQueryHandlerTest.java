@@ -133,6 +133,33 @@ public class XQueryHandlerTest {
     assertEquals("4", values10[1]);
   }
 
+  @Test
+  public void reuseHandler() throws Exception {
+    XQueryHandler handler = new XQueryHandler();
+    XQuery query1 = handler.createQuery("/database/folder/file");
+    XQuery query2 = handler.createQuery("/database/group/entry[count()]");
+
+    for (int i = 0; i < 2; i++) {
+      InputStream inputStream = getClass().getClassLoader().getResourceAsStream("xquery/data.xml");
+      try {
+        XQueryHandler.queryInputStream(inputStream, handler);
+      } finally {
+        inputStream.close();
+      }
+
+      // results of a previous run must have been discarded
+      String[] values1 = query1.getResult();
+      assertEquals(2, values1.length);
+      assertEquals("diary.txt", values1[0]);
+      assertEquals("public.pgp", values1[1]);
+
+      String[] values2 = query2.getResult();
+      assertEquals(2, values2.length);
+      assertEquals("2", values2[0]);
+      assertEquals("4", values2[1]);
+    }
+  }
+
   @Test
   public void invalidQueries() {
     XQueryHandler handler = new XQueryHandler();
@@ -41,7 +41,7 @@ public class CoreExceptionCode extends ExceptionCode {
   public static CoreExceptionCode X_QUERY_DUCPLICATE_ENTRY_EXCEPTION;
 
   /** - */
-  @NLSMessage("The specified graph contains cyclic dependencies (e.g. '%s').")
+  @NLSMessage("The specified graph contains cyclic dependencies: %s.")
   public static CoreExceptionCode CYCLIC_DEPENDENCIES_EXCEPTION;
 
   /** - */
@@ -15,10 +15,16 @@ import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.CoreExceptionCode;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -48,6 +54,11 @@ import java.util.Set;
  * {@link DependencyGraph#addEdge(Object, Object)}.
  * </p>
  * 
+ * <p>
+ * The graph is stored as adjacency lists, so the order is computed in linear time with respect to the number of
+ * vertices and edges. The vertices are looked up by their <code>hashCode()</code> and <code>equals()</code> methods.
+ * </p>
+ *
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  * @author Daniel Kasmeroglu (daniel.kasmeroglu@kasisoft.net)
  * 
@@ -56,14 +67,17 @@ import java.util.Set;
  */
 public final class DependencyGraph<T> {
 
-  /** vertices */
-  private List<T>           _vertices;
+  /** vertices in the order they have been added */
+  private List<T>            _vertices;
 
-  /** edges */
-  private List<Edge<T>>     _edges;
+  /** the index of each vertex within <code>_vertices</code> */
+  private Map<T, Integer>    _indices;
+
+  /** the indices of the children of each vertex */
+  private List<Set<Integer>> _children;
 
   /** renderer */
-  private VertexRenderer<T> _renderer;
+  private VertexRenderer<T>  _renderer;
 
   /**
    * <p>
@@ -71,8 +85,9 @@ public final class DependencyGraph<T> {
    * </p>
    */
   public DependencyGraph() {
-    this._vertices = new LinkedList<T>();
-    this._edges = new LinkedList<Edge<T>>();
+    this._vertices = new ArrayList<T>();
+    this._indices = new HashMap<T, Integer>();
+    this._children = new ArrayList<Set<Integer>>();
   }
 
   /**
@@ -100,9 +115,7 @@ public final class DependencyGraph<T> {
    */
   public void addVertex(T vertex) {
     Assure.notNull("vertex", vertex);
-    if (!this._vertices.contains(vertex)) {
-      this._vertices.add(vertex);
-    }
+    indexOf(vertex);
   }
 
   /**
@@ -117,7 +130,7 @@ public final class DependencyGraph<T> {
    */
   public boolean containsVertex(T vertex) {
     Assure.notNull("vertex", vertex);
-    return this._vertices.contains(vertex);
+    return this._indices.containsKey(vertex);
   }
 
   /**
@@ -133,9 +146,46 @@ public final class DependencyGraph<T> {
   public void addEdge(T parent, T child) {
     Assure.notNull("parent", parent);
     Assure.notNull("child", child);
-    addVertex(parent);
-    addVertex(child);
-    this._edges.add(new Edge<T>(parent, child));
+    int parentIndex = indexOf(parent);
+    int childIndex = indexOf(child);
+    this._children.get(parentIndex).add(Integer.valueOf(childIndex));
+  }
+
+  /**
+   * <p>
+   * Returns the children of the given vertex, i.e. the vertices the given vertex depends on.
+   * </p>
+   *
+   * @param vertex
+   *          the vertex
+   * @return the children of the given vertex. Not <code>null</code>.
+   */
+  public List<T> getChildren(T vertex) {
+    Assure.notNull("vertex", vertex);
+    List<T> result = new LinkedList<T>();
+    Integer index = this._indices.get(vertex);
+    if (index != null) {
+      for (Integer child : this._children.get(index.intValue())) {
+        result.add(this._vertices.get(child.intValue()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns a textual representation of the given vertex (created by the renderer if set).
+   * </p>
+   *
+   * @param vertex
+   *          the vertex
+   * @return a textual representation of the given vertex.
+   */
+  public String renderVertex(T vertex) {
+    if (this._renderer == null) {
+      return String.valueOf(vertex);
+    }
+    return this._renderer.renderVertex(vertex);
   }
 
   /**
@@ -146,179 +196,279 @@ public final class DependencyGraph<T> {
    * @return the ordered list of all the nodes..
    */
   public List<T> calculateOrder() {
-
-    // setup a matrix that contains a true value iff there is a the first index donates a parent of the second value
-    boolean[][] matrix = new boolean[this._vertices.size()][this._vertices.size()];
-
-    // fill the diagonale
-    for (boolean[] element : matrix) {
-      Arrays.fill(element, false);
+    List<T> result = new LinkedList<T>();
+    for (List<T> level : calculateLevels()) {
+      result.addAll(level);
     }
+    return result;
+  }
 
-    // set each value to true iff there is a relationship form first to second...
-    for (int i = 0; i < this._edges.size(); i++) {
-      Edge<T> edge = this._edges.get(i);
-      int fromidx = this._vertices.indexOf(edge.getParent());
-      int toidx = this._vertices.indexOf(edge.getChild());
-
-      if ((fromidx == -1) || (toidx == -1)) {
-        // one of the edge's vertices has not been
-        // added to this graph (f.e. if it's a dependency
-        // on the outside of a specific context)
-        continue;
+  /**
+   * <p>
+   * Computes the levels of all the nodes. The first level contains the nodes that don't depend on any other node, each
+   * following level contains the nodes whose children are all contained in the preceding levels. The nodes of a level
+   * are independent of each other, so they can be processed concurrently.
+   * </p>
+   * <p>
+   * The nodes of each level are listed in the order they have been added to the graph. Concatenating the levels yields
+   * the order returned by {@link #calculateOrder()}.
+   * </p>
+   * 
+   * @return the levels of all the nodes.
+   */
+  public List<List<T>> calculateLevels() {
+    int size = this._vertices.size();
+
+    // count the children of each vertex and collect the parents of each vertex
+    int[] pending = new int[size];
+    List<List<Integer>> parents = new ArrayList<List<Integer>>(size);
+    for (int i = 0; i < size; i++) {
+      parents.add(new LinkedList<Integer>());
+    }
+    for (int i = 0; i < size; i++) {
+      Set<Integer> children = this._children.get(i);
+      pending[i] = children.size();
+      for (Integer child : children) {
+        parents.get(child.intValue()).add(Integer.valueOf(i));
       }
+    }
 
-      matrix[fromidx][toidx] = true;
+    // the vertices that don't depend on another vertex form the first level
+    List<Integer> current = new ArrayList<Integer>();
+    for (int i = 0; i < size; i++) {
+      if (pending[i] == 0) {
+        current.add(Integer.valueOf(i));
+      }
     }
 
-    List<T> list = new LinkedList<T>();
+    // a vertex is part of the next level as soon as the last of its children has been handled
+    List<List<T>> result = new LinkedList<List<T>>();
+    int handled = 0;
+    while (!current.isEmpty()) {
+      List<T> level = new ArrayList<T>(current.size());
+      List<Integer> next = new ArrayList<Integer>();
+      for (Integer index : current) {
+        level.add(this._vertices.get(index.intValue()));
+        for (Integer parent : parents.get(index.intValue())) {
+          if (--pending[parent.intValue()] == 0) {
+            next.add(parent);
+          }
+        }
+      }
+      result.add(level);
+      handled += level.size();
+      Collections.sort(next);
+      current = next;
+    }
 
-    // iterates across the matrix as long as we didn't found
-    // a cycle and there are still edges to be processed
-    while (reduce(list, matrix)) {
-      // nothing to do...
+    // the remaining vertices are part of or depend on a cycle
+    if (handled < size) {
+      boolean[] remaining = new boolean[size];
+      for (int i = 0; i < size; i++) {
+        remaining[i] = pending[i] > 0;
+      }
+      throw new Ant4EclipseException(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION,
+          cyclesString(findCycles(remaining)));
     }
 
-    return list;
+    return result;
   }
 
   /**
    * <p>
-   * Reduces the internal matrix. Reduction means that the supplied matrix will be modified while vertices that doesn't
-   * refer to any other one can be added to the list since they no longer depend on another vertex. Reduction is an
-   * iterative process, so it's necessary to run this function until the matrix doesn't contain an edge.
+   * Returns a textual representation of all the cycles of this graph, e.g. <code>'a -> b -> a', 'c -> c'</code>.
    * </p>
-   * 
-   * @param result
-   *          The list that will receive the vertices.
-   * @param matrix
-   *          The current state of the matrix representing the graph.
-   * 
-   * @return true <=> There are still edges within the matrix so a succeeding iteration is required.
+   *
+   * @return a textual representation of all the cycles of this graph, an empty string if the graph doesn't contain a
+   *         cycle.
    */
-  private boolean reduce(List<T> result, boolean[][] matrix) {
-    int zeros = 0;
-    int[] count = countEdges(matrix);
-
-    List<T> removable = new LinkedList<T>();
-
-    // add currently independent vertices to the list
-    // of removable candidates
-    for (int i = 0; i < count.length; i++) {
-      if (count[i] == 0) {
-        T vertex = this._vertices.get(i);
+  String renderCycles() {
+    boolean[] candidates = new boolean[this._vertices.size()];
+    Arrays.fill(candidates, true);
+    return cyclesString(findCycles(candidates));
+  }
 
-        if (!result.contains(vertex)) {
-          removable.add(vertex);
-        }
+  /**
+   * <p>
+   * Returns the index of the given vertex. The vertex is added if it isn't part of the graph yet.
+   * </p>
+   *
+   * @param vertex
+   *          the vertex
+   * @return the index of the given vertex.
+   */
+  private int indexOf(T vertex) {
+    Integer index = this._indices.get(vertex);
+    if (index == null) {
+      index = Integer.valueOf(this._vertices.size());
+      this._vertices.add(vertex);
+      this._indices.put(vertex, index);
+      this._children.add(new LinkedHashSet<Integer>());
+    }
+    return index.intValue();
+  }
 
-        zeros++;
+  /**
+   * <p>
+   * Returns all cycles between the given vertices, i.e. all strongly connected components that contain more than one
+   * vertex or a vertex that depends on itself. The components are computed using Tarjan's algorithm.
+   * </p>
+   *
+   * @param candidates
+   *          the vertices that might be part of a cycle.
+   * @return the indices of the vertices of each cycle, sorted in ascending order.
+   */
+  private List<List<Integer>> findCycles(boolean[] candidates) {
+    int size = candidates.length;
+    int[] index = new int[size];
+    int[] lowlink = new int[size];
+    boolean[] onStack = new boolean[size];
+    Arrays.fill(index, -1);
+    LinkedList<Integer> stack = new LinkedList<Integer>();
+    int counter = 0;
+
+    List<List<Integer>> result = new LinkedList<List<Integer>>();
+    for (int root = 0; root < size; root++) {
+      if (!candidates[root] || (index[root] != -1)) {
+        continue;
       }
-    }
 
-    if (removable.isEmpty()) {
-      if (zeros < matrix.length) {
-        // get the first cycle and create an apropriate textual representation
-        StringBuffer buffer = new StringBuffer();
-        for (int i = 0; i < count.length; i++) {
-          if (count[i] > 0) {
-            cycleString(buffer, new HashSet<T>(), i, matrix);
-            break;
+      // depth-first search without recursion, so that long chains can't exhaust the call stack
+      LinkedList<Integer> path = new LinkedList<Integer>();
+      LinkedList<Iterator<Integer>> iterators = new LinkedList<Iterator<Integer>>();
+      index[root] = lowlink[root] = counter++;
+      stack.addLast(Integer.valueOf(root));
+      onStack[root] = true;
+      path.addLast(Integer.valueOf(root));
+      iterators.addLast(this._children.get(root).iterator());
+
+      while (!path.isEmpty()) {
+        int vertex = path.getLast().intValue();
+        Iterator<Integer> iterator = iterators.getLast();
+        if (iterator.hasNext()) {
+          int child = iterator.next().intValue();
+          if (!candidates[child]) {
+            continue;
+          }
+          if (index[child] == -1) {
+            index[child] = lowlink[child] = counter++;
+            stack.addLast(Integer.valueOf(child));
+            onStack[child] = true;
+            path.addLast(Integer.valueOf(child));
+            iterators.addLast(this._children.get(child).iterator());
+          } else if (onStack[child]) {
+            lowlink[vertex] = Math.min(lowlink[vertex], index[child]);
           }
+          continue;
         }
-        throw new Ant4EclipseException(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, buffer.toString());
-      }
-    } else {
-      // we need to clear the removable vertices, so they won't
-      // be processed within the next iteration
-      for (int i = 0; i < matrix.length; i++) {
-        for (int j = 0; j < matrix.length; j++) {
-          if (matrix[i][j]) {
-            if (removable.contains(this._vertices.get(j))) {
-              matrix[i][j] = false;
-            }
+
+        // all children have been visited
+        path.removeLast();
+        iterators.removeLast();
+        if (!path.isEmpty()) {
+          int parent = path.getLast().intValue();
+          lowlink[parent] = Math.min(lowlink[parent], lowlink[vertex]);
+        }
+        if (lowlink[vertex] == index[vertex]) {
+          List<Integer> component = new ArrayList<Integer>();
+          int member;
+          do {
+            member = stack.removeLast().intValue();
+            onStack[member] = false;
+            component.add(Integer.valueOf(member));
+          } while (member != vertex);
+          if ((component.size() > 1) || this._children.get(vertex).contains(Integer.valueOf(vertex))) {
+            Collections.sort(component);
+            result.add(component);
           }
         }
       }
-
-      result.addAll(removable);
     }
 
-    return zeros < matrix.length;
+    // report the cycles in the order of their first vertex
+    Collections.sort(result, new CycleComparator());
+    return result;
   }
 
   /**
    * <p>
-   * Creates a String which is used to create a textual representation of a cycle.
+   * Creates a textual representation of the given cycles, each cycle enclosed in quotes.
    * </p>
-   * 
-   * @param buffer
-   *          The buffer used to collect the data.
-   * @param processed
-   *          A list of added vertices which is required for the abortion criteria.
-   * @param idx
-   *          The index of the vertex which is part of the cycle.
-   * @param matrix
-   *          The current state of the matrix.
+   *
+   * @param cycles
+   *          the cycles as returned by {@link #findCycles(boolean[])}.
+   * @return a textual representation of the given cycles.
    */
-  private void cycleString(StringBuffer buffer, Set<T> processed, int idx, boolean[][] matrix) {
-    T vertex = this._vertices.get(idx);
-    if (this._renderer == null) {
-      buffer.append(String.valueOf(vertex));
-    } else {
-      buffer.append(this._renderer.renderVertex(vertex));
-    }
-    if (processed.contains(vertex)) {
-      return;
-    }
-    buffer.append(" -> ");
-    processed.add(vertex);
-    for (int i = 0; i < matrix.length; i++) {
-      if (matrix[idx][i]) {
-        cycleString(buffer, processed, i, matrix);
-        break;
+  private String cyclesString(List<List<Integer>> cycles) {
+    StringBuffer buffer = new StringBuffer();
+    for (List<Integer> component : cycles) {
+      if (buffer.length() > 0) {
+        buffer.append(", ");
       }
+      buffer.append("'");
+      cycleString(buffer, component);
+      buffer.append("'");
     }
+    return buffer.toString();
   }
 
   /**
    * <p>
-   * Returns a list with the counted number of edges.
+   * Creates a textual representation of a cycle through the first vertex of the given strongly connected component.
+   * The cycle is the shortest one that leads back to that vertex.
    * </p>
    * 
-   * @param matrix
-   *          The matrix which provides graph representation.
-   * 
-   * @return A list with the length of the matrix where each element holds the number of edges of the related row.
+   * @param buffer
+   *          The buffer used to collect the data.
+   * @param component
+   *          The indices of the vertices of the strongly connected component, sorted in ascending order.
    */
-  private int[] countEdges(boolean[][] matrix) {
-    int[] result = new int[matrix.length];
-    // count the number of edges for each row
-    for (int i = 0; i < matrix.length; i++) {
-      result[i] = sum(matrix[i]);
+  private void cycleString(StringBuffer buffer, List<Integer> component) {
+    Integer start = component.get(0);
+
+    // breadth-first search within the component until the start vertex is reached again
+    Map<Integer, Integer> predecessors = new HashMap<Integer, Integer>();
+    LinkedList<Integer> queue = new LinkedList<Integer>();
+    queue.add(start);
+    while (!queue.isEmpty() && !predecessors.containsKey(start)) {
+      Integer vertex = queue.removeFirst();
+      for (Integer child : this._children.get(vertex.intValue())) {
+        if (!predecessors.containsKey(child) && (Collections.binarySearch(component, child) >= 0)) {
+          predecessors.put(child, vertex);
+          queue.addLast(child);
+        }
+      }
+    }
+
+    LinkedList<Integer> cycle = new LinkedList<Integer>();
+    Integer vertex = start;
+    do {
+      cycle.addFirst(vertex);
+      vertex = predecessors.get(vertex);
+    } while (!vertex.equals(start));
+    cycle.addFirst(start);
+
+    for (Iterator<Integer> iterator = cycle.iterator(); iterator.hasNext();) {
+      buffer.append(renderVertex(this._vertices.get(iterator.next().intValue())));
+      if (iterator.hasNext()) {
+        buffer.append(" -> ");
+      }
     }
-    return result;
   }
 
   /**
    * <p>
-   * Returns the number of 'true'-values in the given array.
+   * Compares two cycles by the index of their first vertex.
    * </p>
-   * 
-   * @param row
-   *          the array of boolean
-   * @return the number of 'true'-values in the given array.
    */
-  private int sum(boolean[] row) {
-    int result = 0;
+  private static final class CycleComparator implements Comparator<List<Integer>> {
 
-    for (boolean element : row) {
-      if (element) {
-        result++;
-      }
+    /**
+     * {@inheritDoc}
+     */
+    public int compare(List<Integer> cycle1, List<Integer> cycle2) {
+      return cycle1.get(0).compareTo(cycle2.get(0));
     }
-
-    return result;
   }
 
 } /* ENDCLASS */
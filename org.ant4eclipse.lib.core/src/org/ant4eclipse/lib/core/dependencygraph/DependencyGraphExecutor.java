@@ -0,0 +1,254 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.dependencygraph;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.CoreExceptionCode;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+
+/**
+ * <p>
+ * Executes a {@link VertexHandler} for the vertices of a {@link DependencyGraph} using a bounded pool of worker
+ * threads. A vertex is handled as soon as all the vertices it depends on have been handled, so independent vertices
+ * are handled concurrently while the order defined by the {@link DependencyGraph} is still respected.
+ * </p>
+ * <p>
+ * Vertices that become ready are put on a queue shared by all workers, so an idle worker always picks up the next
+ * ready vertex. If the handling of a vertex fails, all running handlers are interrupted, the remaining vertices are
+ * skipped and the failure is rethrown.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ *
+ * @param <T>
+ *          the type of the vertices
+ */
+public final class DependencyGraphExecutor<T> {
+
+  /** the prefix of the names of the worker threads */
+  private static final String        THREAD_NAME_PREFIX = "A4E-";
+
+  /** counts the created worker threads */
+  private static final AtomicInteger THREAD_NUMBER      = new AtomicInteger();
+
+  /** the maximum number of concurrent workers */
+  private int                        _threadCount;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DependencyGraphExecutor}.
+   * </p>
+   *
+   * @param threadCount
+   *          the maximum number of concurrent workers.
+   */
+  public DependencyGraphExecutor(int threadCount) {
+    Assure.assertTrue(threadCount > 0, "threadCount must be greater than 0");
+    this._threadCount = threadCount;
+  }
+
+  /**
+   * <p>
+   * Handles the given vertices. If a {@link DependencyGraph} is given, a vertex will only be handled after all the
+   * given vertices it (directly or indirectly) depends on have been handled.
+   * </p>
+   *
+   * @param vertices
+   *          the vertices to handle. Vertices that are ready at the same time are handled in the order of this list.
+   * @param dependencyGraph
+   *          the dependency graph, maybe <code>null</code> if the vertices are independent.
+   * @param handler
+   *          the handler.
+   * @throws ExecutionException
+   *           if the handler has failed for one of the vertices. The cause is the exception thrown by the handler.
+   */
+  public void execute(List<T> vertices, DependencyGraph<T> dependencyGraph, VertexHandler<T> handler)
+      throws ExecutionException {
+    Assure.notNull("vertices", vertices);
+    Assure.notNull("handler", handler);
+
+    // Step 1: compute the number of vertices each vertex is waiting for and the vertices waiting for each vertex
+    Set<T> selected = new LinkedHashSet<T>(vertices);
+    Map<T, Integer> pending = new LinkedHashMap<T, Integer>();
+    Map<T, List<T>> waiting = new LinkedHashMap<T, List<T>>();
+    for (T vertex : selected) {
+      Set<T> upstream = dependencyGraph == null ? Collections.<T> emptySet() : getUpstreamVertices(dependencyGraph,
+          vertex, selected);
+      pending.put(vertex, Integer.valueOf(upstream.size()));
+      for (T upstreamVertex : upstream) {
+        List<T> list = waiting.get(upstreamVertex);
+        if (list == null) {
+          list = new LinkedList<T>();
+          waiting.put(upstreamVertex, list);
+        }
+        list.add(vertex);
+      }
+    }
+
+    if (selected.isEmpty()) {
+      return;
+    }
+
+    // Step 2: create the worker pool
+    ExecutorService executorService = Executors.newFixedThreadPool(Math.min(this._threadCount, selected.size()),
+        new ThreadFactory() {
+          public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, THREAD_NAME_PREFIX + THREAD_NUMBER.incrementAndGet());
+          }
+        });
+    CompletionService<T> completionService = new ExecutorCompletionService<T>(executorService);
+
+    // Step 3: submit the ready vertices and wait for them to complete
+    boolean completed = false;
+    try {
+      int running = 0;
+      int handled = 0;
+      for (Map.Entry<T, Integer> entry : pending.entrySet()) {
+        if (entry.getValue().intValue() == 0) {
+          completionService.submit(new VertexTask(entry.getKey(), handler));
+          running++;
+        }
+      }
+
+      while (running > 0) {
+        // fails fast: the finally block cancels everything else
+        T vertex = takeNext(completionService);
+        running--;
+        handled++;
+
+        List<T> list = waiting.get(vertex);
+        if (list != null) {
+          for (T dependent : list) {
+            int count = pending.get(dependent).intValue() - 1;
+            pending.put(dependent, Integer.valueOf(count));
+            if (count == 0) {
+              completionService.submit(new VertexTask(dependent, handler));
+              running++;
+            }
+          }
+        }
+      }
+
+      // can only happen if the dependency graph contains a cycle
+      if (handled < selected.size()) {
+        throw new Ant4EclipseException(CoreExceptionCode.CYCLIC_DEPENDENCIES_EXCEPTION, dependencyGraph.renderCycles());
+      }
+      completed = true;
+    } finally {
+      executorService.shutdownNow();
+      if (!completed) {
+        awaitTermination(executorService);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the given vertices the given vertex depends on. Vertices that have not been selected are skipped, i.e. the
+   * vertices they depend on are used instead.
+   * </p>
+   */
+  private Set<T> getUpstreamVertices(DependencyGraph<T> dependencyGraph, T vertex, Set<T> selected) {
+    Set<T> result = new LinkedHashSet<T>();
+    Set<T> visited = new HashSet<T>();
+    LinkedList<T> queue = new LinkedList<T>(dependencyGraph.getChildren(vertex));
+    while (!queue.isEmpty()) {
+      T child = queue.removeFirst();
+      if (child.equals(vertex) || !visited.add(child)) {
+        continue;
+      }
+      if (selected.contains(child)) {
+        result.add(child);
+      } else {
+        queue.addAll(dependencyGraph.getChildren(child));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Waits for the next completed vertex.
+   * </p>
+   *
+   * @throws ExecutionException
+   *           if the handler has failed for the completed vertex.
+   */
+  private T takeNext(CompletionService<T> completionService) throws ExecutionException {
+    try {
+      return completionService.take().get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ExecutionException(ex);
+    }
+  }
+
+  /**
+   * <p>
+   * Waits until the interrupted workers have been terminated, so that no handler is still running when the failure is
+   * reported.
+   * </p>
+   */
+  private void awaitTermination(ExecutorService executorService) {
+    try {
+      while (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+        A4ELogging.debug("Waiting for running workers to terminate.");
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * <p>
+   * Handles a single vertex.
+   * </p>
+   */
+  private class VertexTask implements Callable<T> {
+
+    /** the vertex */
+    private T                _vertex;
+
+    /** the handler */
+    private VertexHandler<T> _handler;
+
+    public VertexTask(T vertex, VertexHandler<T> handler) {
+      this._vertex = vertex;
+      this._handler = handler;
+    }
+
+    public T call() throws Exception {
+      this._handler.handleVertex(this._vertex);
+      return this._vertex;
+    }
+  }
+
+} /* ENDCLASS */
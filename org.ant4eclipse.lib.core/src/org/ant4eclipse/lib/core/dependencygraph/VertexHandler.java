@@ -0,0 +1,39 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.dependencygraph;
+
+/**
+ * <p>
+ * Interface for a vertex handler. A vertex handler is called by the {@link DependencyGraphExecutor} for each vertex
+ * once all the vertices it depends on have been handled.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ *
+ * @param <T>
+ *          the type of the vertices
+ */
+public interface VertexHandler<T> {
+
+  /**
+   * <p>
+   * Handles the given vertex. Might be called concurrently for independent vertices.
+   * </p>
+   *
+   * @param vertex
+   *          the vertex to handle.
+   * @throws Exception
+   *           if the vertex could not be handled. No further vertices will be handled in this case.
+   */
+  void handleVertex(T vertex) throws Exception;
+
+} /* ENDINTERFACE */
@@ -19,22 +19,68 @@ import org.ant4eclipse.lib.core.util.ManifestHelper;
 import org.ant4eclipse.lib.core.util.ManifestHelper.ManifestHeaderElement;
 import org.ant4eclipse.lib.core.util.Utilities;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
+import java.util.regex.Pattern;
 
 /**
  * <p>
  * Implements a {@link BundleLayoutResolver} for jared bundles.
  * </p>
+ * <p>
+ * If the bundle class path of a jared bundle contains nested jar files (or directories), these entries are expanded to
+ * a sub directory of the expansion directory. The sub directory is addressed by the symbolic name, the version and the
+ * digest of the jar file, so an expanded bundle can be shared by several builds (and is never used for a modified jar
+ * file). The entries are expanded to a temporary directory which is renamed afterwards, so concurrent builds never see
+ * a partially expanded bundle.
+ * </p>
+ * <p>
+ * Each expansion directory is cleaned up once per JVM: temporary directories that have been left behind by aborted
+ * builds are removed after an hour, expanded bundles that haven't been used for the number of days given by the system
+ * property <code>ant4eclipse.bundleExpansionCacheMaxAge</code> (30 by default, <code>0</code> keeps them forever) are
+ * removed as well. The whole expansion directory can be deleted safely while no build is running.
+ * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public class JaredBundleLayoutResolver implements BundleLayoutResolver {
 
+  /** the locks per destination directory, so that different bundles can be expanded concurrently */
+  private static final ConcurrentMap<String, Object>  LOCKS           = new ConcurrentHashMap<String, Object>();
+
+  /** the digests of the jar files (path, length and time stamp -> digest) */
+  private static final ConcurrentMap<String, String>  DIGESTS         = new ConcurrentHashMap<String, String>();
+
+  /** the expansion directories that have been cleaned up already */
+  private static final ConcurrentMap<String, Boolean> CLEANED         = new ConcurrentHashMap<String, Boolean>();
+
+  /** the number of milliseconds after which an expanded bundle that hasn't been used is removed */
+  static final long                                   MAX_AGE         = Integer.getInteger(
+                                                                          "ant4eclipse.bundleExpansionCacheMaxAge", 30)
+                                                                          .intValue() * 24L * 60L * 60L * 1000L;
+
+  /** the number of milliseconds after which a temporary directory is considered to be left behind */
+  static final long                                   TEMP_MAX_AGE    = 60L * 60L * 1000L;
+
+  /** the names of expanded bundles (<code>&lt;symbolic name&gt;_&lt;version&gt;_&lt;digest&gt;</code>) */
+  private static final Pattern                        EXPANDED_BUNDLE = Pattern.compile(".+_[0-9a-f]{32}");
+
+  /** the names of the temporary directories (<code>&lt;expanded bundle&gt;.&lt;uuid&gt;</code>) */
+  private static final Pattern                        TEMP_DIRECTORY  = Pattern
+                                                                          .compile(".+_[0-9a-f]{32}\\.[0-9a-f-]{36}");
+
   /** the location */
   private File     _location;
 
@@ -134,7 +180,8 @@ public class JaredBundleLayoutResolver implements BundleLayoutResolver {
 
   /**
    * <p>
-   * Expands the jared bundle to the expansion directory and returns all files that belongs to the bundle class path.
+   * Expands the entries of the bundle class path of the jared bundle to the expansion directory and returns all files
+   * that belongs to the bundle class path.
    * </p>
    * 
    * @return all files that belongs to the bundle class path.
@@ -154,11 +201,15 @@ public class JaredBundleLayoutResolver implements BundleLayoutResolver {
 
     String version = ManifestHelper.getManifestHeader(this._manifest, ManifestHelper.BUNDLE_VERSION);
 
-    File destination = new File(this._expansionDirectory, elements[0].getValues()[0] + "_" + version);
+    // get bundle class path
+    String[] bundleClasspathEntries = ManifestHelper.getBundleClasspath(this._manifest);
 
-    // unwrap jar file
+    // unwrap the bundle class path entries
+    File destination = null;
     try {
-      Utilities.expandJarFile(this._jarFile, destination);
+      String name = (elements[0].getValues()[0] + "_" + version).replaceAll("[^A-Za-z0-9_.-]", "_");
+      destination = new File(this._expansionDirectory, name + "_" + getDigest(this._location));
+      expand(bundleClasspathEntries, destination);
     } catch (Ant4EclipseException ex) {
       if (ex.getExceptionCode() == CoreExceptionCode.IO_FAILURE) {
         // log error
@@ -173,15 +224,12 @@ public class JaredBundleLayoutResolver implements BundleLayoutResolver {
     // prepare results
     List<File> result = new LinkedList<File>();
 
-    // get bundle class path
-    String[] bundleClasspathEntries = ManifestHelper.getBundleClasspath(this._manifest);
-
     // add class path entries to the result
     for (String bundleClasspathEntrie : bundleClasspathEntries) {
 
-      // add 'self'
+      // add 'self' (the content of the jar file itself isn't expanded)
       if (".".equals(bundleClasspathEntrie)) {
-        result.add(destination);
+        result.add(this._location);
       }
       // add entry
       else {
@@ -195,4 +243,141 @@ public class JaredBundleLayoutResolver implements BundleLayoutResolver {
     // return result
     return result.toArray(new File[0]);
   }
+
+  /**
+   * <p>
+   * Expands the given bundle class path entries to the given destination directory (if it doesn't exist yet).
+   * </p>
+   * 
+   * @param bundleClasspathEntries
+   *          the bundle class path entries
+   * @param destination
+   *          the destination directory
+   */
+  private void expand(String[] bundleClasspathEntries, File destination) {
+
+    if (CLEANED.putIfAbsent(this._expansionDirectory.getAbsolutePath(), Boolean.TRUE) == null) {
+      cleanup(this._expansionDirectory, System.currentTimeMillis());
+    }
+
+    Object lock = new Object();
+    Object existing = LOCKS.putIfAbsent(destination.getPath(), lock);
+
+    synchronized (existing != null ? existing : lock) {
+
+      if (destination.isDirectory()) {
+        A4ELogging.debug("Already expanded '%s' to '%s'", this._location, destination);
+        // mark the expanded bundle as used, so it isn't removed by the cleanup
+        destination.setLastModified(System.currentTimeMillis());
+        return;
+      }
+
+      File tempDirectory = new File(this._expansionDirectory, destination.getName() + "." + UUID.randomUUID());
+      Utilities.expandJarEntries(this._jarFile, bundleClasspathEntries, tempDirectory);
+      moveTo(tempDirectory, destination);
+    }
+  }
+
+  /**
+   * <p>
+   * Renames the given temporary directory to the given destination directory. If another build has expanded the same
+   * bundle in the meantime, the temporary directory is removed and the existing destination directory is used.
+   * </p>
+   * 
+   * @param tempDirectory
+   *          the temporary directory
+   * @param destination
+   *          the destination directory
+   */
+  static void moveTo(File tempDirectory, File destination) {
+    try {
+      if (!tempDirectory.renameTo(destination) && !destination.isDirectory()) {
+        throw new Ant4EclipseException(CoreExceptionCode.IO_FAILURE);
+      }
+    } finally {
+      if (tempDirectory.exists()) {
+        Utilities.delete(tempDirectory);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Removes the temporary directories that are older than {@link #TEMP_MAX_AGE} and the expanded bundles that haven't
+   * been used for {@link #MAX_AGE} from the given expansion directory. Other files are left untouched.
+   * </p>
+   * 
+   * @param expansionDirectory
+   *          the expansion directory
+   * @param now
+   *          the current time
+   */
+  static void cleanup(File expansionDirectory, long now) {
+    File[] children = expansionDirectory.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      if (!child.isDirectory()) {
+        continue;
+      }
+      long age = now - child.lastModified();
+      boolean stale = false;
+      if (TEMP_DIRECTORY.matcher(child.getName()).matches()) {
+        stale = age > TEMP_MAX_AGE;
+      } else if (EXPANDED_BUNDLE.matcher(child.getName()).matches()) {
+        stale = (MAX_AGE > 0) && (age > MAX_AGE);
+      }
+      if (stale) {
+        A4ELogging.debug("Removing '%s' from the expansion directory", child);
+        Utilities.delete(child);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the MD5 digest of the content of the given jar file as a hexadecimal string. The digest is only computed
+   * once per JVM as long as the jar file isn't modified.
+   * </p>
+   * 
+   * @param jarFile
+   *          the jar file
+   * @return the digest of the jar file
+   */
+  private static String getDigest(File jarFile) {
+
+    String key = jarFile.getAbsolutePath() + ":" + jarFile.length() + ":" + jarFile.lastModified();
+    String result = DIGESTS.get(key);
+    if (result != null) {
+      return result;
+    }
+
+    InputStream inputStream = null;
+    try {
+      MessageDigest digest = MessageDigest.getInstance("MD5");
+      inputStream = new FileInputStream(jarFile);
+      byte[] buffer = new byte[8192];
+      int read = inputStream.read(buffer);
+      while (read != -1) {
+        digest.update(buffer, 0, read);
+        read = inputStream.read(buffer);
+      }
+      StringBuilder builder = new StringBuilder();
+      for (byte b : digest.digest()) {
+        builder.append(Integer.toHexString((b >> 4) & 0xF));
+        builder.append(Integer.toHexString(b & 0xF));
+      }
+      result = builder.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    } catch (IOException ex) {
+      throw new Ant4EclipseException(ex, CoreExceptionCode.IO_FAILURE);
+    } finally {
+      Utilities.close((Closeable) inputStream);
+    }
+
+    DIGESTS.put(key, result);
+    return result;
+  }
 }
@@ -0,0 +1,73 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.jar.JarFile;
+
+/**
+ * <p>
+ * A build-wide pool of shared {@link JarFile} handles. Handles are keyed by the canonical path and the modification
+ * time of the underlying file, so each archive is only opened (and its central directory only parsed) once per build.
+ * </p>
+ * <p>
+ * Each call to {@link #acquire(File)} must be followed by a call to {@link #release(JarFile)}. Released handles are
+ * kept open for reuse until the number of open handles exceeds the configured limit, in which case the least recently
+ * used unreferenced handles will be closed.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface JarFilePool {
+
+  /**
+   * <p>
+   * Returns a shared {@link JarFile} for the given file and increments its reference count. The returned handle must
+   * not be closed by the caller, use {@link #release(JarFile)} instead.
+   * </p>
+   *
+   * @param file
+   *          the jar file. Not <code>null</code>.
+   * @return the shared {@link JarFile}. Not <code>null</code>.
+   * @throws IOException
+   *           if the jar file could not be opened.
+   */
+  JarFile acquire(File file) throws IOException;
+
+  /**
+   * <p>
+   * Decrements the reference count of the given {@link JarFile} that has been returned by {@link #acquire(File)}.
+   * </p>
+   *
+   * @param jarFile
+   *          the jar file to release. Maybe <code>null</code>.
+   */
+  void release(JarFile jarFile);
+
+  /**
+   * <p>
+   * Returns the number of currently open handles.
+   * </p>
+   *
+   * @return the number of currently open handles.
+   */
+  int getOpenHandleCount();
+
+  /**
+   * <p>
+   * Closes all unreferenced handles.
+   * </p>
+   */
+  void closeUnused();
+
+} /* ENDINTERFACE */
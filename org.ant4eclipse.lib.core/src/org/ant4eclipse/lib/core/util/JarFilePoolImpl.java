@@ -0,0 +1,309 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.Lifecycle;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+
+/**
+ * <p>
+ * Default implementation of the {@link JarFilePool}. The maximum number of open handles can be configured using the
+ * system property <code>ant4eclipse.jarFilePool.maxOpenFiles</code>.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JarFilePoolImpl implements JarFilePool, Lifecycle {
+
+  /** the default maximum of open handles */
+  public static final int                  DEFAULT_MAX_OPEN_FILES = 256;
+
+  /** the maximum of open handles */
+  private static final int                 MAX_OPEN_FILES         = Integer.getInteger(
+                                                                      "ant4eclipse.jarFilePool.maxOpenFiles",
+                                                                      DEFAULT_MAX_OPEN_FILES).intValue();
+
+  /** the current pool entries (canonical path -> entry) in access order */
+  private Map<String, PooledJarFile>       _entries;
+
+  /** all open handles, including the ones that have been replaced due to a modification of the file */
+  private Map<JarFile, PooledJarFile>      _handles;
+
+  /** the maximum of open handles */
+  private int                              _maxOpenFiles;
+
+  /** - */
+  private boolean                          _initialized;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JarFilePoolImpl}.
+   * </p>
+   */
+  public JarFilePoolImpl() {
+    this(MAX_OPEN_FILES);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JarFilePoolImpl}.
+   * </p>
+   *
+   * @param maxOpenFiles
+   *          the maximum number of unreferenced handles that are kept open.
+   */
+  public JarFilePoolImpl(int maxOpenFiles) {
+    Assure.assertTrue(maxOpenFiles > 0, "maxOpenFiles must be greater than 0");
+    this._maxOpenFiles = maxOpenFiles;
+    this._entries = new LinkedHashMap<String, PooledJarFile>(16, 0.75f, true);
+    this._handles = new IdentityHashMap<JarFile, PooledJarFile>();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isInitialized() {
+    return this._initialized;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void initialize() {
+    this._initialized = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void dispose() {
+    this._initialized = false;
+    for (PooledJarFile entry : new ArrayList<PooledJarFile>(this._handles.values())) {
+      close(entry);
+    }
+    this._entries.clear();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public JarFile acquire(File file) throws IOException {
+    Assure.notNull("file", file);
+
+    File canonicalFile = Utilities.getCanonicalFile(file);
+    String key = canonicalFile.getPath();
+    long lastModified = canonicalFile.lastModified();
+
+    synchronized (this) {
+      PooledJarFile entry = getEntry(key, lastModified);
+      if (entry != null) {
+        return reference(entry);
+      }
+    }
+
+    // the jar file is opened outside of the lock, so several jar files can be opened concurrently
+    JarFile jarFile = new JarFile(canonicalFile);
+
+    synchronized (this) {
+      PooledJarFile entry = getEntry(key, lastModified);
+      if (entry != null) {
+        // the jar file has been opened by another thread in the meantime
+        close(new PooledJarFile(jarFile, lastModified));
+      } else {
+        entry = new PooledJarFile(jarFile, lastModified);
+        this._entries.put(key, entry);
+        this._handles.put(jarFile, entry);
+      }
+      return reference(entry);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the current entry for the given key. An entry whose file has been modified since it has been opened is
+   * retired.
+   * </p>
+   *
+   * @param key
+   *          the canonical path
+   * @param lastModified
+   *          the current modification time of the file
+   * @return the entry or <code>null</code>.
+   */
+  private PooledJarFile getEntry(String key, long lastModified) {
+    PooledJarFile entry = this._entries.get(key);
+
+    // the file has been modified since it has been opened
+    if ((entry != null) && (entry._lastModified != lastModified)) {
+      this._entries.remove(key);
+      entry._retired = true;
+      if (entry._references == 0) {
+        close(entry);
+      }
+      entry = null;
+    }
+
+    return entry;
+  }
+
+  /**
+   * <p>
+   * Increments the reference count of the given entry.
+   * </p>
+   *
+   * @param entry
+   *          the entry
+   * @return the shared jar file of the entry.
+   */
+  private JarFile reference(PooledJarFile entry) {
+    entry._references++;
+    evict();
+    return entry._jarFile;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void release(JarFile jarFile) {
+    if (jarFile == null) {
+      return;
+    }
+
+    PooledJarFile entry = this._handles.get(jarFile);
+    if (entry == null) {
+      // the handle has not been created by this pool
+      return;
+    }
+
+    if (entry._references > 0) {
+      entry._references--;
+    }
+
+    if ((entry._references == 0) && entry._retired) {
+      close(entry);
+    } else {
+      evict();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized int getOpenHandleCount() {
+    return this._handles.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void closeUnused() {
+    Iterator<PooledJarFile> iterator = this._entries.values().iterator();
+    while (iterator.hasNext()) {
+      PooledJarFile entry = iterator.next();
+      if (entry._references == 0) {
+        iterator.remove();
+        close(entry);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Closes the least recently used unreferenced handles until the number of open handles doesn't exceed the limit.
+   * </p>
+   */
+  private void evict() {
+    if (this._handles.size() <= this._maxOpenFiles) {
+      return;
+    }
+
+    List<PooledJarFile> evicted = new ArrayList<PooledJarFile>();
+    int open = this._handles.size();
+    Iterator<PooledJarFile> iterator = this._entries.values().iterator();
+    while ((open > this._maxOpenFiles) && iterator.hasNext()) {
+      PooledJarFile entry = iterator.next();
+      if (entry._references == 0) {
+        iterator.remove();
+        evicted.add(entry);
+        open--;
+      }
+    }
+
+    for (PooledJarFile entry : evicted) {
+      close(entry);
+    }
+  }
+
+  /**
+   * <p>
+   * Closes the given entry.
+   * </p>
+   *
+   * @param entry
+   *          the entry to close.
+   */
+  private void close(PooledJarFile entry) {
+    this._handles.remove(entry._jarFile);
+    try {
+      entry._jarFile.close();
+    } catch (IOException ex) {
+      A4ELogging.debug("Failed to close jar file '%s': %s", entry._jarFile.getName(), ex.getMessage());
+    }
+  }
+
+  /**
+   * <p>
+   * A single handle managed by this pool.
+   * </p>
+   */
+  private static class PooledJarFile {
+
+    /** the shared jar file */
+    private JarFile _jarFile;
+
+    /** the modification time of the jar file when it has been opened */
+    private long    _lastModified;
+
+    /** the number of references */
+    private int     _references;
+
+    /** <code>true</code> if this handle has been replaced and has to be closed as soon as it's no longer referenced */
+    private boolean _retired;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link PooledJarFile}.
+     * </p>
+     *
+     * @param jarFile
+     *          the jar file
+     * @param lastModified
+     *          the modification time
+     */
+    public PooledJarFile(JarFile jarFile, long lastModified) {
+      this._jarFile = jarFile;
+      this._lastModified = lastModified;
+    }
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,70 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.util;
+
+/**
+ * <p>
+ * A service managing named counters (e.g. cache hits and misses). All operations are thread-safe.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface MetricsService {
+
+  /**
+   * <p>
+   * Increments the counter with the specified name by one.
+   * </p>
+   *
+   * @param name
+   *          the name of the counter. Not <code>null</code>.
+   */
+  void increment(String name);
+
+  /**
+   * <p>
+   * Adds the given delta to the counter with the specified name.
+   * </p>
+   *
+   * @param name
+   *          the name of the counter. Not <code>null</code>.
+   * @param delta
+   *          the value to add.
+   */
+  void add(String name, long delta);
+
+  /**
+   * <p>
+   * Returns the current value of the counter with the specified name.
+   * </p>
+   *
+   * @param name
+   *          the name of the counter. Not <code>null</code>.
+   * @return the current value of the counter or <code>0</code> if the counter doesn't exist.
+   */
+  long get(String name);
+
+  /**
+   * <p>
+   * Resets all managed counters.
+   * </p>
+   */
+  void resetAll();
+
+  /**
+   * <p>
+   * Dumps all counters via ant4eclipse logging.
+   * </p>
+   */
+  void dumpAll();
+
+} /* ENDINTERFACE */
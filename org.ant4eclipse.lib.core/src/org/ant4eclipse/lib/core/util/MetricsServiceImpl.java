@@ -0,0 +1,96 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.core.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+
+/**
+ * <p>
+ * Default implementation of the {@link MetricsService}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class MetricsServiceImpl implements MetricsService {
+
+  /** the managed counters */
+  private final ConcurrentMap<String, AtomicLong> _counters;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link MetricsServiceImpl}.
+   * </p>
+   */
+  public MetricsServiceImpl() {
+    this._counters = new ConcurrentHashMap<String, AtomicLong>();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void increment(String name) {
+    add(name, 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void add(String name, long delta) {
+    Assure.notNull("name", name);
+
+    AtomicLong counter = this._counters.get(name);
+    if (counter == null) {
+      AtomicLong newCounter = new AtomicLong();
+      counter = this._counters.putIfAbsent(name, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    counter.addAndGet(delta);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public long get(String name) {
+    Assure.notNull("name", name);
+
+    AtomicLong counter = this._counters.get(name);
+    return counter == null ? 0 : counter.get();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void resetAll() {
+    this._counters.clear();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void dumpAll() {
+    Map<String, AtomicLong> counters = new TreeMap<String, AtomicLong>(this._counters);
+    A4ELogging.info(counters.size() + " counters ordered by name");
+    for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+      A4ELogging.info(String.format("  '%s': %d", entry.getKey(), Long.valueOf(entry.getValue().get())));
+    }
+  }
+
+} /* ENDCLASS */
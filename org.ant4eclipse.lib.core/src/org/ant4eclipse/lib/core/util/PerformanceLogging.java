@@ -51,6 +51,21 @@ public class PerformanceLogging {
     return -1;
   }
 
+  /**
+   * Records a time that has been measured elsewhere (e.g. the time a compiler spent in one of its phases). The given
+   * class and name are used as identifier for the StopWatch that should be used
+   * 
+   * @param source
+   * @param name
+   * @param elapsedTime
+   *          the measured time (in ms)
+   */
+  public static void record(Class<?> source, String name, long elapsedTime) {
+    if (ENABLE_PERFORMANCE_LOGGING) {
+      getStopWatchService().getOrCreateStopWatch(source.getName() + "::" + name).add(elapsedTime);
+    }
+  }
+
   /**
    * @return the registered instance of the {@link StopWatchService}
    */
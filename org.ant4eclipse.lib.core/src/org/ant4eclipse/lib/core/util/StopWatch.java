@@ -16,7 +16,8 @@ package org.ant4eclipse.lib.core.util;
  * Implements a stop watch.
  * </p>
  * <p>
- * A stop watch can be started and stoped multiple times.
+ * A stop watch can be started and stoped multiple times. Times that have been measured elsewhere can be added from
+ * several threads concurrently.
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
@@ -36,7 +37,7 @@ public class StopWatch {
     this._name = name;
   }
 
-  public long stop() {
+  public synchronized long stop() {
     if (this._runningSince == -1) {
       return this._elapsedTime;
     }
@@ -50,17 +51,28 @@ public class StopWatch {
   /**
    * (Re)starts the StopWatch
    */
-  public void start() {
+  public synchronized void start() {
     this._invocations++;
     this._runningSince = System.currentTimeMillis();
   }
 
   /**
+   * Adds a time that has been measured elsewhere (e.g. by a compiler) as an invocation of this stop watch.
+   * 
+   * @param elapsedTime
+   *          the measured time (in ms)
+   */
+  public synchronized void add(long elapsedTime) {
+    this._invocations++;
+    this._elapsedTime += elapsedTime;
+  }
+
+  /**
    * Returns the total time this stop watch has been run
    * 
    * @return
    */
-  public long getElapsedTime() {
+  public synchronized long getElapsedTime() {
     return this._elapsedTime;
   }
 
@@ -69,7 +81,7 @@ public class StopWatch {
    * 
    * @return
    */
-  public double getAverageTime() {
+  public synchronized double getAverageTime() {
     if (this._invocations == 0) {
       return 0;
     }
@@ -81,7 +93,7 @@ public class StopWatch {
    * 
    * @return
    */
-  public int getInvocations() {
+  public synchronized int getInvocations() {
     return this._invocations;
     }
 
@@ -24,7 +24,6 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
-import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
@@ -41,6 +40,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
@@ -64,10 +68,10 @@ import org.ant4eclipse.lib.core.nls.NLSMessage;
 public class Utilities {
 
   /** - */
-  private static final String OPEN            = "${";
+  private static final String OPEN             = "${";
 
   /** - */
-  private static final String CLOSE           = "}";
+  private static final String CLOSE            = "}";
 
   @NLSMessage("Exporting a resource is only supported for root based pathes !")
   public static String        MSG_INVALIDRESOURCEPATH;
@@ -76,16 +80,22 @@ public class Utilities {
   public static String        MSG_FAILEDTODELETE;
 
   /** - */
-  public static final String  PROP_A4ETEMPDIR = "ant4eclipse.temp";
+  public static final String  PROP_A4ETEMPDIR  = "ant4eclipse.temp";
 
   /** - */
-  public static final String  NL              = System.getProperty("line.separator");
+  public static final String  PROP_A4ECACHEDIR = "ant4eclipse.cache";
 
   /** - */
-  public static final String  ENCODING        = System.getProperty("file.encoding");
+  public static final String  NL               = System.getProperty("line.separator");
 
   /** - */
-  private static final String OS              = System.getProperty("os.name");
+  public static final String  ENCODING         = System.getProperty("file.encoding");
+
+  /** - */
+  private static final String OS               = System.getProperty("os.name");
+
+  /** the pool of daemon threads that drain the streams of launched processes, created on demand */
+  private static ExecutorService outputCopiers;
 
   static {
     NLS.initialize(Utilities.class);
@@ -146,7 +156,9 @@ public class Utilities {
     InputStream instream = null;
     try {
       instream = new FileInputStream(input);
-      return readTextContent(instream, encoding, includenewlines);
+      StringBuffer result = new StringBuffer((int) Math.min(input.length() + 16, Integer.MAX_VALUE));
+      copyText(instream, encoding, result, includenewlines);
+      return result;
     } catch (Ant4EclipseException ex) {
       throw new Ant4EclipseException(ex, CoreExceptionCode.FILEIO_FAILURE, input);
     } catch (IOException ex) {
@@ -198,22 +210,64 @@ public class Utilities {
    */
   public static final StringBuffer readTextContent(InputStream input, String encoding, boolean includenewlines) {
     try {
-      StringBuffer result = new StringBuffer();
-      OutputCopier copier = new OutputCopier(input, result, encoding);
-      copier.start();
-      copier.join();
-      if (!includenewlines) {
-        int pos = result.indexOf(NL);
-        while (pos != -1) {
-          result.delete(pos, pos + NL.length());
-          pos = result.indexOf(NL);
-        }
-      }
+      // for most streams (files, resources) the available bytes are a good estimation of the size
+      StringBuffer result = new StringBuffer(input.available() + 16);
+      copyText(input, encoding, result, includenewlines);
       return result;
     } catch (IOException ex) {
       throw new Ant4EclipseException(ex, CoreExceptionCode.IO_FAILURE);
-    } catch (InterruptedException ex) {
-      throw new Ant4EclipseException(ex, CoreExceptionCode.FILEIO_FAILURE, input);
+    }
+  }
+
+  /**
+   * Copies the text provided by the supplied stream into the supplied buffer. The text is read in bulk and the
+   * newlines (<code>\n</code>, <code>\r</code> or <code>\r\n</code>) are replaced with {@link #NL} (or removed)
+   * within a single pass. Like {@link java.io.BufferedReader#readLine()} based copying each line (including the last
+   * one) is terminated by a newline.
+   * 
+   * @param instream
+   *          The stream providing the text content. Not <code>null</code>.
+   * @param encoding
+   *          The encoding of the text. Maybe <code>null</code> in which case {@link #ENCODING} is used.
+   * @param dest
+   *          The buffer receiving the text. Not <code>null</code>.
+   * @param includenewlines
+   *          <code>true</code> <=> Allow newlines or remove them otherwise.
+   * 
+   * @throws IOException
+   *           if the stream could not be read.
+   */
+  private static final void copyText(InputStream instream, String encoding, StringBuffer dest, boolean includenewlines)
+      throws IOException {
+    Reader reader = new InputStreamReader(instream, encoding == null ? ENCODING : encoding);
+    String newline = includenewlines ? NL : "";
+    char[] buffer = new char[8192];
+    boolean pendingline = false;
+    boolean carriagereturn = false;
+    int count = reader.read(buffer);
+    while (count != -1) {
+      int start = 0;
+      for (int i = 0; i < count; i++) {
+        char ch = buffer[i];
+        if ((ch == '\n') || (ch == '\r')) {
+          dest.append(buffer, start, i - start);
+          if ((ch == '\r') || (!carriagereturn)) {
+            // a '\n' directly following a '\r' belongs to the same newline
+            dest.append(newline);
+          }
+          carriagereturn = ch == '\r';
+          pendingline = false;
+          start = i + 1;
+        } else {
+          carriagereturn = false;
+          pendingline = true;
+        }
+      }
+      dest.append(buffer, start, count - start);
+      count = reader.read(buffer);
+    }
+    if (pendingline) {
+      dest.append(newline);
     }
   }
 
@@ -999,6 +1053,26 @@ public class Utilities {
     }
   }
 
+  /**
+   * Returns the directory that is used for the persistent cache with the given name. These caches are shared between
+   * several builds, so their content must be validated by the caller. The root location can be configured using the
+   * system property <code>ant4eclipse.cache</code>, the default is <code>${user.home}/.ant4eclipse/cache</code>.
+   * 
+   * @param name
+   *          The name of the cache. Neither <code>null</code> nor empty.
+   * 
+   * @return The cache directory. Not <code>null</code> and is a directory.
+   */
+  public static final File getCacheDir(String name) {
+    Assure.nonEmpty("name", name);
+    String cachedir = cleanup(System.getProperty(PROP_A4ECACHEDIR));
+    File root = cachedir != null ? new File(cachedir) : new File(System.getProperty("user.home"), ".ant4eclipse"
+        + File.separator + "cache");
+    File result = new File(root, name);
+    mkdirs(result);
+    return result;
+  }
+
   /**
    * Writes some content into a temporary File and gives access to it.
    * 
@@ -1180,6 +1254,86 @@ public class Utilities {
 
   }
 
+  /**
+   * <p>
+   * Expands the specified entries of the jar file to the expansion directory. An entry that denotes a directory within
+   * the jar file is expanded with all of its content. Entries that don't exist are ignored. In contrast to
+   * {@link #expandJarFile(JarFile, File)} this method isn't synchronized, so the caller has to make sure that an
+   * expansion directory isn't written concurrently.
+   * </p>
+   * 
+   * @param jarFile
+   *          the jar file to expand
+   * @param names
+   *          the names of the entries to expand
+   * @param expansionDirectory
+   *          the expansion directory
+   */
+  public static final void expandJarEntries(JarFile jarFile, String[] names, File expansionDirectory) {
+
+    Assure.notNull("jarFile", jarFile);
+    Assure.notNull("names", names);
+    Assure.notNull("expansionDirectory", expansionDirectory);
+
+    A4ELogging.debug("%s|Expanding %s of '%s' to '%s'", Thread.currentThread().getId(), Arrays.asList(names),
+        jarFile.getName(), expansionDirectory);
+
+    mkdirs(expansionDirectory);
+
+    // this way we make sure that calls to File#getParentFile always return non-null values
+    expansionDirectory = expansionDirectory.getAbsoluteFile();
+
+    byte[] buffer = new byte[8192];
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+
+      ZipEntry zipEntry = entries.nextElement();
+      if (!isContained(zipEntry.getName(), names)) {
+        continue;
+      }
+
+      File destFile = new File(expansionDirectory, zipEntry.getName());
+      if (zipEntry.isDirectory()) {
+        mkdirs(destFile);
+      } else {
+        mkdirs(destFile.getParentFile());
+        InputStream inputStream = null;
+        try {
+          inputStream = jarFile.getInputStream(zipEntry);
+          copy(inputStream, new FileOutputStream(destFile), buffer);
+        } catch (IOException ex) {
+          throw new Ant4EclipseException(ex, CoreExceptionCode.IO_FAILURE);
+        } finally {
+          close((Closeable) inputStream);
+        }
+      }
+
+    }
+
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given entry name is one of the given names or is located within a directory
+   * denoted by one of the given names.
+   * </p>
+   */
+  private static boolean isContained(String entryName, String[] names) {
+    for (String name : names) {
+      String normalized = name.startsWith("/") ? name.substring(1) : name;
+      if (normalized.length() == 0) {
+        continue;
+      }
+      if (entryName.equals(normalized)) {
+        return true;
+      }
+      if (entryName.startsWith(normalized.endsWith("/") ? normalized : normalized + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private static void writeFile(InputStream inputStream, File file) {
     Assure.notNull("inputStream", inputStream);
 
@@ -1240,11 +1394,12 @@ public class Utilities {
       }
 
       Process process = Runtime.getRuntime().exec(cmdarray);
-      OutputCopier outcopier = new OutputCopier(process.getInputStream(), output, ENCODING);
-      OutputCopier errcopier = new OutputCopier(process.getErrorStream(), error, ENCODING);
-      outcopier.start();
-      errcopier.start();
+      Future<Object> outcopier = getOutputCopiers().submit(new OutputCopier(process.getInputStream(), output));
+      Future<Object> errcopier = getOutputCopiers().submit(new OutputCopier(process.getErrorStream(), error));
       int result = process.waitFor();
+      // the buffers are only complete after the streams have been drained
+      outcopier.get();
+      errcopier.get();
       if (result != 0) {
         A4ELogging.error(CoreExceptionCode.LAUNCHING_FAILURE.getMessage(), exe, Integer.valueOf(result), output, error);
         throw new Ant4EclipseException(CoreExceptionCode.LAUNCHING_FAILURE, exe, Integer.valueOf(result), output,
@@ -1257,6 +1412,28 @@ public class Utilities {
 
   }
 
+  /**
+   * Returns the pool used to drain the streams of launched processes. The pool isn't bounded as each running process
+   * needs two threads to not block on a full pipe, but idle threads are reused (and discarded after a while). As the
+   * threads are daemons they don't keep the VM alive.
+   * 
+   * @return The pool used to drain the streams of launched processes. Not <code>null</code>.
+   */
+  private static synchronized final ExecutorService getOutputCopiers() {
+    if (outputCopiers == null) {
+      outputCopiers = Executors.newCachedThreadPool(new ThreadFactory() {
+        private int _count = 0;
+
+        public synchronized Thread newThread(Runnable runnable) {
+          Thread result = new Thread(runnable, "A4E-OutputCopier-" + (++this._count));
+          result.setDaemon(true);
+          return result;
+        }
+      });
+    }
+    return outputCopiers;
+  }
+
   /**
    * Returns <code>true</code> if the supplied objects are equal. This function is capable to deal with
    * <code>null</code> values.
@@ -1402,15 +1579,15 @@ public class Utilities {
   }
 
   /**
-   * Simple Thread extension that copies content from an InputStream into StringBuffer.
+   * Simple task that copies content from an InputStream into StringBuffer.
    * 
    * @author Daniel Kasmeroglu
    */
-  private static final class OutputCopier extends Thread {
+  private static final class OutputCopier implements Callable<Object> {
 
-    private BufferedReader _source;
+    private InputStream  _source;
 
-    private StringBuffer   _receiver;
+    private StringBuffer _receiver;
 
     /**
      * Initalises this copiying process.
@@ -1418,34 +1595,23 @@ public class Utilities {
      * @param instream
      *          The stream which provides the content. Not <code>null</code>.
      * @param dest
-     *          The destination buffer used to get the output. Maybe <code>null</code>.
-     * @param encoding
-     *          The encoding to be used while accessing the strem. Not <code>null</code>.
+     *          The destination buffer used to get the output. Not <code>null</code>.
      */
-    public OutputCopier(InputStream instream, StringBuffer dest, String encoding) throws UnsupportedEncodingException {
-      if (encoding == null) {
-        encoding = ENCODING;
-      }
-      this._source = new BufferedReader(new InputStreamReader(instream, encoding));
+    public OutputCopier(InputStream instream, StringBuffer dest) {
+      this._source = instream;
       this._receiver = dest;
     }
 
     /**
      * {@inheritDoc}
      */
-    @Override
-    public void run() {
+    public Object call() throws IOException {
       try {
-        String line = this._source.readLine();
-        while (line != null) {
-          this._receiver.append(line);
-          this._receiver.append(NL);
-          line = this._source.readLine();
-        }
-      } catch (IOException ex) {
-        /** @todo [06-Aug-2009:KASI] We might need something more precise here. */
-        throw new Ant4EclipseException(ex, CoreExceptionCode.IO_FAILURE);
+        copyText(this._source, ENCODING, this._receiver, true);
+      } finally {
+        close((Closeable) this._source);
       }
+      return null;
     }
 
   } /* ENDCLASS */
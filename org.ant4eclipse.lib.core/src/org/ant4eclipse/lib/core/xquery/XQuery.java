@@ -15,14 +15,15 @@ import org.ant4eclipse.lib.core.CoreExceptionCode;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.xml.sax.Attributes;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Vector;
+import java.util.List;
 
 /**
  * This object stores a simple query used to access XML content. These queries will be visited by the SAXParser, so they
- * can collect their values. The query will be visited each time the ContentHandler of the SAXParser processes an
- * element. The query ignores these calls in case it is related to a higher level within the XML hierarchie or it has
- * been abandoned within a higher level.
+ * can collect their values. The {@link XQueryHandler} only visits a query for elements whose name matches the query
+ * fragment at the current depth and only calls {@link #endVisit(int, String)} for elements the query has accepted. A
+ * query is used by a single parse at a time, so its results are not synchronized.
  * 
  * @techres [03-Feb-2006:KASI] Only one indexed element is allowed within a query.
  * 
@@ -45,8 +46,8 @@ public class XQuery {
   // the counter is used in case there's a reference to a n-th element
   private int[]          _counter;
 
-  // the result may be a String or a Vector instance
-  private Vector<String> _values;
+  // the collected values
+  private List<String>   _values;
 
   // keeps the depth which is acceptable for this query
   private int            _accept;
@@ -243,12 +244,14 @@ public class XQuery {
    *          The name of the current element.
    * @param attrs
    *          The attributes associated with this element.
+   * 
+   * @return true <=> The element has been accepted, so {@link #endVisit(int, String)} has to be called when it's left.
    */
-  void visit(int depth, String element, Attributes attrs) {
+  boolean visit(int depth, String element, Attributes attrs) {
 
     if (depth >= this._splitted.length) {
       // this element is to deep for this query
-      return;
+      return false;
     }
 
     // modify the element counters
@@ -280,10 +283,47 @@ public class XQuery {
           }
         }
 
+        return true;
+
       }
 
     }
 
+    return false;
+
+  }
+
+  /**
+   * Returns true if the text content of the element that has just been accepted is needed by this query.
+   * 
+   * @param depth
+   *          The depth of the accepted element.
+   * 
+   * @return true <=> The text content of the element has to be passed to {@link #endVisit(int, String)}.
+   */
+  boolean needsContent(int depth) {
+    return this._matched && (depth == (this._splitted.length - 1));
+  }
+
+  /**
+   * Returns the number of element fragments of this query.
+   * 
+   * @return The number of element fragments of this query.
+   */
+  int getDepth() {
+    return this._splitted.length;
+  }
+
+  /**
+   * Returns the element name (or <code>*</code>) this query expects at the supplied depth.
+   * 
+   * @param depth
+   *          The depth within the XML document. Must be lower than {@link #getDepth()}.
+   * 
+   * @return The element name this query expects at the supplied depth.
+   */
+  String getElement(int depth) {
+    return this._splitted[depth];
   }
 
   /**
@@ -292,7 +332,7 @@ public class XQuery {
    * @param depth
    *          The current depth within the XML document.
    * @param content
-   *          The trimmed text content of the XML element.
+   *          The trimmed text content of the XML element or <code>null</code> if it's not needed by this query.
    */
   void endVisit(int depth, String content) {
 
@@ -332,7 +372,7 @@ public class XQuery {
    */
   private void addValue(String newvalue) {
     if (this._values == null) {
-      this._values = new Vector<String>();
+      this._values = new ArrayList<String>();
     }
     this._values.add(newvalue);
   }
@@ -340,7 +380,7 @@ public class XQuery {
   /**
    * Returns the data collected by this query.
    * 
-   * @return The data collected by this query (Vector{String})
+   * @return The data collected by this query.
    */
   public String[] getResult() {
     if (this._values == null) {
@@ -489,7 +529,7 @@ public class XQuery {
       }
 
       // increment the current value
-      Vector<String> values = XQuery.this._values;
+      List<String> values = XQuery.this._values;
       String lastval = values.get(values.size() - 1);
       int value = Integer.parseInt(lastval);
       values.set(values.size() - 1, String.valueOf(value + 1));
@@ -15,41 +15,62 @@ import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.CoreExceptionCode;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import javax.xml.parsers.FactoryConfigurationError;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * <p>
  * A SAX handler allowing to collect XML related data using simple queries (similar to XPath but currently not providing
  * it's complete functionality).
  * </p>
+ * <p>
+ * Before a document is parsed, the queries are compiled into a table that maps each depth and element name to the
+ * queries expecting that element there, so an element is only passed to the queries that might be interested in it.
+ * Text content is only collected for elements whose value is requested by a query.
+ * </p>
  * 
  * @author Daniel Kasmeroglu (daniel.kasmeroglu@kasisoft.net)
  */
 public class XQueryHandler extends DefaultHandler {
 
+  /** the parser used by the current thread (parsers are expensive to create but can be reused) */
+  private static final ThreadLocal<SAXParser> PARSER = new ThreadLocal<SAXParser>();
+
   /** - */
-  private StringBuffer            _buffer;
+  private static SAXParserFactory             factory;
+
+  /** the text content of the current element (only collected if needed) */
+  private StringBuilder                       _buffer;
 
   /** - */
-  private int                     _depth;
+  private int                                 _depth;
 
   /** - */
-  private Vector<XQuery>          _queries;
+  private List<XQuery>                        _queries;
 
-  private String                  _fileName;
+  private String                              _fileName;
 
-  /** - */
-  private static SAXParserFactory factory;
+  /** the compiled queries per depth, <code>null</code> if a query has been added since the last compilation */
+  private Level[]                             _levels;
+
+  /** the number of open elements whose text content is collected */
+  private int                                 _collecting;
 
   /**
    * Initialises this handler.
@@ -59,8 +80,8 @@ public class XQueryHandler extends DefaultHandler {
    */
   public XQueryHandler(String fileName) {
     super();
-    this._buffer = new StringBuffer();
-    this._queries = new Vector<XQuery>();
+    this._buffer = new StringBuilder();
+    this._queries = new ArrayList<XQuery>();
     this._depth = 0;
     this._fileName = fileName;
   }
@@ -83,6 +104,7 @@ public class XQueryHandler extends DefaultHandler {
   public XQuery createQuery(String query) {
     XQuery result = new XQuery(this._fileName, query);
     this._queries.add(result);
+    this._levels = null;
     return result;
   }
 
@@ -91,14 +113,20 @@ public class XQueryHandler extends DefaultHandler {
    */
   @Override
   public void startDocument() throws SAXException {
+    if (this._levels == null) {
+      this._levels = compile(this._queries);
+    }
+    for (Level level : this._levels) {
+      level._accepted.clear();
+      level._collecting = false;
+    }
     this._depth = 0;
     for (int i = 0; i < this._queries.size(); i++) {
       XQuery query = this._queries.get(i);
       query.reset();
     }
-    if (this._buffer.length() > 0) {
-      this._buffer.delete(0, this._buffer.length());
-    }
+    this._collecting = 0;
+    this._buffer.setLength(0);
   }
 
   /**
@@ -107,15 +135,48 @@ public class XQueryHandler extends DefaultHandler {
   @Override
   public void startElement(String uri, String localname, String qname, Attributes attributes) throws SAXException {
 
-    for (int i = 0; i < this._queries.size(); i++) {
-      XQuery query = this._queries.get(i);
-      query.visit(this._depth, qname, attributes);
+    if (this._depth < this._levels.length) {
+      Level level = this._levels[this._depth];
+      XQuery[] candidates = level._named.get(qname);
+      if (candidates != null) {
+        visit(level, candidates, qname, attributes);
+      }
+      if (level._wildcards.length > 0) {
+        visit(level, level._wildcards, qname, attributes);
+      }
+      if (level._collecting) {
+        this._collecting++;
+        this._buffer.setLength(0);
+      }
     }
 
     this._depth++;
 
   }
 
+  /**
+   * Visits the supplied queries and remembers the ones that have accepted the current element.
+   *
+   * @param level
+   *          The current level.
+   * @param queries
+   *          The queries which might be interested in the current element.
+   * @param qname
+   *          The name of the current element.
+   * @param attributes
+   *          The attributes of the current element.
+   */
+  private void visit(Level level, XQuery[] queries, String qname, Attributes attributes) {
+    for (XQuery query : queries) {
+      if (query.visit(this._depth, qname, attributes)) {
+        level._accepted.add(query);
+        if (query.needsContent(this._depth)) {
+          level._collecting = true;
+        }
+      }
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -124,14 +185,23 @@ public class XQueryHandler extends DefaultHandler {
 
     this._depth--;
 
-    String str = this._buffer.toString().trim();
-    for (int i = 0; i < this._queries.size(); i++) {
-      XQuery query = this._queries.get(i);
-      query.endVisit(this._depth, str);
+    if (this._depth < this._levels.length) {
+      Level level = this._levels[this._depth];
+      if (!level._accepted.isEmpty()) {
+        String str = level._collecting ? this._buffer.toString().trim() : null;
+        for (int i = 0; i < level._accepted.size(); i++) {
+          level._accepted.get(i).endVisit(this._depth, str);
+        }
+        level._accepted.clear();
+      }
+      if (level._collecting) {
+        level._collecting = false;
+        this._collecting--;
+      }
     }
 
     if (this._buffer.length() > 0) {
-      this._buffer.delete(0, this._buffer.length());
+      this._buffer.setLength(0);
     }
 
   }
@@ -141,7 +211,47 @@ public class XQueryHandler extends DefaultHandler {
    */
   @Override
   public void characters(char[] ch, int start, int length) throws SAXException {
-    this._buffer.append(ch, start, length);
+    if (this._collecting > 0) {
+      this._buffer.append(ch, start, length);
+    }
+  }
+
+  /**
+   * Compiles the supplied queries into a table that contains the interested queries per depth and element name.
+   *
+   * @param queries
+   *          The queries that shall be compiled.
+   *
+   * @return The compiled queries per depth.
+   */
+  private static Level[] compile(List<XQuery> queries) {
+    int depth = 0;
+    for (XQuery query : queries) {
+      depth = Math.max(depth, query.getDepth());
+    }
+    Level[] result = new Level[depth];
+    for (int i = 0; i < depth; i++) {
+      Map<String, List<XQuery>> named = new HashMap<String, List<XQuery>>();
+      List<XQuery> wildcards = new ArrayList<XQuery>();
+      for (XQuery query : queries) {
+        if (i >= query.getDepth()) {
+          continue;
+        }
+        String element = query.getElement(i);
+        if ("*".equals(element)) {
+          wildcards.add(query);
+        } else {
+          List<XQuery> list = named.get(element);
+          if (list == null) {
+            list = new ArrayList<XQuery>();
+            named.put(element, list);
+          }
+          list.add(query);
+        }
+      }
+      result[i] = new Level(named, wildcards);
+    }
+    return result;
   }
 
   /**
@@ -155,12 +265,15 @@ public class XQueryHandler extends DefaultHandler {
   public static void queryFile(File xmlfile, XQueryHandler handler) {
     Assure.isFile("xmlfile", xmlfile);
     Assure.notNull("handler", handler);
+    InputStream inputStream = null;
     try {
-      SAXParserFactory factory = getSAXParserFactory();
-      factory.newSAXParser().parse(new FileInputStream(xmlfile), handler);
+      inputStream = new FileInputStream(xmlfile);
+      parse(inputStream, handler);
     } catch (Exception ex) {
       A4ELogging.error(ex.getMessage());
       throw (new Ant4EclipseException(ex, CoreExceptionCode.X_QUERY_PARSE_EXCEPTION));
+    } finally {
+      Utilities.close((Closeable) inputStream);
     }
   }
 
@@ -176,22 +289,84 @@ public class XQueryHandler extends DefaultHandler {
     Assure.notNull("inputStream", inputStream);
     Assure.notNull("handler", handler);
     try {
-      SAXParserFactory factory = getSAXParserFactory();
-      factory.newSAXParser().parse(inputStream, handler);
+      parse(inputStream, handler);
     } catch (Exception ex) {
       A4ELogging.error(ex.getMessage());
       throw (new Ant4EclipseException(ex, CoreExceptionCode.X_QUERY_PARSE_EXCEPTION));
     }
   }
 
-  private static SAXParserFactory getSAXParserFactory() throws FactoryConfigurationError {
+  /**
+   * Parses the supplied inputstream using the parser of the current thread. The parser is taken from the thread while
+   * it's used, so a nested call gets a parser of its own.
+   *
+   * @param inputStream
+   *          The XML inputstream that shall be parsed.
+   * @param handler
+   *          The handler which receives the SAX events.
+   */
+  private static void parse(InputStream inputStream, XQueryHandler handler) throws Exception {
+    SAXParser parser = PARSER.get();
+    PARSER.set(null);
+    if (parser == null) {
+      parser = newSAXParser();
+    }
+    parser.parse(inputStream, handler);
+    // the parser is only reused if it has been used successfully
+    parser.reset();
+    PARSER.set(parser);
+  }
+
+  /**
+   * Creates a new parser. The shared factory isn't thread-safe, so the access is synchronized.
+   *
+   * @return a new parser.
+   */
+  private static synchronized SAXParser newSAXParser() throws FactoryConfigurationError, ParserConfigurationException,
+      SAXException {
 
     if (factory == null) {
       factory = SAXParserFactory.newInstance();
       // factory.setFeature("http://xml.org/sax/features/string-interning", true);
       factory.setValidating(false);
     }
-    return factory;
+    return factory.newSAXParser();
   }
 
+  /**
+   * The compiled queries for a single depth within the XML document.
+   */
+  private static final class Level {
+
+    /** the queries per element name */
+    private Map<String, XQuery[]> _named;
+
+    /** the queries accepting any element */
+    private XQuery[]              _wildcards;
+
+    /** the queries that have accepted the open element of this depth */
+    private List<XQuery>          _accepted;
+
+    /** indicates whether the text content of the open element of this depth is collected */
+    private boolean               _collecting;
+
+    /**
+     * Initialises this level.
+     *
+     * @param named
+     *          The queries per element name.
+     * @param wildcards
+     *          The queries accepting any element.
+     */
+    public Level(Map<String, List<XQuery>> named, List<XQuery> wildcards) {
+      this._named = new HashMap<String, XQuery[]>();
+      for (Map.Entry<String, List<XQuery>> entry : named.entrySet()) {
+        this._named.put(entry.getKey(), entry.getValue().toArray(new XQuery[entry.getValue().size()]));
+      }
+      this._wildcards = wildcards.toArray(new XQuery[wildcards.size()]);
+      this._accepted = new ArrayList<XQuery>();
+    }
+
+  } /* ENDCLASS */
+
 } /* ENDCLASS */
@@ -20,6 +20,11 @@ import java.io.File;
  * {@link ClassFileLoader} instances are used to load {@link ClassFile ClassFiles} that are required during the
  * compilation process.
  * </p>
+ * <p>
+ * If the compiler runs with more than one thread (see {@link CompileJobDescription#getParallelism()}), class files are
+ * loaded concurrently. Therefore implementations have to be thread-safe, which the implementations of ant4eclipse
+ * achieve by not modifying their state after they have been created (except for thread-safe caches).
+ * </p>
  * 
  * @author Nils Hartmann (nils@nilshartmann.net)
  * @author Gerd Wuetherich (gerd@gerd-wuetherich.de)
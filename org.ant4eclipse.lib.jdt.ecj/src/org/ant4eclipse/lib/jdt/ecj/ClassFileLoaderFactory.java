@@ -81,8 +81,11 @@ public class ClassFileLoaderFactory {
         // Create new ClassFileLoader
         classFileLoader = new ClasspathClassFileLoaderImpl(source, type, classpathEntries, sourcepathEntries);
 
-        // add ClassFileLoader to Cache
-        ClassFileLoaderCache.getInstance().storeClassFileLoader(cacheKey, classFileLoader);
+        // add ClassFileLoader to Cache (the cached instance is invalidated if one of the entries has been modified)
+        File[] entries = new File[classpathEntries.length + sourcepathEntries.length];
+        System.arraycopy(classpathEntries, 0, entries, 0, classpathEntries.length);
+        System.arraycopy(sourcepathEntries, 0, entries, classpathEntries.length, sourcepathEntries.length);
+        ClassFileLoaderCache.getInstance().storeClassFileLoader(cacheKey, classFileLoader, entries);
   }
 
       // Return the ClassFileLoader
@@ -0,0 +1,48 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * <p>
+ * A {@link ClassFileSink} receives the class files of a compile job in addition to the output folders of the source
+ * files (see {@link CompileJobDescription#getClassFileSinks()}). This allows to write the class files to further
+ * locations (e.g. the destination directory of a javac task or a jar file) while they are written, so that they don't
+ * have to be copied afterwards.
+ * </p>
+ * <p>
+ * The class files are written by several threads, so implementations have to be thread-safe.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface ClassFileSink {
+
+  /**
+   * <p>
+   * Writes the given class file.
+   * </p>
+   * 
+   * @param outputFolder
+   *          the output folder the class file has been written to
+   * @param classFileName
+   *          the name of the class file relative to the output folder, e.g. <code>org/ant4eclipse/Test.class</code>
+   * @param content
+   *          the content of the class file. Must not be modified.
+   * @throws IOException
+   *           if the class file could not be written
+   */
+  void write(File outputFolder, String classFileName, byte[] content) throws IOException;
+
+}
@@ -50,4 +50,34 @@ public interface CompileJobDescription {
    *         compilation process.
    */
   ClassFileLoader getClassFileLoader();
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the compiler should record the names each source file refers to (see
+   * {@link CompiledUnit#getQualifiedReferences()} and {@link CompiledUnit#getSimpleNameReferences()}).
+   * </p>
+   * 
+   * @return <code>true</code> if the compiler should record the names each source file refers to.
+   */
+  boolean isProduceReferenceInfo();
+
+  /**
+   * <p>
+   * Returns the sinks that receive the compiled class files in addition to the output folders of the source files.
+   * </p>
+   * 
+   * @return the sinks that receive the compiled class files. Not <code>null</code>.
+   */
+  ClassFileSink[] getClassFileSinks();
+
+  /**
+   * <p>
+   * Returns the number of threads the compiler may use. If the parallelism is greater than <code>1</code>, the source
+   * files are read and processed by background threads of the compiler while the class files are written by further
+   * threads. A parallelism of <code>0</code> selects the default.
+   * </p>
+   * 
+   * @return the number of threads the compiler may use or <code>0</code> for the default.
+   */
+  int getParallelism();
 }
@@ -50,4 +50,11 @@ public interface CompileJobResult {
    */
   Map<String, File> getCompiledClassFiles();
 
+  /**
+   * Returns the compiled units, one for each source file that has been compiled.
+   * 
+   * @return The compiled units. Not <code>null</code>.
+   */
+  CompiledUnit[] getCompiledUnits();
+
 }
@@ -0,0 +1,73 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj;
+
+/**
+ * <p>
+ * A {@link CompiledUnit} describes the outcome of the compilation of a single {@link SourceFile}: the class files that
+ * have been produced and the names the source file refers to. The references are only recorded if the
+ * {@link CompileJobDescription} requests reference information (see
+ * {@link CompileJobDescription#isProduceReferenceInfo()}).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface CompiledUnit {
+
+  /**
+   * <p>
+   * Returns the source file that has been compiled.
+   * </p>
+   *
+   * @return the source file that has been compiled.
+   */
+  SourceFile getSourceFile();
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the source file contains errors. In this case no class files have been written.
+   * </p>
+   *
+   * @return <code>true</code> if the source file contains errors.
+   */
+  boolean hasErrors();
+
+  /**
+   * <p>
+   * Returns the names of the class files (e.g. <code>org/example/Outer$Inner.class</code>) that have been written to the
+   * destination folder of the source file.
+   * </p>
+   *
+   * @return the names of the class files. Not <code>null</code>.
+   */
+  String[] getClassFileNames();
+
+  /**
+   * <p>
+   * Returns the qualified names (packages and qualified type names, with segments separated by a <code>'/'</code>) the
+   * source file refers to.
+   * </p>
+   *
+   * @return the qualified names the source file refers to. Not <code>null</code>.
+   */
+  String[] getQualifiedReferences();
+
+  /**
+   * <p>
+   * Returns the simple names the source file refers to.
+   * </p>
+   *
+   * @return the simple names the source file refers to. Not <code>null</code>.
+   */
+  String[] getSimpleNameReferences();
+
+}
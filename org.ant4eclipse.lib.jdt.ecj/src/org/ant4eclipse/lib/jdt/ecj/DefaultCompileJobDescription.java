@@ -35,6 +35,15 @@ public class DefaultCompileJobDescription implements CompileJobDescription {
   /** the source files */
   private SourceFile[]        _sourceFiles;
 
+  /** indicates whether the compiler should record the references of the source files */
+  private boolean             _produceReferenceInfo;
+
+  /** the sinks receiving the class files */
+  private ClassFileSink[]     _classFileSinks;
+
+  /** the number of threads the compiler may use, 0 for the default */
+  private int                 _parallelism;
+
   /**
    * <p>
    * Creates a new instance of type {@link DefaultCompileJobDescription}.
@@ -42,6 +51,7 @@ public class DefaultCompileJobDescription implements CompileJobDescription {
    */
   public DefaultCompileJobDescription() {
     super();
+    this._classFileSinks = new ClassFileSink[0];
   }
 
   /**
@@ -61,6 +71,7 @@ public class DefaultCompileJobDescription implements CompileJobDescription {
     this._classFileLoader = classFileLoader;
     this._compilerOptions = compilerOptions;
     this._sourceFiles = sourceFiles;
+    this._classFileSinks = new ClassFileSink[0];
   }
 
   /**
@@ -84,6 +95,27 @@ public class DefaultCompileJobDescription implements CompileJobDescription {
     return this._sourceFiles;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isProduceReferenceInfo() {
+    return this._produceReferenceInfo;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public ClassFileSink[] getClassFileSinks() {
+    return this._classFileSinks;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public int getParallelism() {
+    return this._parallelism;
+  }
+
   /**
    * <p>
    * Sets the class file loader.
@@ -123,6 +155,44 @@ public class DefaultCompileJobDescription implements CompileJobDescription {
     this._sourceFiles = sourceFiles;
   }
 
+  /**
+   * <p>
+   * Specifies whether the compiler should record the references of the source files.
+   * </p>
+   * 
+   * @param produceReferenceInfo
+   *          <code>true</code> if the compiler should record the references of the source files.
+   */
+  public void setProduceReferenceInfo(boolean produceReferenceInfo) {
+    this._produceReferenceInfo = produceReferenceInfo;
+  }
+
+  /**
+   * <p>
+   * Sets the sinks that receive the compiled class files in addition to the output folders of the source files.
+   * </p>
+   * 
+   * @param classFileSinks
+   *          the sinks that receive the compiled class files.
+   */
+  public void setClassFileSinks(ClassFileSink[] classFileSinks) {
+    Assure.notNull("classFileSinks", classFileSinks);
+    this._classFileSinks = classFileSinks;
+  }
+
+  /**
+   * <p>
+   * Sets the number of threads the compiler may use.
+   * </p>
+   * 
+   * @param parallelism
+   *          the number of threads the compiler may use or <code>0</code> for the default.
+   */
+  public void setParallelism(int parallelism) {
+    Assure.assertTrue(parallelism >= 0, "The parallelism must not be negative.");
+    this._parallelism = parallelism;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,216 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * A {@link ClassFileSink} that writes the class files to a directory (e.g. the destination directory of a javac task).
+ * Class files that have been written to this directory already (as it is the output folder of their source files) are
+ * skipped.
+ * </p>
+ * <p>
+ * By default each class file is written to the directory as soon as it has been compiled, so the class files don't
+ * have to be copied afterwards. A sink that has been created with <code>immediate = false</code> only remembers the
+ * class files while they are written to their output folders and copies them to the directory on {@link #commit()},
+ * so the directory isn't touched if the compilation fails.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class DirectoryClassFileSink implements ClassFileSink {
+
+  /** the directory */
+  private File               _directory;
+
+  /** <code>true</code> if the class files are written as soon as they have been compiled */
+  private boolean            _immediate;
+
+  /** indicates per output folder whether it is the directory of this sink, guarded by itself */
+  private Map<File, Boolean> _sameDirectory;
+
+  /** the directories that have been created already */
+  private Set<File>          _createdDirectories;
+
+  /** the class files that have to be copied by {@link #commit()} per class file name, guarded by itself */
+  private Map<String, File>  _pendingClassFiles;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DirectoryClassFileSink} that writes the class files as soon as they have
+   * been compiled.
+   * </p>
+   * 
+   * @param directory
+   *          the directory the class files are written to
+   */
+  public DirectoryClassFileSink(File directory) {
+    this(directory, true);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link DirectoryClassFileSink}.
+   * </p>
+   * 
+   * @param directory
+   *          the directory the class files are written to
+   * @param immediate
+   *          <code>true</code> if the class files are written as soon as they have been compiled, <code>false</code>
+   *          if they are copied on {@link #commit()}.
+   */
+  public DirectoryClassFileSink(File directory, boolean immediate) {
+    Assure.notNull("directory", directory);
+    this._directory = Utilities.getCanonicalFile(directory);
+    this._immediate = immediate;
+    this._sameDirectory = new HashMap<File, Boolean>();
+    this._createdDirectories = Collections.synchronizedSet(new HashSet<File>());
+    this._pendingClassFiles = new LinkedHashMap<String, File>();
+  }
+
+  /**
+   * <p>
+   * Returns the directory the class files are written to.
+   * </p>
+   * 
+   * @return the directory the class files are written to.
+   */
+  public File getDirectory() {
+    return this._directory;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the class files are written as soon as they have been compiled.
+   * </p>
+   * 
+   * @return <code>true</code> if the class files are written as soon as they have been compiled.
+   */
+  public boolean isImmediate() {
+    return this._immediate;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void write(File outputFolder, String classFileName, byte[] content) throws IOException {
+    if (isSameDirectory(outputFolder)) {
+      return;
+    }
+    if (!this._immediate) {
+      synchronized (this._pendingClassFiles) {
+        this._pendingClassFiles.put(classFileName, new File(outputFolder, classFileName));
+      }
+      return;
+    }
+    OutputStream output = new FileOutputStream(getClassFile(classFileName));
+    try {
+      output.write(content);
+    } finally {
+      Utilities.close((Closeable) output);
+    }
+  }
+
+  /**
+   * <p>
+   * Copies a class file that hasn't been compiled by the current compilation (e.g. the class file of an unchanged
+   * source file in an incremental compilation) to the directory. The class file is skipped if the directory contains an
+   * up-to-date copy already. A sink that doesn't write the class files immediately copies it on {@link #commit()}.
+   * </p>
+   * 
+   * @param outputFolder
+   *          the output folder that contains the class file
+   * @param classFileName
+   *          the name of the class file relative to the output folder, e.g. <code>org/ant4eclipse/Test.class</code>
+   */
+  public void copy(File outputFolder, String classFileName) {
+    if (isSameDirectory(outputFolder)) {
+      return;
+    }
+    File classFile = new File(outputFolder, classFileName);
+    File copy = new File(this._directory, classFileName);
+    if (copy.isFile() && (copy.lastModified() >= classFile.lastModified())) {
+      return;
+    }
+    if (!this._immediate) {
+      synchronized (this._pendingClassFiles) {
+        this._pendingClassFiles.put(classFileName, classFile);
+      }
+      return;
+    }
+    Utilities.copy(classFile, getClassFile(classFileName));
+  }
+
+  /**
+   * <p>
+   * Copies the class files that have been written to their output folders since the last commit to the directory. This
+   * method has to be called after the compilation has finished successfully. It does nothing for a sink that writes the
+   * class files immediately.
+   * </p>
+   */
+  public void commit() {
+    Map<String, File> pendingClassFiles = null;
+    synchronized (this._pendingClassFiles) {
+      pendingClassFiles = new LinkedHashMap<String, File>(this._pendingClassFiles);
+      this._pendingClassFiles.clear();
+    }
+    for (Map.Entry<String, File> entry : pendingClassFiles.entrySet()) {
+      Utilities.copy(entry.getValue(), getClassFile(entry.getKey()));
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the location of the given class file within the directory. The parent directory is created if necessary.
+   * </p>
+   */
+  private File getClassFile(String classFileName) {
+    File result = new File(this._directory, classFileName);
+    File classDir = result.getParentFile();
+    if (!this._createdDirectories.contains(classDir)) {
+      Utilities.mkdirs(classDir);
+      this._createdDirectories.add(classDir);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if the given output folder is the directory of this sink.
+   * </p>
+   */
+  private boolean isSameDirectory(File outputFolder) {
+    synchronized (this._sameDirectory) {
+      Boolean result = this._sameDirectory.get(outputFolder);
+      if (result == null) {
+        result = Boolean.valueOf(this._directory.equals(Utilities.getCanonicalFile(outputFolder)));
+        this._sameDirectory.put(outputFolder, result);
+      }
+      return result.booleanValue();
+    }
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,66 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj;
+
+import org.ant4eclipse.lib.core.Assure;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * <p>
+ * A {@link ClassFileSink} that writes the class files into a zip (or jar) stream, so that packaging tasks don't need an
+ * intermediate directory. A class file that is written several times (e.g. from different output folders) is only
+ * stored once. The stream isn't closed by this sink.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ZipClassFileSink implements ClassFileSink {
+
+  /** the stream receiving the class files, guarded by <code>this</code> */
+  private ZipOutputStream _output;
+
+  /** the names of the entries that have been written */
+  private Set<String>     _entries;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ZipClassFileSink}.
+   * </p>
+   * 
+   * @param output
+   *          the stream receiving the class files
+   */
+  public ZipClassFileSink(ZipOutputStream output) {
+    Assure.notNull("output", output);
+    this._output = output;
+    this._entries = new HashSet<String>();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public synchronized void write(File outputFolder, String classFileName, byte[] content) throws IOException {
+    if (!this._entries.add(classFileName)) {
+      return;
+    }
+    this._output.putNextEntry(new ZipEntry(classFileName));
+    this._output.write(content);
+    this._output.closeEntry();
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,194 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileSink;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Writes the compiled class files to their output folders and passes them to the {@link ClassFileSink ClassFileSinks}
+ * of the compile job. The class files are written by a small pool of writer threads, so the compiler doesn't have to
+ * wait for the file system. The pool is fed through a bounded queue: if the writers can't keep up, the compiler thread
+ * writes the class file itself, which keeps the number of class files held in memory small.
+ * </p>
+ * <p>
+ * The default number of writer threads can be specified using the system property
+ * <code>ant4eclipse.classFileWriterThreads</code>. If there are no writer threads, the class files are written by the
+ * compiler thread.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ClassFileWriter {
+
+  /** the default number of writer threads */
+  public static final int            DEFAULT_THREADS    = Integer.getInteger("ant4eclipse.classFileWriterThreads",
+                                                            Math.min(4, Runtime.getRuntime().availableProcessors()))
+                                                            .intValue();
+
+  /** the maximum number of class files waiting to be written */
+  static final int                   QUEUE_CAPACITY     = 256;
+
+  /** the prefix for the names of the writer threads */
+  private static final String        THREAD_NAME_PREFIX = "A4E-ClassFileWriter-";
+
+  /** the number of the last created writer thread */
+  private static final AtomicInteger THREAD_NUMBER      = new AtomicInteger();
+
+  /** the sinks receiving the class files */
+  private ClassFileSink[]            _sinks;
+
+  /** the writer threads, <code>null</code> if the class files are written by the calling thread */
+  private ThreadPoolExecutor         _executor;
+
+  /** the directories that have been created already */
+  private Set<File>                  _createdDirectories;
+
+  /** the messages for the class files that could not be written */
+  private List<String>               _failures;
+
+  /** the names of the class files that could not be written */
+  private Set<String>                _failedClassFiles;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ClassFileWriter}.
+   * </p>
+   * 
+   * @param sinks
+   *          the sinks receiving the class files in addition to the output folders
+   * @param threads
+   *          the number of writer threads, <code>0</code> if the class files are written by the calling thread
+   */
+  public ClassFileWriter(ClassFileSink[] sinks, int threads) {
+    this._sinks = sinks;
+    this._createdDirectories = Collections.synchronizedSet(new HashSet<File>());
+    this._failures = Collections.synchronizedList(new ArrayList<String>());
+    this._failedClassFiles = Collections.synchronizedSet(new HashSet<String>());
+    if (threads > 0) {
+      this._executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+              Thread result = new Thread(runnable, THREAD_NAME_PREFIX + THREAD_NUMBER.incrementAndGet());
+              result.setDaemon(true);
+              return result;
+            }
+          }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+  }
+
+  /**
+   * <p>
+   * Writes the given class file (maybe asynchronously).
+   * </p>
+   * 
+   * @param outputFolder
+   *          the output folder
+   * @param classFileName
+   *          the name of the class file relative to the output folder
+   * @param content
+   *          the content of the class file
+   */
+  public void write(File outputFolder, String classFileName, byte[] content) {
+    Runnable task = new WriteTask(outputFolder, classFileName, content);
+    if (this._executor != null) {
+      this._executor.execute(task);
+    } else {
+      task.run();
+    }
+  }
+
+  /**
+   * <p>
+   * Waits until all class files have been written and stops the writer threads. Failures are logged.
+   * </p>
+   * 
+   * @return the names of the class files that could not be written. Not <code>null</code>.
+   */
+  public Set<String> close() {
+    if (this._executor != null) {
+      this._executor.shutdown();
+      try {
+        while (!this._executor.awaitTermination(1, TimeUnit.SECONDS)) {
+          // continue waiting for the writer threads
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        this._executor.shutdownNow();
+        this._failures.add("Interrupted while writing the class files");
+      }
+    }
+    for (String failure : this._failures) {
+      A4ELogging.error(failure);
+    }
+    return this._failedClassFiles;
+  }
+
+  /**
+   * <p>
+   * Writes a single class file.
+   * </p>
+   */
+  private class WriteTask implements Runnable {
+
+    /** the output folder */
+    private File   _outputFolder;
+
+    /** the name of the class file */
+    private String _classFileName;
+
+    /** the content of the class file */
+    private byte[] _content;
+
+    public WriteTask(File outputFolder, String classFileName, byte[] content) {
+      this._outputFolder = outputFolder;
+      this._classFileName = classFileName;
+      this._content = content;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void run() {
+      try {
+        File classFile = new File(this._outputFolder, this._classFileName);
+        File classDir = classFile.getParentFile();
+        if (!ClassFileWriter.this._createdDirectories.contains(classDir)) {
+          Utilities.mkdirs(classDir);
+          ClassFileWriter.this._createdDirectories.add(classDir);
+        }
+        Utilities.writeFile(classFile, this._content);
+        for (ClassFileSink sink : ClassFileWriter.this._sinks) {
+          sink.write(this._outputFolder, this._classFileName, this._content);
+        }
+      } catch (Exception ex) {
+        ClassFileWriter.this._failedClassFiles.add(this._classFileName);
+        ClassFileWriter.this._failures.add(String.format("Could not write classfile '%s': %s", this._classFileName, ex
+            .toString()));
+      }
+    }
+  }
+}
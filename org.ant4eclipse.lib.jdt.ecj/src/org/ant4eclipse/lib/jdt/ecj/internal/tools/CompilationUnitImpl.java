@@ -11,19 +11,17 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt.ecj.internal.tools;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
 import java.util.StringTokenizer;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
+import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.util.Util;
 
 /**
  * <p>Adapter class for providing java source files to the eclipse java compiler.</p>
@@ -112,54 +110,40 @@ public class CompilationUnitImpl implements ICompilationUnit {
 
 	/**
 	 * {@inheritDoc}
+	 *
+	 * <p>The file is read in one go and decoded directly into an array of the right size (like the batch compiler of
+	 * eclipse does). The line endings are kept, so the source positions reported by the compiler match the file.
+	 * Contents of referenced source files are taken from the {@link SourceContentCache} if it is enabled.</p>
 	 */
 	public final char[] getContents() {
 		String filename = new String(this._fileName);
 		File sourceFile = new File(this._sourceFile.getSourceFolder(), filename);
-
-		StringBuilder result = new StringBuilder();
-		BufferedReader in = null;
+		String encoding = this._sourceFile.getEncoding();
+
+		SourceContentCache cache = null;
+		if (this._sourceFile instanceof ReferableSourceFile) {
+			cache = SourceContentCache.getInstance();
+			char[] result = cache.getContent(sourceFile, encoding);
+			if (result != null) {
+				return result;
+			}
+		}
 
 		try {
-			in =
-				new BufferedReader(
-					new InputStreamReader(
-						new FileInputStream(sourceFile),
-						this._sourceFile.getEncoding()
-					)
-				);
-
-			String str;
-			while ((str = in.readLine()) != null) {
-				result.append(str);
-				result.append("\n");
+			char[] result = Util.getFileCharContent(sourceFile, encoding);
+			if (cache != null) {
+				cache.storeContent(sourceFile, encoding, result);
 			}
-		} catch (UnsupportedEncodingException e) {
-			throw new Ant4EclipseException(
-				e,
-				EcjExceptionCodes.UNABLE_TO_READ_COMPILATION_CONTENT_EXCEPTION,
-				filename,
-				this._sourceFile.getSourceFolder(),
-				this._sourceFile.getEncoding()
-			);
+			return result;
 		} catch (IOException e) {
 			throw new Ant4EclipseException(
 				e,
 				EcjExceptionCodes.UNABLE_TO_READ_COMPILATION_CONTENT_EXCEPTION,
 				filename,
 				this._sourceFile.getSourceFolder(),
-				this._sourceFile.getEncoding()
+				encoding
 			);
-		} finally {
-			if (in != null) {
-				try {
-					in.close();
-				} catch (Exception ex) {
-					// ignore
-				}
-			}
 		}
-		return result.toString().toCharArray();
 	}
 
 	/**
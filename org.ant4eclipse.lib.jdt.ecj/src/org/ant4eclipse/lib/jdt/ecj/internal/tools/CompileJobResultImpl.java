@@ -12,6 +12,7 @@
 package org.ant4eclipse.lib.jdt.ecj.internal.tools;
 
 import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.CompiledUnit;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
 
 import java.io.File;
@@ -26,6 +27,8 @@ public class CompileJobResultImpl implements CompileJobResult {
 
   private Map<String, File>    _compiledclassfiles;
 
+  private CompiledUnit[]       _compiledUnits;
+
   /**
    * {@inheritDoc}
    */
@@ -69,4 +72,21 @@ public class CompileJobResultImpl implements CompileJobResult {
     this._compiledclassfiles = compiledclasses;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public CompiledUnit[] getCompiledUnits() {
+    return this._compiledUnits == null ? new CompiledUnit[0] : this._compiledUnits;
+  }
+
+  /**
+   * Changes the compiled units.
+   * 
+   * @param compiledUnits
+   *          The compiled units. Maybe <code>null</code>.
+   */
+  public void setCompiledUnits(CompiledUnit[] compiledUnits) {
+    this._compiledUnits = compiledUnits;
+  }
+
 }
@@ -0,0 +1,137 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.jdt.ecj.CompiledUnit;
+import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * <p>
+ * Default implementation of a {@link CompiledUnit}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class CompiledUnitImpl implements CompiledUnit {
+
+  /** - */
+  private static final String[] NO_NAMES = new String[0];
+
+  /** the source file */
+  private SourceFile            _sourceFile;
+
+  /** indicates whether the source file contains errors */
+  private boolean               _errors;
+
+  /** the names of the class files */
+  private String[]              _classFileNames;
+
+  /** the qualified references */
+  private String[]              _qualifiedReferences;
+
+  /** the simple name references */
+  private String[]              _simpleNameReferences;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link CompiledUnitImpl}.
+   * </p>
+   *
+   * @param sourceFile
+   *          the source file
+   * @param errors
+   *          <code>true</code> if the source file contains errors
+   * @param classFileNames
+   *          the names of the class files that have been written
+   * @param qualifiedReferences
+   *          the qualified references as provided by the compiler, maybe <code>null</code>
+   * @param simpleNameReferences
+   *          the simple name references as provided by the compiler, maybe <code>null</code>
+   */
+  public CompiledUnitImpl(SourceFile sourceFile, boolean errors, String[] classFileNames,
+      char[][][] qualifiedReferences, char[][] simpleNameReferences) {
+    Assure.notNull("sourceFile", sourceFile);
+    Assure.notNull("classFileNames", classFileNames);
+    this._sourceFile = sourceFile;
+    this._errors = errors;
+    this._classFileNames = classFileNames;
+    this._qualifiedReferences = NO_NAMES;
+    if (qualifiedReferences != null) {
+      this._qualifiedReferences = new String[qualifiedReferences.length];
+      for (int i = 0; i < qualifiedReferences.length; i++) {
+        this._qualifiedReferences[i] = new String(CharOperation.concatWith(qualifiedReferences[i], '/'));
+      }
+    }
+    this._simpleNameReferences = NO_NAMES;
+    if (simpleNameReferences != null) {
+      this._simpleNameReferences = new String[simpleNameReferences.length];
+      for (int i = 0; i < simpleNameReferences.length; i++) {
+        this._simpleNameReferences[i] = new String(simpleNameReferences[i]);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public SourceFile getSourceFile() {
+    return this._sourceFile;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean hasErrors() {
+    return this._errors;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String[] getClassFileNames() {
+    return this._classFileNames;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String[] getQualifiedReferences() {
+    return this._qualifiedReferences;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public String[] getSimpleNameReferences() {
+    return this._simpleNameReferences;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append("[CompiledUnitImpl:");
+    buffer.append(" _sourceFile: ");
+    buffer.append(this._sourceFile);
+    buffer.append(", _errors: ");
+    buffer.append(this._errors);
+    buffer.append(", _classFileNames: ");
+    buffer.append(this._classFileNames.length);
+    buffer.append("]");
+    return buffer.toString();
+  }
+
+}
@@ -11,9 +11,9 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt.ecj.internal.tools;
 
-import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
-import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileSink;
+import org.ant4eclipse.lib.jdt.ecj.CompiledUnit;
 import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
 import org.eclipse.jdt.core.compiler.CategorizedProblem;
@@ -22,12 +22,14 @@ import org.eclipse.jdt.internal.compiler.CompilationResult;
 import org.eclipse.jdt.internal.compiler.ICompilerRequestor;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * <p>
@@ -35,6 +37,10 @@ import java.util.Map;
  * {@link CompilerRequestorImpl} writes the compiled class files to disc or reports the errors in case the compilation
  * was not successful.
  * </p>
+ * <p>
+ * The class files are written asynchronously by a {@link ClassFileWriter}, so {@link #finish()} has to be called after
+ * the compilation.
+ * </p>
  * 
  * @author Nils Hartmann (nils@nilshartmann.net)
  */
@@ -49,15 +55,37 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
   /** collection of class files which have been compiled */
   private Map<String, File>          _compiledClassFiles;
 
+  /** the compiled units */
+  private List<CompiledUnit>         _compiledUnits;
+
+  /** the writer for the class files */
+  private ClassFileWriter            _classFileWriter;
+
   /**
    * <p>
    * Creates a new instance of type {@link CompilerRequestorImpl}.
    * </p>
    */
   public CompilerRequestorImpl() {
+    this(new ClassFileSink[0], ClassFileWriter.DEFAULT_THREADS);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link CompilerRequestorImpl}.
+   * </p>
+   * 
+   * @param classFileSinks
+   *          the sinks receiving the class files in addition to the output folders
+   * @param writerThreads
+   *          the number of threads writing the class files
+   */
+  public CompilerRequestorImpl(ClassFileSink[] classFileSinks, int writerThreads) {
+    this._classFileWriter = new ClassFileWriter(classFileSinks, writerThreads);
     this._compilationSuccessful = true;
     this._categorizedProblems = new LinkedList<CategorizedProblem>();
     this._compiledClassFiles = new Hashtable<String, File>();
+    this._compiledUnits = new LinkedList<CompiledUnit>();
   }
 
   /**
@@ -69,6 +97,15 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
     return Collections.unmodifiableMap(this._compiledClassFiles);
   }
 
+  /**
+   * Returns the compiled units.
+   * 
+   * @return The compiled units. Not <code>null</code>.
+   */
+  public CompiledUnit[] getCompiledUnits() {
+    return this._compiledUnits.toArray(new CompiledUnit[this._compiledUnits.size()]);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -97,6 +134,9 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
     // get the destination directory
     File destinationDirectory = sourceFile.getDestinationFolder();
 
+    // the names of the class files that have been written
+    List<String> classFileNames = new ArrayList<String>();
+
     if (!result.hasErrors()) {
       ClassFile[] classFiles = result.getClassFiles();
       for (ClassFile classFile2 : classFiles) {
@@ -110,30 +150,39 @@ public class CompilerRequestorImpl implements ICompilerRequestor {
         }
         classFileName.append(".class");
         File classFile = new File(destinationDirectory, classFileName.toString());
-        File classDir = classFile.getParentFile();
-        if (!classDir.exists()) {
-          classDir.mkdirs();
-        }
-        try {
-          A4ELogging.debug("writing class file: '%s'", classFile);
-          Utilities.writeFile(classFile, classFile2.getBytes());
-          this._compiledClassFiles.put(classFileName.toString(), classFile);
-        } catch (Ant4EclipseException ioe) {
-          A4ELogging.error("Could not write classfile '%s': %s", classFileName.toString(), ioe.toString());
-          ioe.printStackTrace();
-          this._compilationSuccessful = false;
-        }
+        A4ELogging.debug("writing class file: '%s'", classFile);
+        this._classFileWriter.write(destinationDirectory, classFileName.toString(), classFile2.getBytes());
+        this._compiledClassFiles.put(classFileName.toString(), classFile);
+        classFileNames.add(classFileName.toString());
       }
     } else {
       this._compilationSuccessful = false;
     }
 
+    // remember the class files and the references (the latter are only set if requested by the compiler options)
+    this._compiledUnits.add(new CompiledUnitImpl(sourceFile, result.hasErrors(), classFileNames
+        .toArray(new String[classFileNames.size()]), result.qualifiedReferences, result.simpleNameReferences));
+
     // add the problems...
     if (result.getAllProblems() != null) {
       this._categorizedProblems.addAll(Arrays.asList(result.getAllProblems()));
     }
   }
 
+  /**
+   * <p>
+   * Waits until all class files have been written. The compilation isn't successful if a class file could not be
+   * written.
+   * </p>
+   */
+  public void finish() {
+    Set<String> failedClassFiles = this._classFileWriter.close();
+    if (!failedClassFiles.isEmpty()) {
+      this._compiledClassFiles.keySet().removeAll(failedClassFiles);
+      this._compilationSuccessful = false;
+    }
+  }
+
   /**
    * <p>
    * Returns <code>true</code> if the compilation was successful, <code>false</code> otherwise.
@@ -0,0 +1,222 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * <p>
+ * A simple hash map that uses compound names (as passed by the eclipse java compiler to the
+ * {@link org.eclipse.jdt.internal.compiler.env.INameEnvironment}) as keys. A compound name is given by a prefix (e.g.
+ * the package name) and a last segment (e.g. the simple type name), so looking up a value doesn't require to allocate
+ * any objects.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+final class CompoundNameMap<V> {
+
+  /** the initial capacity (must be a power of two) */
+  private static final int INITIAL_CAPACITY = 256;
+
+  /** the hash table */
+  private Entry<V>[]       _table;
+
+  /** the number of entries */
+  private int              _size;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link CompoundNameMap}.
+   * </p>
+   */
+  public CompoundNameMap() {
+    clear();
+  }
+
+  /**
+   * <p>
+   * Returns the value for the given compound name.
+   * </p>
+   *
+   * @param prefix
+   *          the leading segments of the compound name, maybe <code>null</code>.
+   * @param prefixLength
+   *          the number of leading segments to use.
+   * @param last
+   *          the last segment of the compound name.
+   * @return the value or <code>null</code> if there's no value for the given compound name.
+   */
+  public V get(char[][] prefix, int prefixLength, char[] last) {
+    int hash = hash(prefix, prefixLength, last);
+    for (Entry<V> entry = this._table[hash & (this._table.length - 1)]; entry != null; entry = entry._next) {
+      if ((entry._hash == hash) && entry.matches(prefix, prefixLength, last)) {
+        return entry._value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * <p>
+   * Stores the value for the given compound name. The segments are copied, so the caller may reuse the arrays.
+   * </p>
+   *
+   * @param prefix
+   *          the leading segments of the compound name, maybe <code>null</code>.
+   * @param prefixLength
+   *          the number of leading segments to use.
+   * @param last
+   *          the last segment of the compound name.
+   * @param value
+   *          the value. Not <code>null</code>.
+   */
+  public void put(char[][] prefix, int prefixLength, char[] last, V value) {
+    int hash = hash(prefix, prefixLength, last);
+    int index = hash & (this._table.length - 1);
+    for (Entry<V> entry = this._table[index]; entry != null; entry = entry._next) {
+      if ((entry._hash == hash) && entry.matches(prefix, prefixLength, last)) {
+        entry._value = value;
+        return;
+      }
+    }
+
+    char[][] segments = new char[prefixLength + 1][];
+    for (int i = 0; i < prefixLength; i++) {
+      segments[i] = prefix[i].clone();
+    }
+    segments[prefixLength] = last.clone();
+
+    this._table[index] = new Entry<V>(hash, segments, value, this._table[index]);
+    this._size++;
+    if (this._size > (this._table.length * 3 / 4)) {
+      rehash();
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the number of entries.
+   * </p>
+   *
+   * @return the number of entries.
+   */
+  public int size() {
+    return this._size;
+  }
+
+  /**
+   * <p>
+   * Removes all entries.
+   * </p>
+   */
+  public void clear() {
+    this._table = newTable(INITIAL_CAPACITY);
+    this._size = 0;
+  }
+
+  /**
+   * <p>
+   * Doubles the size of the hash table.
+   * </p>
+   */
+  private void rehash() {
+    Entry<V>[] table = newTable(this._table.length * 2);
+    for (Entry<V> bucket : this._table) {
+      Entry<V> entry = bucket;
+      while (entry != null) {
+        Entry<V> next = entry._next;
+        int index = entry._hash & (table.length - 1);
+        entry._next = table[index];
+        table[index] = entry;
+        entry = next;
+      }
+    }
+    this._table = table;
+  }
+
+  /**
+   * <p>
+   * Creates a new hash table with the given capacity.
+   * </p>
+   */
+  @SuppressWarnings("unchecked")
+  private static <V> Entry<V>[] newTable(int capacity) {
+    return (Entry<V>[]) new Entry<?>[capacity];
+  }
+
+  /**
+   * <p>
+   * Computes the hash code of the given compound name.
+   * </p>
+   */
+  private static int hash(char[][] prefix, int prefixLength, char[] last) {
+    int result = 1;
+    for (int i = 0; i < prefixLength; i++) {
+      result = 31 * result + CharOperation.hashCode(prefix[i]);
+    }
+    return 31 * result + CharOperation.hashCode(last);
+  }
+
+  /**
+   * <p>
+   * A single entry of the hash table.
+   * </p>
+   */
+  private static class Entry<V> {
+
+    /** the hash code of the compound name */
+    private int      _hash;
+
+    /** the segments of the compound name */
+    private char[][] _segments;
+
+    /** the value */
+    private V        _value;
+
+    /** the next entry in the same bucket */
+    private Entry<V> _next;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link Entry}.
+     * </p>
+     */
+    public Entry(int hash, char[][] segments, V value, Entry<V> next) {
+      this._hash = hash;
+      this._segments = segments;
+      this._value = value;
+      this._next = next;
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if this entry belongs to the given compound name.
+     * </p>
+     */
+    public boolean matches(char[][] prefix, int prefixLength, char[] last) {
+      if (this._segments.length != prefixLength + 1) {
+        return false;
+      }
+      for (int i = 0; i < prefixLength; i++) {
+        if (!CharOperation.equals(this._segments[i], prefix[i])) {
+          return false;
+        }
+      }
+      return CharOperation.equals(this._segments[prefixLength], last);
+    }
+  }
+
+} /* ENDCLASS */
@@ -18,6 +18,7 @@ import java.util.Map;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.PerformanceLogging;
 import org.ant4eclipse.lib.jdt.ecj.CompileJobDescription;
 import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
 import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
@@ -29,6 +30,7 @@ import org.eclipse.jdt.internal.compiler.IProblemFactory;
 import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
 import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.impl.CompilerStats;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 
 /**
@@ -37,12 +39,22 @@ import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
  * <ul>
  * <li>setting the compiler options as specified in the eclipse project or in the global settings</li>
  * <li>setting the java runtime environment as specified in the eclipse project</li>
+ * <li>compiling with more than one thread (see {@link CompileJobDescription#getParallelism()})</li>
  * </ul>
+ * <p>
+ * The eclipse compiler reads the source files with a pool of reader threads and processes them (resolve, analyze and
+ * generate) in a background thread while the calling thread accepts the results. The size of the reader pool is
+ * determined by the compiler itself, so the parallelism controls whether these threads are used and how many threads
+ * write the class files. The time the compiler spent in each phase is reported through the {@link PerformanceLogging}.
+ * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public final class EcjAdapterImpl implements EcjAdapter {
 
+  /** the system property that enables multi-threaded compilation if no parallelism has been specified */
+  static final String USE_MULTI_THREADING = "a4e.ecj.useMultiThreading";
+
   /**
    * {@inheritDoc}
    */
@@ -64,34 +76,105 @@ public final class EcjAdapterImpl implements EcjAdapter {
     // create the problem factory
     IProblemFactory problemFactory = new DefaultProblemFactory(Locale.getDefault());
 
+    // the number of threads the compiler may use
+    int parallelism = getParallelism(description);
+
     // create the compiler requestor
-    CompilerRequestorImpl requestor = new CompilerRequestorImpl();
+    int writerThreads = getWriterThreads(parallelism);
+    CompilerRequestorImpl requestor = new CompilerRequestorImpl(description.getClassFileSinks(), writerThreads);
+
+    // create the compiler options (the references are needed to compute the dependents of changed types)
+    CompilerOptions options = new CompilerOptions(compilerOptions);
+    options.produceReferenceInfo = description.isProduceReferenceInfo();
 
     // create the compiler
-    Compiler compiler = new Compiler(nameEnvironment, policy, new CompilerOptions(compilerOptions), requestor,
-        problemFactory);
+    Compiler compiler = new Compiler(nameEnvironment, policy, options, requestor, problemFactory);
 
-    if (Boolean.getBoolean("a4e.ecj.useMultiThreading")) {
-      compiler.useSingleThread = false;
-    }
-    A4ELogging.debug("ecj useSingleThread: " + compiler.useSingleThread);
+    compiler.useSingleThread = parallelism <= 1;
+    A4ELogging.debug("ecj parallelism: %d (useSingleThread: %s, class file writers: %d)", Integer.valueOf(parallelism),
+        Boolean.valueOf(compiler.useSingleThread), Integer.valueOf(writerThreads));
 
     // setup a batch annotation processor
     setupAnnotationProcessor(compiler);
 
     // compile
-    compiler.compile(sources);
+    try {
+      compiler.compile(sources);
+    } finally {
+      // wait for the class files to be written
+      requestor.finish();
+      // release the cached lookups of the name environment
+      nameEnvironment.cleanup();
+    }
+
+    // report the time spent in the compiler phases
+    reportStats(compiler.stats);
 
     // create the compile job result
     CompileJobResultImpl result = new CompileJobResultImpl();
     result.setSucceeded(requestor.isCompilationSuccessful());
     result.setCategorizedProblems(requestor.getCategorizedProblems());
     result.setCompiledClassFiles(requestor.getCompiledClassFiles());
+    result.setCompiledUnits(requestor.getCompiledUnits());
 
     // return the result
     return result;
   }
 
+  /**
+   * <p>
+   * Returns the number of threads the compiler may use for the given description. If the description doesn't specify
+   * a parallelism, the system property <code>a4e.ecj.useMultiThreading</code> (that is kept for compatibility) selects
+   * the number of available processors.
+   * </p>
+   * 
+   * @param description
+   *          the compile job description
+   * @return the number of threads the compiler may use, <code>0</code> for the default.
+   */
+  static int getParallelism(CompileJobDescription description) {
+    int result = description.getParallelism();
+    if ((result == 0) && Boolean.getBoolean(USE_MULTI_THREADING)) {
+      result = Runtime.getRuntime().availableProcessors();
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the number of threads that write the class files for the given parallelism. One thread is left to the
+   * compiler, so a parallelism of <code>1</code> writes the class files on the calling thread.
+   * </p>
+   * 
+   * @param parallelism
+   *          the number of threads the compiler may use, <code>0</code> for the default.
+   * @return the number of writer threads.
+   */
+  static int getWriterThreads(int parallelism) {
+    if (parallelism == 0) {
+      return ClassFileWriter.DEFAULT_THREADS;
+    }
+    return Math.min(ClassFileWriter.DEFAULT_THREADS, parallelism - 1);
+  }
+
+  /**
+   * <p>
+   * Reports the time the compiler spent in each phase.
+   * </p>
+   * 
+   * @param stats
+   *          the statistics of the compiler
+   */
+  private void reportStats(CompilerStats stats) {
+    PerformanceLogging.record(EcjAdapterImpl.class, "parse", stats.parseTime);
+    PerformanceLogging.record(EcjAdapterImpl.class, "resolve", stats.resolveTime);
+    PerformanceLogging.record(EcjAdapterImpl.class, "analyze", stats.analyzeTime);
+    PerformanceLogging.record(EcjAdapterImpl.class, "generate", stats.generateTime);
+    A4ELogging.debug("ecj compiled %d lines in %d ms (parse: %d ms, resolve: %d ms, analyze: %d ms, generate: %d ms)",
+        Long.valueOf(stats.lineCount), Long.valueOf(stats.elapsedTime()), Long.valueOf(stats.parseTime), Long
+            .valueOf(stats.resolveTime), Long.valueOf(stats.analyzeTime), Long.valueOf(stats.generateTime));
+  }
+
   private void setupAnnotationProcessor(Compiler compiler) {
     // compiler.annotationProcessorManager = Utilities
     // .newInstance("org.eclipse.jdt.internal.compiler.apt.dispatch.BatchAnnotationProcessorManager");
@@ -14,9 +14,12 @@ package org.ant4eclipse.lib.jdt.ecj.internal.tools;
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.ClassName;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.MetricsService;
 import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
 import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 
@@ -24,6 +27,17 @@ import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
  * <p>
  * Adapter class to utilize class file loaders in the eclipse java compiler.
  * </p>
+ * <p>
+ * The eclipse java compiler asks for the same types and packages many times during a compilation. Therefore the
+ * answers (including the information that a type or package doesn't exist) are cached until {@link #cleanup()} is
+ * called. The cache is keyed on the compound names passed by the compiler, so a cached lookup doesn't allocate any
+ * objects. Caching can be disabled using the system property <code>ant4eclipse.disableNameEnvironmentCache</code>.
+ * </p>
+ * <p>
+ * The name environment can be used by several compiler threads. The cache is guarded by the name environment itself,
+ * while the (thread-safe) class file loader is called without holding the lock, so a slow lookup doesn't block the
+ * other threads. If two threads look up the same type at the same time, both answers are equivalent.
+ * </p>
  * 
  * @author Gerd Wuetherich (gerd@gerd-wuetherich.de)
  * @author Nils Hartmann (nils@nilshartmann.net)
@@ -41,8 +55,33 @@ public class NameEnvironmentImpl implements INameEnvironment {
     DEBUG_TYPE_NOT_FOUND = "true".equals(System.getProperty("ant4eclipse.debug.nameenv.missingtypes"));
   }
 
+  /** System-Property that disables the cache */
+  private static final boolean               DISABLE_CACHE  = Boolean
+                                                                .getBoolean("ant4eclipse.disableNameEnvironmentCache");
+
+  /** the name of the hit counter */
+  public static final String                 METRIC_HITS    = "nameEnvironment.hits";
+
+  /** the name of the miss counter */
+  public static final String                 METRIC_MISSES  = "nameEnvironment.misses";
+
+  /** marker for types that couldn't be found */
+  private static final NameEnvironmentAnswer TYPE_NOT_FOUND = new NameEnvironmentAnswer((IBinaryType) null, null);
+
   /** used to find binary type as requested by the compiler */
-  private ClassFileLoader _classFileLoader;
+  private ClassFileLoader                        _classFileLoader;
+
+  /** the cached answers (or {@link #TYPE_NOT_FOUND}), guarded by <code>this</code> */
+  private CompoundNameMap<NameEnvironmentAnswer> _types;
+
+  /** the cached package lookups, guarded by <code>this</code> */
+  private CompoundNameMap<Boolean>               _packages;
+
+  /** the number of lookups that have been answered from the cache */
+  private long                                   _hits;
+
+  /** the number of lookups that have been delegated to the class file loader */
+  private long                                   _misses;
 
   /**
    * <p>
@@ -55,6 +94,8 @@ public class NameEnvironmentImpl implements INameEnvironment {
   public NameEnvironmentImpl(ClassFileLoader classFileLoader) {
     Assure.notNull("classFileLoader", classFileLoader);
     this._classFileLoader = classFileLoader;
+    this._types = new CompoundNameMap<NameEnvironmentAnswer>();
+    this._packages = new CompoundNameMap<Boolean>();
 
     if (DEBUG_ALL || DEBUG_TYPE_NOT_FOUND) {
       A4ELogging.info("NameEnvironment tracing enabled.");
@@ -65,44 +106,71 @@ public class NameEnvironmentImpl implements INameEnvironment {
   /**
    * @see org.eclipse.jdt.internal.compiler.env.INameEnvironment#cleanup()
    */
-  public void cleanup() {
-    // nothing to do here...
+  public synchronized void cleanup() {
+    if ((this._hits > 0) || (this._misses > 0)) {
+      MetricsService metricsService = ServiceRegistryAccess.instance().getService(MetricsService.class);
+      metricsService.add(METRIC_HITS, this._hits);
+      metricsService.add(METRIC_MISSES, this._misses);
+    }
+    this._hits = 0;
+    this._misses = 0;
+    this._types.clear();
+    this._packages.clear();
   }
 
   /**
    * {@inheritDoc}
    */
   public NameEnvironmentAnswer findType(char[][] compoundTypeName) {
-
-    // convert char array to string(buffer)
-    StringBuffer buffer = new StringBuffer();
-    for (int i = 0; i < compoundTypeName.length; i++) {
-      buffer.append(new String(compoundTypeName[i]));
-      if (i < compoundTypeName.length - 1) {
-        buffer.append(".");
-      }
+    if ((compoundTypeName == null) || (compoundTypeName.length == 0)) {
+      return null;
     }
-
-    // find class
-    NameEnvironmentAnswer answer = findClass(buffer.toString());
-    return answer;
-
+    int prefixLength = compoundTypeName.length - 1;
+    return findType(compoundTypeName, prefixLength, compoundTypeName[prefixLength]);
   }
 
   /**
    * {@inheritDoc}
    */
   public NameEnvironmentAnswer findType(char[] typeName, char[][] packageName) {
+    return findType(packageName, packageName == null ? 0 : packageName.length, typeName);
+  }
 
-    StringBuffer result = new StringBuffer();
-    if (packageName != null) {
-      for (char[] element : packageName) {
-        result.append(new String(element)).append(".");
+  /**
+   * <p>
+   * Returns the (possibly cached) {@link NameEnvironmentAnswer} for the type with the given compound name.
+   * </p>
+   * 
+   * @param prefix
+   *          the package segments, maybe <code>null</code>.
+   * @param prefixLength
+   *          the number of package segments
+   * @param typeName
+   *          the simple type name
+   * @return the {@link NameEnvironmentAnswer} or <code>null</code> if the type doesn't exist.
+   */
+  private NameEnvironmentAnswer findType(char[][] prefix, int prefixLength, char[] typeName) {
+
+    // try the cache
+    NameEnvironmentAnswer answer = null;
+    synchronized (this) {
+      answer = this._types.get(prefix, prefixLength, typeName);
+      if (answer != null) {
+        this._hits++;
+        return answer == TYPE_NOT_FOUND ? null : answer;
       }
+      this._misses++;
     }
-    result.append(new String(typeName));
 
-    return findClass(result.toString());
+    // find class
+    answer = findClass(toJavaName(prefix, prefixLength, typeName));
+
+    if (!DISABLE_CACHE) {
+      synchronized (this) {
+        this._types.put(prefix, prefixLength, typeName, answer != null ? answer : TYPE_NOT_FOUND);
+      }
+    }
+    return answer;
   }
 
   /**
@@ -117,13 +185,19 @@ public class NameEnvironmentImpl implements INameEnvironment {
    */
   public boolean isPackage(char[][] parentPackageName, char[] packageName) {
 
-    String qualifiedPackageName = toJavaName(parentPackageName);
-    if (qualifiedPackageName.length() > 0) {
-      qualifiedPackageName += "." + new String(packageName);
-    } else {
-      qualifiedPackageName = new String(packageName);
+    // try the cache
+    int prefixLength = parentPackageName == null ? 0 : parentPackageName.length;
+    synchronized (this) {
+      Boolean cached = this._packages.get(parentPackageName, prefixLength, packageName);
+      if (cached != null) {
+        this._hits++;
+        return cached.booleanValue();
+      }
+      this._misses++;
     }
 
+    String qualifiedPackageName = toJavaName(parentPackageName, prefixLength, packageName);
+
     boolean packageFound = this._classFileLoader.hasPackage(qualifiedPackageName);
 
     if (DEBUG_ALL) {
@@ -134,6 +208,11 @@ public class NameEnvironmentImpl implements INameEnvironment {
       }
     }
 
+    if (!DISABLE_CACHE) {
+      synchronized (this) {
+        this._packages.put(parentPackageName, prefixLength, packageName, Boolean.valueOf(packageFound));
+      }
+    }
     return packageFound;
   }
 
@@ -197,24 +276,23 @@ public class NameEnvironmentImpl implements INameEnvironment {
 
   /**
    * <p>
-   * Converts the given char array to a java name (e.g. "net.sf.ant4eclipse").
+   * Converts the given compound name to a java name (e.g. "net.sf.ant4eclipse").
    * </p>
    * 
-   * @param array
-   *          the array to convert.
-   * @return the
+   * @param prefix
+   *          the leading segments, maybe <code>null</code>.
+   * @param prefixLength
+   *          the number of leading segments
+   * @param last
+   *          the last segment
+   * @return the java name
    */
-  private static String toJavaName(char[][] array) {
-    StringBuffer result = new StringBuffer();
-
-    if (array != null) {
-      for (int i = 0; i < array.length; i++) {
-        result.append(new String(array[i]));
-        if (i < array.length - 1) {
-          result.append(".");
-        }
-      }
+  private static String toJavaName(char[][] prefix, int prefixLength, char[] last) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < prefixLength; i++) {
+      result.append(prefix[i]).append('.');
     }
+    result.append(last);
     return result.toString();
   }
 }
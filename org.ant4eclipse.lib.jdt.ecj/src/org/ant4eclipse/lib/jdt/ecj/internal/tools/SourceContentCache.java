@@ -0,0 +1,252 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.Lifecycle;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.MetricsService;
+import org.ant4eclipse.lib.core.util.Utilities;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Build-wide cache for the decoded contents of referenced source files (see
+ * {@link org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile}), so that a source file that is referenced by several
+ * compilations only has to be read and decoded once per build.
+ * </p>
+ * <p>
+ * The contents are only softly referenced, so they are discarded if memory runs low. A cached content is invalidated as
+ * soon as the time stamp or the length of its file has changed or if it is requested with a different encoding.
+ * </p>
+ * <p>
+ * The cache is disabled by default and can be enabled using the system property
+ * <code>ant4eclipse.enableSourceContentCache</code>. Hits and misses are counted by the {@link MetricsService}.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class SourceContentCache implements Lifecycle {
+
+  /** System-Property that enables the SourceContentCache */
+  private static final boolean    ENABLE_CACHE  = Boolean.getBoolean("ant4eclipse.enableSourceContentCache");
+
+  /** the name of the hit counter */
+  public static final String      METRIC_HITS   = "sourceContentCache.hits";
+
+  /** the name of the miss counter */
+  public static final String      METRIC_MISSES = "sourceContentCache.misses";
+
+  /** the cached contents per (absolute) file name, guarded by <code>this</code> */
+  private Map<String, CacheEntry> _contents;
+
+  /** <code>true</code> if contents should be cached */
+  private boolean                 _enabled;
+
+  /** - */
+  private boolean                 _initialized;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link SourceContentCache}.
+   * </p>
+   */
+  public SourceContentCache() {
+    this(ENABLE_CACHE);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link SourceContentCache}.
+   * </p>
+   *
+   * @param enabled
+   *          <code>true</code> if contents should be cached.
+   */
+  public SourceContentCache(boolean enabled) {
+    this._enabled = enabled;
+    this._contents = new HashMap<String, CacheEntry>();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isInitialized() {
+    return this._initialized;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void initialize() {
+    this._initialized = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void dispose() {
+    this._initialized = false;
+    if (this._enabled) {
+      MetricsService metricsService = getMetricsService();
+      A4ELogging.debug("SourceContentCache: %d hits and %d misses.", Long.valueOf(metricsService.get(METRIC_HITS)),
+          Long.valueOf(metricsService.get(METRIC_MISSES)));
+    }
+    clear();
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if contents are cached.
+   * </p>
+   *
+   * @return <code>true</code> if contents are cached.
+   */
+  public boolean isEnabled() {
+    return this._enabled;
+  }
+
+  /**
+   * <p>
+   * Removes all contents from this cache.
+   * </p>
+   */
+  public synchronized void clear() {
+    this._contents.clear();
+  }
+
+  /**
+   * <p>
+   * Returns the cached content of the given file, or <code>null</code> if the content isn't cached (or is out of date).
+   * </p>
+   *
+   * @param file
+   *          the source file
+   * @param encoding
+   *          the encoding the content has been decoded with
+   * @return the cached content or <code>null</code>.
+   */
+  public char[] getContent(File file, String encoding) {
+    Assure.notNull("file", file);
+
+    if (!this._enabled) {
+      return null;
+    }
+
+    CacheEntry entry = null;
+    synchronized (this) {
+      entry = this._contents.get(file.getAbsolutePath());
+    }
+
+    char[] result = entry != null ? entry.getContent(file, encoding) : null;
+    getMetricsService().increment(result != null ? METRIC_HITS : METRIC_MISSES);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Stores the given content of the given file.
+   * </p>
+   *
+   * @param file
+   *          the source file
+   * @param encoding
+   *          the encoding the content has been decoded with
+   * @param content
+   *          the content. Must not be modified afterwards.
+   */
+  public void storeContent(File file, String encoding, char[] content) {
+    Assure.notNull("file", file);
+    Assure.notNull("content", content);
+
+    if (!this._enabled) {
+      return;
+    }
+
+    CacheEntry entry = new CacheEntry(file, encoding, content);
+    synchronized (this) {
+      this._contents.put(file.getAbsolutePath(), entry);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the {@link MetricsService}.
+   * </p>
+   *
+   * @return the {@link MetricsService}.
+   */
+  private MetricsService getMetricsService() {
+    return ServiceRegistryAccess.instance().getService(MetricsService.class);
+  }
+
+  /**
+   * <p>
+   * Returns the registered instance of the {@link SourceContentCache}.
+   * </p>
+   *
+   * @return the registered instance of the {@link SourceContentCache}.
+   */
+  public static SourceContentCache getInstance() {
+    return ServiceRegistryAccess.instance().getService(SourceContentCache.class);
+  }
+
+  /**
+   * <p>
+   * A cached content together with the state of its file.
+   * </p>
+   */
+  private static class CacheEntry {
+
+    /** the time stamp of the file */
+    private long                  _lastModified;
+
+    /** the length of the file */
+    private long                  _length;
+
+    /** the encoding */
+    private String                _encoding;
+
+    /** the content */
+    private SoftReference<char[]> _content;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link CacheEntry}.
+     * </p>
+     */
+    public CacheEntry(File file, String encoding, char[] content) {
+      this._lastModified = file.lastModified();
+      this._length = file.length();
+      this._encoding = encoding;
+      this._content = new SoftReference<char[]>(content);
+    }
+
+    /**
+     * <p>
+     * Returns the content if it is still up to date and has been decoded with the given encoding.
+     * </p>
+     */
+    public char[] getContent(File file, String encoding) {
+      if (!Utilities.equals(this._encoding, encoding) || (this._lastModified != file.lastModified())
+          || (this._length != file.length())) {
+        return null;
+      }
+      return this._content.get();
+    }
+  }
+}
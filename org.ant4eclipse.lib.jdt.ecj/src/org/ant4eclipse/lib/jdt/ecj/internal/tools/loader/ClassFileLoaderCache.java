@@ -1,16 +1,37 @@
 package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.Lifecycle;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.MetricsService;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.PackageIndexCache.PackageIndex;
 
 /**
  * <p>
+ * Build-wide cache for {@link ClassFileLoader ClassFileLoaders}, so that each class path entry (e.g. the jar files of
+ * the JRE) only has to be indexed once per build.
+ * </p>
+ * <p>
+ * The cache is bounded by the sum of the weights of all cached class file loaders, where the weight of a class file
+ * loader is the number of its packages. If the maximum weight (system property
+ * <code>ant4eclipse.classFileLoaderCache.maxWeight</code>) is exceeded, the least recently used class file loaders
+ * will be evicted. A cached class file loader is invalidated as soon as one of its class path entries has been
+ * modified.
+ * </p>
+ * <p>
+ * The cache is enabled by default and can be disabled using the system property
+ * <code>ant4eclipse.disableClassFileLoaderCache</code>. Hits, misses, evictions and invalidations are counted by the
+ * {@link MetricsService}.
  * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
@@ -19,30 +40,49 @@ import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 public class ClassFileLoaderCache implements Lifecycle {
 
   /**
-   * System-Property that enables the ClassFileLoaderCache
+   * System-Property that disables the ClassFileLoaderCache
    */
-  private static final boolean         ENABLE_CACHE = Boolean.getBoolean("ant4eclipse.enableClassFileLoaderCache");
+  private static final boolean    DISABLE_CACHE       = Boolean.getBoolean("ant4eclipse.disableClassFileLoaderCache");
 
   /**
    * System-Property that enables tracing of the cache. <b>This is very verbose!</b>
    */
-  private static final boolean         TRACE_CACHE  = Boolean.getBoolean("ant4eclipse.traceClassFileLoaderCache");
+  private static final boolean    TRACE_CACHE         = Boolean.getBoolean("ant4eclipse.traceClassFileLoaderCache");
 
-  /** the class file loader map */
-  private Map<Object, ClassFileLoader> _classFileLoaderMap;
+  /** the default maximum weight (number of packages) of all cached class file loaders */
+  public static final int         DEFAULT_MAX_WEIGHT  = 100000;
 
-  /**
-   * Hit counter
-   */
-  private int                          _hits        = 0;
+  /** the maximum weight of all cached class file loaders */
+  private static final int        MAX_WEIGHT          = Integer.getInteger(
+                                                          "ant4eclipse.classFileLoaderCache.maxWeight",
+                                                          DEFAULT_MAX_WEIGHT).intValue();
 
-  /**
-   * Miss counter
-   */
-  private int                          _missed      = 0;
+  /** the name of the hit counter */
+  public static final String      METRIC_HITS         = "classFileLoaderCache.hits";
+
+  /** the name of the miss counter */
+  public static final String      METRIC_MISSES       = "classFileLoaderCache.misses";
+
+  /** the name of the eviction counter */
+  public static final String      METRIC_EVICTIONS    = "classFileLoaderCache.evictions";
+
+  /** the name of the invalidation counter */
+  public static final String      METRIC_INVALIDATIONS = "classFileLoaderCache.invalidations";
+
+  /** the cached class file loaders in access order, guarded by <code>this</code> */
+  private Map<Object, CacheEntry> _classFileLoaderMap;
+
+  /** the current weight of all cached class file loaders, guarded by <code>this</code> */
+  private long                    _weight;
+
+  /** the maximum weight of all cached class file loaders */
+  private int                     _maxWeight;
+
+  /** <code>true</code> if class file loaders should be cached */
+  private boolean                 _enabled;
 
   /** - */
-  private boolean                      _initialized;
+  private boolean                 _initialized;
 
   /**
    * <p>
@@ -50,7 +90,24 @@ public class ClassFileLoaderCache implements Lifecycle {
    * </p>
    */
   public ClassFileLoaderCache() {
-    this._classFileLoaderMap = new ConcurrentHashMap<Object, ClassFileLoader>();
+    this(!DISABLE_CACHE, MAX_WEIGHT);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type ClassFileLoaderCache.
+   * </p>
+   *
+   * @param enabled
+   *          <code>true</code> if class file loaders should be cached.
+   * @param maxWeight
+   *          the maximum weight (number of packages) of all cached class file loaders.
+   */
+  public ClassFileLoaderCache(boolean enabled, int maxWeight) {
+    Assure.assertTrue(maxWeight > 0, "maxWeight must be greater than 0");
+    this._enabled = enabled;
+    this._maxWeight = maxWeight;
+    this._classFileLoaderMap = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true);
   }
 
   /**
@@ -73,57 +130,136 @@ public class ClassFileLoaderCache implements Lifecycle {
   public void dispose() {
     this._initialized = false;
     dump();
+    clear();
   }
 
   /**
    * <p>
+   * Removes all class file loaders from this cache.
    * </p>
    */
-  public void clear() {
+  public synchronized void clear() {
     this._classFileLoaderMap.clear();
-    this._hits = 0;
-    this._missed = 0;
-
+    this._weight = 0;
   }
 
   /**
    * <p>
+   * Stores the given class file loader. The class path entries of the class file loader are used to detect
+   * modifications.
    * </p>
    * 
    * @param key
    * @param classFileLoader
    */
   public void storeClassFileLoader(Object key, ClassFileLoader classFileLoader) {
-    if (ENABLE_CACHE) {
+    storeClassFileLoader(key, classFileLoader, classFileLoader.getClasspath());
+  }
+
+  /**
+   * <p>
+   * Stores the given class file loader. The cached class file loader will be invalidated as soon as one of the given
+   * files has been modified.
+   * </p>
+   *
+   * @param key
+   *          the key
+   * @param classFileLoader
+   *          the class file loader
+   * @param entries
+   *          the files the class file loader has been created from (jar files or directories).
+   */
+  public void storeClassFileLoader(Object key, ClassFileLoader classFileLoader, File[] entries) {
+    Assure.notNull("key", key);
+    Assure.notNull("classFileLoader", classFileLoader);
+    Assure.notNull("entries", entries);
+
+    if (!this._enabled) {
+      return;
+    }
+
+    if (TRACE_CACHE) {
+      A4ELogging.debug("Store ClassFileLoader in cache for: '" + key + "' -> " + classFileLoader);
+      A4ELogging.debug("  Packages: " + Arrays.asList(classFileLoader.getAllPackages()));
+    }
+
+    CacheEntry entry = new CacheEntry(classFileLoader, entries);
+
+    List<CacheEntry> evicted = new ArrayList<CacheEntry>();
+    synchronized (this) {
+      CacheEntry previous = this._classFileLoaderMap.put(key, entry);
+      if (previous != null) {
+        this._weight -= previous._weight;
+      }
+      this._weight += entry._weight;
+
+      // evict the least recently used entries (but never the new one)
+      Iterator<CacheEntry> iterator = this._classFileLoaderMap.values().iterator();
+      while ((this._weight > this._maxWeight) && iterator.hasNext()) {
+        CacheEntry candidate = iterator.next();
+        if (candidate != entry) {
+          iterator.remove();
+          this._weight -= candidate._weight;
+          evicted.add(candidate);
+        }
+      }
+    }
+
+    if (!evicted.isEmpty()) {
+      getMetricsService().add(METRIC_EVICTIONS, evicted.size());
       if (TRACE_CACHE) {
-        A4ELogging.debug("Store ClassFileLoader in cache for: '" + key + "' -> " + classFileLoader);
-        A4ELogging.debug("  Packages: " + Arrays.asList(classFileLoader.getAllPackages()));
+        for (CacheEntry candidate : evicted) {
+          A4ELogging.debug("Evicted ClassFileLoader from cache: " + candidate._classFileLoader);
+        }
       }
-      this._classFileLoaderMap.put(key, classFileLoader);
     }
   }
 
   /**
    * <p>
+   * Returns the class file loader that has been stored with the given key, or <code>null</code> if there is no such
+   * class file loader or if one of its class path entries has been modified in the meantime.
    * </p>
-   * 
+   *
    * @param key
    * @return
    */
   public ClassFileLoader getClassFileLoader(Object key) {
-    ClassFileLoader classFileLoader = this._classFileLoaderMap.get(key);
-    if (classFileLoader != null) {
-      this._hits++;
-      if (ENABLE_CACHE && TRACE_CACHE) {
-        A4ELogging.debug("Got ClassFileLoader from cache for: " + key);
+    Assure.notNull("key", key);
+
+    CacheEntry entry = null;
+    synchronized (this) {
+      entry = this._classFileLoaderMap.get(key);
+    }
+
+    // the time stamps are checked outside of the lock
+    if ((entry != null) && !entry.isUpToDate()) {
+      synchronized (this) {
+        if (this._classFileLoaderMap.get(key) == entry) {
+          this._classFileLoaderMap.remove(key);
+          this._weight -= entry._weight;
+        }
+      }
+      getMetricsService().increment(METRIC_INVALIDATIONS);
+      if (TRACE_CACHE) {
+        A4ELogging.debug("Invalidated ClassFileLoader in cache for: " + key);
       }
-    } else {
-      this._missed++;
-      if (ENABLE_CACHE && TRACE_CACHE) {
-        A4ELogging.debug("Missed ClassFileLoader in cache for: " + key);
+      entry = null;
+    }
+
+    if (entry != null) {
+      getMetricsService().increment(METRIC_HITS);
+      if (TRACE_CACHE) {
+        A4ELogging.debug("Got ClassFileLoader from cache for: " + key);
       }
+      return entry._classFileLoader;
+    }
+
+    getMetricsService().increment(METRIC_MISSES);
+    if (this._enabled && TRACE_CACHE) {
+      A4ELogging.debug("Missed ClassFileLoader in cache for: " + key);
     }
-    return classFileLoader;
+    return null;
   }
 
   /**
@@ -133,7 +269,7 @@ public class ClassFileLoaderCache implements Lifecycle {
    * @param key
    * @return
    */
-  public boolean hasClassFileLoader(Object key) {
+  public synchronized boolean hasClassFileLoader(Object key) {
     return this._classFileLoaderMap.containsKey(key);
   }
 
@@ -141,21 +277,106 @@ public class ClassFileLoaderCache implements Lifecycle {
    * Dumps the current content and hit statistics of the ClassFileLoaderCache via A4ELogging
    */
   public void dump() {
+    MetricsService metricsService = getMetricsService();
+    long hits = metricsService.get(METRIC_HITS);
+    long misses = metricsService.get(METRIC_MISSES);
 
-    if (!ENABLE_CACHE) {
-      A4ELogging.info("ClassFileLoaderCache has been disabled. Anyway there have been " + (this._missed + this._hits)
+    if (!this._enabled) {
+      A4ELogging.info("ClassFileLoaderCache has been disabled. Anyway there have been " + (hits + misses)
           + " calls to the cache.");
-    } else {
-      A4ELogging.info("ClassFileLoaderCache contains " + this._classFileLoaderMap.size() + " entries.");
-      A4ELogging.info("There has been " + this._hits + " hits and " + this._missed + " misses");
-      for (Map.Entry<Object, ClassFileLoader> entry : this._classFileLoaderMap.entrySet()) {
-        A4ELogging.info("  " + entry.getKey() + " -> " + entry.getValue());
-        A4ELogging.info("  Packages: " + Arrays.asList(entry.getValue().getAllPackages()));
+      return;
+    }
+
+    List<Map.Entry<Object, CacheEntry>> entries = null;
+    long weight = 0;
+    synchronized (this) {
+      entries = new ArrayList<Map.Entry<Object, CacheEntry>>(this._classFileLoaderMap.entrySet());
+      weight = this._weight;
+    }
+
+    A4ELogging.info("ClassFileLoaderCache contains " + entries.size() + " entries (weight " + weight + " of "
+        + this._maxWeight + ").");
+    A4ELogging.info("There has been " + hits + " hits and " + misses + " misses, "
+        + metricsService.get(METRIC_EVICTIONS) + " evictions and " + metricsService.get(METRIC_INVALIDATIONS)
+        + " invalidations");
+    if (TRACE_CACHE) {
+      for (Map.Entry<Object, CacheEntry> entry : entries) {
+        A4ELogging.info("  " + entry.getKey() + " -> " + entry.getValue()._classFileLoader);
+        A4ELogging.info("  Packages: " + Arrays.asList(entry.getValue()._classFileLoader.getAllPackages()));
       }
     }
   }
 
+  private MetricsService getMetricsService() {
+    return ServiceRegistryAccess.instance().getService(MetricsService.class);
+  }
+
   public static ClassFileLoaderCache getInstance() {
     return ServiceRegistryAccess.instance().getService(ClassFileLoaderCache.class);
   }
+
+  /**
+   * <p>
+   * A cached class file loader together with the state of its class path entries.
+   * </p>
+   */
+  private static class CacheEntry {
+
+    /** the cached class file loader */
+    private ClassFileLoader _classFileLoader;
+
+    /** the weight of the class file loader */
+    private int             _weight;
+
+    /** the class path entries */
+    private File[]          _entries;
+
+    /** the package indices of the class path entries, <code>null</code> for entries that didn't exist */
+    private PackageIndex[]  _indices;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link CacheEntry}.
+     * </p>
+     *
+     * @param classFileLoader
+     *          the class file loader
+     * @param entries
+     *          the class path entries
+     */
+    public CacheEntry(ClassFileLoader classFileLoader, File[] entries) {
+      this._classFileLoader = classFileLoader;
+      this._weight = classFileLoader.getAllPackages().length + 1;
+      this._entries = entries;
+      this._indices = new PackageIndex[entries.length];
+
+      PackageIndexCache packageIndexCache = PackageIndexCache.getInstance();
+      for (int i = 0; i < entries.length; i++) {
+        if (entries[i].exists()) {
+          this._indices[i] = packageIndexCache.getPackageIndex(entries[i]);
+        }
+      }
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if none of the class path entries has been modified (or created) since the class file
+     * loader has been cached.
+     * </p>
+     *
+     * @return <code>true</code> if the cached class file loader is still up to date.
+     */
+    public boolean isUpToDate() {
+      for (int i = 0; i < this._entries.length; i++) {
+        if (this._indices[i] == null) {
+          if (this._entries[i].exists()) {
+            return false;
+          }
+        } else if (!this._indices[i].isValid()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
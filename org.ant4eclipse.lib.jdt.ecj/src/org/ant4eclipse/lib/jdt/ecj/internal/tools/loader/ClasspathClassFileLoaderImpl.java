@@ -12,24 +12,21 @@
 package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringTokenizer;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.ClassName;
-import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.JarFilePool;
 import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
-import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
 import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
 import org.ant4eclipse.lib.jdt.ecj.internal.tools.ReferableSourceFileImpl;
 
@@ -231,13 +228,13 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
     // create allPackages hash map
     this._allPackages = new HashMap<String, PackageProvider>();
 
+    // the package names are taken from the (persistent) package index
+    PackageIndexCache packageIndexCache = PackageIndexCache.getInstance();
+
     // add all existing packages to the hash map
     for (File file : this._classpathEntries) {
-      if (file.isDirectory()) {
-        String[] allPackages = getAllPackagesFromDirectory(file);
-        addAllPackagesFromClassPathEntry(allPackages, file);
-      } else if (file.isFile()) {
-        String[] allPackages = getAllPackagesFromJar(file);
+      if (file.exists()) {
+        String[] allPackages = packageIndexCache.getAllPackages(file);
         addAllPackagesFromClassPathEntry(allPackages, file);
       }
     }
@@ -245,7 +242,7 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
     // add all existing packages to the hash map
     for (File file : this._sourcepathEntries) {
       if (file.isDirectory()) {
-        String[] allPackages = getAllPackagesFromDirectory(file);
+        String[] allPackages = packageIndexCache.getAllPackages(file);
         addAllPackagesFromSourcePathEntry(allPackages, file);
       }
       // we do not support source in jars or zips
@@ -320,151 +317,13 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
 
   /**
    * <p>
-   * Returns all the names of the packages that are contained in the specified jar file. The package list contains the
-   * packages that contain classes as well as all parent packages of those.
+   * Returns the registered {@link JarFilePool}.
    * </p>
    * 
-   * @param jar
-   * @return
-   * @throws IOException
+   * @return the registered {@link JarFilePool}.
    */
-  private String[] getAllPackagesFromJar(File jar) {
-    Assure.isFile("jar", jar);
-
-    // prepare result...
-    List<String> result = new LinkedList<String>();
-
-    // create the jarFile wrapper...
-    JarFile jarFile = null;
-
-    try {
-      jarFile = new JarFile(jar);
-    } catch (IOException e) {
-      throw new Ant4EclipseException(EcjExceptionCodes.COULD_NOT_CREATE_JAR_FILE_FROM_FILE_EXCEPTION,
-          jar.getAbsolutePath());
-    }
-
-    // Iterate over entries...
-    Enumeration<?> enumeration = jarFile.entries();
-    while (enumeration.hasMoreElements()) {
-      JarEntry jarEntry = (JarEntry) enumeration.nextElement();
-
-      // add package for each found directory...
-      String directoryName = null;
-
-      // if the jar entry is a directory, the directory name is the name of the jar entry...
-      if (jarEntry.isDirectory()) {
-        directoryName = jarEntry.getName();
-      }
-      // otherwise the directory name has to be computed
-      else {
-        int splitIndex = jarEntry.getName().lastIndexOf('/');
-        if (splitIndex != -1) {
-          directoryName = jarEntry.getName().substring(0, splitIndex);
-        }
-      }
-
-      // directoryName can be null if a top level entry is processed
-      if (directoryName != null) {
-        // convert path to package name
-        String packageName = directoryName.replace('/', '.');
-        packageName = packageName.endsWith(".") ? packageName.substring(0, packageName.length() - 1) : packageName;
-
-        // at package with all the parent packages (!) to the result list
-        String[] packages = allPackages(packageName);
-        for (int i = 0; i < packages.length; i++) {
-          if (!result.contains(packages[i])) {
-            result.add(packages[i]);
-          }
-        }
-      }
-    }
-
-    // return result...
-    return result.toArray(new String[0]);
-
-  }
-
-  /**
-   * <p>
-   * Returns all package names (including parent package names) for the specified package.
-   * </p>
-   * <p>
-   * <b>Example:</b><br/>
-   * Given the package name <code>net.sf.ant4eclipse.tools</code> this method will return {"net", "net.sf",
-   * "net.sf.ant4eclipse", "net.sf.ant4eclipse.tools"}.
-   * </p>
-   * 
-   * @param packageName
-   *          the name of the package.
-   * @return all package names (including parent package names) for the specified package.
-   */
-  private String[] allPackages(String packageName) {
-
-    // split the package name
-    StringTokenizer tokenizer = new StringTokenizer(packageName, ".");
-
-    // declare result
-    String[] result = new String[tokenizer.countTokens()];
-
-    // compute result
-    for (int i = 0; i < result.length; i++) {
-      if (i == 0) {
-        result[i] = tokenizer.nextToken();
-      } else {
-        result[i] = result[i - 1] + "." + tokenizer.nextToken();
-      }
-    }
-
-    // return result
-    return result;
-  }
-
-  /**
-   * @param directory
-   * @return
-   */
-  private String[] getAllPackagesFromDirectory(File directory) {
-
-    List<String> result = new LinkedList<String>();
-
-    File[] children = directory.listFiles(new FileFilter() {
-      public boolean accept(File pathname) {
-        return pathname.isDirectory();
-      }
-    });
-
-    if (children != null) {
-      for (File element : children) {
-        getAllPackagesFromDirectory(null, element, result);
-      }
-    }
-
-    return result.toArray(new String[0]);
-  }
-
-  /**
-   * @param prefix
-   * @param directory
-   * @param result
-   */
-  private void getAllPackagesFromDirectory(String prefix, File directory, List<String> result) {
-
-    String newPrefix = prefix == null ? "" : prefix + ".";
-
-    result.add(newPrefix + directory.getName());
-
-    File[] children = directory.listFiles(new FileFilter() {
-      public boolean accept(File pathname) {
-        return pathname.isDirectory();
-      }
-    });
-
-    if (children != null) {
-      for (File element : children) {
-        getAllPackagesFromDirectory(newPrefix + directory.getName(), element, result);
-      }
-    }
+  private JarFilePool getJarFilePool() {
+    return ServiceRegistryAccess.instance().getService(JarFilePool.class);
   }
 
   /**
@@ -523,10 +382,10 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
   public class PackageProvider {
 
     /** the class path entries */
-    private List<File> _classpathEntries;
+    private List<ClasspathEntry> _classpathEntries;
 
     /** the source path entries */
-    private List<File> _sourcepathEntries;
+    private List<File>           _sourcepathEntries;
 
     /**
      * <p>
@@ -534,8 +393,8 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
      * </p>
      */
     public PackageProvider() {
-      this._classpathEntries = new LinkedList<File>();
-      this._sourcepathEntries = new LinkedList<File>();
+      this._classpathEntries = new ArrayList<ClasspathEntry>(1);
+      this._sourcepathEntries = new ArrayList<File>(1);
     }
 
     /**
@@ -548,7 +407,7 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
      */
     public void addClasspathEntry(File classpathEntry) {
       Assure.exists("classpathEntry", classpathEntry);
-      this._classpathEntries.add(classpathEntry);
+      this._classpathEntries.add(new ClasspathEntry(classpathEntry));
     }
 
     /**
@@ -573,35 +432,38 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
      */
     public ClassFile loadClassFile(ClassName className) {
 
-      for (File file : this._classpathEntries) {
-        File classpathEntry = file;
+      for (ClasspathEntry entry : this._classpathEntries) {
+        File classpathEntry = entry._file;
 
-        if (classpathEntry.isDirectory()) {
+        if (entry._directory) {
           File result = new File(classpathEntry, className.asClassFileName());
 
           if (result.exists()) {
 
             try {
               if (result.getName().equals(result.getCanonicalFile().getName())) {
-                return new FileClassFileImpl(result, classpathEntry.getAbsolutePath(),
-                    ClasspathClassFileLoaderImpl.this._type);
+                return new FileClassFileImpl(result, entry._location, ClasspathClassFileLoaderImpl.this._type);
               }
             } catch (IOException e) {
               // do nothing
             }
           }
         } else {
+          JarFilePool jarFilePool = getJarFilePool();
+          JarFile jarFile = null;
           try {
-            JarFile jarFile = new JarFile(classpathEntry);
+            jarFile = jarFilePool.acquire(classpathEntry);
 
-            JarEntry entry = jarFile.getJarEntry(className.asClassFileName());
+            JarEntry jarEntry = jarFile.getJarEntry(className.asClassFileName());
 
-            if ((entry != null)) {
-              return new JarClassFileImpl(className.asClassFileName(), jarFile, classpathEntry.getAbsolutePath(),
+            if ((jarEntry != null)) {
+              return new JarClassFileImpl(className.asClassFileName(), classpathEntry, entry._location,
                   ClasspathClassFileLoaderImpl.this._type);
             }
           } catch (IOException e) {
             // nothing to do here...
+          } finally {
+            jarFilePool.release(jarFile);
           }
         }
       }
@@ -656,4 +518,28 @@ public class ClasspathClassFileLoaderImpl implements ClassFileLoader {
       return null;
     }
   }
+
+  /**
+   * <p>
+   * A class path entry of a {@link PackageProvider}. The type (directory or jar file) and the location are determined
+   * once, so they don't have to be computed for each class that is loaded.
+   * </p>
+   */
+  private static class ClasspathEntry {
+
+    /** the class path entry */
+    private File    _file;
+
+    /** <code>true</code> if the class path entry is a directory */
+    private boolean _directory;
+
+    /** the absolute path of the class path entry */
+    private String  _location;
+
+    public ClasspathEntry(File file) {
+      this._file = file;
+      this._directory = file.isDirectory();
+      this._location = file.getAbsolutePath();
+    }
+  }
 }
@@ -17,27 +17,59 @@ import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
 import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClasspathClassFileLoaderImpl.PackageProvider;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * <p>
+ * A {@link ClassFileLoader} that loads classes from multiple underlying class file loaders.
+ * </p>
+ * <p>
+ * When the compound class file loader is created, the packages of all underlying class file loaders are flattened into
+ * an immutable index that maps each package name to an ordered array of {@link PackageLocation PackageLocations}. The
+ * package providers of {@link ClasspathClassFileLoaderImpl ClasspathClassFileLoaderImpls} are referenced directly and
+ * nested compound class file loaders are inlined, so loading a class is a single hash lookup followed by a direct read
+ * of the class path entries that contain the package.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
 public class CompoundClassFileLoaderImpl implements ClassFileLoader {
 
-  private ClassFileLoader[]                  _classFileLoaders;
+  /** the underlying class file loaders (without duplicates) */
+  private ClassFileLoader[]              _classFileLoaders;
+
+  /** maps packages to the locations that provide the package (in class path order) */
+  private Map<String, PackageLocation[]> _allPackages;
 
-  /** maps packages to a package provider that contains a list of one or more class path entries */
-  private Map<String, List<ClassFileLoader>> _allPackages;
+  /** the names of all packages */
+  private String[]                       _allPackageNames;
+
+  /** the (canonical) class path, computed on demand */
+  private volatile File[]                _classpath;
 
   public CompoundClassFileLoaderImpl(ClassFileLoader[] classFileLoaders) {
     Assure.notNull("classFileLoaders", classFileLoaders);
 
-    this._classFileLoaders = classFileLoaders;
-
-    this._allPackages = new HashMap<String, List<ClassFileLoader>>();
+    // remove duplicates (the same instance may be passed more than once)
+    Map<ClassFileLoader, Boolean> loaders = new IdentityHashMap<ClassFileLoader, Boolean>();
+    List<ClassFileLoader> classFileLoaderList = new ArrayList<ClassFileLoader>(classFileLoaders.length);
+    for (ClassFileLoader classFileLoader : classFileLoaders) {
+      Assure.notNull("classFileLoader", classFileLoader);
+      if (loaders.put(classFileLoader, Boolean.TRUE) == null) {
+        classFileLoaderList.add(classFileLoader);
+      }
+    }
+    this._classFileLoaders = classFileLoaderList.toArray(new ClassFileLoader[classFileLoaderList.size()]);
 
     initialise();
   }
@@ -46,31 +78,35 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
    * {@inheritDoc}
    */
   public File[] getClasspath() {
-    List<File> files = new ArrayList<File>();
-    List<String> set = new ArrayList<String>();
-    for (ClassFileLoader loader : this._classFileLoaders) {
-      File[] entries = loader.getClasspath();
-      for (File entry : entries) {
-        entry = Utilities.getCanonicalFile(entry);
-        String path = entry.getAbsolutePath();
-        if (Utilities.isWindows()) {
-          // for windows the case makes no difference
-          path = path.toLowerCase();
-        }
-        if (!set.contains(path)) {
-          set.add(path);
-          files.add(entry);
+    File[] classpath = this._classpath;
+    if (classpath == null) {
+      List<File> files = new ArrayList<File>();
+      Set<String> set = new HashSet<String>();
+      for (ClassFileLoader loader : this._classFileLoaders) {
+        File[] entries = loader.getClasspath();
+        for (File entry : entries) {
+          entry = Utilities.getCanonicalFile(entry);
+          String path = entry.getAbsolutePath();
+          if (Utilities.isWindows()) {
+            // for windows the case makes no difference
+            path = path.toLowerCase();
+          }
+          if (set.add(path)) {
+            files.add(entry);
+          }
         }
       }
+      classpath = files.toArray(new File[files.size()]);
+      this._classpath = classpath;
     }
-    return files.toArray(new File[files.size()]);
+    return classpath.clone();
   }
 
   /**
    * {@inheritDoc}
    */
   public String[] getAllPackages() {
-    return this._allPackages.keySet().toArray(new String[0]);
+    return this._allPackageNames.clone();
   }
 
   /**
@@ -85,11 +121,11 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
    */
   public ClassFile loadClass(ClassName className) {
 
-    // get the class file loader list
-    List<ClassFileLoader> classFileLoaderList = this._allPackages.get(className.getPackageName());
+    // get the locations that provide the package
+    PackageLocation[] locations = this._allPackages.get(className.getPackageName());
 
-    // return if class file loader list is null
-    if (classFileLoaderList == null) {
+    // return if there is no such package
+    if (locations == null) {
       return null;
     }
 
@@ -97,10 +133,10 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
     ClassFile result = null;
 
     // try to find the class file...
-    for (ClassFileLoader classFileLoader : classFileLoaderList) {
+    for (PackageLocation location : locations) {
 
       // try to load class file...
-      ClassFile classFile = classFileLoader.loadClass(className);
+      ClassFile classFile = location.loadClass(className);
 
       // class file was found...
       if (classFile != null) {
@@ -128,14 +164,14 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
     // TODO: Access restrictions for source files!!
 
     // if the package name is not in the map of all packages, return immediately
-    List<ClassFileLoader> classFileLoaderList = this._allPackages.get(className.getPackageName());
-    if (classFileLoaderList == null) {
+    PackageLocation[] locations = this._allPackages.get(className.getPackageName());
+    if (locations == null) {
       return null;
     }
 
     // search for the source file
-    for (ClassFileLoader classFileLoader : classFileLoaderList) {
-      ReferableSourceFile sourceFile = classFileLoader.loadSource(className);
+    for (PackageLocation location : locations) {
+      ReferableSourceFile sourceFile = location.loadSource(className);
       if (sourceFile != null) {
         return sourceFile;
       }
@@ -164,23 +200,141 @@ public class CompoundClassFileLoaderImpl implements ClassFileLoader {
     return buffer.toString();
   }
 
+  /**
+   * <p>
+   * Builds the package index.
+   * </p>
+   */
   private void initialise() {
 
+    // the locations are shared (one location per package provider or class file loader)
+    Map<Object, PackageLocation> locations = new IdentityHashMap<Object, PackageLocation>();
+    Map<String, List<PackageLocation>> allPackages = new LinkedHashMap<String, List<PackageLocation>>();
+
     for (ClassFileLoader classFileLoader : this._classFileLoaders) {
-      String[] packages = classFileLoader.getAllPackages();
 
-      for (String aPackage : packages) {
-        if (this._allPackages.containsKey(aPackage)) {
-          List<ClassFileLoader> classFileLoaderList = this._allPackages.get(aPackage);
-          if (!classFileLoaderList.contains(classFileLoader)) {
-            classFileLoaderList.add(classFileLoader);
+      if (classFileLoader instanceof CompoundClassFileLoaderImpl) {
+        // inline the locations of nested compound class file loaders
+        CompoundClassFileLoaderImpl compound = (CompoundClassFileLoaderImpl) classFileLoader;
+        for (Map.Entry<String, PackageLocation[]> entry : compound._allPackages.entrySet()) {
+          for (PackageLocation location : entry.getValue()) {
+            addLocation(allPackages, entry.getKey(), location);
+          }
+        }
+      } else if (classFileLoader instanceof ClasspathClassFileLoaderImpl) {
+        // reference the package providers directly
+        ClasspathClassFileLoaderImpl classpathLoader = (ClasspathClassFileLoaderImpl) classFileLoader;
+        for (String aPackage : classpathLoader.getAllPackages()) {
+          PackageProvider packageProvider = classpathLoader.getPackageProvider(aPackage);
+          PackageLocation location = locations.get(packageProvider);
+          if (location == null) {
+            location = new ProviderLocation(packageProvider);
+            locations.put(packageProvider, location);
           }
-        } else {
-          List<ClassFileLoader> classFileLoaderList = new LinkedList<ClassFileLoader>();
-          classFileLoaderList.add(classFileLoader);
-          this._allPackages.put(aPackage, classFileLoaderList);
+          addLocation(allPackages, aPackage, location);
+        }
+      } else {
+        // e.g. filtering class file loaders
+        PackageLocation location = new LoaderLocation(classFileLoader);
+        for (String aPackage : classFileLoader.getAllPackages()) {
+          addLocation(allPackages, aPackage, location);
         }
       }
     }
+
+    // freeze the index
+    this._allPackages = new HashMap<String, PackageLocation[]>(allPackages.size() * 4 / 3 + 1);
+    for (Map.Entry<String, List<PackageLocation>> entry : allPackages.entrySet()) {
+      List<PackageLocation> list = entry.getValue();
+      this._allPackages.put(entry.getKey(), list.toArray(new PackageLocation[list.size()]));
+    }
+    this._allPackageNames = allPackages.keySet().toArray(new String[allPackages.size()]);
+  }
+
+  /**
+   * <p>
+   * Adds the given location to the locations of the given package (if not already contained).
+   * </p>
+   */
+  private static void addLocation(Map<String, List<PackageLocation>> allPackages, String packageName,
+      PackageLocation location) {
+    List<PackageLocation> list = allPackages.get(packageName);
+    if (list == null) {
+      list = new ArrayList<PackageLocation>(2);
+      allPackages.put(packageName, list);
+    }
+    // locations don't override equals(), so this is an identity check on (usually very short) lists
+    if (!list.contains(location)) {
+      list.add(location);
+    }
+  }
+
+  /**
+   * <p>
+   * A location that provides the classes and sources of a package.
+   * </p>
+   */
+  private static interface PackageLocation {
+
+    /**
+     * <p>
+     * Loads the class file for the given class name.
+     * </p>
+     */
+    ClassFile loadClass(ClassName className);
+
+    /**
+     * <p>
+     * Loads the source file for the given class name.
+     * </p>
+     */
+    ReferableSourceFile loadSource(ClassName className);
+  }
+
+  /**
+   * <p>
+   * A {@link PackageLocation} that directly references the {@link PackageProvider} of a
+   * {@link ClasspathClassFileLoaderImpl}.
+   * </p>
+   */
+  private static class ProviderLocation implements PackageLocation {
+
+    /** the package provider */
+    private PackageProvider _packageProvider;
+
+    public ProviderLocation(PackageProvider packageProvider) {
+      this._packageProvider = packageProvider;
+    }
+
+    public ClassFile loadClass(ClassName className) {
+      return this._packageProvider.loadClassFile(className);
+    }
+
+    public ReferableSourceFile loadSource(ClassName className) {
+      return this._packageProvider.loadSourceFile(className);
+    }
+  }
+
+  /**
+   * <p>
+   * A {@link PackageLocation} that delegates to an arbitrary {@link ClassFileLoader}.
+   * </p>
+   */
+  private static class LoaderLocation implements PackageLocation {
+
+    /** the class file loader */
+    private ClassFileLoader _classFileLoader;
+
+    public LoaderLocation(ClassFileLoader classFileLoader) {
+      this._classFileLoader = classFileLoader;
+    }
+
+    public ClassFile loadClass(ClassName className) {
+      return this._classFileLoader.loadClass(className);
+    }
+
+    public ReferableSourceFile loadSource(ClassName className) {
+      return this._classFileLoader.loadSource(className);
+    }
   }
 }
@@ -12,10 +12,11 @@
 package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.ClassName;
@@ -30,26 +31,37 @@ import org.eclipse.jdt.internal.compiler.env.AccessRule;
 
 /**
  * <p>
+ * A {@link ClassFileLoader} that sets an access restriction on all classes of the underlying class file loader that
+ * are not accessible according to a filter string (e.g. <code>+org/ant4eclipse/*;-**&#47;*</code>).
+ * </p>
+ * <p>
+ * The rules of the filter string are compiled to {@link Pattern Patterns} once. Besides that, the rules that are
+ * relevant for a package are determined once per package: in most cases (e.g. rules derived from
+ * <code>Export-Package</code> headers) all classes of a package are either accessible or not, so the access check for
+ * a class is a single hash lookup, regardless of the number of rules.
  * </p>
  * 
  * @author Gerd Wuetherich (gerd@gerd-wuetherich.de)
  */
 public class FilteringClassFileLoader implements ClassFileLoader {
 
+  /** the access rule that is used for all forbidden references */
+  private static final AccessRule   FORBIDDEN_RULE = new AccessRule("**".toCharArray(), IProblem.ForbiddenReference);
+
   /** the class file loader that should be filtered */
-  private ClassFileLoader _classFileLoader;
+  private ClassFileLoader           _classFileLoader;
 
   /** the filter string */
-  private String          _filter;
+  private String                    _filter;
 
-  /** the include patterns */
-  private List<String>    _includes;
+  /** the include rules */
+  private List<Rule>                _includes;
 
-  /** the exclude patterns */
-  private List<String>    _excludes;
+  /** the exclude rules */
+  private List<Rule>                _excludes;
 
-  /** - */
-  private Set<String>     _containedPackages;
+  /** the rules per package (package name -> rules) */
+  private Map<String, PackageRules> _packageRules;
 
   /**
    * <p>
@@ -66,8 +78,9 @@ public class FilteringClassFileLoader implements ClassFileLoader {
     this._classFileLoader = classFileLoader;
     this._filter = filter;
 
-    this._includes = new LinkedList<String>();
-    this._excludes = new LinkedList<String>();
+    this._includes = new ArrayList<Rule>();
+    this._excludes = new ArrayList<Rule>();
+    this._packageRules = new ConcurrentHashMap<String, PackageRules>();
 
     init();
   }
@@ -119,6 +132,7 @@ public class FilteringClassFileLoader implements ClassFileLoader {
 
   /**
    * <p>
+   * Sets an access restriction on the given referable type if the type is not accessible.
    * </p>
    * 
    * @param referableType
@@ -131,33 +145,23 @@ public class FilteringClassFileLoader implements ClassFileLoader {
       return referableType;
     }
 
-    // try 'shortcut'
-    if (this._containedPackages != null && this._containedPackages.contains(className.getPackageName())) {
-      return referableType;
-    }
-
-    //
-    String classFileName = className.asClassFileName();
-
-    //
-    for (String includePattern : this._includes) {
-      if (classFileName.matches(includePattern)) {
-        return referableType;
-      }
+    // get the (memoised) rules for the package
+    String packageName = className.getPackageName();
+    PackageRules packageRules = this._packageRules.get(packageName);
+    if (packageRules == null) {
+      packageRules = PackageRules.create(packageName, this._includes, this._excludes);
+      this._packageRules.put(packageName, packageRules);
     }
 
     //
-    for (String exludePattern : this._excludes) {
-      if (classFileName.matches(exludePattern)) {
+    if (!packageRules.isAccessible(className)) {
 
-        if (referableType instanceof DefaultReferableType) {
+      if (referableType instanceof DefaultReferableType) {
 
-          AccessRestriction accessRestriction = new AccessRestriction(new AccessRule("**".toCharArray(),
-              IProblem.ForbiddenReference), referableType.getLibraryType(), referableType.getLibraryLocation());
+        AccessRestriction accessRestriction = new AccessRestriction(FORBIDDEN_RULE, referableType.getLibraryType(),
+            referableType.getLibraryLocation());
 
-          ((DefaultReferableType) referableType).setAccessRestriction(accessRestriction);
-        }
-        return referableType;
+        ((DefaultReferableType) referableType).setAccessRestriction(accessRestriction);
       }
     }
 
@@ -170,21 +174,9 @@ public class FilteringClassFileLoader implements ClassFileLoader {
    */
   private void init() {
 
-    //
-    this._containedPackages = new HashSet<String>();
-
     //
     for (String part : this._filter.split(";")) {
 
-      // step 0:
-      if (part.matches("\\+.*/\\*")) {
-        this._containedPackages.add(part.substring(1, part.length() - 2).replace('/', '.'));
-      } else if (part.matches("\\-\\*\\*/\\*")) {
-        //
-      } else {
-        this._containedPackages = null;
-      }
-
       // step 1: replace all occurrences of '**/*' with '###' (temporary step)
       String transformedPart = part.substring(1).replaceAll("\\*\\*/\\*", "###");
 
@@ -198,11 +190,190 @@ public class FilteringClassFileLoader implements ClassFileLoader {
       transformedPart = transformedPart.concat("\\.class");
 
       if (part.startsWith("+")) {
-        this._includes.add(transformedPart);
+        this._includes.add(new Rule(part.substring(1), transformedPart));
       }
       if (part.startsWith("-")) {
-        this._excludes.add(transformedPart);
+        this._excludes.add(new Rule(part.substring(1), transformedPart));
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * A single (compiled) rule of the filter string.
+   * </p>
+   */
+  private static class Rule {
+
+    /** the rule matches no class of a package */
+    private static final int NONE = 0;
+
+    /** the rule matches some classes of a package */
+    private static final int SOME = 1;
+
+    /** the rule matches all classes of a package */
+    private static final int ALL  = 2;
+
+    /** the rule as specified in the filter string (e.g. 'org/ant4eclipse/*') */
+    private String           _rule;
+
+    /** the compiled pattern */
+    private Pattern          _pattern;
+
+    /** <code>true</code> if the rule only contains path segments and wildcards */
+    private boolean          _simple;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link Rule}.
+     * </p>
+     */
+    public Rule(String rule, String regex) {
+      this._rule = rule;
+      this._pattern = Pattern.compile(regex);
+      this._simple = rule.matches("[\\w/\\-\\*]*");
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if the given class file name (e.g. 'org/ant4eclipse/Test.class') matches this rule.
+     * </p>
+     */
+    public boolean matches(String classFileName) {
+      return this._pattern.matcher(classFileName).matches();
+    }
+
+    /**
+     * <p>
+     * Returns whether this rule matches none, some or all classes of the package with the given directory prefix (e.g.
+     * 'org/ant4eclipse/'). The result is conservative, <code>SOME</code> is returned if in doubt.
+     * </p>
+     * <p>
+     * Class file names never contain a '.' except for the '.class' suffix, so a wildcard of a simple rule matches any
+     * character sequence (including '/').
+     * </p>
+     */
+    public int matchesPackage(String prefix) {
+      if (!this._simple) {
+        return SOME;
+      }
+
+      // the literal part in front of the first wildcard
+      int wildcard = this._rule.indexOf('*');
+      String literal = wildcard == -1 ? this._rule : this._rule.substring(0, wildcard);
+
+      if (prefix.startsWith(literal)) {
+        // a literal rule can't match a class file name that is longer than the rule
+        if (wildcard == -1) {
+          return NONE;
+        }
+        // 'literal*', 'literal**' or 'literal**/*' match every class of the package
+        String remainder = this._rule.substring(wildcard);
+        return remainder.matches("\\*+") || remainder.equals("**/*") ? ALL : SOME;
+      }
+
+      return literal.startsWith(prefix) ? SOME : NONE;
+    }
+  }
+
+  /**
+   * <p>
+   * The rules that are relevant for a specific package.
+   * </p>
+   */
+  private static class PackageRules {
+
+    /** all classes of the package are accessible */
+    private static final PackageRules ACCESSIBLE = new PackageRules(null, null);
+
+    /** no class of the package is accessible */
+    private static final PackageRules RESTRICTED = new PackageRules(null, null);
+
+    /** the include rules that match some classes of the package */
+    private Rule[]                    _includes;
+
+    /** the exclude rules that match some or all classes of the package */
+    private Rule[]                    _excludes;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link PackageRules}.
+     * </p>
+     */
+    private PackageRules(Rule[] includes, Rule[] excludes) {
+      this._includes = includes;
+      this._excludes = excludes;
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if the class with the given name is accessible. A class is accessible if it matches an
+     * include rule or if it doesn't match any exclude rule.
+     * </p>
+     */
+    public boolean isAccessible(ClassName className) {
+      if (this == ACCESSIBLE) {
+        return true;
+      }
+      if (this == RESTRICTED) {
+        return false;
+      }
+
+      String classFileName = className.asClassFileName();
+
+      for (Rule include : this._includes) {
+        if (include.matches(classFileName)) {
+          return true;
+        }
+      }
+
+      for (Rule exclude : this._excludes) {
+        if (exclude.matches(classFileName)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    /**
+     * <p>
+     * Computes the rules that are relevant for the given package.
+     * </p>
+     */
+    public static PackageRules create(String packageName, List<Rule> includes, List<Rule> excludes) {
+      String prefix = packageName.length() == 0 ? "" : packageName.replace('.', '/') + "/";
+
+      List<Rule> relevantIncludes = new ArrayList<Rule>();
+      for (Rule include : includes) {
+        int match = include.matchesPackage(prefix);
+        if (match == Rule.ALL) {
+          return ACCESSIBLE;
+        } else if (match == Rule.SOME) {
+          relevantIncludes.add(include);
+        }
+      }
+
+      List<Rule> relevantExcludes = new ArrayList<Rule>();
+      boolean excludesAll = false;
+      for (Rule exclude : excludes) {
+        int match = exclude.matchesPackage(prefix);
+        if (match == Rule.ALL) {
+          excludesAll = true;
+        }
+        if (match != Rule.NONE) {
+          relevantExcludes.add(exclude);
+        }
+      }
+
+      if (relevantExcludes.isEmpty()) {
+        return ACCESSIBLE;
+      }
+      if (excludesAll && relevantIncludes.isEmpty()) {
+        return RESTRICTED;
       }
+      return new PackageRules(relevantIncludes.toArray(new Rule[relevantIncludes.size()]), relevantExcludes
+          .toArray(new Rule[relevantExcludes.size()]));
     }
   }
 }
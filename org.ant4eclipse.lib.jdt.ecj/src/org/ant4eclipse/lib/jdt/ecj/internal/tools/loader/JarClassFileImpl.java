@@ -11,11 +11,14 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
 
+import java.io.File;
 import java.io.IOException;
-import java.util.zip.ZipFile;
+import java.util.jar.JarFile;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.JarFilePool;
 import org.ant4eclipse.lib.jdt.ecj.ClassFile;
 import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
 import org.ant4eclipse.lib.jdt.ecj.internal.tools.DefaultReferableType;
@@ -25,23 +28,24 @@ import org.eclipse.jdt.internal.compiler.env.IBinaryType;
 import org.eclipse.jdt.internal.compiler.util.Util;
 
 /**
- * DefaultClassFile --
+ * DefaultClassFile -- The underlying jar file is obtained from the {@link JarFilePool} each time the content is
+ * requested, so instances of this class don't keep any file handle open.
  * 
  * @author Gerd Wuetherich (gerd@gerd-wuetherich.de)
  */
 public class JarClassFileImpl extends DefaultReferableType implements ClassFile {
 
   /** the zip file */
-  private ZipFile _zipFile;
+  private File   _zipFile;
 
   /** the zip entry name */
-  private String  _zipEntryName;
+  private String _zipEntryName;
 
   /**
    * @param zipEntryName
    * @param zipFile
    */
-  public JarClassFileImpl(String zipEntryName, ZipFile zipFile, String libraryLocation, byte libraryType) {
+  public JarClassFileImpl(String zipEntryName, File zipFile, String libraryLocation, byte libraryType) {
 
     super(libraryLocation, libraryType);
 
@@ -53,10 +57,15 @@ public class JarClassFileImpl extends DefaultReferableType implements ClassFile
   }
 
   public byte[] getBytes() {
+    JarFilePool jarFilePool = getJarFilePool();
+    JarFile jarFile = null;
     try {
-      return Util.getZipEntryByteContent(this._zipFile.getEntry(this._zipEntryName), this._zipFile);
+      jarFile = jarFilePool.acquire(this._zipFile);
+      return Util.getZipEntryByteContent(jarFile.getEntry(this._zipEntryName), jarFile);
     } catch (Exception e) {
       throw new RuntimeException(e.getMessage(), e);
+    } finally {
+      jarFilePool.release(jarFile);
     }
   }
 
@@ -64,20 +73,36 @@ public class JarClassFileImpl extends DefaultReferableType implements ClassFile
    * {@inheritDoc}
    */
   public final IBinaryType getBinaryType() {
+    JarFilePool jarFilePool = getJarFilePool();
+    JarFile jarFile = null;
     try {
-      return ClassFileReader.read(this._zipFile, this._zipEntryName, true);
+      jarFile = jarFilePool.acquire(this._zipFile);
+      return ClassFileReader.read(jarFile, this._zipEntryName, true);
     } catch (ClassFormatException e) {
       throw new Ant4EclipseException(e, EcjExceptionCodes.UNABLE_TO_READ_BINARY_TYPE_FROM_JAR_EXCEPTION,
-          this._zipFile.getName(), this._zipEntryName);
+          this._zipFile.getAbsolutePath(), this._zipEntryName);
     } catch (IOException e) {
       throw new Ant4EclipseException(e, EcjExceptionCodes.UNABLE_TO_READ_BINARY_TYPE_FROM_JAR_EXCEPTION,
-          this._zipFile.getName(), this._zipEntryName);
+          this._zipFile.getAbsolutePath(), this._zipEntryName);
     } catch (java.lang.SecurityException e) {
       throw new Ant4EclipseException(e, EcjExceptionCodes.UNABLE_TO_READ_BINARY_TYPE_FROM_JAR_EXCEPTION,
-          this._zipFile.getName(), this._zipEntryName);
+          this._zipFile.getAbsolutePath(), this._zipEntryName);
+    } finally {
+      jarFilePool.release(jarFile);
     }
   }
 
+  /**
+   * <p>
+   * Returns the registered {@link JarFilePool}.
+   * </p>
+   * 
+   * @return the registered {@link JarFilePool}.
+   */
+  private JarFilePool getJarFilePool() {
+    return ServiceRegistryAccess.instance().getService(JarFilePool.class);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,544 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.Lifecycle;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.JarFilePool;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.EcjExceptionCodes;
+
+/**
+ * <p>
+ * Caches the names of all packages that are contained in a class path entry (a jar file or a directory). The index of
+ * each entry is kept in memory and persisted to the ant4eclipse cache directory (see
+ * {@link Utilities#getCacheDir(String)}), so that it can be shared across several ant invocations.
+ * </p>
+ * <p>
+ * An index of a jar file is valid as long as the size and the modification time of the jar file haven't changed. An
+ * index of a directory stores the modification time of each package directory. As adding or removing a sub directory
+ * changes the modification time of its parent, the index is valid as long as all these time stamps are unchanged.
+ * </p>
+ * <p>
+ * The persistent part of the cache can be disabled using the system property
+ * <code>ant4eclipse.disablePersistentPackageIndex</code>.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class PackageIndexCache implements Lifecycle {
+
+  /** System-Property that disables the persistent part of the cache */
+  private static final boolean    DISABLE_PERSISTENT_INDEX = Boolean
+                                                               .getBoolean("ant4eclipse.disablePersistentPackageIndex");
+
+  /** the version of the index file format */
+  private static final int        FORMAT_VERSION           = 1;
+
+  /** the name of the cache directory */
+  private static final String     CACHE_NAME               = "packageindex";
+
+  /** the suffix of the index files */
+  private static final String     INDEX_SUFFIX             = ".idx";
+
+  /** the in-memory cache (canonical path -> index) */
+  private Map<String, PackageIndex> _indices;
+
+  /** the directory for the index files, <code>null</code> if the persistent cache is disabled */
+  private File                    _cacheDirectory;
+
+  /** - */
+  private boolean                 _initialized;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link PackageIndexCache}.
+   * </p>
+   */
+  public PackageIndexCache() {
+    this._indices = new ConcurrentHashMap<String, PackageIndex>();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isInitialized() {
+    return this._initialized;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void initialize() {
+    if (!DISABLE_PERSISTENT_INDEX) {
+      try {
+        this._cacheDirectory = Utilities.getCacheDir(CACHE_NAME);
+      } catch (Ant4EclipseException ex) {
+        A4ELogging.warn("Persistent package index has been disabled: %s", ex.getMessage());
+        this._cacheDirectory = null;
+      }
+    }
+    this._initialized = true;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void dispose() {
+    this._indices.clear();
+    this._initialized = false;
+  }
+
+  /**
+   * <p>
+   * Returns the names of all packages that are contained in the given jar file or directory. The package list contains
+   * the packages that contain classes as well as all parent packages of those.
+   * </p>
+   *
+   * @param classpathEntry
+   *          the jar file or directory. Must exist.
+   * @return the names of all packages. Not <code>null</code>.
+   */
+  public String[] getAllPackages(File classpathEntry) {
+    return getPackageIndex(classpathEntry).getPackageNames();
+  }
+
+  /**
+   * <p>
+   * Returns the {@link PackageIndex} for the given jar file or directory. The returned index can be used to check
+   * whether the class path entry has been modified afterwards.
+   * </p>
+   *
+   * @param classpathEntry
+   *          the jar file or directory. Must exist.
+   * @return the package index. Not <code>null</code>.
+   */
+  public PackageIndex getPackageIndex(File classpathEntry) {
+    Assure.exists("classpathEntry", classpathEntry);
+
+    File canonicalFile = Utilities.getCanonicalFile(classpathEntry);
+    String key = canonicalFile.getPath();
+
+    // 1. try the in-memory cache
+    PackageIndex index = this._indices.get(key);
+    if ((index != null) && index.isValid()) {
+      return index;
+    }
+
+    // 2. try the persistent cache
+    index = readIndex(canonicalFile);
+
+    // 3. compute the index
+    if ((index == null) || !index.isValid()) {
+      index = canonicalFile.isDirectory() ? indexDirectory(canonicalFile) : indexJar(canonicalFile);
+      writeIndex(canonicalFile, index);
+    }
+
+    this._indices.put(key, index);
+    return index;
+  }
+
+  /**
+   * <p>
+   * Computes the package index for the given jar file.
+   * </p>
+   *
+   * @param jar
+   *          the jar file
+   * @return the package index
+   */
+  private PackageIndex indexJar(File jar) {
+
+    // prepare result...
+    Set<String> result = new LinkedHashSet<String>();
+
+    // get the jarFile wrapper...
+    JarFilePool jarFilePool = ServiceRegistryAccess.instance().getService(JarFilePool.class);
+    JarFile jarFile = null;
+
+    try {
+      jarFile = jarFilePool.acquire(jar);
+    } catch (IOException e) {
+      throw new Ant4EclipseException(EcjExceptionCodes.COULD_NOT_CREATE_JAR_FILE_FROM_FILE_EXCEPTION,
+          jar.getAbsolutePath());
+    }
+
+    try {
+      // Iterate over entries...
+      Enumeration<?> enumeration = jarFile.entries();
+      while (enumeration.hasMoreElements()) {
+        JarEntry jarEntry = (JarEntry) enumeration.nextElement();
+
+        // add package for each found directory...
+        String directoryName = null;
+
+        // if the jar entry is a directory, the directory name is the name of the jar entry...
+        if (jarEntry.isDirectory()) {
+          directoryName = jarEntry.getName();
+        }
+        // otherwise the directory name has to be computed
+        else {
+          int splitIndex = jarEntry.getName().lastIndexOf('/');
+          if (splitIndex != -1) {
+            directoryName = jarEntry.getName().substring(0, splitIndex);
+          }
+        }
+
+        // directoryName can be null if a top level entry is processed
+        if (directoryName != null) {
+          // convert path to package name
+          String packageName = directoryName.replace('/', '.');
+          packageName = packageName.endsWith(".") ? packageName.substring(0, packageName.length() - 1) : packageName;
+
+          // add package with all the parent packages (!) to the result set
+          addPackageWithParents(packageName, result);
+        }
+      }
+    } finally {
+      jarFilePool.release(jarFile);
+    }
+
+    Map<String, Long> packages = new LinkedHashMap<String, Long>();
+    for (String packageName : result) {
+      packages.put(packageName, null);
+    }
+
+    // return result...
+    return new PackageIndex(jar, false, jar.length(), jar.lastModified(), packages);
+  }
+
+  /**
+   * <p>
+   * Adds the given package and all of its parent packages to the given set.
+   * </p>
+   * <p>
+   * <b>Example:</b><br/>
+   * Given the package name <code>net.sf.ant4eclipse.tools</code> this method will add {"net", "net.sf",
+   * "net.sf.ant4eclipse", "net.sf.ant4eclipse.tools"}.
+   * </p>
+   *
+   * @param packageName
+   *          the name of the package.
+   * @param result
+   *          the set of package names.
+   */
+  private void addPackageWithParents(String packageName, Set<String> result) {
+    if ((packageName.length() == 0) || result.contains(packageName)) {
+      // the parent packages have been added already
+      return;
+    }
+    int index = packageName.lastIndexOf('.');
+    if (index != -1) {
+      addPackageWithParents(packageName.substring(0, index), result);
+    }
+    result.add(packageName);
+  }
+
+  /**
+   * <p>
+   * Computes the package index for the given directory.
+   * </p>
+   *
+   * @param directory
+   *          the directory
+   * @return the package index
+   */
+  private PackageIndex indexDirectory(File directory) {
+
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+
+    File[] children = directory.listFiles(DirectoryFilter.INSTANCE);
+
+    if (children != null) {
+      for (File element : children) {
+        indexDirectory(null, element, result);
+      }
+    }
+
+    return new PackageIndex(directory, true, 0, directory.lastModified(), result);
+  }
+
+  /**
+   * @param prefix
+   * @param directory
+   * @param result
+   */
+  private void indexDirectory(String prefix, File directory, Map<String, Long> result) {
+
+    String packageName = prefix == null ? directory.getName() : prefix + "." + directory.getName();
+
+    result.put(packageName, Long.valueOf(directory.lastModified()));
+
+    File[] children = directory.listFiles(DirectoryFilter.INSTANCE);
+
+    if (children != null) {
+      for (File element : children) {
+        indexDirectory(packageName, element, result);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the index file for the given class path entry. The name of the index file contains the MD5 digest of the
+   * path of the class path entry, so entries with the same name in different locations don't collide.
+   * </p>
+   *
+   * @param canonicalFile
+   *          the canonical class path entry
+   * @return the index file
+   */
+  private File getIndexFile(File canonicalFile) {
+    String name = canonicalFile.getName().replaceAll("[^A-Za-z0-9_.-]", "_");
+    StringBuilder builder = new StringBuilder(name).append('-');
+    try {
+      byte[] digest = MessageDigest.getInstance("MD5").digest(canonicalFile.getPath().getBytes("UTF-8"));
+      for (byte b : digest) {
+        builder.append(Integer.toHexString((b >> 4) & 0xF));
+        builder.append(Integer.toHexString(b & 0xF));
+      }
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    } catch (IOException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    }
+    return new File(this._cacheDirectory, builder.append(INDEX_SUFFIX).toString());
+  }
+
+  /**
+   * <p>
+   * Reads the persistent index for the given class path entry.
+   * </p>
+   *
+   * @param canonicalFile
+   *          the canonical class path entry
+   * @return the index or <code>null</code> if there is no (readable) index.
+   */
+  private PackageIndex readIndex(File canonicalFile) {
+    if (this._cacheDirectory == null) {
+      return null;
+    }
+
+    File indexFile = getIndexFile(canonicalFile);
+    if (!indexFile.isFile()) {
+      return null;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+      if ((input.readInt() != FORMAT_VERSION) || !canonicalFile.getPath().equals(input.readUTF())) {
+        return null;
+      }
+      boolean directory = input.readBoolean();
+      long size = input.readLong();
+      long lastModified = input.readLong();
+      int count = input.readInt();
+      Map<String, Long> packages = new LinkedHashMap<String, Long>();
+      for (int i = 0; i < count; i++) {
+        String packageName = input.readUTF();
+        packages.put(packageName, directory ? Long.valueOf(input.readLong()) : null);
+      }
+      return new PackageIndex(canonicalFile, directory, size, lastModified, packages);
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read package index '%s': %s", indexFile, ex.getMessage());
+      return null;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Writes the persistent index for the given class path entry. The index is written to a temporary file first which
+   * is renamed afterwards, so concurrent builds never see a partially written index.
+   * </p>
+   *
+   * @param canonicalFile
+   *          the canonical class path entry
+   * @param index
+   *          the index
+   */
+  private void writeIndex(File canonicalFile, PackageIndex index) {
+    if (this._cacheDirectory == null) {
+      return;
+    }
+
+    File indexFile = getIndexFile(canonicalFile);
+    File tempFile = null;
+    DataOutputStream output = null;
+    try {
+      tempFile = File.createTempFile("a4e", INDEX_SUFFIX, this._cacheDirectory);
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(FORMAT_VERSION);
+      output.writeUTF(canonicalFile.getPath());
+      output.writeBoolean(index._directory);
+      output.writeLong(index._size);
+      output.writeLong(index._lastModified);
+      output.writeInt(index._packages.size());
+      for (Map.Entry<String, Long> entry : index._packages.entrySet()) {
+        output.writeUTF(entry.getKey());
+        if (index._directory) {
+          output.writeLong(entry.getValue().longValue());
+        }
+      }
+      output.close();
+      output = null;
+      if (!tempFile.renameTo(indexFile)) {
+        // the target may exist on some platforms
+        indexFile.delete();
+        if (!tempFile.renameTo(indexFile)) {
+          tempFile.delete();
+        }
+      }
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not write package index '%s': %s", indexFile, ex.getMessage());
+      Utilities.close((Closeable) output);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the registered instance of the {@link PackageIndexCache}.
+   * </p>
+   *
+   * @return the registered instance of the {@link PackageIndexCache}.
+   */
+  public static PackageIndexCache getInstance() {
+    return ServiceRegistryAccess.instance().getService(PackageIndexCache.class);
+  }
+
+  /**
+   * <p>
+   * The package index of a single class path entry.
+   * </p>
+   */
+  public static class PackageIndex {
+
+    /** the canonical class path entry */
+    private File              _file;
+
+    /** <code>true</code> if the index belongs to a directory */
+    private boolean           _directory;
+
+    /** the size of the jar file */
+    private long              _size;
+
+    /** the modification time of the jar file or the root directory */
+    private long              _lastModified;
+
+    /** the package names (and for directories the modification times of the package directories) */
+    private Map<String, Long> _packages;
+
+    /** the package names */
+    private String[]          _packageNames;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link PackageIndex}.
+     * </p>
+     */
+    private PackageIndex(File file, boolean directory, long size, long lastModified, Map<String, Long> packages) {
+      this._file = file;
+      this._directory = directory;
+      this._size = size;
+      this._lastModified = lastModified;
+      this._packages = packages;
+      this._packageNames = packages.keySet().toArray(new String[packages.size()]);
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if this index is still valid for its class path entry, that is the class path entry
+     * hasn't been modified since the index has been computed.
+     * </p>
+     *
+     * @return <code>true</code> if this index is still valid for its class path entry.
+     */
+    public boolean isValid() {
+      File canonicalFile = this._file;
+      if (this._directory != canonicalFile.isDirectory()) {
+        return false;
+      }
+      if (this._lastModified != canonicalFile.lastModified()) {
+        return false;
+      }
+      if (!this._directory) {
+        return this._size == canonicalFile.length();
+      }
+      for (Map.Entry<String, Long> entry : this._packages.entrySet()) {
+        File packageDir = new File(canonicalFile, entry.getKey().replace('.', File.separatorChar));
+        if (packageDir.lastModified() != entry.getValue().longValue()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * <p>
+     * Returns the package names.
+     * </p>
+     *
+     * @return the package names.
+     */
+    public String[] getPackageNames() {
+      return this._packageNames;
+    }
+  }
+
+  /**
+   * <p>
+   * {@link FileFilter} that accepts directories only.
+   * </p>
+   */
+  private static class DirectoryFilter implements FileFilter {
+
+    /** - */
+    private static final DirectoryFilter INSTANCE = new DirectoryFilter();
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean accept(File pathname) {
+      return pathname.isDirectory();
+    }
+  }
+
+} /* ENDCLASS */
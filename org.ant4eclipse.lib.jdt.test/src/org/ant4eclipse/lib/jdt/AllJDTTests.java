@@ -11,12 +11,27 @@
  **********************************************************************/
 package org.ant4eclipse.lib.jdt;
 
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.ClassFileWriterTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.CompoundNameMapTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.EcjAdapterImplTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.NameEnvironmentImplTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.SourceContentCacheTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.ClassFileLoaderCacheTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.CompoundClassFileLoaderImplTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.FilteringClassFileLoaderTest;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.loader.PackageIndexCacheTest;
 import org.ant4eclipse.lib.jdt.internal.model.userlibrary.UserLibrariesFileParserImplTest;
+import org.ant4eclipse.lib.jdt.internal.tools.container.JdtResolverCacheTest;
 import org.ant4eclipse.lib.jdt.tools.BuildOrderResolverTest;
+import org.ant4eclipse.lib.jdt.tools.JdtResolverTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses( { BuildOrderResolverTest.class, UserLibrariesFileParserImplTest.class })
+@Suite.SuiteClasses( { BuildOrderResolverTest.class, UserLibrariesFileParserImplTest.class,
+    PackageIndexCacheTest.class, FilteringClassFileLoaderTest.class, JdtResolverCacheTest.class,
+    SourceContentCacheTest.class, ClassFileWriterTest.class, CompoundNameMapTest.class, EcjAdapterImplTest.class,
+    NameEnvironmentImplTest.class, JdtResolverTest.class, ClassFileLoaderCacheTest.class,
+    CompoundClassFileLoaderImplTest.class })
 public class AllJDTTests {
 } /* ENDCLASS */
@@ -0,0 +1,262 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileSink;
+import org.ant4eclipse.lib.jdt.ecj.DirectoryClassFileSink;
+import org.ant4eclipse.lib.jdt.ecj.ZipClassFileSink;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassFileWriterTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final byte[] CONTENT = new byte[] { 1, 2, 3 };
+
+  private File                _workDir;
+
+  private File                _outputFolder;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._workDir = JUnitUtilities.createTempDir();
+    this._outputFolder = new File(this._workDir, "bin");
+  }
+
+  @Override
+  public void dispose() {
+    Utilities.delete(this._workDir);
+    super.dispose();
+  }
+
+  @Test
+  public void allClassFilesWrittenOnClose() {
+    RecordingSink sink = new RecordingSink();
+    ClassFileWriter writer = new ClassFileWriter(new ClassFileSink[] { sink }, 2);
+    for (int i = 0; i < 50; i++) {
+      writer.write(this._outputFolder, "p" + (i % 5) + "/C" + i + ".class", CONTENT);
+    }
+    Assert.assertTrue(writer.close().isEmpty());
+
+    Assert.assertEquals(50, sink._classFileNames.size());
+    for (int i = 0; i < 50; i++) {
+      File classFile = new File(this._outputFolder, "p" + (i % 5) + "/C" + i + ".class");
+      Assert.assertTrue(classFile.getPath(), classFile.isFile());
+      Assert.assertEquals(CONTENT.length, classFile.length());
+    }
+  }
+
+  @Test
+  public void callerRunsIfQueueIsFull() throws Exception {
+    BlockingSink sink = new BlockingSink();
+    ClassFileWriter writer = new ClassFileWriter(new ClassFileSink[] { sink }, 1);
+
+    // the first class file blocks the only writer thread, the next ones fill the queue
+    writer.write(this._outputFolder, "C0.class", CONTENT);
+    Assert.assertTrue(sink._blocking.await(10, TimeUnit.SECONDS));
+    for (int i = 1; i <= ClassFileWriter.QUEUE_CAPACITY; i++) {
+      writer.write(this._outputFolder, "C" + i + ".class", CONTENT);
+    }
+    Assert.assertFalse(sink._threads.contains(Thread.currentThread()));
+
+    // there's no room for this one, so it is written by the calling thread
+    writer.write(this._outputFolder, "Last.class", CONTENT);
+    Assert.assertTrue(sink._threads.contains(Thread.currentThread()));
+    Assert.assertTrue(new File(this._outputFolder, "Last.class").isFile());
+
+    sink._release.countDown();
+    Assert.assertTrue(writer.close().isEmpty());
+    Assert.assertEquals(ClassFileWriter.QUEUE_CAPACITY + 2, sink._classFileNames.size());
+  }
+
+  @Test
+  public void writeFailures() {
+    for (int threads = 0; threads < 3; threads++) {
+      FailingSink sink = new FailingSink("p/Broken.class");
+      ClassFileWriter writer = new ClassFileWriter(new ClassFileSink[] { sink }, threads);
+      writer.write(this._outputFolder, "p/Fine.class", CONTENT);
+      writer.write(this._outputFolder, "p/Broken.class", CONTENT);
+
+      // an output folder that can't be created
+      File blocked = new File(this._workDir, "blocked");
+      Utilities.writeFile(blocked, CONTENT);
+      writer.write(blocked, "q/Other.class", CONTENT);
+
+      Set<String> failed = writer.close();
+      Assert.assertEquals(new HashSet<String>(Arrays.asList("p/Broken.class", "q/Other.class")), failed);
+      Assert.assertTrue(new File(this._outputFolder, "p/Fine.class").isFile());
+      Utilities.delete(blocked);
+    }
+  }
+
+  @Test
+  public void directorySinkCopiesOnCommit() {
+    File destdir = new File(this._workDir, "dest");
+    DirectoryClassFileSink sink = new DirectoryClassFileSink(destdir, false);
+    Assert.assertFalse(sink.isImmediate());
+
+    ClassFileWriter writer = new ClassFileWriter(new ClassFileSink[] { sink }, 2);
+    writer.write(this._outputFolder, "p/A.class", CONTENT);
+    writer.write(destdir, "p/B.class", CONTENT);
+    Assert.assertTrue(writer.close().isEmpty());
+
+    // nothing is copied before the compilation has succeeded
+    Assert.assertFalse(new File(destdir, "p/A.class").exists());
+    Assert.assertTrue(new File(destdir, "p/B.class").isFile());
+
+    sink.commit();
+    Assert.assertTrue(new File(destdir, "p/A.class").isFile());
+
+    // class files of a previous compilation are copied on commit, too
+    Utilities.writeFile(new File(this._outputFolder, "p/C.class"), CONTENT);
+    sink.copy(this._outputFolder, "p/C.class");
+    Assert.assertFalse(new File(destdir, "p/C.class").exists());
+    sink.commit();
+    Assert.assertTrue(new File(destdir, "p/C.class").isFile());
+  }
+
+  @Test
+  public void directorySinkWritesImmediately() {
+    File destdir = new File(this._workDir, "dest");
+    DirectoryClassFileSink sink = new DirectoryClassFileSink(destdir);
+    Assert.assertTrue(sink.isImmediate());
+
+    ClassFileWriter writer = new ClassFileWriter(new ClassFileSink[] { sink }, 0);
+    writer.write(this._outputFolder, "p/A.class", CONTENT);
+    Assert.assertTrue(writer.close().isEmpty());
+    Assert.assertTrue(new File(destdir, "p/A.class").isFile());
+
+    // class files of a previous compilation are only copied if the directory doesn't contain an up-to-date copy
+    File classFile = new File(this._outputFolder, "p/C.class");
+    Utilities.writeFile(classFile, CONTENT);
+    sink.copy(this._outputFolder, "p/C.class");
+    File copy = new File(destdir, "p/C.class");
+    Assert.assertEquals(CONTENT.length, copy.length());
+    Utilities.writeFile(copy, new byte[0]);
+    Assert.assertTrue(copy.setLastModified(classFile.lastModified() + 10000));
+    sink.copy(this._outputFolder, "p/C.class");
+    Assert.assertEquals(0, copy.length());
+    Assert.assertTrue(copy.setLastModified(classFile.lastModified() - 10000));
+    sink.copy(this._outputFolder, "p/C.class");
+    Assert.assertEquals(CONTENT.length, copy.length());
+  }
+
+  @Test
+  public void zipSink() throws IOException {
+    File jarFile = new File(this._workDir, "classes.jar");
+    ZipOutputStream output = new ZipOutputStream(new FileOutputStream(jarFile));
+    try {
+      ClassFileWriter writer = new ClassFileWriter(new ClassFileSink[] { new ZipClassFileSink(output) }, 2);
+      writer.write(this._outputFolder, "p/A.class", CONTENT);
+      writer.write(this._outputFolder, "p/q/B.class", CONTENT);
+      writer.write(new File(this._workDir, "bin2"), "p/A.class", CONTENT);
+      Assert.assertTrue(writer.close().isEmpty());
+    } finally {
+      output.close();
+    }
+
+    // a class file that has been written several times is stored once
+    Set<String> entries = new HashSet<String>();
+    ZipFile zipFile = new ZipFile(jarFile);
+    try {
+      for (Enumeration<? extends ZipEntry> enumeration = zipFile.entries(); enumeration.hasMoreElements();) {
+        Assert.assertTrue(entries.add(enumeration.nextElement().getName()));
+      }
+    } finally {
+      zipFile.close();
+    }
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("p/A.class", "p/q/B.class")), entries);
+  }
+
+  /**
+   * <p>
+   * Records the class files it receives together with the writing threads.
+   * </p>
+   */
+  private static class RecordingSink implements ClassFileSink {
+
+    protected List<String> _classFileNames = Collections.synchronizedList(new ArrayList<String>());
+
+    protected Set<Thread>  _threads        = Collections.synchronizedSet(new HashSet<Thread>());
+
+    public void write(File outputFolder, String classFileName, byte[] content) throws IOException {
+      Assert.assertTrue(new File(outputFolder, classFileName).isFile());
+      this._classFileNames.add(classFileName);
+      this._threads.add(Thread.currentThread());
+    }
+  }
+
+  /**
+   * <p>
+   * Blocks the writing thread of the first class file until it is released.
+   * </p>
+   */
+  private static class BlockingSink extends RecordingSink {
+
+    private CountDownLatch _blocking = new CountDownLatch(1);
+
+    private CountDownLatch _release  = new CountDownLatch(1);
+
+    @Override
+    public void write(File outputFolder, String classFileName, byte[] content) throws IOException {
+      super.write(outputFolder, classFileName, content);
+      if ("C0.class".equals(classFileName)) {
+        this._blocking.countDown();
+        try {
+          this._release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+          throw new IOException(ex.toString());
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Fails for the given class file.
+   * </p>
+   */
+  private static class FailingSink implements ClassFileSink {
+
+    private String _failingClassFileName;
+
+    public FailingSink(String failingClassFileName) {
+      this._failingClassFileName = failingClassFileName;
+    }
+
+    public void write(File outputFolder, String classFileName, byte[] content) throws IOException {
+      if (this._failingClassFileName.equals(classFileName)) {
+        throw new IOException("failed: " + classFileName);
+      }
+    }
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,94 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompoundNameMapTest {
+
+  @Test
+  public void getAndPut() {
+    CompoundNameMap<String> map = new CompoundNameMap<String>();
+    char[][] prefix = CharOperation.splitOn('.', "org.ant4eclipse.lib".toCharArray());
+    map.put(prefix, 3, "Type".toCharArray(), "type");
+    map.put(prefix, 2, "lib".toCharArray(), "package");
+    map.put(null, 0, "Top".toCharArray(), "top");
+    Assert.assertEquals(3, map.size());
+
+    Assert.assertEquals("type", map.get(split("org.ant4eclipse.lib"), 3, "Type".toCharArray()));
+    Assert.assertEquals("package", map.get(split("org.ant4eclipse"), 2, "lib".toCharArray()));
+    Assert.assertEquals("top", map.get(null, 0, "Top".toCharArray()));
+
+    // only the given number of leading segments belongs to the compound name
+    Assert.assertEquals("package", map.get(split("org.ant4eclipse.other"), 2, "lib".toCharArray()));
+    Assert.assertNull(map.get(split("org.ant4eclipse.lib"), 2, "Type".toCharArray()));
+    Assert.assertNull(map.get(split("org.ant4eclipse.lib"), 3, "Other".toCharArray()));
+
+    // the segments are copied
+    prefix[0][0] = 'x';
+    Assert.assertEquals("type", map.get(split("org.ant4eclipse.lib"), 3, "Type".toCharArray()));
+
+    // an existing entry is replaced
+    map.put(split("org.ant4eclipse.lib"), 3, "Type".toCharArray(), "replaced");
+    Assert.assertEquals(3, map.size());
+    Assert.assertEquals("replaced", map.get(split("org.ant4eclipse.lib"), 3, "Type".toCharArray()));
+
+    map.clear();
+    Assert.assertEquals(0, map.size());
+    Assert.assertNull(map.get(null, 0, "Top".toCharArray()));
+  }
+
+  @Test
+  public void collisions() {
+    // 'Aa' and 'BB' have the same hash code
+    Assert.assertEquals(CharOperation.hashCode("Aa".toCharArray()), CharOperation.hashCode("BB".toCharArray()));
+
+    CompoundNameMap<String> map = new CompoundNameMap<String>();
+    map.put(split("p"), 1, "Aa".toCharArray(), "p.Aa");
+    map.put(split("p"), 1, "BB".toCharArray(), "p.BB");
+    map.put(split("Aa"), 1, "p".toCharArray(), "Aa.p");
+    map.put(split("BB"), 1, "p".toCharArray(), "BB.p");
+    Assert.assertEquals(4, map.size());
+
+    Assert.assertEquals("p.Aa", map.get(split("p"), 1, "Aa".toCharArray()));
+    Assert.assertEquals("p.BB", map.get(split("p"), 1, "BB".toCharArray()));
+    Assert.assertEquals("Aa.p", map.get(split("Aa"), 1, "p".toCharArray()));
+    Assert.assertEquals("BB.p", map.get(split("BB"), 1, "p".toCharArray()));
+    Assert.assertNull(map.get(split("p"), 1, "Ab".toCharArray()));
+
+    // the segments are compared, not their concatenation
+    Assert.assertNull(map.get(split("p.Aa"), 1, "".toCharArray()));
+    Assert.assertNull(map.get(null, 0, "pAa".toCharArray()));
+  }
+
+  @Test
+  public void resize() {
+    CompoundNameMap<Integer> map = new CompoundNameMap<Integer>();
+    for (int i = 0; i < 5000; i++) {
+      map.put(split("p" + (i % 10)), 1, ("T" + i).toCharArray(), Integer.valueOf(i));
+    }
+    Assert.assertEquals(5000, map.size());
+
+    // all entries can be found after the hash table has been resized several times
+    for (int i = 0; i < 5000; i++) {
+      Assert.assertEquals(Integer.valueOf(i), map.get(split("p" + (i % 10)), 1, ("T" + i).toCharArray()));
+      Assert.assertNull(map.get(split("p" + ((i + 1) % 10)), 1, ("T" + i).toCharArray()));
+    }
+  }
+
+  private char[][] split(String name) {
+    return CharOperation.splitOn('.', name.toCharArray());
+  }
+
+} /* ENDCLASS */
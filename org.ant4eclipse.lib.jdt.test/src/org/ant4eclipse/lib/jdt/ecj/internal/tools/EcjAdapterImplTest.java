@@ -0,0 +1,168 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.ant4eclipse.lib.core.util.StringMap;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoaderFactory;
+import org.ant4eclipse.lib.jdt.ecj.CompileJobResult;
+import org.ant4eclipse.lib.jdt.ecj.DefaultCompileJobDescription;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.SourceFile;
+import org.ant4eclipse.lib.jdt.ecj.SourceFileFactory;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EcjAdapterImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final int SOURCE_COUNT = 40;
+
+  private File             _workDir;
+
+  private String           _oldUseMultiThreading;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._workDir = JUnitUtilities.createTempDir();
+    this._oldUseMultiThreading = System.getProperty(EcjAdapterImpl.USE_MULTI_THREADING);
+  }
+
+  @Override
+  public void dispose() {
+    if (this._oldUseMultiThreading == null) {
+      System.clearProperty(EcjAdapterImpl.USE_MULTI_THREADING);
+    } else {
+      System.setProperty(EcjAdapterImpl.USE_MULTI_THREADING, this._oldUseMultiThreading);
+    }
+    Utilities.delete(this._workDir);
+    super.dispose();
+  }
+
+  @Test
+  public void parallelismFallback() {
+    DefaultCompileJobDescription description = new DefaultCompileJobDescription();
+
+    // no parallelism: the default of the compiler
+    System.clearProperty(EcjAdapterImpl.USE_MULTI_THREADING);
+    Assert.assertEquals(0, EcjAdapterImpl.getParallelism(description));
+
+    // the old system property selects the number of processors ...
+    System.setProperty(EcjAdapterImpl.USE_MULTI_THREADING, "true");
+    Assert.assertEquals(Runtime.getRuntime().availableProcessors(), EcjAdapterImpl.getParallelism(description));
+
+    // ... unless a parallelism has been specified
+    description.setParallelism(1);
+    Assert.assertEquals(1, EcjAdapterImpl.getParallelism(description));
+    description.setParallelism(3);
+    Assert.assertEquals(3, EcjAdapterImpl.getParallelism(description));
+    System.clearProperty(EcjAdapterImpl.USE_MULTI_THREADING);
+    Assert.assertEquals(3, EcjAdapterImpl.getParallelism(description));
+  }
+
+  @Test
+  public void writerThreads() {
+    Assert.assertEquals(ClassFileWriter.DEFAULT_THREADS, EcjAdapterImpl.getWriterThreads(0));
+
+    // the class files are written on the calling thread
+    Assert.assertEquals(0, EcjAdapterImpl.getWriterThreads(1));
+
+    // one thread is left to the compiler, the number of writers is bounded by the default
+    Assert.assertEquals(Math.min(ClassFileWriter.DEFAULT_THREADS, 1), EcjAdapterImpl.getWriterThreads(2));
+    Assert.assertEquals(Math.min(ClassFileWriter.DEFAULT_THREADS, 3), EcjAdapterImpl.getWriterThreads(4));
+    Assert.assertEquals(ClassFileWriter.DEFAULT_THREADS, EcjAdapterImpl.getWriterThreads(1000));
+  }
+
+  @Test
+  public void sameClassFilesForEachParallelism() throws Exception {
+    File sourceFolder = new File(this._workDir, "src");
+    for (int i = 0; i < SOURCE_COUNT; i++) {
+      File sourceFile = new File(sourceFolder, "p/C" + i + ".java");
+      Utilities.mkdirs(sourceFile.getParentFile());
+      String previous = i == 0 ? "Object" : "C" + (i - 1);
+      Utilities.writeFile(sourceFile, "package p;\n" + "public class C" + i + " extends " + previous + " {\n"
+          + "  public java.util.List<String> names() { return new java.util.ArrayList<String>(); }\n" + "}\n",
+          "UTF-8");
+    }
+
+    Map<String, byte[]> expected = compile(sourceFolder, 1);
+    Assert.assertEquals(SOURCE_COUNT, expected.size());
+    for (int parallelism : new int[] { 0, 2, 4 }) {
+      Map<String, byte[]> actual = compile(sourceFolder, parallelism);
+      Assert.assertEquals(expected.keySet(), actual.keySet());
+      for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+        Assert.assertTrue(entry.getKey(), Arrays.equals(entry.getValue(), actual.get(entry.getKey())));
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Compiles all the sources of the given folder with the given parallelism and returns the content of the class files
+   * by their names.
+   * </p>
+   */
+  private Map<String, byte[]> compile(File sourceFolder, int parallelism) throws IOException {
+    File outputFolder = new File(this._workDir, "bin" + parallelism);
+    Utilities.mkdirs(outputFolder);
+    List<SourceFile> sourceFiles = new ArrayList<SourceFile>();
+    for (int i = 0; i < SOURCE_COUNT; i++) {
+      sourceFiles.add(SourceFileFactory.createSourceFile(sourceFolder, "p/C" + i + ".java", outputFolder, "UTF-8"));
+    }
+
+    StringMap compilerOptions = new StringMap();
+    compilerOptions.put(CompilerOptions.OPTION_Compliance, CompilerOptions.VERSION_1_5);
+    compilerOptions.put(CompilerOptions.OPTION_Source, CompilerOptions.VERSION_1_5);
+    compilerOptions.put(CompilerOptions.OPTION_TargetPlatform, CompilerOptions.VERSION_1_5);
+    ClassFileLoader classFileLoader = ClassFileLoaderFactory.createClasspathClassFileLoader(new File(System
+        .getProperty("java.home"), "lib/rt.jar"), EcjAdapter.LIBRARY);
+    DefaultCompileJobDescription description = new DefaultCompileJobDescription(classFileLoader, compilerOptions,
+        sourceFiles.toArray(new SourceFile[sourceFiles.size()]));
+    description.setParallelism(parallelism);
+
+    CompileJobResult result = new EcjAdapterImpl().compile(description);
+    Assert.assertTrue(Arrays.asList(result.getCategorizedProblems()).toString(), result.succeeded());
+
+    Map<String, byte[]> classFiles = new TreeMap<String, byte[]>();
+    for (File classFile : new File(outputFolder, "p").listFiles()) {
+      classFiles.put(classFile.getName(), readBytes(classFile));
+    }
+    return classFiles;
+  }
+
+  private byte[] readBytes(File file) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    InputStream inputStream = new FileInputStream(file);
+    try {
+      Utilities.copy(inputStream, result, new byte[8192]);
+    } finally {
+      inputStream.close();
+    }
+    return result.toByteArray();
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,168 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NameEnvironmentImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final int THREADS = 8;
+
+  private static final int ROUNDS  = 200;
+
+  @Test
+  public void concurrentLookups() throws Exception {
+    final CountingClassFileLoader classFileLoader = new CountingClassFileLoader();
+    final NameEnvironmentImpl nameEnvironment = new NameEnvironmentImpl(classFileLoader);
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < THREADS; i++) {
+      Thread thread = new Thread(new Runnable() {
+        public void run() {
+          try {
+            start.await();
+            for (int round = 0; round < ROUNDS; round++) {
+              lookup(nameEnvironment, round);
+            }
+          } catch (Throwable ex) {
+            failures.add(ex);
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(30));
+      Assert.assertFalse(thread.isAlive());
+    }
+    Assert.assertEquals(Collections.emptyList(), failures);
+
+    // every name has been passed to the class file loader at least once, but at most once per thread
+    for (AtomicInteger count : classFileLoader._lookups.values()) {
+      Assert.assertTrue(count.get() >= 1);
+      Assert.assertTrue(count.get() <= THREADS);
+    }
+
+    // all answers are cached now
+    int lookups = classFileLoader.getLookups();
+    for (int round = 0; round < ROUNDS; round++) {
+      lookup(nameEnvironment, round);
+    }
+    Assert.assertEquals(lookups, classFileLoader.getLookups());
+
+    // the cache is dropped on cleanup
+    nameEnvironment.cleanup();
+    lookup(nameEnvironment, 0);
+    Assert.assertTrue(classFileLoader.getLookups() > lookups);
+  }
+
+  /**
+   * <p>
+   * Looks up existing and missing types and packages and checks the answers.
+   * </p>
+   */
+  private static void lookup(NameEnvironmentImpl nameEnvironment, int round) {
+    int index = round % 20;
+    NameEnvironmentAnswer answer = nameEnvironment.findType(CharOperation.splitOn('.', ("p.T" + index).toCharArray()));
+    Assert.assertNotNull(answer);
+    Assert.assertNotNull(nameEnvironment.findType(("T" + index).toCharArray(), new char[][] { "p".toCharArray() }));
+    Assert.assertNull(nameEnvironment.findType(CharOperation.splitOn('.', ("p.Missing" + index).toCharArray())));
+    Assert.assertTrue(nameEnvironment.isPackage(null, "p".toCharArray()));
+    Assert.assertFalse(nameEnvironment.isPackage(new char[][] { "p".toCharArray() }, ("T" + index).toCharArray()));
+  }
+
+  /**
+   * <p>
+   * A {@link ClassFileLoader} that knows the package <code>p</code> with the types <code>p.T*</code>. It counts the
+   * lookups of each name.
+   * </p>
+   */
+  private static class CountingClassFileLoader implements ClassFileLoader {
+
+    /** the number of lookups by name */
+    private ConcurrentMap<String, AtomicInteger> _lookups = new ConcurrentHashMap<String, AtomicInteger>();
+
+    public String[] getAllPackages() {
+      return new String[] { "p" };
+    }
+
+    public File[] getClasspath() {
+      return new File[0];
+    }
+
+    public boolean hasPackage(String packageName) {
+      count("package " + packageName);
+      return "p".equals(packageName);
+    }
+
+    public ClassFile loadClass(ClassName className) {
+      count(className.getQualifiedClassName());
+      // slows down the lookup, so concurrent lookups of the same name are likely
+      Thread.yield();
+      return className.getQualifiedClassName().startsWith("p.T") ? new TestClassFile() : null;
+    }
+
+    public ReferableSourceFile loadSource(ClassName className) {
+      return null;
+    }
+
+    private void count(String name) {
+      AtomicInteger count = this._lookups.putIfAbsent(name, new AtomicInteger(1));
+      if (count != null) {
+        count.incrementAndGet();
+      }
+    }
+
+    private int getLookups() {
+      int result = 0;
+      for (AtomicInteger count : this._lookups.values()) {
+        result += count.get();
+      }
+      return result;
+    }
+  }
+
+  private static class TestClassFile extends DefaultReferableType implements ClassFile {
+
+    public IBinaryType getBinaryType() {
+      return null;
+    }
+
+    public byte[] getBytes() {
+      return null;
+    }
+  }
+
+} /* ENDCLASS */
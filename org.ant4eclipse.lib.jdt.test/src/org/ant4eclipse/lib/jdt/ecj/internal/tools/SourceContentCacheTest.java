@@ -0,0 +1,112 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.MetricsService;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SourceContentCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private File _workDir;
+
+  private File _sourceFile;
+
+  @Override
+  public void setup() {
+    super.setup();
+    getMetricsService().resetAll();
+    this._workDir = JUnitUtilities.createTempDir();
+    this._sourceFile = new File(this._workDir, "A.java");
+    Utilities.writeFile(this._sourceFile, "class A { }", "UTF-8");
+  }
+
+  @Override
+  public void dispose() {
+    Utilities.delete(this._workDir);
+    super.dispose();
+  }
+
+  @Test
+  public void disabled() {
+    SourceContentCache cache = new SourceContentCache(false);
+    cache.storeContent(this._sourceFile, "UTF-8", "class A { }".toCharArray());
+    Assert.assertNull(cache.getContent(this._sourceFile, "UTF-8"));
+    Assert.assertEquals(0, getMetricsService().get(SourceContentCache.METRIC_MISSES));
+  }
+
+  @Test
+  public void missAndHit() {
+    SourceContentCache cache = new SourceContentCache(true);
+    Assert.assertNull(cache.getContent(this._sourceFile, "UTF-8"));
+
+    char[] content = "class A { }".toCharArray();
+    cache.storeContent(this._sourceFile, "UTF-8", content);
+    Assert.assertSame(content, cache.getContent(this._sourceFile, "UTF-8"));
+    Assert.assertSame(content, cache.getContent(new File(this._workDir, "A.java"), "UTF-8"));
+
+    Assert.assertEquals(1, getMetricsService().get(SourceContentCache.METRIC_MISSES));
+    Assert.assertEquals(2, getMetricsService().get(SourceContentCache.METRIC_HITS));
+  }
+
+  @Test
+  public void otherEncoding() {
+    SourceContentCache cache = new SourceContentCache(true);
+    cache.storeContent(this._sourceFile, "UTF-8", "class A { }".toCharArray());
+    Assert.assertNull(cache.getContent(this._sourceFile, "ISO-8859-1"));
+    Assert.assertNull(cache.getContent(this._sourceFile, null));
+  }
+
+  @Test
+  public void modifiedFile() {
+    SourceContentCache cache = new SourceContentCache(true);
+    cache.storeContent(this._sourceFile, "UTF-8", "class A { }".toCharArray());
+
+    // same length, but a different time stamp
+    long lastModified = this._sourceFile.lastModified();
+    Utilities.writeFile(this._sourceFile, "class B { }", "UTF-8");
+    Assert.assertTrue(this._sourceFile.setLastModified(lastModified + 10000));
+    Assert.assertNull(cache.getContent(this._sourceFile, "UTF-8"));
+
+    // same time stamp, but a different length
+    cache.storeContent(this._sourceFile, "UTF-8", "class B { }".toCharArray());
+    Utilities.writeFile(this._sourceFile, "class BB { }", "UTF-8");
+    Assert.assertTrue(this._sourceFile.setLastModified(lastModified + 10000));
+    Assert.assertNull(cache.getContent(this._sourceFile, "UTF-8"));
+  }
+
+  @Test
+  public void clear() {
+    SourceContentCache cache = new SourceContentCache(true);
+    cache.storeContent(this._sourceFile, "UTF-8", "class A { }".toCharArray());
+    cache.clear();
+    Assert.assertNull(cache.getContent(this._sourceFile, "UTF-8"));
+  }
+
+  @Test
+  public void registeredService() {
+    SourceContentCache cache = SourceContentCache.getInstance();
+    Assert.assertNotNull(cache);
+    Assert.assertEquals(Boolean.getBoolean("ant4eclipse.enableSourceContentCache"), cache.isEnabled());
+  }
+
+  private MetricsService getMetricsService() {
+    return ServiceRegistryAccess.instance().getService(MetricsService.class);
+  }
+
+} /* ENDCLASS */
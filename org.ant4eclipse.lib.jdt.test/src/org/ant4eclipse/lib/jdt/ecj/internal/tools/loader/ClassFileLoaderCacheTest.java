@@ -0,0 +1,166 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.MetricsService;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassFileLoaderCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final File[] NO_ENTRIES = new File[0];
+
+  private File                _workDir;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._workDir = JUnitUtilities.createTempDir();
+  }
+
+  @Override
+  public void dispose() {
+    Utilities.delete(this._workDir);
+    super.dispose();
+  }
+
+  @Test
+  public void enabledByDefault() {
+    ClassFileLoader classFileLoader = new TestClassFileLoader(3);
+
+    // the registered cache ...
+    ClassFileLoaderCache registered = ClassFileLoaderCache.getInstance();
+    Assert.assertNotNull(registered);
+    registered.storeClassFileLoader("default", classFileLoader, NO_ENTRIES);
+    Assert.assertSame(classFileLoader, registered.getClassFileLoader("default"));
+
+    // ... as well as a new one caches the class file loaders
+    ClassFileLoaderCache cache = new ClassFileLoaderCache();
+    cache.storeClassFileLoader("default", classFileLoader, NO_ENTRIES);
+    Assert.assertTrue(cache.hasClassFileLoader("default"));
+    Assert.assertSame(classFileLoader, cache.getClassFileLoader("default"));
+
+    // a disabled cache doesn't
+    ClassFileLoaderCache disabled = new ClassFileLoaderCache(false, ClassFileLoaderCache.DEFAULT_MAX_WEIGHT);
+    disabled.storeClassFileLoader("default", classFileLoader, NO_ENTRIES);
+    Assert.assertFalse(disabled.hasClassFileLoader("default"));
+    Assert.assertNull(disabled.getClassFileLoader("default"));
+  }
+
+  @Test
+  public void bounded() {
+    long evictions = getMetricsService().get(ClassFileLoaderCache.METRIC_EVICTIONS);
+
+    // each class file loader weighs its number of packages plus one
+    ClassFileLoaderCache cache = new ClassFileLoaderCache(true, 10);
+    cache.storeClassFileLoader("a", new TestClassFileLoader(4), NO_ENTRIES);
+    cache.storeClassFileLoader("b", new TestClassFileLoader(4), NO_ENTRIES);
+    Assert.assertTrue(cache.hasClassFileLoader("a"));
+    Assert.assertTrue(cache.hasClassFileLoader("b"));
+
+    // the least recently used class file loader is evicted
+    Assert.assertNotNull(cache.getClassFileLoader("a"));
+    cache.storeClassFileLoader("c", new TestClassFileLoader(4), NO_ENTRIES);
+    Assert.assertTrue(cache.hasClassFileLoader("a"));
+    Assert.assertFalse(cache.hasClassFileLoader("b"));
+    Assert.assertTrue(cache.hasClassFileLoader("c"));
+    Assert.assertEquals(evictions + 1, getMetricsService().get(ClassFileLoaderCache.METRIC_EVICTIONS));
+
+    // replacing a class file loader doesn't count its old weight twice
+    cache.storeClassFileLoader("c", new TestClassFileLoader(4), NO_ENTRIES);
+    Assert.assertTrue(cache.hasClassFileLoader("a"));
+    Assert.assertTrue(cache.hasClassFileLoader("c"));
+
+    // a class file loader that exceeds the maximum weight on its own replaces all others
+    cache.storeClassFileLoader("d", new TestClassFileLoader(20), NO_ENTRIES);
+    Assert.assertFalse(cache.hasClassFileLoader("a"));
+    Assert.assertFalse(cache.hasClassFileLoader("c"));
+    Assert.assertTrue(cache.hasClassFileLoader("d"));
+    Assert.assertEquals(evictions + 3, getMetricsService().get(ClassFileLoaderCache.METRIC_EVICTIONS));
+
+    // the weight has been released for the following class file loaders
+    cache.clear();
+    cache.storeClassFileLoader("e", new TestClassFileLoader(4), NO_ENTRIES);
+    cache.storeClassFileLoader("f", new TestClassFileLoader(4), NO_ENTRIES);
+    Assert.assertTrue(cache.hasClassFileLoader("e"));
+    Assert.assertTrue(cache.hasClassFileLoader("f"));
+  }
+
+  @Test
+  public void invalidation() {
+    long invalidations = getMetricsService().get(ClassFileLoaderCache.METRIC_INVALIDATIONS);
+    File jar = new File(this._workDir, "lib.jar");
+
+    ClassFileLoaderCache cache = new ClassFileLoaderCache(true, ClassFileLoaderCache.DEFAULT_MAX_WEIGHT);
+    cache.storeClassFileLoader("key", new TestClassFileLoader(1), new File[] { jar });
+    Assert.assertNotNull(cache.getClassFileLoader("key"));
+
+    // the class path entry has been created in the meantime
+    Utilities.writeFile(jar, new byte[] { 1 });
+    Assert.assertNull(cache.getClassFileLoader("key"));
+    Assert.assertFalse(cache.hasClassFileLoader("key"));
+    Assert.assertEquals(invalidations + 1, getMetricsService().get(ClassFileLoaderCache.METRIC_INVALIDATIONS));
+  }
+
+  private MetricsService getMetricsService() {
+    return ServiceRegistryAccess.instance().getService(MetricsService.class);
+  }
+
+  /**
+   * <p>
+   * A {@link ClassFileLoader} with the given number of packages that doesn't know any class.
+   * </p>
+   */
+  private static class TestClassFileLoader implements ClassFileLoader {
+
+    /** the packages */
+    private String[] _packages;
+
+    public TestClassFileLoader(int packages) {
+      this._packages = new String[packages];
+      for (int i = 0; i < packages; i++) {
+        this._packages[i] = "p" + i;
+      }
+    }
+
+    public String[] getAllPackages() {
+      return this._packages;
+    }
+
+    public File[] getClasspath() {
+      return NO_ENTRIES;
+    }
+
+    public boolean hasPackage(String packageName) {
+      return false;
+    }
+
+    public ClassFile loadClass(ClassName className) {
+      return null;
+    }
+
+    public ReferableSourceFile loadSource(ClassName className) {
+      return null;
+    }
+  }
+
+} /* ENDCLASS */
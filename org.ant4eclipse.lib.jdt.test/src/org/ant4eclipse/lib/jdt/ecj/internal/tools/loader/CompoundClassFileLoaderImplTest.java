@@ -0,0 +1,193 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.EcjAdapter;
+import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompoundClassFileLoaderImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final String[] CLASSES = { "p.A", "p.B", "p.Missing", "q.C", "q.D", "r.E" };
+
+  private File                  _workDir;
+
+  private File                  _dir1;
+
+  private File                  _dir2;
+
+  private File                  _sources;
+
+  private ClassFileLoader       _loader1;
+
+  private ClassFileLoader       _loader2;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._workDir = JUnitUtilities.createTempDir();
+
+    // p.A is provided by both directories
+    this._dir1 = createClasses("dir1", "p/A.class", "p/B.class");
+    this._dir2 = createClasses("dir2", "p/A.class", "q/C.class", "q/D.class");
+    this._sources = createClasses("src", "p/A.java", "q/C.java");
+
+    this._loader1 = new ClasspathClassFileLoaderImpl(this._dir1, EcjAdapter.LIBRARY);
+    this._loader2 = new ClasspathClassFileLoaderImpl(this._dir2, EcjAdapter.LIBRARY, new File[] { this._dir2 },
+        new File[] { this._sources });
+  }
+
+  @Override
+  public void dispose() {
+    Utilities.delete(this._workDir);
+    super.dispose();
+  }
+
+  @Test
+  public void packages() {
+    CompoundClassFileLoaderImpl compound = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { this._loader1,
+        this._loader2 });
+    Assert.assertEquals(Arrays.asList("p", "q"), sorted(compound.getAllPackages()));
+    Assert.assertTrue(compound.hasPackage("p"));
+    Assert.assertTrue(compound.hasPackage("q"));
+    Assert.assertFalse(compound.hasPackage("r"));
+
+    // the returned array is a copy
+    compound.getAllPackages()[0] = "modified";
+    Assert.assertFalse(Arrays.asList(compound.getAllPackages()).contains("modified"));
+  }
+
+  @Test
+  public void classpathOrder() {
+    CompoundClassFileLoaderImpl compound = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { this._loader1,
+        this._loader2 });
+    Assert.assertEquals(this._dir1.getAbsolutePath(), loadClass(compound, "p.A").getLibraryLocation());
+    Assert.assertEquals(this._dir1.getAbsolutePath(), loadClass(compound, "p.B").getLibraryLocation());
+    Assert.assertEquals(this._dir2.getAbsolutePath(), loadClass(compound, "q.C").getLibraryLocation());
+    Assert.assertNull(loadClass(compound, "p.Missing"));
+    Assert.assertNull(loadClass(compound, "r.E"));
+
+    compound = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { this._loader2, this._loader1 });
+    Assert.assertEquals(this._dir2.getAbsolutePath(), loadClass(compound, "p.A").getLibraryLocation());
+    Assert.assertEquals(this._dir1.getAbsolutePath(), loadClass(compound, "p.B").getLibraryLocation());
+    assertSameAsSequentialLookup(compound, this._loader2, this._loader1);
+  }
+
+  @Test
+  public void nestedCompounds() {
+    ClassFileLoader nested = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { this._loader2 });
+    CompoundClassFileLoaderImpl compound = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { nested,
+        this._loader1, this._loader2, nested });
+    Assert.assertEquals(this._dir2.getAbsolutePath(), loadClass(compound, "p.A").getLibraryLocation());
+    assertSameAsSequentialLookup(compound, this._loader2, this._loader1);
+
+    // duplicate class path entries are removed
+    Assert.assertEquals(Arrays.asList(Utilities.getCanonicalFile(this._dir2), Utilities.getCanonicalFile(this._dir1)),
+        Arrays.asList(compound.getClasspath()));
+  }
+
+  @Test
+  public void accessRestrictions() {
+    // all classes of the first loader are restricted
+    ClassFileLoader restricted = new FilteringClassFileLoader(this._loader1, "-**/*");
+    CompoundClassFileLoaderImpl compound = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { restricted,
+        this._loader2 });
+
+    // an unrestricted class file is preferred ...
+    ClassFile classFile = loadClass(compound, "p.A");
+    Assert.assertFalse(classFile.hasAccessRestriction());
+    Assert.assertEquals(this._dir2.getAbsolutePath(), classFile.getLibraryLocation());
+
+    // ... but the restricted one is returned if there is no other
+    classFile = loadClass(compound, "p.B");
+    Assert.assertTrue(classFile.hasAccessRestriction());
+    Assert.assertEquals(this._dir1.getAbsolutePath(), classFile.getLibraryLocation());
+    assertSameAsSequentialLookup(compound, restricted, this._loader2);
+  }
+
+  @Test
+  public void sources() {
+    CompoundClassFileLoaderImpl compound = new CompoundClassFileLoaderImpl(new ClassFileLoader[] { this._loader1,
+        this._loader2 });
+    ReferableSourceFile sourceFile = compound.loadSource(ClassName.fromQualifiedClassName("p.A"));
+    Assert.assertNotNull(sourceFile);
+    Assert.assertEquals(this._sources.getAbsolutePath(), sourceFile.getLibraryLocation());
+    Assert.assertNotNull(compound.loadSource(ClassName.fromQualifiedClassName("q.C")));
+    Assert.assertNull(compound.loadSource(ClassName.fromQualifiedClassName("q.D")));
+    Assert.assertNull(compound.loadSource(ClassName.fromQualifiedClassName("r.E")));
+  }
+
+  /**
+   * <p>
+   * Checks that the compound class file loader finds the same class files as asking the given class file loaders one
+   * after the other (preferring class files without access restrictions).
+   * </p>
+   */
+  private static void assertSameAsSequentialLookup(ClassFileLoader compound, ClassFileLoader... classFileLoaders) {
+    for (String className : CLASSES) {
+      ClassFile expected = null;
+      for (ClassFileLoader classFileLoader : classFileLoaders) {
+        ClassFile classFile = loadClass(classFileLoader, className);
+        if (expected == null) {
+          expected = classFile;
+        } else if ((classFile != null) && expected.hasAccessRestriction() && !classFile.hasAccessRestriction()) {
+          expected = classFile;
+        }
+      }
+      ClassFile actual = loadClass(compound, className);
+      if (expected == null) {
+        Assert.assertNull(className, actual);
+      } else {
+        Assert.assertNotNull(className, actual);
+        Assert.assertEquals(className, expected.getLibraryLocation(), actual.getLibraryLocation());
+        Assert.assertEquals(className, expected.hasAccessRestriction(), actual.hasAccessRestriction());
+      }
+    }
+  }
+
+  private static ClassFile loadClass(ClassFileLoader classFileLoader, String className) {
+    return classFileLoader.loadClass(ClassName.fromQualifiedClassName(className));
+  }
+
+  private static List<String> sorted(String[] values) {
+    String[] result = values.clone();
+    Arrays.sort(result);
+    return Arrays.asList(result);
+  }
+
+  /**
+   * <p>
+   * Creates a directory with the given (empty) files.
+   * </p>
+   */
+  private File createClasses(String name, String... files) {
+    File directory = new File(this._workDir, name);
+    for (String file : files) {
+      File result = new File(directory, file);
+      Utilities.mkdirs(result.getParentFile());
+      Utilities.writeFile(result, new byte[0]);
+    }
+    return directory;
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,167 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ant4eclipse.lib.core.ClassName;
+import org.ant4eclipse.lib.jdt.ecj.ClassFile;
+import org.ant4eclipse.lib.jdt.ecj.ClassFileLoader;
+import org.ant4eclipse.lib.jdt.ecj.ReferableSourceFile;
+import org.ant4eclipse.lib.jdt.ecj.internal.tools.DefaultReferableType;
+import org.eclipse.jdt.internal.compiler.env.IBinaryType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FilteringClassFileLoaderTest {
+
+  private static final String[] FILTERS  = { "+org/ant4eclipse/*;-**/*",
+      "+org/ant4eclipse/lib/*;+org/osgi/framework/*;-**/*", "-org/ant4eclipse/internal/**/*;+org/**/*",
+      "+org/ant4eclipse/internal/Public;-org/ant4eclipse/internal/*", "+org/ant4eclipse/Filter*;-org/**/*",
+      "-org/ant4eclipse/*", "+**/*", "-**/*", "+org/*/lib/Impl*;-**/*", "+org/ant4eclipse/lib/**;-org/ant4eclipse/**/*",
+      "+org/osgi/framework/Bundle$Inner;-org/osgi/**/*", "+Top;-*", "-org/ant4eclipse/lib/core/*;+org/ant4eclipse/*" };
+
+  private static final String[] PACKAGES = { "", "org", "org.ant4eclipse", "org.ant4eclipse.lib",
+      "org.ant4eclipse.lib.core", "org.ant4eclipse.internal", "org.ant4eclipse.internal.impl", "org.osgi.framework",
+      "org.osgi.service.log", "com.example" };
+
+  private static final String[] CLASSES  = { "Top", "Public", "Filter", "FilteringLoader", "Impl", "ImplBase",
+      "Bundle", "Bundle$Inner", "Bundle$Inner$Deep" };
+
+  @Test
+  public void sameResultAsUncompiledRules() {
+    for (String filter : FILTERS) {
+      FilteringClassFileLoader loader = new FilteringClassFileLoader(new AllClassesLoader(), filter);
+      for (int pass = 0; pass < 2; pass++) {
+        // the second pass uses the memoised package rules
+        for (ClassName className : getClassNames()) {
+          ClassFile classFile = loader.loadClass(className);
+          Assert.assertEquals(filter + " -> " + className.asClassFileName(), !isAccessible(filter, className),
+              classFile.hasAccessRestriction());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void includeRulesTakePrecedence() {
+    FilteringClassFileLoader loader = new FilteringClassFileLoader(new AllClassesLoader(),
+        "-org/ant4eclipse/**/*;+org/ant4eclipse/lib/*");
+    Assert.assertFalse(loader.loadClass(ClassName.fromQualifiedClassName("org.ant4eclipse.lib.Impl"))
+        .hasAccessRestriction());
+    Assert.assertFalse(loader.loadClass(ClassName.fromQualifiedClassName("org.ant4eclipse.lib.core.Impl"))
+        .hasAccessRestriction());
+    Assert.assertTrue(loader.loadClass(ClassName.fromQualifiedClassName("org.ant4eclipse.Impl"))
+        .hasAccessRestriction());
+    Assert.assertFalse(loader.loadClass(ClassName.fromQualifiedClassName("com.example.Impl")).hasAccessRestriction());
+  }
+
+  @Test
+  public void literalRules() {
+    FilteringClassFileLoader loader = new FilteringClassFileLoader(new AllClassesLoader(),
+        "+org/ant4eclipse/internal/Public;-org/ant4eclipse/internal/*");
+    Assert.assertFalse(loader.loadClass(ClassName.fromQualifiedClassName("org.ant4eclipse.internal.Public"))
+        .hasAccessRestriction());
+    Assert.assertTrue(loader.loadClass(ClassName.fromQualifiedClassName("org.ant4eclipse.internal.PublicImpl"))
+        .hasAccessRestriction());
+    Assert.assertTrue(loader.loadClass(ClassName.fromQualifiedClassName("org.ant4eclipse.internal.impl.Public"))
+        .hasAccessRestriction());
+  }
+
+  /**
+   * <p>
+   * The matching as it has been implemented before the rules have been compiled: every rule is converted to a regular
+   * expression which is matched against the class file name, include rules are checked before exclude rules.
+   * </p>
+   */
+  private static boolean isAccessible(String filter, ClassName className) {
+    List<String> includes = new ArrayList<String>();
+    List<String> excludes = new ArrayList<String>();
+    for (String part : filter.split(";")) {
+      String transformedPart = part.substring(1).replaceAll("\\*\\*/\\*", "###");
+      transformedPart = transformedPart.replaceAll("\\*", "[^\\\\.]*");
+      transformedPart = transformedPart.replaceAll("###", ".*");
+      transformedPart = transformedPart.concat("\\.class");
+      if (part.startsWith("+")) {
+        includes.add(transformedPart);
+      }
+      if (part.startsWith("-")) {
+        excludes.add(transformedPart);
+      }
+    }
+    String classFileName = className.asClassFileName();
+    for (String includePattern : includes) {
+      if (classFileName.matches(includePattern)) {
+        return true;
+      }
+    }
+    for (String excludePattern : excludes) {
+      if (classFileName.matches(excludePattern)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<ClassName> getClassNames() {
+    List<ClassName> result = new ArrayList<ClassName>();
+    for (String packageName : PACKAGES) {
+      for (String className : CLASSES) {
+        result.add(ClassName.fromQualifiedClassName(packageName.length() == 0 ? className : packageName + "."
+            + className));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * A {@link ClassFileLoader} that returns a new (unrestricted) class file for every requested class.
+   * </p>
+   */
+  private static class AllClassesLoader implements ClassFileLoader {
+
+    public String[] getAllPackages() {
+      return PACKAGES;
+    }
+
+    public File[] getClasspath() {
+      return new File[0];
+    }
+
+    public boolean hasPackage(String packageName) {
+      return true;
+    }
+
+    public ClassFile loadClass(ClassName className) {
+      return new TestClassFile();
+    }
+
+    public ReferableSourceFile loadSource(ClassName className) {
+      return null;
+    }
+  }
+
+  private static class TestClassFile extends DefaultReferableType implements ClassFile {
+
+    public IBinaryType getBinaryType() {
+      return null;
+    }
+
+    public byte[] getBytes() {
+      return null;
+    }
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,162 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.ecj.internal.tools.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackageIndexCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private File _workDir;
+
+  @Override
+  protected boolean useTemporaryCacheDir() {
+    return true;
+  }
+
+  @Override
+  public void setup() {
+    this._workDir = JUnitUtilities.createTempDir();
+    super.setup();
+  }
+
+  @Override
+  public void dispose() {
+    super.dispose();
+    Utilities.delete(this._workDir);
+  }
+
+  @Test
+  public void jarIndex() throws Exception {
+    File jar = createJar("lib.jar", "a/b/C.class", "x/Y.class", "Top.class");
+
+    String[] packages = newCache().getAllPackages(jar);
+    Assert.assertEquals(Arrays.asList("a", "a.b", "x"), Arrays.asList(packages));
+    Assert.assertNotNull(getIndexFile());
+  }
+
+  @Test
+  public void persistentIndexIsReused() throws Exception {
+    File jar = createJar("lib.jar", "a/b/C.class");
+    newCache().getAllPackages(jar);
+
+    File indexFile = getIndexFile();
+    Assert.assertTrue(indexFile.setLastModified(100000L));
+
+    // a new cache reads the index from disk instead of writing it again
+    Assert.assertEquals(Arrays.asList("a", "a.b"), Arrays.asList(newCache().getAllPackages(jar)));
+    Assert.assertEquals(100000L, indexFile.lastModified());
+  }
+
+  @Test
+  public void modifiedJar() throws Exception {
+    File jar = createJar("lib.jar", "a/b/C.class");
+    PackageIndexCache cache = newCache();
+    PackageIndexCache.PackageIndex index = cache.getPackageIndex(jar);
+    Assert.assertTrue(index.isValid());
+
+    createJar("lib.jar", "a/b/C.class", "d/E.class");
+    Assert.assertTrue(jar.setLastModified(jar.lastModified() + 10000));
+    Assert.assertFalse(index.isValid());
+
+    // both the in-memory and the persistent index are outdated
+    Assert.assertEquals(Arrays.asList("a", "a.b", "d"), Arrays.asList(cache.getAllPackages(jar)));
+    Assert.assertEquals(Arrays.asList("a", "a.b", "d"), Arrays.asList(newCache().getAllPackages(jar)));
+  }
+
+  @Test
+  public void modifiedDirectory() throws Exception {
+    File classes = new File(this._workDir, "classes");
+    Utilities.mkdirs(new File(classes, "a/b"));
+    Utilities.mkdirs(new File(classes, "x"));
+
+    PackageIndexCache cache = newCache();
+    PackageIndexCache.PackageIndex index = cache.getPackageIndex(classes);
+    Assert.assertEquals(3, index.getPackageNames().length);
+    Assert.assertTrue(index.isValid());
+
+    // adding a nested package changes the time stamp of its parent only
+    File parent = new File(classes, "a/b");
+    long lastModified = parent.lastModified();
+    Utilities.mkdirs(new File(parent, "c"));
+    Assert.assertTrue(parent.setLastModified(lastModified + 10000));
+    Assert.assertFalse(index.isValid());
+
+    String[] packages = newCache().getAllPackages(classes);
+    Arrays.sort(packages);
+    Assert.assertEquals(Arrays.asList("a", "a.b", "a.b.c", "x"), Arrays.asList(packages));
+  }
+
+  @Test
+  public void corruptIndexFile() throws Exception {
+    File jar = createJar("lib.jar", "a/b/C.class");
+    newCache().getAllPackages(jar);
+
+    File indexFile = getIndexFile();
+    Utilities.writeFile(indexFile, "garbage", "UTF-8");
+
+    Assert.assertEquals(Arrays.asList("a", "a.b"), Arrays.asList(newCache().getAllPackages(jar)));
+    Assert.assertTrue(indexFile.length() > "garbage".length());
+  }
+
+  @Test
+  public void sameNameDifferentLocation() throws Exception {
+    File first = createJar("lib.jar", "a/C.class");
+    File second = new File(this._workDir, "other/lib.jar");
+    Utilities.mkdirs(second.getParentFile());
+    Assert.assertTrue(first.renameTo(second));
+    first = createJar("lib.jar", "b/C.class");
+
+    PackageIndexCache cache = newCache();
+    Assert.assertEquals(Arrays.asList("b"), Arrays.asList(cache.getAllPackages(first)));
+    Assert.assertEquals(Arrays.asList("a"), Arrays.asList(cache.getAllPackages(second)));
+    Assert.assertEquals(2, new File(getCacheDir(), "packageindex").listFiles().length);
+  }
+
+  private PackageIndexCache newCache() {
+    PackageIndexCache result = new PackageIndexCache();
+    result.initialize();
+    return result;
+  }
+
+  private File getIndexFile() {
+    File[] children = new File(getCacheDir(), "packageindex").listFiles();
+    Assert.assertNotNull(children);
+    Assert.assertEquals(1, children.length);
+    return children[0];
+  }
+
+  private File createJar(String name, String... entries) throws Exception {
+    File result = new File(this._workDir, name);
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(result));
+    try {
+      for (String entry : entries) {
+        output.putNextEntry(new ZipEntry(entry));
+        output.write(new byte[] { 1, 2, 3 });
+        output.closeEntry();
+      }
+    } finally {
+      output.close();
+    }
+    return result;
+  }
+
+} /* ENDCLASS */
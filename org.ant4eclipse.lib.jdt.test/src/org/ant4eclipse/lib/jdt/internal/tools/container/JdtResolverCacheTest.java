@@ -0,0 +1,135 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.tools.container;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.jdt.tools.JdtResolver;
+import org.ant4eclipse.lib.jdt.tools.ResolvedClasspath;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JdtProjectBuilder;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JdtResolverCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testWorkspace;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testWorkspace = new TestDirectory();
+    File rootDir = this._testWorkspace.getRootDir();
+
+    // p1 <- p2 <- p3, p4 references p2 and p3 (p1 is exported by p2)
+    new JdtProjectBuilder("p1").withSrcClasspathEntry("src", false).withClasspathEntry(
+        "<classpathentry exported=\"true\" kind=\"lib\" path=\"lib/p1.jar\"/>").withOutputClasspathEntry("bin")
+        .createIn(rootDir);
+    new JdtProjectBuilder("p2").withSrcClasspathEntry("src", false).withSrcClasspathEntry("/p1", true)
+        .withOutputClasspathEntry("bin").createIn(rootDir);
+    new JdtProjectBuilder("p3").withSrcClasspathEntry("src", false).withSrcClasspathEntry("/p2", false)
+        .withClasspathEntry("<classpathentry kind=\"lib\" path=\"lib/p3.jar\"/>").withOutputClasspathEntry("bin")
+        .createIn(rootDir);
+    new JdtProjectBuilder("p4").withSrcClasspathEntry("src", false).withSrcClasspathEntry("/p3", false)
+        .withSrcClasspathEntry("/p2", false).withOutputClasspathEntry("bin").createIn(rootDir);
+
+    for (String lib : new String[] { "p1/lib/p1.jar", "p3/lib/p3.jar" }) {
+      File file = new File(rootDir, lib);
+      Utilities.mkdirs(file.getParentFile());
+      Utilities.writeFile(file, new byte[] { 1 });
+    }
+  }
+
+  @Override
+  public void dispose() {
+    this._testWorkspace.dispose();
+    super.dispose();
+  }
+
+  @Test
+  public void cachedEntriesAreReplayed() {
+    Workspace workspace = registerWorkspace();
+    EclipseProject p4 = workspace.getProject("p4");
+
+    for (boolean relative : new boolean[] { false, true }) {
+      for (boolean runtime : new boolean[] { false, true }) {
+        JdtResolverCache.getInstance().clear();
+        ResolvedClasspath uncached = JdtResolver.resolveProjectClasspath(p4, relative, runtime, null);
+
+        // the referenced projects are resolved first, so p4 is resolved from their cached entries
+        JdtResolverCache.getInstance().clear();
+        JdtResolver.resolveProjectClasspath(workspace.getProject("p2"), relative, runtime, null);
+        JdtResolver.resolveProjectClasspath(workspace.getProject("p3"), relative, runtime, null);
+        Assert.assertNull(JdtResolverCache.getInstance().getResolvedClasspath(p4,
+            JdtResolverCache.getCacheKey(relative, runtime, null)));
+        ResolvedClasspath replayed = JdtResolver.resolveProjectClasspath(p4, relative, runtime, null);
+
+        String message = "relative=" + relative + ", runtime=" + runtime;
+        Assert.assertEquals(message, Arrays.asList(uncached.getClasspathFiles()), Arrays.asList(replayed
+            .getClasspathFiles()));
+        Assert.assertEquals(message, Arrays.asList(uncached.getClasspath()), Arrays.asList(replayed.getClasspath()));
+        Assert.assertEquals(message, uncached.hasBootClasspath(), replayed.hasBootClasspath());
+
+        // the root project's class path is served from the cache now
+        Assert.assertSame(replayed, JdtResolver.resolveProjectClasspath(p4, relative, runtime, null));
+      }
+    }
+  }
+
+  @Test
+  public void referencedProjects() {
+    Workspace workspace = registerWorkspace();
+    File rootDir = this._testWorkspace.getRootDir();
+
+    ResolvedClasspath classpath = JdtResolver.resolveProjectClasspath(workspace.getProject("p4"), true, false, null);
+    // the library of p3 isn't exported
+    Assert.assertEquals(Arrays.asList(new File("p4/bin"), new File("p3/bin"), new File("p2/bin"), new File("p1/bin"),
+        new File("p1/lib/p1.jar")), Arrays.asList(classpath.getClasspathFiles()));
+
+    classpath = JdtResolver.resolveProjectClasspath(workspace.getProject("p4"), false, false, null);
+    Assert.assertEquals(new File(rootDir, "p1/lib/p1.jar").getAbsoluteFile(), classpath.getClasspathFiles()[4]
+        .getAbsoluteFile());
+  }
+
+  @Test
+  public void registrationDropsCachedResults() {
+    Workspace workspace = registerWorkspace();
+    EclipseProject p4 = workspace.getProject("p4");
+    ResolvedClasspath classpath = JdtResolver.resolveProjectClasspath(p4, true, false, null);
+    String key = JdtResolverCache.getCacheKey(true, false, null);
+    Assert.assertSame(classpath, JdtResolverCache.getInstance().getResolvedClasspath(p4, key));
+
+    // the cache must not keep the projects of the replaced workspace
+    registerWorkspace();
+    Assert.assertNull(JdtResolverCache.getInstance().getResolvedClasspath(p4, key));
+
+    JdtResolver.resolveProjectClasspath(p4, true, false, null);
+    ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class).refreshWorkspace("cache");
+    Assert.assertNull(JdtResolverCache.getInstance().getResolvedClasspath(p4, key));
+  }
+
+  private Workspace registerWorkspace() {
+    WorkspaceRegistry workspaceRegistry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    return workspaceRegistry.registerWorkspace("cache", new DefaultEclipseWorkspaceDefinition(this._testWorkspace
+        .getRootDir()));
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,140 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.tools;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JdtProjectBuilder;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JdtResolverTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final String[] PROJECTS = { "p1", "p2", "p3", "p4" };
+
+  private TestDirectory         _testWorkspace;
+
+  private Workspace             _workspace;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testWorkspace = new TestDirectory();
+    File rootDir = this._testWorkspace.getRootDir();
+
+    // p1 <- p2 <- p3, p4 references p2 and p3 (p1 is exported by p2), p1 and p3 have a source folder with its own
+    // output folder
+    new JdtProjectBuilder("p1").withSrcClasspathEntry("src", false).withSrcClasspathEntry("gen", "bin-gen", false)
+        .withClasspathEntry("<classpathentry exported=\"true\" kind=\"lib\" path=\"lib/p1.jar\"/>")
+        .withOutputClasspathEntry("bin").createIn(rootDir);
+    new JdtProjectBuilder("p2").withSrcClasspathEntry("src", false).withSrcClasspathEntry("/p1", true)
+        .withOutputClasspathEntry("bin").createIn(rootDir);
+    new JdtProjectBuilder("p3").withSrcClasspathEntry("src", false).withSrcClasspathEntry("test", "bin-test", false)
+        .withSrcClasspathEntry("/p2", false).withClasspathEntry("<classpathentry kind=\"lib\" path=\"lib/p3.jar\"/>")
+        .withOutputClasspathEntry("bin").createIn(rootDir);
+    new JdtProjectBuilder("p4").withSrcClasspathEntry("src", false).withSrcClasspathEntry("/p3", false)
+        .withSrcClasspathEntry("/p2", false).withOutputClasspathEntry("bin").createIn(rootDir);
+
+    for (String lib : new String[] { "p1/lib/p1.jar", "p3/lib/p3.jar" }) {
+      File file = new File(rootDir, lib);
+      Utilities.mkdirs(file.getParentFile());
+      Utilities.writeFile(file, new byte[] { 1 });
+    }
+
+    WorkspaceRegistry workspaceRegistry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    this._workspace = workspaceRegistry.registerWorkspace("resolver", new DefaultEclipseWorkspaceDefinition(rootDir));
+  }
+
+  @Override
+  public void dispose() {
+    this._testWorkspace.dispose();
+    super.dispose();
+  }
+
+  @Test
+  public void combinedResolution() {
+    for (String name : PROJECTS) {
+      EclipseProject project = this._workspace.getProject(name);
+      for (boolean runtime : new boolean[] { false, true }) {
+        String message = name + ", runtime=" + runtime;
+
+        // two separate passes
+        JdtResolver.invalidateCache();
+        ResolvedClasspath absolute = JdtResolver.resolveProjectClasspath(project, false, runtime, null);
+        JdtResolver.invalidateCache();
+        ResolvedClasspath relative = JdtResolver.resolveProjectClasspath(project, true, runtime, null);
+
+        // a single pass
+        JdtResolver.invalidateCache();
+        ResolvedClasspath[] combined = JdtResolver.resolveProjectClasspaths(project, true, true, runtime, null);
+        assertSameClasspath(message + ", absolute", absolute, combined[JdtResolver.ABSOLUTE]);
+        assertSameClasspath(message + ", relative", relative, combined[JdtResolver.RELATIVE]);
+
+        // both results are cached
+        Assert.assertSame(combined[JdtResolver.ABSOLUTE], JdtResolver.resolveProjectClasspath(project, false,
+            runtime, null));
+        Assert.assertSame(combined[JdtResolver.RELATIVE], JdtResolver.resolveProjectClasspath(project, true, runtime,
+            null));
+      }
+    }
+  }
+
+  @Test
+  public void combinedResolutionWithCachedProjects() {
+    EclipseProject p4 = this._workspace.getProject("p4");
+    for (boolean runtime : new boolean[] { false, true }) {
+      String message = "runtime=" + runtime;
+
+      JdtResolver.invalidateCache();
+      ResolvedClasspath absolute = JdtResolver.resolveProjectClasspath(p4, false, runtime, null);
+      JdtResolver.invalidateCache();
+      ResolvedClasspath relative = JdtResolver.resolveProjectClasspath(p4, true, runtime, null);
+      Assert.assertEquals(message, absolute.getClasspathFiles().length, relative.getClasspathFiles().length);
+      Assert.assertFalse(message, Arrays.equals(absolute.getClasspathFiles(), relative.getClasspathFiles()));
+
+      // the referenced projects have been resolved separately before (in both variants) ...
+      JdtResolver.invalidateCache();
+      JdtResolver.resolveProjectClasspath(this._workspace.getProject("p2"), true, runtime, null);
+      JdtResolver.resolveProjectClasspath(this._workspace.getProject("p3"), false, runtime, null);
+      ResolvedClasspath[] combined = JdtResolver.resolveProjectClasspaths(p4, true, true, runtime, null);
+      assertSameClasspath(message + ", absolute", absolute, combined[JdtResolver.ABSOLUTE]);
+      assertSameClasspath(message + ", relative", relative, combined[JdtResolver.RELATIVE]);
+
+      // ... or in a single pass
+      JdtResolver.invalidateCache();
+      JdtResolver.resolveProjectClasspaths(this._workspace.getProject("p3"), true, true, runtime, null);
+      assertSameClasspath(message + ", absolute", absolute, JdtResolver.resolveProjectClasspath(p4, false, runtime,
+          null));
+      assertSameClasspath(message + ", relative", relative, JdtResolver.resolveProjectClasspath(p4, true, runtime,
+          null));
+    }
+  }
+
+  private void assertSameClasspath(String message, ResolvedClasspath expected, ResolvedClasspath actual) {
+    Assert.assertNotNull(message, actual);
+    Assert.assertEquals(message, Arrays.asList(expected.getClasspathFiles()), Arrays.asList(actual
+        .getClasspathFiles()));
+    Assert.assertEquals(message, Arrays.asList(expected.getClasspath()), Arrays.asList(actual.getClasspath()));
+    Assert.assertEquals(message, expected.hasBootClasspath(), actual.hasBootClasspath());
+  }
+
+} /* ENDCLASS */
@@ -23,6 +23,7 @@ import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.jdt.JdtExceptionCode;
+import org.ant4eclipse.lib.jdt.internal.tools.container.JdtResolverCache;
 import org.ant4eclipse.lib.jdt.model.ContainerTypes;
 import org.ant4eclipse.lib.jdt.model.jre.JavaProfile;
 import org.ant4eclipse.lib.jdt.model.jre.JavaRuntime;
@@ -89,6 +90,9 @@ public class JavaRuntimeRegistryImpl implements JavaRuntimeRegistry {
     Assure.assertTrue(hasJavaRuntime(id), "No JavaRuntime with id '" + id + "' registered!");
 
     this._defaultJavaRuntimeKey = id;
+
+    // class paths that have been resolved so far might refer to the default java runtime
+    JdtResolverCache.invalidate();
   }
 
   /**
@@ -315,6 +319,9 @@ public class JavaRuntimeRegistryImpl implements JavaRuntimeRegistry {
     // store java runtime
     this._javaRuntimeCache.put(id, javaRuntime);
 
+    // class paths that have been resolved so far might refer to the java runtime
+    JdtResolverCache.invalidate();
+
     // return java runtime
     return javaRuntime;
   }
@@ -38,8 +38,11 @@ import org.ant4eclipse.lib.platform.model.resource.role.AbstractProjectRole;
  */
 public class JavaProjectRoleImpl extends AbstractProjectRole implements JavaProjectRole {
 
+  /** serialVersionUID */
+  private static final long    serialVersionUID = 1L;
+
   /**  */
-  public static final String   NAME = "JavaProjectRole";
+  public static final String   NAME             = "JavaProjectRole";
 
   /** the class path entries */
   private List<ClasspathEntry> _eclipseClasspathEntries;
@@ -12,6 +12,7 @@
 package org.ant4eclipse.lib.jdt.internal.model.project;
 
 import java.io.File;
+import java.io.Serializable;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.jdt.model.project.RawClasspathEntry;
@@ -21,7 +22,10 @@ import org.ant4eclipse.lib.jdt.model.project.RawClasspathEntry;
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
-public final class RawClasspathEntryImpl implements RawClasspathEntry {
+public final class RawClasspathEntryImpl implements RawClasspathEntry, Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
 
   /** the path */
   private String  _path;
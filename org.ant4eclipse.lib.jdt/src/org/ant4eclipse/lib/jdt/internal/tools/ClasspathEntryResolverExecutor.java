@@ -17,11 +17,14 @@ import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.jdt.JdtExceptionCode;
 import org.ant4eclipse.lib.jdt.internal.tools.classpathentry.ClasspathEntryResolver;
+import org.ant4eclipse.lib.jdt.internal.tools.container.JdtResolverCache;
 import org.ant4eclipse.lib.jdt.model.ClasspathEntry;
 import org.ant4eclipse.lib.jdt.model.project.JavaProjectRole;
+import org.ant4eclipse.lib.jdt.tools.ResolvedClasspathEntry;
 import org.ant4eclipse.lib.jdt.tools.container.ClasspathResolverContext;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 
+import java.util.BitSet;
 import java.util.EmptyStackException;
 import java.util.LinkedList;
 import java.util.List;
@@ -44,22 +47,34 @@ import java.util.Stack;
 public class ClasspathEntryResolverExecutor {
 
   /** stack of 'current projects' */
-  private Stack<EclipseProject>    _currentProject;
+  private Stack<EclipseProject>         _currentProject;
 
   /** list with all projects that are (transitively) resolved */
-  private List<EclipseProject>     _resolvedProjects;
+  private List<EclipseProject>          _resolvedProjects;
+
+  /** the ids of all projects that are (transitively) resolved */
+  private BitSet                        _resolvedProjectIds;
 
   /** list with all projects that references. These projects are not transitively resolved */
-  private List<EclipseProject>     _referencedProjects;
+  private List<EclipseProject>          _referencedProjects;
 
   /** array that contains all resolvers for raw class path entries * */
-  private ClasspathEntryResolver[] _entryResolvers;
+  private ClasspathEntryResolver[]      _entryResolvers;
 
   /** the resolver context */
-  private ClasspathResolverContext _resolverContext;
+  private ClasspathResolverContext      _resolverContext;
 
   /** indicates if an exception is thrown in the case that a container could not be resolved */
-  private boolean                  _failOnNonHandledEntry;
+  private boolean                       _failOnNonHandledEntry;
+
+  /** the cache for the resolved entries of the projects, might be null */
+  private JdtResolverCache              _cache;
+
+  /** the key of the resolved entries in the cache */
+  private String                        _cacheKey;
+
+  /** stack of the recordings of the 'current projects', an element is null if the project is not recorded */
+  private Stack<ResolvedProjectEntries> _recordings;
 
   /**
    * <p>
@@ -69,12 +84,30 @@ public class ClasspathEntryResolverExecutor {
    * @param failOnNonHandledEntry
    */
   public ClasspathEntryResolverExecutor(boolean failOnNonHandledEntry) {
+    this(failOnNonHandledEntry, null);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ClasspathEntryResolverExecutor}. The resolved entries of each project are
+   * stored in the given cache, so that they don't have to be resolved again when the project is resolved again.
+   * </p>
+   * 
+   * @param failOnNonHandledEntry
+   * @param cache
+   *          the cache for the resolved entries of the projects, might be <code>null</code>. The cache may only be
+   *          used for executors that use the same set of {@link ClasspathEntryResolver ClasspathEntryResolvers}.
+   */
+  public ClasspathEntryResolverExecutor(boolean failOnNonHandledEntry, JdtResolverCache cache) {
 
     // initialize the executor attributes
     this._resolvedProjects = new LinkedList<EclipseProject>();
+    this._resolvedProjectIds = new BitSet();
     this._referencedProjects = new LinkedList<EclipseProject>();
     this._currentProject = new Stack<EclipseProject>();
+    this._recordings = new Stack<ResolvedProjectEntries>();
     this._failOnNonHandledEntry = failOnNonHandledEntry;
+    this._cache = cache;
   }
 
   /**
@@ -148,8 +181,10 @@ public class ClasspathEntryResolverExecutor {
 
     // Initialize the ProjectClasspathResolver instance
     this._resolvedProjects.clear();
+    this._resolvedProjectIds.clear();
     this._currentProject.clear();
     this._referencedProjects.clear();
+    this._recordings.clear();
 
     // set the entry resolvers
     this._entryResolvers = classpathEntryResolvers;
@@ -157,6 +192,10 @@ public class ClasspathEntryResolverExecutor {
     // set the resolver context
     this._resolverContext = classpathResolverContext;
 
+    // the resolved entries of a project depend on the settings of the context
+    this._cacheKey = JdtResolverCache.getCacheKey(classpathResolverContext.isWorkspaceRelative(),
+        classpathResolverContext.isRuntime(), classpathResolverContext.getJdtClasspathContainerArguments());
+
     // Initialize Entry Resolvers
     for (ClasspathEntryResolver entryResolver : this._entryResolvers) {
       if (entryResolver instanceof Lifecycle) {
@@ -186,6 +225,11 @@ public class ClasspathEntryResolverExecutor {
   public final void addReferencedProject(EclipseProject project) {
     Assure.notNull("project", project);
 
+    // record the referenced project
+    if (hasRecording()) {
+      this._recordings.peek().addReferencedProject(project);
+    }
+
     // adds the referenced project
     if (!this._referencedProjects.contains(project)) {
       this._referencedProjects.add(project);
@@ -203,6 +247,11 @@ public class ClasspathEntryResolverExecutor {
   public final void resolveReferencedProject(EclipseProject project) {
     Assure.notNull("project", project);
 
+    // record the resolved project
+    if (hasRecording()) {
+      this._recordings.peek().resolveProject(project);
+    }
+
     // detect circular dependencies
     if (this._currentProject.contains(project)) {
       // TODO it should be configurable if the task fails on circular
@@ -213,16 +262,31 @@ public class ClasspathEntryResolverExecutor {
     }
 
     // return if project already has been resolved
-    if (this._resolvedProjects.contains(project)) {
+    if (this._resolvedProjectIds.get(project.getId())) {
       return;
     }
 
     // add project to the list of all resolved projects
     this._resolvedProjects.add(project);
+    this._resolvedProjectIds.set(project.getId());
+
+    // the entries of the root project are resolved differently (e.g. non-exported entries are visible)
+    String cacheKey = this._currentProject.isEmpty() ? this._cacheKey + ".root" : this._cacheKey;
 
     // push the project to the stack
     this._currentProject.push(project);
 
+    // replay the entries if the project already has been resolved with the same settings
+    ResolvedProjectEntries projectEntries = this._cache != null ? this._cache.getProjectEntries(project, cacheKey)
+        : null;
+    if (projectEntries != null) {
+      this._recordings.push(null);
+      projectEntries.replay(this, this._resolverContext);
+      this._recordings.pop();
+      this._currentProject.pop();
+      return;
+    }
+
     // assert raw class path entries
     // TODO: NLS
     Assure.assertTrue(project.getRole(JavaProjectRole.class).hasRawClasspathEntries(), String.format(
@@ -230,12 +294,58 @@ public class ClasspathEntryResolverExecutor {
             .getFolder().getAbsolutePath()));
 
     // resolve the class path entries for this project
+    this._recordings.push(this._cache != null ? new ResolvedProjectEntries() : null);
     resolveClasspathEntries(project.getRole(JavaProjectRole.class).getRawClasspathEntries());
+    projectEntries = this._recordings.pop();
+    if (projectEntries != null) {
+      this._cache.storeProjectEntries(project, cacheKey, projectEntries);
+    }
 
     // pop the project from the stack
     this._currentProject.pop();
   }
 
+  /**
+   * <p>
+   * Returns <code>true</code> if the contributions of the current project are recorded.
+   * </p>
+   * 
+   * @return <code>true</code> if the contributions of the current project are recorded.
+   */
+  private boolean hasRecording() {
+    return !this._recordings.empty() && (this._recordings.peek() != null);
+  }
+
+  /**
+   * <p>
+   * Records a class path entry for the current project.
+   * </p>
+   * 
+   * @param absoluteEntry
+   *          the entry for the absolute class path
+   * @param workspaceRelativeEntry
+   *          the entry for the workspace relative class path
+   */
+  final void recordClasspathEntry(ResolvedClasspathEntry absoluteEntry, ResolvedClasspathEntry workspaceRelativeEntry) {
+    if (hasRecording()) {
+      this._recordings.peek().addClasspathEntry(absoluteEntry, workspaceRelativeEntry);
+    }
+  }
+
+  /**
+   * <p>
+   * Records the boot class path entry for the current project.
+   * </p>
+   * 
+   * @param resolvedClasspathEntry
+   *          the boot class path entry
+   */
+  final void recordBootClasspathEntry(ResolvedClasspathEntry resolvedClasspathEntry) {
+    if (hasRecording()) {
+      this._recordings.peek().setBootClasspathEntry(resolvedClasspathEntry);
+    }
+  }
+
   /**
    * <p>
    * Resolves the class path entries.
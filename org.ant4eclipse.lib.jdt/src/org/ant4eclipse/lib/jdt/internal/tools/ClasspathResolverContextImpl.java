@@ -30,13 +30,39 @@ public class ClasspathResolverContextImpl implements ClasspathResolverContext {
 
   private ResolverJob                    _resolverJob;
 
-  private ResolvedClasspathImpl          _resolvedClasspath;
+  /** the absolute class path, might be null */
+  private ResolvedClasspathImpl          _absoluteClasspath;
+
+  /** the workspace relative class path, might be null */
+  private ResolvedClasspathImpl          _relativeClasspath;
 
   public ClasspathResolverContextImpl(ClasspathEntryResolverExecutor executor, ResolverJob resolverJob,
       ResolvedClasspathImpl resolvedClasspath) {
+    this(executor, resolverJob, resolverJob.isRelative() ? null : resolvedClasspath, resolverJob.isRelative()
+        ? resolvedClasspath : null);
+  }
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ClasspathResolverContextImpl} that collects the absolute and the workspace
+   * relative class path at the same time.
+   * </p>
+   * 
+   * @param executor
+   *          the executor
+   * @param resolverJob
+   *          the resolver job
+   * @param absoluteClasspath
+   *          the absolute class path, might be <code>null</code>
+   * @param relativeClasspath
+   *          the workspace relative class path, might be <code>null</code>
+   */
+  public ClasspathResolverContextImpl(ClasspathEntryResolverExecutor executor, ResolverJob resolverJob,
+      ResolvedClasspathImpl absoluteClasspath, ResolvedClasspathImpl relativeClasspath) {
     this._executor = executor;
     this._resolverJob = resolverJob;
-    this._resolvedClasspath = resolvedClasspath;
+    this._absoluteClasspath = absoluteClasspath;
+    this._relativeClasspath = relativeClasspath;
   }
 
   public ClasspathResolverContextImpl(ClasspathEntryResolverExecutor executor, ResolverJob resolverJob) {
@@ -124,8 +150,12 @@ public class ClasspathResolverContextImpl implements ClasspathResolverContext {
    * {@inheritDoc}
    */
   public void setBootClasspathEntry(ResolvedClasspathEntry resolvedClasspathEntry) {
-    if (this._resolvedClasspath != null) {
-      this._resolvedClasspath.addBootClasspathEntry(resolvedClasspathEntry);
+    this._executor.recordBootClasspathEntry(resolvedClasspathEntry);
+    if (this._absoluteClasspath != null) {
+      this._absoluteClasspath.addBootClasspathEntry(resolvedClasspathEntry);
+    }
+    if (this._relativeClasspath != null) {
+      this._relativeClasspath.addBootClasspathEntry(resolvedClasspathEntry);
     }
   }
 
@@ -133,8 +163,19 @@ public class ClasspathResolverContextImpl implements ClasspathResolverContext {
    * {@inheritDoc}
    */
   public void addClasspathEntry(ResolvedClasspathEntry resolvedClasspathEntry) {
-    if (this._resolvedClasspath != null) {
-      this._resolvedClasspath.addClasspathEntry(resolvedClasspathEntry);
+    addClasspathEntry(resolvedClasspathEntry, resolvedClasspathEntry);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void addClasspathEntry(ResolvedClasspathEntry absoluteEntry, ResolvedClasspathEntry workspaceRelativeEntry) {
+    this._executor.recordClasspathEntry(absoluteEntry, workspaceRelativeEntry);
+    if (this._absoluteClasspath != null) {
+      this._absoluteClasspath.addClasspathEntry(absoluteEntry);
+    }
+    if (this._relativeClasspath != null) {
+      this._relativeClasspath.addClasspathEntry(workspaceRelativeEntry);
     }
   }
 
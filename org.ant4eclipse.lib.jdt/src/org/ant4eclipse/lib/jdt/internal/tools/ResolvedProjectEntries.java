@@ -0,0 +1,164 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.tools;
+
+import org.ant4eclipse.lib.jdt.tools.ResolvedClasspathEntry;
+import org.ant4eclipse.lib.jdt.tools.container.ClasspathResolverContext;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Records the contributions of a single project to a {@link ClasspathResolverContext} while its class path entries are
+ * resolved: the resolved class path entries, the boot class path entry and the referenced projects. The recorded
+ * contributions can be replayed when the project is resolved again (e.g. as part of the class path of another
+ * project), so that its class path entries and containers don't have to be resolved again.
+ * </p>
+ * <p>
+ * Referenced projects are only recorded by reference. They are resolved again (or replayed themselves) by the
+ * {@link ClasspathEntryResolverExecutor}, so the replay behaves exactly like the original resolution with respect to
+ * already resolved projects and circular dependencies.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public final class ResolvedProjectEntries {
+
+  /** item kind: a class path entry */
+  private static final int CLASSPATH_ENTRY      = 0;
+
+  /** item kind: the boot class path entry */
+  private static final int BOOT_CLASSPATH_ENTRY = 1;
+
+  /** item kind: a project that is referenced but not resolved */
+  private static final int REFERENCED_PROJECT   = 2;
+
+  /** item kind: a project that is (transitively) resolved */
+  private static final int RESOLVED_PROJECT     = 3;
+
+  /** the recorded items */
+  private List<Item>       _items;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ResolvedProjectEntries}.
+   * </p>
+   */
+  public ResolvedProjectEntries() {
+    this._items = new ArrayList<Item>();
+  }
+
+  /**
+   * <p>
+   * Records a class path entry.
+   * </p>
+   *
+   * @param absoluteEntry
+   *          the entry for the absolute class path
+   * @param workspaceRelativeEntry
+   *          the entry for the workspace relative class path
+   */
+  public void addClasspathEntry(ResolvedClasspathEntry absoluteEntry, ResolvedClasspathEntry workspaceRelativeEntry) {
+    this._items.add(new Item(CLASSPATH_ENTRY, absoluteEntry, workspaceRelativeEntry));
+  }
+
+  /**
+   * <p>
+   * Records the boot class path entry.
+   * </p>
+   *
+   * @param resolvedClasspathEntry
+   *          the boot class path entry
+   */
+  public void setBootClasspathEntry(ResolvedClasspathEntry resolvedClasspathEntry) {
+    this._items.add(new Item(BOOT_CLASSPATH_ENTRY, resolvedClasspathEntry, null));
+  }
+
+  /**
+   * <p>
+   * Records a project that is referenced but not resolved.
+   * </p>
+   *
+   * @param project
+   *          the referenced project
+   */
+  public void addReferencedProject(EclipseProject project) {
+    this._items.add(new Item(REFERENCED_PROJECT, project, null));
+  }
+
+  /**
+   * <p>
+   * Records a project that is (transitively) resolved.
+   * </p>
+   *
+   * @param project
+   *          the resolved project
+   */
+  public void resolveProject(EclipseProject project) {
+    this._items.add(new Item(RESOLVED_PROJECT, project, null));
+  }
+
+  /**
+   * <p>
+   * Replays the recorded contributions.
+   * </p>
+   *
+   * @param executor
+   *          the executor that resolves the referenced projects
+   * @param context
+   *          the context that receives the class path entries
+   */
+  void replay(ClasspathEntryResolverExecutor executor, ClasspathResolverContext context) {
+    for (Item item : this._items) {
+      switch (item._kind) {
+      case CLASSPATH_ENTRY:
+        context.addClasspathEntry((ResolvedClasspathEntry) item._first, (ResolvedClasspathEntry) item._second);
+        break;
+      case BOOT_CLASSPATH_ENTRY:
+        context.setBootClasspathEntry((ResolvedClasspathEntry) item._first);
+        break;
+      case REFERENCED_PROJECT:
+        executor.addReferencedProject((EclipseProject) item._first);
+        break;
+      default:
+        executor.resolveReferencedProject((EclipseProject) item._first);
+        break;
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * A single recorded contribution.
+   * </p>
+   */
+  private static final class Item {
+
+    /** the kind of the item */
+    private int    _kind;
+
+    /** the first argument */
+    private Object _first;
+
+    /** the second argument, might be null */
+    private Object _second;
+
+    public Item(int kind, Object first, Object second) {
+      this._kind = kind;
+      this._first = first;
+      this._second = second;
+    }
+  }
+
+} /* ENDCLASS */
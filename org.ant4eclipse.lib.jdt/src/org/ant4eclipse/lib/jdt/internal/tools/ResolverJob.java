@@ -69,6 +69,13 @@ public final class ResolverJob {
   }
 
   /**
+   * <p>
+   * Returns <code>true</code> if only the workspace relative class path is resolved. A job that resolves the absolute
+   * and the workspace relative class path within a single pass is not relative, so
+   * {@link org.ant4eclipse.lib.jdt.tools.container.ClasspathResolverContext#isWorkspaceRelative()} returns
+   * <code>false</code> in that case.
+   * </p>
+   * 
    * @return the relative
    */
   public final boolean isRelative() {
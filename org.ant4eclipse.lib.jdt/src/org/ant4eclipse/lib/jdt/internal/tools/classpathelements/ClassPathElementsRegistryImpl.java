@@ -13,6 +13,7 @@ package org.ant4eclipse.lib.jdt.internal.tools.classpathelements;
 
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.jdt.JdtExceptionCode;
+import org.ant4eclipse.lib.jdt.internal.tools.container.JdtResolverCache;
 import org.ant4eclipse.lib.jdt.tools.classpathelements.ClassPathContainer;
 import org.ant4eclipse.lib.jdt.tools.classpathelements.ClassPathElementsRegistry;
 import org.ant4eclipse.lib.jdt.tools.classpathelements.ClassPathVariable;
@@ -79,6 +80,9 @@ public class ClassPathElementsRegistryImpl implements ClassPathElementsRegistry
    */
   public void registerClassPathContainer(String name, File[] pathEntries) {
     this._classpathContainer.put(name, new ClassPathContainerImpl(name, pathEntries));
+
+    // class paths that have been resolved so far might refer to the container
+    JdtResolverCache.invalidate();
   }
 
   /**
@@ -117,6 +121,9 @@ public class ClassPathElementsRegistryImpl implements ClassPathElementsRegistry
       }
     }
     this._classpathVariables.put(name, newvar);
+
+    // class paths that have been resolved so far might refer to the variable
+    JdtResolverCache.invalidate();
   }
 
   /**
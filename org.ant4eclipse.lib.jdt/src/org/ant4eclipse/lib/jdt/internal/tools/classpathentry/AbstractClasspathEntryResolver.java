@@ -42,10 +42,9 @@ public abstract class AbstractClasspathEntryResolver implements ClasspathEntryRe
       ClasspathResolverContext context) {
     Assure.notNull("path", path);
 
-    EclipseProject.PathStyle relative = context.isWorkspaceRelative() ? EclipseProject.PathStyle.PROJECT_RELATIVE_WITH_LEADING_PROJECT_NAME
-        : EclipseProject.PathStyle.ABSOLUTE;
-    File child = project.getChild(path, relative);
-    context.addClasspathEntry(new ResolvedClasspathEntry(child));
+    File absoluteChild = project.getChild(path, EclipseProject.PathStyle.ABSOLUTE);
+    File relativeChild = project.getChild(path, EclipseProject.PathStyle.PROJECT_RELATIVE_WITH_LEADING_PROJECT_NAME);
+    context.addClasspathEntry(new ResolvedClasspathEntry(absoluteChild), new ResolvedClasspathEntry(relativeChild));
   }
 
   /**
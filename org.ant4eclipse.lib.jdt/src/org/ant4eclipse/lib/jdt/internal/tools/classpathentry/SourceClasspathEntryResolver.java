@@ -49,21 +49,37 @@ public class SourceClasspathEntryResolver extends AbstractClasspathEntryResolver
     // get the source path
     String sourcePath = entry.getPath();
 
-    // get the source folder
-    File sourceFolder = context.isWorkspaceRelative() ? context.getCurrentProject().getChild(sourcePath,
-        EclipseProject.PathStyle.PROJECT_RELATIVE_WITH_LEADING_PROJECT_NAME) : context.getCurrentProject().getChild(
-        sourcePath, EclipseProject.PathStyle.ABSOLUTE);
-
     // get the output path
     String outputPath = getCurrentJavaProjectRole(context).getOutputFolderForSourceFolder(sourcePath);
 
-    // get the output folder
-    File outputFolder = context.isWorkspaceRelative() ? context.getCurrentProject().getChild(outputPath,
-        EclipseProject.PathStyle.PROJECT_RELATIVE_WITH_LEADING_PROJECT_NAME) : context.getCurrentProject().getChild(
-        outputPath, EclipseProject.PathStyle.ABSOLUTE);
-
     // TODO: ACCESS RESTRICTIONS
-    context
-        .addClasspathEntry(new ResolvedClasspathEntry(new File[] { outputFolder }, null, new File[] { sourceFolder }));
+    context.addClasspathEntry(createEntry(context.getCurrentProject(), sourcePath, outputPath,
+        EclipseProject.PathStyle.ABSOLUTE), createEntry(context.getCurrentProject(), sourcePath, outputPath,
+        EclipseProject.PathStyle.PROJECT_RELATIVE_WITH_LEADING_PROJECT_NAME));
+  }
+
+  /**
+   * <p>
+   * Creates the resolved class path entry for the given source folder using the given path style.
+   * </p>
+   * 
+   * @param project
+   *          the project that contains the source folder
+   * @param sourcePath
+   *          the path of the source folder
+   * @param outputPath
+   *          the path of the output folder
+   * @param pathStyle
+   *          the path style
+   * @return the resolved class path entry.
+   */
+  private ResolvedClasspathEntry createEntry(EclipseProject project, String sourcePath, String outputPath,
+      EclipseProject.PathStyle pathStyle) {
+
+    // get the source and the output folder
+    File sourceFolder = project.getChild(sourcePath, pathStyle);
+    File outputFolder = project.getChild(outputPath, pathStyle);
+
+    return new ResolvedClasspathEntry(new File[] { outputFolder }, null, new File[] { sourceFolder });
   }
 }
@@ -1,64 +1,180 @@
 package org.ant4eclipse.lib.jdt.internal.tools.container;
 
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.jdt.internal.tools.ResolvedProjectEntries;
 import org.ant4eclipse.lib.jdt.tools.ResolvedClasspath;
+import org.ant4eclipse.lib.jdt.tools.container.JdtClasspathContainerArgument;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 
 /**
  * <p>
+ * Caches resolved class paths. Two kinds of results are cached:
+ * <ul>
+ * <li>the complete {@link ResolvedClasspath} of a root project</li>
+ * <li>the {@link ResolvedProjectEntries} of every project that has been resolved, so that the class path of a project
+ * that is referenced by several other projects is only resolved once</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Results are cached per {@link EclipseProject} instance. The projects of a workspace are re-read (and replaced by new
+ * instances) whenever the workspace is registered or refreshed, so all results are dropped via {@link #invalidate()}
+ * at that point (see {@link JdtResolverCacheInvalidator}). This way the cache neither returns results for outdated
+ * projects nor keeps a replaced workspace alive. Results that depend on other registries (class path variables and
+ * containers, java runtimes, target platforms) are dropped whenever these registries change, too.
  * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public class JdtResolverCache {
 
-  /** the class path cache */
-  private static final Map<String, ResolvedClasspath> _classpathCache = new Hashtable<String, ResolvedClasspath>();
+  /** the resolved class paths of root projects */
+  private Map<EclipseProject, Map<String, ResolvedClasspath>>      _classpathCache;
+
+  /** the resolved entries of the projects */
+  private Map<EclipseProject, Map<String, ResolvedProjectEntries>> _projectEntriesCache;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link JdtResolverCache}.
+   * </p>
+   */
+  public JdtResolverCache() {
+    this._classpathCache = new IdentityHashMap<EclipseProject, Map<String, ResolvedClasspath>>();
+    this._projectEntriesCache = new IdentityHashMap<EclipseProject, Map<String, ResolvedProjectEntries>>();
+  }
 
   /**
    * <p>
+   * Returns the cached class path of the given root project.
    * </p>
    * 
+   * @param project
+   *          the root project
    * @param key
-   * @return
+   *          the cache key (see {@link #getCacheKey(boolean, boolean, List)})
+   * @return the cached class path or <code>null</code>.
    */
-  public ResolvedClasspath getResolvedClasspath(String key) {
-    return _classpathCache.get(key);
+  public synchronized ResolvedClasspath getResolvedClasspath(EclipseProject project, String key) {
+    Map<String, ResolvedClasspath> classpaths = this._classpathCache.get(project);
+    return classpaths == null ? null : classpaths.get(key);
   }
 
   /**
    * <p>
+   * Stores the class path of the given root project.
    * </p>
    * 
+   * @param project
+   *          the root project
    * @param key
+   *          the cache key (see {@link #getCacheKey(boolean, boolean, List)})
    * @param classpath
+   *          the resolved class path
+   */
+  public synchronized void storeResolvedClasspath(EclipseProject project, String key, ResolvedClasspath classpath) {
+    Map<String, ResolvedClasspath> classpaths = this._classpathCache.get(project);
+    if (classpaths == null) {
+      classpaths = new HashMap<String, ResolvedClasspath>();
+      this._classpathCache.put(project, classpaths);
+    }
+    classpaths.put(key, classpath);
+  }
+
+  /**
+   * <p>
+   * Returns the cached entries of the given project.
+   * </p>
+   * 
+   * @param project
+   *          the project
+   * @param key
+   *          the cache key
+   * @return the cached entries or <code>null</code>.
    */
-  public void storeResolvedClasspath(String key, ResolvedClasspath classpath) {
-    _classpathCache.put(key, classpath);
+  public synchronized ResolvedProjectEntries getProjectEntries(EclipseProject project, String key) {
+    Map<String, ResolvedProjectEntries> entries = this._projectEntriesCache.get(project);
+    return entries == null ? null : entries.get(key);
   }
 
   /**
    * <p>
+   * Stores the entries of the given project.
    * </p>
    * 
    * @param project
+   *          the project
+   * @param key
+   *          the cache key
+   * @param projectEntries
+   *          the resolved entries
+   */
+  public synchronized void storeProjectEntries(EclipseProject project, String key,
+      ResolvedProjectEntries projectEntries) {
+    Map<String, ResolvedProjectEntries> entries = this._projectEntriesCache.get(project);
+    if (entries == null) {
+      entries = new HashMap<String, ResolvedProjectEntries>();
+      this._projectEntriesCache.put(project, entries);
+    }
+    entries.put(key, projectEntries);
+  }
+
+  /**
+   * <p>
+   * Removes all cached results.
+   * </p>
+   */
+  public synchronized void clear() {
+    this._classpathCache.clear();
+    this._projectEntriesCache.clear();
+  }
+
+  /**
+   * <p>
+   * Returns the cache key for a class path that has been resolved with the given settings.
+   * </p>
+   * 
    * @param resolveRelative
+   *          indicates if the class path is resolved relative to the workspace
    * @param runtimeClasspath
-   * @return
+   *          indicates if the class path is a runtime class path
+   * @param classpathContainerArguments
+   *          the class path container arguments, might be <code>null</code>
+   * @return the cache key.
+   */
+  public static String getCacheKey(boolean resolveRelative, boolean runtimeClasspath,
+      List<JdtClasspathContainerArgument> classpathContainerArguments) {
+    StringBuffer buffer = new StringBuffer();
+    buffer.append(resolveRelative).append('.').append(runtimeClasspath);
+    if (classpathContainerArguments != null) {
+      for (JdtClasspathContainerArgument argument : classpathContainerArguments) {
+        buffer.append('.').append(argument.getKey()).append('=').append(argument.getValue());
+      }
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * <p>
+   * Removes all cached results if a {@link JdtResolverCache} has been registered.
+   * </p>
    */
-  public static String getCacheKey(EclipseProject project, boolean resolveRelative, boolean runtimeClasspath) {
-    // TODO include classpathContainerArguments in key
-    return project.getSpecifiedName() + "." + resolveRelative + "." + runtimeClasspath;
+  public static void invalidate() {
+    if (ServiceRegistryAccess.isConfigured() && ServiceRegistryAccess.instance().hasService(JdtResolverCache.class)) {
+      getInstance().clear();
+    }
   }
 
   /**
    * <p>
+   * Returns the registered {@link JdtResolverCache}.
    * </p>
    * 
-   * @return
+   * @return the registered {@link JdtResolverCache}.
    */
   public static JdtResolverCache getInstance() {
     return ServiceRegistryAccess.instance().getService(JdtResolverCache.class);
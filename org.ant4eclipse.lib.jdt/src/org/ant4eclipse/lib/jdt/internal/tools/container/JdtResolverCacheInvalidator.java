@@ -0,0 +1,34 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.jdt.internal.tools.container;
+
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistryListener;
+
+/**
+ * <p>
+ * Drops the results of the {@link JdtResolverCache} whenever a workspace has been registered or refreshed, so the cache
+ * doesn't keep the projects of a replaced workspace alive.
+ * </p>
+ * 
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class JdtResolverCacheInvalidator implements WorkspaceRegistryListener {
+
+  /**
+   * {@inheritDoc}
+   */
+  public void workspaceRegistered(String id, Workspace workspace) {
+    JdtResolverCache.invalidate();
+  }
+
+} /* ENDCLASS */
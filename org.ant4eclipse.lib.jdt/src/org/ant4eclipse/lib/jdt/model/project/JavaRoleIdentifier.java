@@ -35,6 +35,13 @@ public final class JavaRoleIdentifier implements ProjectRoleIdentifier {
     return project.hasNature(JavaProjectRole.JAVA_NATURE);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public Class<? extends ProjectRole> getRoleType() {
+    return JavaProjectRole.class;
+  }
+
   /**
    * {@inheritDoc}
    * 
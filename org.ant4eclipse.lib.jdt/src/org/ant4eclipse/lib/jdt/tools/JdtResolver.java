@@ -39,8 +39,24 @@ import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
  */
 public class JdtResolver {
 
-  /** system property that enables the Jdt resolver cache */
-  private static final boolean ENABLE_CACHE = Boolean.getBoolean("ant4eclipse.enableJdtResolverCache");
+  /** system property that disables the Jdt resolver cache */
+  private static final boolean DISABLE_CACHE = Boolean.getBoolean("ant4eclipse.disableJdtResolverCache");
+
+  /** the index of the absolute class path in the result of {@link #resolveProjectClasspaths} */
+  public static final int      ABSOLUTE      = 0;
+
+  /** the index of the workspace relative class path in the result of {@link #resolveProjectClasspaths} */
+  public static final int      RELATIVE      = 1;
+
+  /**
+   * <p>
+   * Drops the cached class paths. Registries outside of the jdt support that the resolved class paths depend on (e.g.
+   * the registry of the target platforms) call this method whenever they have been changed.
+   * </p>
+   */
+  public static final void invalidateCache() {
+    JdtResolverCache.invalidate();
+  }
 
   /**
    * <p>
@@ -60,47 +76,101 @@ public class JdtResolver {
   public static final ResolvedClasspath resolveProjectClasspath(EclipseProject project, boolean resolveRelative,
       boolean isRuntimeClasspath, List<JdtClasspathContainerArgument> classpathContainerArguments) {
 
+    ResolvedClasspath[] result = resolveProjectClasspaths(project, !resolveRelative, resolveRelative,
+        isRuntimeClasspath, classpathContainerArguments);
+
+    return result[resolveRelative ? RELATIVE : ABSOLUTE];
+  }
+
+  /**
+   * <p>
+   * Resolves the absolute and/or the workspace relative class path of the given eclipse project. If both variants are
+   * requested, the project (and all projects it references) are only resolved once.
+   * </p>
+   * 
+   * @param project
+   *          the eclipse project that should be resolved
+   * @param resolveAbsolute
+   *          indicates if the absolute class path should be resolved.
+   * @param resolveRelative
+   *          indicates if the class path relative to the workspace should be resolved.
+   * @param isRuntimeClasspath
+   *          indicates if the class path is a runtime class path or not
+   * @param classpathContainerArguments
+   *          an optional list with class path container arguments
+   * @return an array that contains the absolute class path at index {@link #ABSOLUTE} and the workspace relative class
+   *         path at index {@link #RELATIVE}. Class paths that have not been requested are <code>null</code>.
+   */
+  public static final ResolvedClasspath[] resolveProjectClasspaths(EclipseProject project, boolean resolveAbsolute,
+      boolean resolveRelative, boolean isRuntimeClasspath,
+      List<JdtClasspathContainerArgument> classpathContainerArguments) {
+
     //
-    if (ENABLE_CACHE) {
+    if (!DISABLE_CACHE) {
 
-      // determine the key for the cached classpath
-      String cacheKey = JdtResolverCache.getCacheKey(project, resolveRelative, isRuntimeClasspath);
+      JdtResolverCache cache = JdtResolverCache.getInstance();
 
-      // try to get ResolvedClasspath from the cache
-      ResolvedClasspath resolvedClasspath = JdtResolverCache.getInstance().getResolvedClasspath(cacheKey);
+      // determine the keys for the cached classpaths
+      String absoluteCacheKey = JdtResolverCache.getCacheKey(false, isRuntimeClasspath, classpathContainerArguments);
+      String relativeCacheKey = JdtResolverCache.getCacheKey(true, isRuntimeClasspath, classpathContainerArguments);
 
-      if (resolvedClasspath == null) {
+      // try to get the ResolvedClasspaths from the cache
+      ResolvedClasspath[] result = new ResolvedClasspath[2];
+      if (resolveAbsolute) {
+        result[ABSOLUTE] = cache.getResolvedClasspath(project, absoluteCacheKey);
+      }
+      if (resolveRelative) {
+        result[RELATIVE] = cache.getResolvedClasspath(project, relativeCacheKey);
+      }
+
+      boolean missingAbsolute = resolveAbsolute && (result[ABSOLUTE] == null);
+      boolean missingRelative = resolveRelative && (result[RELATIVE] == null);
+
+      if (missingAbsolute || missingRelative) {
 
-        // Classpath has not been resolved yet -> resolve it now
-        resolvedClasspath = doResolveProjectClasspath(project, resolveRelative, isRuntimeClasspath,
-            classpathContainerArguments);
+        // Classpaths have not been resolved yet -> resolve them now
+        ResolvedClasspath[] resolved = doResolveProjectClasspaths(project, missingAbsolute, missingRelative,
+            isRuntimeClasspath, classpathContainerArguments, cache);
 
-        // add the resolved classpath to the cache
-        JdtResolverCache.getInstance().storeResolvedClasspath(cacheKey, resolvedClasspath);
+        // add the resolved classpaths to the cache
+        if (missingAbsolute) {
+          result[ABSOLUTE] = resolved[ABSOLUTE];
+          cache.storeResolvedClasspath(project, absoluteCacheKey, resolved[ABSOLUTE]);
+        }
+        if (missingRelative) {
+          result[RELATIVE] = resolved[RELATIVE];
+          cache.storeResolvedClasspath(project, relativeCacheKey, resolved[RELATIVE]);
+        }
       }
 
-      // return the classpath
-      return resolvedClasspath;
+      // return the classpaths
+      return result;
 
     } else {
 
       // cache is disabled, always re-resolve classpath
-      return doResolveProjectClasspath(project, resolveRelative, isRuntimeClasspath, classpathContainerArguments);
+      return doResolveProjectClasspaths(project, resolveAbsolute, resolveRelative, isRuntimeClasspath,
+          classpathContainerArguments, null);
     }
   }
 
   /**
    * <p>
+   * Resolves the requested class path variants of the given project in a single pass.
    * </p>
    * 
    * @param project
+   * @param resolveAbsolute
    * @param resolveRelative
    * @param isRuntimeClasspath
    * @param classpathContainerArguments
+   * @param cache
+   *          the cache for the resolved entries of the (referenced) projects, might be <code>null</code>
    * @return
    */
-  private static final ResolvedClasspath doResolveProjectClasspath(EclipseProject project, boolean resolveRelative,
-      boolean isRuntimeClasspath, List<JdtClasspathContainerArgument> classpathContainerArguments) {
+  private static final ResolvedClasspath[] doResolveProjectClasspaths(EclipseProject project, boolean resolveAbsolute,
+      boolean resolveRelative, boolean isRuntimeClasspath,
+      List<JdtClasspathContainerArgument> classpathContainerArguments, JdtResolverCache cache) {
 
     Assure.notNull("project", project);
 
@@ -108,28 +178,34 @@ public class JdtResolver {
     PerformanceLogging.start(JdtResolver.class, "doResolveProjectClasspath");
 
     // create a ResolverJob
-    ResolverJob job = new ResolverJob(project, project.getWorkspace(), resolveRelative, isRuntimeClasspath,
+    ResolverJob job = new ResolverJob(project, project.getWorkspace(), !resolveAbsolute, isRuntimeClasspath,
         classpathContainerArguments);
 
     // create the ClasspathEntryResolverExecutor
-    ClasspathEntryResolverExecutor executor = new ClasspathEntryResolverExecutor(true);
+    ClasspathEntryResolverExecutor executor = new ClasspathEntryResolverExecutor(true, cache);
 
     // create the ClasspathEntryResolvers
     ClasspathEntryResolver[] resolvers = new ClasspathEntryResolver[] { new VariableClasspathEntryResolver(),
         new ContainerClasspathEntryResolver(), new SourceClasspathEntryResolver(), new ProjectClasspathEntryResolver(),
         new LibraryClasspathEntryResolver(), new OutputClasspathEntryResolver() };
 
-    // create the result object
-    ResolvedClasspathImpl resolvedClasspath = new ResolvedClasspathImpl();
+    // create the result objects
+    ResolvedClasspathImpl[] resolvedClasspaths = new ResolvedClasspathImpl[2];
+    if (resolveAbsolute) {
+      resolvedClasspaths[ABSOLUTE] = new ResolvedClasspathImpl();
+    }
+    if (resolveRelative) {
+      resolvedClasspaths[RELATIVE] = new ResolvedClasspathImpl();
+    }
 
     // execute the job
-    executor.resolve(job.getRootProject(), resolvers,
-        new ClasspathResolverContextImpl(executor, job, resolvedClasspath));
+    executor.resolve(job.getRootProject(), resolvers, new ClasspathResolverContextImpl(executor, job,
+        resolvedClasspaths[ABSOLUTE], resolvedClasspaths[RELATIVE]));
 
     // stop performance logging
     PerformanceLogging.stop(JdtResolver.class, "doResolveProjectClasspath");
 
-    // return the ResolvedClasspath
-    return resolvedClasspath;
+    // return the ResolvedClasspaths
+    return resolvedClasspaths;
   }
 }
@@ -32,6 +32,11 @@ public interface ClasspathResolverContext {
    * <p>
    * Returns <code>true</code> if the the class path should be resolved relative to the workspace.
    * <p>
+   * <p>
+   * If the absolute and the workspace relative class path are resolved within a single pass, this method returns
+   * <code>false</code>. Resolvers should always report both variants of an entry (see
+   * {@link #addClasspathEntry(ResolvedClasspathEntry, ResolvedClasspathEntry)}), so they don't depend on this flag.
+   * </p>
    * 
    * @return <code>true</code> if the the class path should be resolved relative to the workspace.
    */
@@ -132,6 +137,20 @@ public interface ClasspathResolverContext {
    */
   void addClasspathEntry(ResolvedClasspathEntry resolvedClasspathEntry);
 
+  /**
+   * <p>
+   * Adds a resolved class path entry that depends on the path style to the class path. This allows the absolute and
+   * the workspace relative class path to be resolved in a single pass: the context only adds the variant(s) it
+   * collects.
+   * </p>
+   * 
+   * @param absoluteEntry
+   *          the entry to add to the absolute class path.
+   * @param workspaceRelativeEntry
+   *          the entry to add to the workspace relative class path.
+   */
+  void addClasspathEntry(ResolvedClasspathEntry absoluteEntry, ResolvedClasspathEntry workspaceRelativeEntry);
+
   /**
    * <p>
    * Adds a resolved class path entry to the boot class path.
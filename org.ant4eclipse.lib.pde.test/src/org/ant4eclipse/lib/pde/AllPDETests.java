@@ -11,6 +11,12 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pde;
 
+import org.ant4eclipse.lib.pde.internal.model.pluginproject.PluginProjectSnapshotTest;
+import org.ant4eclipse.lib.pde.internal.tools.AbstractBundleAndFeatureSetTest;
+import org.ant4eclipse.lib.pde.internal.tools.BinaryBundleAndFeatureSetTest;
+import org.ant4eclipse.lib.pde.internal.tools.PluginDirectoryCacheTest;
+import org.ant4eclipse.lib.pde.internal.tools.ResolvedStateCacheTest;
+import org.ant4eclipse.lib.pde.internal.tools.TargetPlatformRegistryImplTest;
 import org.ant4eclipse.lib.pde.model.buildproperties.BuildPropertiesParserTest;
 import org.ant4eclipse.lib.pde.model.launcher.SelectedLaunchConfigurationBundleParserTest;
 import org.ant4eclipse.lib.pde.model.launcher.SimpleConfiguratorBundlesTest;
@@ -19,6 +25,8 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ SelectedLaunchConfigurationBundleParserTest.class, SimpleConfiguratorBundlesTest.class,
-    BuildPropertiesParserTest.class })
+    BuildPropertiesParserTest.class, PluginProjectSnapshotTest.class, PluginDirectoryCacheTest.class,
+    BinaryBundleAndFeatureSetTest.class, AbstractBundleAndFeatureSetTest.class, ResolvedStateCacheTest.class,
+    TargetPlatformRegistryImplTest.class })
 public class AllPDETests {
 } /* ENDCLASS */
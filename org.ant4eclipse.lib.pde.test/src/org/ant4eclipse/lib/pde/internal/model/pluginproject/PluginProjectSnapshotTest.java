@@ -0,0 +1,115 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.model.pluginproject;
+
+import java.io.File;
+
+import org.ant4eclipse.lib.core.service.PropertiesBasedServiceRegistryConfiguration;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.PropertyService;
+import org.ant4eclipse.lib.core.util.StringMap;
+import org.ant4eclipse.lib.core.util.SystemPropertiesService;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.pde.model.pluginproject.BundleSource;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.testframework.BundleManifest;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.ant4eclipse.testframework.PdeProjectBuilder;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PluginProjectSnapshotTest extends ConfigurableAnt4EclipseTestCase {
+
+  /** the name of the property that enables the workspace snapshots */
+  private static final String SNAPSHOT_DIRECTORY_PROPERTY = "ant4eclipse.workspaceSnapshotDirectory";
+
+  private TestDirectory       _testWorkspace;
+
+  private File                _snapshotDir;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._testWorkspace = new TestDirectory();
+    this._snapshotDir = JUnitUtilities.createTempDir();
+    System.setProperty(SNAPSHOT_DIRECTORY_PROPERTY, this._snapshotDir.getAbsolutePath());
+
+    PdeProjectBuilder builder = PdeProjectBuilder.getPreConfiguredPdeProjectBuilder("plugin");
+    builder.withBundleManifest().withBundleVersion("1.0.0");
+    builder.withDefaultBuildProperties();
+    builder.createIn(this._testWorkspace.getRootDir());
+  }
+
+  @Override
+  protected StringMap customAnt4EclipseConfiguration(StringMap properties) {
+    // the default configuration and a property service for the output path validator, which is otherwise only
+    // provided by the ant layer
+    addDefaultAnt4EclipseConfiguration(properties);
+    properties.put(PropertiesBasedServiceRegistryConfiguration.PROPERTY_PREFIX + "." + PropertyService.class.getName(),
+        SystemPropertiesService.class.getName());
+    return properties;
+  }
+
+  @Override
+  public void dispose() {
+    System.clearProperty(SNAPSHOT_DIRECTORY_PROPERTY);
+    Utilities.delete(this._snapshotDir);
+    this._testWorkspace.dispose();
+    super.dispose();
+  }
+
+  @Test
+  public void bundleManifestIsRestored() {
+    File manifestFile = new File(this._testWorkspace.getRootDir(), "plugin/META-INF/MANIFEST.MF");
+    Assert.assertEquals("1.0.0", getBundleDescription(registerWorkspace()).getVersion().toString());
+
+    // a manifest with the same length and time stamp isn't read again...
+    long lastModified = manifestFile.lastModified();
+    new BundleManifest("plugin").withBundleVersion("2.0.0").write(manifestFile);
+    Assert.assertTrue(manifestFile.setLastModified(lastModified));
+
+    EclipseProject project = registerWorkspace();
+    BundleDescription restored = getBundleDescription(project);
+    Assert.assertEquals("1.0.0", restored.getVersion().toString());
+    Assert.assertEquals("plugin", restored.getSymbolicName());
+    Assert.assertSame(project, BundleSource.getBundleSource(restored).getAsEclipseProject());
+    Assert.assertEquals(project.getFolder(), BundleSource.getBundleSource(restored).getClasspathRoot());
+    PluginProjectRoleImpl role = PluginProjectRoleImpl.getPluginProjectRole(project);
+    Assert.assertTrue(role.hasBuildProperties());
+    Assert.assertEquals(1, role.getBuildProperties().getLibraries().length);
+
+    // ... but a modified one is
+    Assert.assertTrue(manifestFile.setLastModified(lastModified + 10000));
+    Assert.assertEquals("2.0.0", getBundleDescription(registerWorkspace()).getVersion().toString());
+  }
+
+  private BundleDescription getBundleDescription(EclipseProject project) {
+    return PluginProjectRoleImpl.getPluginProjectRole(project).getBundleDescription();
+  }
+
+  /**
+   * <p>
+   * Registers the test workspace (again) and returns the plug-in project.
+   * </p>
+   */
+  private EclipseProject registerWorkspace() {
+    WorkspaceRegistry workspaceRegistry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    return workspaceRegistry.registerWorkspace("snapshot",
+        new DefaultEclipseWorkspaceDefinition(this._testWorkspace.getRootDir())).getProject("plugin");
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,170 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.ant4eclipse.lib.pde.internal.model.featureproject.FeatureManifestImpl;
+import org.ant4eclipse.lib.pde.internal.model.pluginproject.BundleDescriptionLoader;
+import org.ant4eclipse.lib.pde.tools.PdeBuildHelper;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Version;
+
+public class AbstractBundleAndFeatureSetTest extends ConfigurableAnt4EclipseTestCase {
+
+  private String _oldContextQualifier;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._oldContextQualifier = PdeBuildHelper.CONTEXT_QUALIFIER;
+    PdeBuildHelper.CONTEXT_QUALIFIER = "202601011200";
+  }
+
+  @Override
+  public void dispose() {
+    PdeBuildHelper.CONTEXT_QUALIFIER = this._oldContextQualifier;
+    super.dispose();
+  }
+
+  @Test
+  public void bundleIndex() {
+    TestBundleAndFeatureSet set = new TestBundleAndFeatureSet();
+    set.addBundle("a", "1.0.0");
+    set.addBundle("a", "3.0.0");
+    set.addBundle("a", "3.0.0");
+    set.addBundle("a", "2.0.0");
+    set.addBundle("b", "1.0.0");
+    set.initialize();
+
+    // the highest version wins, the first one if there are several
+    Assert.assertSame(set._bundles.get(1), set.getBundleDescription("a"));
+    Assert.assertSame(set._bundles.get(4), set.getBundleDescription("b"));
+    Assert.assertNull(set.getBundleDescription("c"));
+    Assert.assertTrue(set.containsBundle("a"));
+    Assert.assertFalse(set.containsBundle("c"));
+
+    // the list of all bundles keeps the order in which they have been added
+    Assert.assertEquals(set._bundles, set.getAllBundleDescriptions());
+  }
+
+  @Test
+  public void featureIndex() {
+    TestBundleAndFeatureSet set = new TestBundleAndFeatureSet();
+    set.addFeature("f", "1.0.0.202601011200");
+    set.addFeature("f", "1.0.0.qualifier");
+    set.addFeature("f", "2.0.0");
+    set.addFeature("f", "2.0.0");
+    set.addFeature("g", "1.0.0");
+    set.initialize();
+
+    // the highest version wins, the first one if there are several
+    Assert.assertSame(set._features.get(2), set.getFeatureDescription("f"));
+    Assert.assertSame(set._features.get(4), set.getFeatureDescription("g"));
+    Assert.assertNull(set.getFeatureDescription("h"));
+
+    // both features resolve to the same version, so the first one that has been added wins
+    Assert.assertSame(set._features.get(0), set.getFeatureDescription("f", new Version("1.0.0.202601011200")));
+    Assert.assertSame(set._features.get(2), set.getFeatureDescription("f", new Version("2.0.0")));
+    Assert.assertNull(set.getFeatureDescription("f", new Version("3.0.0")));
+    Assert.assertNull(set.getFeatureDescription("h", new Version("1.0.0")));
+
+    // the other way round
+    set = new TestBundleAndFeatureSet();
+    set.addFeature("f", "1.0.0.qualifier");
+    set.addFeature("f", "1.0.0.202601011200");
+    set.initialize();
+    Assert.assertSame(set._features.get(0), set.getFeatureDescription("f", new Version("1.0.0.202601011200")));
+  }
+
+  @Test
+  public void refresh() {
+    TestBundleAndFeatureSet set = new TestBundleAndFeatureSet();
+    set.addBundle("a", "1.0.0");
+    set.addFeature("f", "1.0.0");
+    set.initialize();
+
+    // the set is read again, the indexes don't keep the old entries
+    set.refresh();
+    Assert.assertEquals(2, set._bundles.size());
+    Assert.assertEquals(1, set.getAllBundleDescriptions().size());
+    Assert.assertSame(set._bundles.get(1), set.getAllBundleDescriptions().get(0));
+    Assert.assertSame(set._bundles.get(1), set.getBundleDescription("a"));
+    Assert.assertSame(set._features.get(1), set.getFeatureDescription("f"));
+    Assert.assertSame(set._features.get(1), set.getFeatureDescription("f", new Version("1.0.0")));
+  }
+
+  /**
+   * <p>
+   * A set that creates a new description for each of the given bundles and features whenever it is read. The
+   * descriptions are recorded in the order they have been created.
+   * </p>
+   */
+  private static class TestBundleAndFeatureSet extends AbstractBundleAndFeatureSet {
+
+    private List<String[]>           _bundleVersions  = new ArrayList<String[]>();
+
+    private List<String[]>           _featureVersions = new ArrayList<String[]>();
+
+    private List<BundleDescription>  _bundles         = new ArrayList<BundleDescription>();
+
+    private List<FeatureDescription> _features        = new ArrayList<FeatureDescription>();
+
+    public TestBundleAndFeatureSet() {
+      super("test set");
+    }
+
+    public void addBundle(String symbolicName, String version) {
+      this._bundleVersions.add(new String[] { symbolicName, version });
+    }
+
+    public void addFeature(String id, String version) {
+      this._featureVersions.add(new String[] { id, version });
+    }
+
+    @Override
+    protected void readBundlesAndFeatures() {
+      try {
+        for (String[] bundleVersion : this._bundleVersions) {
+          Manifest manifest = new Manifest();
+          Attributes attributes = manifest.getMainAttributes();
+          attributes.putValue("Manifest-Version", "1.0");
+          attributes.putValue("Bundle-ManifestVersion", "2");
+          attributes.putValue("Bundle-SymbolicName", bundleVersion[0]);
+          attributes.putValue("Bundle-Version", bundleVersion[1]);
+          BundleDescription bundleDescription = BundleDescriptionLoader.loadFromManifest(manifest, new File(
+              bundleVersion[0] + "_" + bundleVersion[1] + ".jar"));
+          this._bundles.add(bundleDescription);
+          addBundleDescription(bundleDescription);
+        }
+      } catch (Exception ex) {
+        throw new RuntimeException(ex.getMessage(), ex);
+      }
+      for (String[] featureVersion : this._featureVersions) {
+        FeatureManifestImpl featureManifest = new FeatureManifestImpl();
+        featureManifest.setId(featureVersion[0]);
+        featureManifest.setVersion(new Version(featureVersion[1]));
+        FeatureDescription featureDescription = new FeatureDescription(featureVersion[0], featureManifest);
+        this._features.add(featureDescription);
+        addFeaturesDescription(featureDescription);
+      }
+    }
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,115 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.ant4eclipse.testframework.JarBundleBuilder;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryBundleAndFeatureSetTest extends ConfigurableAnt4EclipseTestCase {
+
+  private static final String[] NAMES = new String[] { "m", "z", "a", "q", "c", "x", "b", "k" };
+
+  private File                  _workDir;
+
+  @Override
+  protected boolean useTemporaryCacheDir() {
+    return true;
+  }
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._workDir = JUnitUtilities.createTempDir();
+  }
+
+  @Override
+  public void dispose() {
+    super.dispose();
+    Utilities.delete(this._workDir);
+  }
+
+  @Test
+  public void bundleIdsInLocationOrder() {
+    File location = createTargetLocation("first");
+
+    // the ids don't depend on the threads, neither for a new nor for a cached scan
+    for (int i = 0; i < 2; i++) {
+      BinaryBundleAndFeatureSet set = new BinaryBundleAndFeatureSet(location);
+      set.initialize();
+      assertBundleIdsInOrder(set.getAllBundleDescriptions(), "first.");
+    }
+  }
+
+  @Test
+  public void scanSeveralLocations() {
+    BinaryBundleAndFeatureSet first = new BinaryBundleAndFeatureSet(createTargetLocation("first"));
+    BinaryBundleAndFeatureSet second = new BinaryBundleAndFeatureSet(createTargetLocation("second"));
+
+    BinaryBundleAndFeatureSet.scan(Arrays.asList(first, second));
+    Assert.assertFalse(first.isInitialised());
+    Assert.assertFalse(second.isInitialised());
+
+    // the bundles are added in the order in which the sets are initialized
+    first.initialize();
+    second.initialize();
+    List<BundleDescription> firstBundles = first.getAllBundleDescriptions();
+    List<BundleDescription> secondBundles = second.getAllBundleDescriptions();
+    assertBundleIdsInOrder(firstBundles, "first.");
+    assertBundleIdsInOrder(secondBundles, "second.");
+    Assert.assertTrue(firstBundles.get(NAMES.length - 1).getBundleId() < secondBundles.get(0).getBundleId());
+
+    // initialized sets aren't scanned again
+    BinaryBundleAndFeatureSet.scan(Arrays.asList(first));
+    first.refresh();
+    assertBundleIdsInOrder(first.getAllBundleDescriptions(), "first.");
+  }
+
+  /**
+   * <p>
+   * Creates a target location with jared bundles that aren't created in the order of their names.
+   * </p>
+   */
+  private File createTargetLocation(String prefix) {
+    File location = new File(this._workDir, prefix);
+    File plugins = new File(location, "plugins");
+    Utilities.mkdirs(plugins);
+    for (String name : NAMES) {
+      JarBundleBuilder jarBundleBuilder = new JarBundleBuilder(prefix + "." + name);
+      jarBundleBuilder.withBundleManifest().withBundleVersion("1.0.0");
+      jarBundleBuilder.createIn(plugins);
+    }
+    return location;
+  }
+
+  private void assertBundleIdsInOrder(List<BundleDescription> bundleDescriptions, String prefix) {
+    String[] sortedNames = NAMES.clone();
+    Arrays.sort(sortedNames);
+    Assert.assertEquals(sortedNames.length, bundleDescriptions.size());
+    for (int i = 0; i < sortedNames.length; i++) {
+      BundleDescription bundleDescription = bundleDescriptions.get(i);
+      Assert.assertEquals(prefix + sortedNames[i], bundleDescription.getSymbolicName());
+      if (i > 0) {
+        Assert.assertTrue(bundleDescriptions.get(i - 1).getBundleId() < bundleDescription.getBundleId());
+      }
+    }
+  }
+
+} /* ENDCLASS */
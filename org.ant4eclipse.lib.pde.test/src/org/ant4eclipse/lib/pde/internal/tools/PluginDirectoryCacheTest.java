@@ -0,0 +1,196 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.testframework.BundleManifest;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.ant4eclipse.testframework.JarBundleBuilder;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PluginDirectoryCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private File _pluginsDir;
+
+  private File _manifestFile;
+
+  @Override
+  protected boolean useTemporaryCacheDir() {
+    return true;
+  }
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._pluginsDir = new File(JUnitUtilities.createTempDir(), "plugins");
+    Utilities.mkdirs(this._pluginsDir);
+
+    // an exploded bundle, a jared bundle and a directory without a bundle manifest
+    this._manifestFile = new File(this._pluginsDir, "a_1.0.0/META-INF/MANIFEST.MF");
+    Utilities.mkdirs(this._manifestFile.getParentFile());
+    new BundleManifest("a").withBundleVersion("1.0.0").write(this._manifestFile);
+    JarBundleBuilder jarBundleBuilder = new JarBundleBuilder("b_1.0.0");
+    jarBundleBuilder.withBundleManifest().withBundleVersion("1.0.0");
+    jarBundleBuilder.createIn(this._pluginsDir);
+    Utilities.mkdirs(new File(this._pluginsDir, "c"));
+  }
+
+  @Override
+  public void dispose() {
+    super.dispose();
+    Utilities.delete(this._pluginsDir.getParentFile());
+  }
+
+  @Test
+  public void writeAndRead() {
+    scan("1.0.0");
+    File cacheFile = getCacheFile();
+    Assert.assertTrue(cacheFile.isFile());
+
+    // a modification that doesn't change the stamp of the manifest isn't noticed, so the manifest comes from the cache
+    rewriteManifest("2.0.0", this._manifestFile.lastModified());
+    Assert.assertTrue(cacheFile.setLastModified(100000L));
+    scan("1.0.0");
+
+    // an unchanged cache isn't written again
+    Assert.assertEquals(100000L, cacheFile.lastModified());
+  }
+
+  @Test
+  public void staleEntries() {
+    scan("1.0.0");
+    File cacheFile = getCacheFile();
+
+    rewriteManifest("2.0.0", this._manifestFile.lastModified() + 10000);
+    Assert.assertTrue(cacheFile.setLastModified(100000L));
+    scan("2.0.0");
+    Assert.assertTrue(cacheFile.lastModified() != 100000L);
+
+    // the cache has been updated
+    rewriteManifest("3.0.0", this._manifestFile.lastModified());
+    scan("2.0.0");
+
+    // removed plugins are removed from the cache
+    Assert.assertTrue(new File(this._pluginsDir, "b_1.0.0.jar").delete());
+    Assert.assertTrue(cacheFile.setLastModified(100000L));
+    PluginDirectoryCache cache = new PluginDirectoryCache(this._pluginsDir, false);
+    Assert.assertEquals("2.0.0", cache.getBundleDescription(new File(this._pluginsDir, "a_1.0.0")).getVersion()
+        .toString());
+    cache.save();
+    Assert.assertTrue(cacheFile.lastModified() != 100000L);
+  }
+
+  @Test
+  public void corruptCacheFile() {
+    scan("1.0.0");
+    Utilities.writeFile(getCacheFile(), "garbage", "UTF-8");
+
+    rewriteManifest("2.0.0", this._manifestFile.lastModified());
+    scan("2.0.0");
+    Assert.assertTrue(getCacheFile().length() > "garbage".length());
+  }
+
+  @Test
+  public void unreadableFeature() throws IOException {
+    File featuresDir = new File(this._pluginsDir.getParentFile(), "features");
+    Utilities.mkdirs(featuresDir);
+    File feature = new File(featuresDir, "f_1.0.0.jar");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    JarOutputStream outputStream = new JarOutputStream(bytes);
+    outputStream.putNextEntry(new JarEntry("feature.xml"));
+    outputStream.write("<feature id=\"f\" version=\"1.0.0\"></feature>".getBytes("UTF-8"));
+    outputStream.close();
+    byte[] content = bytes.toByteArray();
+    long lastModified = System.currentTimeMillis() - 100000;
+
+    // a feature jar file that can't be read (e.g. because it's still being copied) ...
+    byte[] garbage = new byte[content.length];
+    Arrays.fill(garbage, (byte) 'x');
+    writeBytes(feature, garbage, lastModified);
+    PluginDirectoryCache cache = new PluginDirectoryCache(featuresDir, true);
+    Assert.assertNull(cache.getFeatureDescription(feature));
+    cache.save();
+
+    // ... isn't cached as a jar file without a feature manifest
+    writeBytes(feature, content, lastModified);
+    cache = new PluginDirectoryCache(featuresDir, true);
+    FeatureDescription featureDescription = cache.getFeatureDescription(feature);
+    Assert.assertNotNull(featureDescription);
+    Assert.assertEquals("f", featureDescription.getFeatureManifest().getId());
+    cache.save();
+  }
+
+  @Test
+  public void cacheFileNames() {
+    File other = new File(JUnitUtilities.createTempDir(), "plugins");
+    try {
+      File first = PluginDirectoryCache.getCacheFile(Utilities.getCanonicalFile(this._pluginsDir), false);
+      File second = PluginDirectoryCache.getCacheFile(Utilities.getCanonicalFile(other), false);
+      Assert.assertFalse(first.equals(second));
+      Assert.assertFalse(first.equals(PluginDirectoryCache.getCacheFile(Utilities
+          .getCanonicalFile(this._pluginsDir), true)));
+      Assert.assertTrue(first.getName(), first.getName().matches("plugins-[0-9a-f]{32}-plugins\\.cache"));
+    } finally {
+      Utilities.delete(other.getParentFile());
+    }
+  }
+
+  /**
+   * <p>
+   * Reads all plugins with a new cache and saves it.
+   * </p>
+   */
+  private void scan(String expectedVersion) {
+    PluginDirectoryCache cache = new PluginDirectoryCache(this._pluginsDir, false);
+    BundleDescription a = cache.getBundleDescription(new File(this._pluginsDir, "a_1.0.0"));
+    Assert.assertEquals("a", a.getSymbolicName());
+    Assert.assertEquals(expectedVersion, a.getVersion().toString());
+    BundleDescription b = cache.getBundleDescription(new File(this._pluginsDir, "b_1.0.0.jar"));
+    Assert.assertEquals("b_1.0.0", b.getSymbolicName());
+    Assert.assertNull(cache.getBundleDescription(new File(this._pluginsDir, "c")));
+    cache.save();
+  }
+
+  private void rewriteManifest(String version, long lastModified) {
+    long length = this._manifestFile.length();
+    new BundleManifest("a").withBundleVersion(version).write(this._manifestFile);
+    Assert.assertEquals(length, this._manifestFile.length());
+    Assert.assertTrue(this._manifestFile.setLastModified(lastModified));
+  }
+
+  private void writeBytes(File file, byte[] content, long lastModified) throws IOException {
+    FileOutputStream outputStream = new FileOutputStream(file);
+    try {
+      outputStream.write(content);
+    } finally {
+      outputStream.close();
+    }
+    Assert.assertTrue(file.setLastModified(lastModified));
+  }
+
+  private File getCacheFile() {
+    return PluginDirectoryCache.getCacheFile(Utilities.getCanonicalFile(this._pluginsDir), false);
+  }
+
+} /* ENDCLASS */
@@ -0,0 +1,206 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.pde.tools.PlatformConfiguration;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.ant4eclipse.testframework.JarBundleBuilder;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.osgi.service.resolver.ExportPackageDescription;
+import org.eclipse.osgi.service.resolver.State;
+import org.junit.Assert;
+import org.junit.Test;
+import org.osgi.framework.Version;
+
+public class ResolvedStateCacheTest extends ConfigurableAnt4EclipseTestCase {
+
+  private File _location;
+
+  private File _pluginsDir;
+
+  @Override
+  protected boolean useTemporaryCacheDir() {
+    return true;
+  }
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._location = JUnitUtilities.createTempDir();
+    this._pluginsDir = new File(this._location, "plugins");
+    Utilities.mkdirs(this._pluginsDir);
+
+    // 'user' imports the package exported by 'lib'
+    createLib("1.0.0", 0);
+    JarBundleBuilder user = new JarBundleBuilder("user");
+    user.withBundleManifest().withBundleVersion("1.0.0").withImportPackage("p");
+    user.createIn(this._pluginsDir);
+  }
+
+  @Override
+  public void dispose() {
+    super.dispose();
+    Utilities.delete(this._location);
+  }
+
+  @Test
+  public void keys() {
+    List<String> fingerprints = Arrays.asList("a", "b");
+    Properties properties = new Properties();
+    properties.setProperty("osgi.os", "linux");
+    properties.setProperty("osgi.ws", "gtk");
+    Properties sameProperties = new Properties();
+    sameProperties.setProperty("osgi.ws", "gtk");
+    sameProperties.setProperty("osgi.os", "linux");
+    Properties otherProperties = new Properties();
+    otherProperties.setProperty("osgi.os", "win32");
+    otherProperties.setProperty("osgi.ws", "gtk");
+
+    String key = ResolvedStateCache.getKey(fingerprints, properties);
+    Assert.assertEquals(key, ResolvedStateCache.getKey(Arrays.asList("a", "b"), sameProperties));
+    Assert.assertFalse(key.equals(ResolvedStateCache.getKey(fingerprints, otherProperties)));
+    Assert.assertFalse(key.equals(ResolvedStateCache.getKey(Arrays.asList("b", "a"), properties)));
+    Assert.assertFalse(key.equals(ResolvedStateCache.getKey(Arrays.asList("ab"), properties)));
+  }
+
+  @Test
+  public void readAndWrite() {
+    ResolvedStateCache cache = new ResolvedStateCache();
+    Assert.assertNull(cache.readState("unknown"));
+
+    // a resolved state is stored...
+    TargetPlatformImpl targetPlatform = createTargetPlatform(new PlatformConfiguration());
+    BundleDescription user = targetPlatform.getResolvedBundle("user", new Version("1.0.0"));
+    Assert.assertTrue(user.isResolved());
+    File[] states = getStateDirectories();
+    Assert.assertEquals(1, states.length);
+
+    // ... and can be read again
+    State state = cache.readState(states[0].getName());
+    Assert.assertNotNull(state);
+    Assert.assertEquals(2, state.getBundles().length);
+    Assert.assertTrue(state.getBundle("user", new Version("1.0.0")).isResolved());
+  }
+
+  @Test
+  public void cacheHitAndMiss() {
+    TargetPlatformImpl first = createTargetPlatform(new PlatformConfiguration());
+    long userId = first.getResolvedBundle("user", new Version("1.0.0")).getBundleId();
+
+    // the new bundle descriptions have new ids, so the ids of the state tell whether it has been read from the cache
+    TargetPlatformImpl second = createTargetPlatform(new PlatformConfiguration());
+    BundleDescription user = second.getResolvedBundle("user", new Version("1.0.0"));
+    Assert.assertEquals(userId, user.getBundleId());
+    Assert.assertTrue(user.isResolved());
+    Assert.assertNotNull(user.getUserObject());
+    Assert.assertEquals(1, getStateDirectories().length);
+
+    // other platform properties invalidate the key
+    PlatformConfiguration configuration = new PlatformConfiguration();
+    configuration.setOperatingSystem("macosx");
+    TargetPlatformImpl third = createTargetPlatform(configuration);
+    Assert.assertTrue(userId != third.getResolvedBundle("user", new Version("1.0.0")).getBundleId());
+    Assert.assertEquals(2, getStateDirectories().length);
+  }
+
+  @Test
+  public void unresolvedBundlesOfCachedState() {
+    Assert.assertTrue(new File(this._pluginsDir, "lib.jar").delete());
+    createTargetPlatform(new PlatformConfiguration());
+
+    // the resolver errors aren't stored, but they are recreated
+    TargetPlatformImpl targetPlatform = createTargetPlatform(new PlatformConfiguration());
+    BundleDescription[] bundlesWithErrors = targetPlatform.getBundlesWithResolverErrors();
+    Assert.assertEquals(1, bundlesWithErrors.length);
+    Assert.assertEquals("user", bundlesWithErrors[0].getSymbolicName());
+  }
+
+  @Test
+  public void updateBundle() {
+    TargetPlatformImpl targetPlatform = createTargetPlatform(new PlatformConfiguration());
+    Assert.assertEquals(new Version("1.0.0"), getExporter(targetPlatform).getVersion());
+
+    // the dependent bundle is wired to the updated bundle
+    createLib("2.0.0", 10000);
+    targetPlatform.refresh();
+    Assert.assertNull(targetPlatform.getResolvedBundle("lib", new Version("1.0.0")));
+    BundleDescription lib = getExporter(targetPlatform);
+    Assert.assertEquals(new Version("2.0.0"), lib.getVersion());
+    Assert.assertTrue(lib.isResolved());
+    Assert.assertNotNull(lib.getUserObject());
+    Assert.assertEquals(0, targetPlatform.getBundlesWithResolverErrors().length);
+
+    // the incremental result isn't stored
+    Assert.assertEquals(1, getStateDirectories().length);
+  }
+
+  @Test
+  public void removeBundle() {
+    TargetPlatformImpl targetPlatform = createTargetPlatform(new PlatformConfiguration());
+    Assert.assertTrue(targetPlatform.getResolvedBundle("user", new Version("1.0.0")).isResolved());
+
+    // the dependent bundle can't be resolved anymore
+    Assert.assertTrue(new File(this._pluginsDir, "lib.jar").delete());
+    targetPlatform.refresh();
+    Assert.assertNull(targetPlatform.getResolvedBundle("lib", new Version("1.0.0")));
+    BundleDescription user = targetPlatform.getResolvedBundle("user", new Version("1.0.0"));
+    Assert.assertFalse(user.isResolved());
+    Assert.assertEquals(Arrays.asList(user), Arrays.asList(targetPlatform.getBundlesWithResolverErrors()));
+
+    // ... until it is added again
+    createLib("1.0.0", 20000);
+    targetPlatform.refresh();
+    Assert.assertTrue(targetPlatform.getResolvedBundle("user", new Version("1.0.0")).isResolved());
+    Assert.assertEquals(new Version("1.0.0"), getExporter(targetPlatform).getVersion());
+  }
+
+  /**
+   * <p>
+   * Creates the bundle 'lib' that exports the package 'p' in the given version. The time stamp of the jar file is
+   * moved by the given offset, so that a replaced jar file is recognized as modified.
+   * </p>
+   */
+  private void createLib(String version, long offset) {
+    JarBundleBuilder lib = new JarBundleBuilder("lib");
+    lib.withBundleManifest().withBundleVersion(version).withExportPackage("p;version=" + version);
+    File jarFile = lib.createIn(this._pluginsDir);
+    Assert.assertTrue(jarFile.setLastModified(jarFile.lastModified() + offset));
+  }
+
+  private TargetPlatformImpl createTargetPlatform(PlatformConfiguration configuration) {
+    BinaryBundleAndFeatureSet bundleSet = new BinaryBundleAndFeatureSet(this._location);
+    return new TargetPlatformImpl(null, new BundleAndFeatureSet[] { bundleSet }, configuration,
+        new File[] { this._location });
+  }
+
+  private BundleDescription getExporter(TargetPlatformImpl targetPlatform) {
+    BundleDescription user = targetPlatform.getResolvedBundle("user", new Version("1.0.0"));
+    ExportPackageDescription[] imports = user.getResolvedImports();
+    Assert.assertEquals(1, imports.length);
+    return imports[0].getExporter();
+  }
+
+  private File[] getStateDirectories() {
+    File[] result = Utilities.getCacheDir("resolvedstates").listFiles();
+    Arrays.sort(result);
+    return result;
+  }
+
+} /* ENDCLASS */
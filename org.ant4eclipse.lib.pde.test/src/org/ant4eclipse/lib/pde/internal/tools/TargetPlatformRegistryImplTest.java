@@ -0,0 +1,91 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.ant4eclipse.lib.core.configuration.Ant4EclipseConfiguration;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Pair;
+import org.ant4eclipse.lib.core.util.StringMap;
+import org.ant4eclipse.lib.pde.tools.PlatformConfiguration;
+import org.ant4eclipse.lib.pde.tools.TargetPlatformDefinition;
+import org.ant4eclipse.lib.pde.tools.TargetPlatformRegistry;
+import org.ant4eclipse.lib.pde.tools.TargetPlatformRegistryListener;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TargetPlatformRegistryImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  /** the registries the {@link RecordingListener} has been notified about */
+  private static final List<TargetPlatformRegistry> CHANGES = Collections
+                                                                .synchronizedList(new ArrayList<TargetPlatformRegistry>());
+
+  @Override
+  protected StringMap customAnt4EclipseConfiguration(StringMap properties) {
+    addDefaultAnt4EclipseConfiguration(properties);
+    properties.put(TargetPlatformRegistryImpl.PREFIX_LISTENER + ".recording", RecordingListener.class.getName());
+    return properties;
+  }
+
+  @Override
+  public void dispose() {
+    CHANGES.clear();
+    super.dispose();
+  }
+
+  @Test
+  public void listenersAreNotified() {
+    TargetPlatformRegistry registry = ServiceRegistryAccess.instance().getService(TargetPlatformRegistry.class);
+    Assert.assertTrue(CHANGES.isEmpty());
+
+    registry.addTargetPlatformDefinition("definition", new TargetPlatformDefinition());
+    registry.addPlatformConfiguration("configuration", new PlatformConfiguration());
+    registry.setCurrent(null);
+    registry.refreshAll();
+    registry.clear();
+    Assert.assertEquals(Collections.nCopies(5, registry), CHANGES);
+
+    // queries don't change the registry
+    registry.getTargetPlatformDefinitionIds();
+    registry.hasPlatformConfiguration("configuration");
+    Assert.assertEquals(5, CHANGES.size());
+  }
+
+  @Test
+  public void resolvedClasspathsAreInvalidated() {
+    // the jdt support is notified through the configuration of the pde support
+    List<String> listeners = new ArrayList<String>();
+    Ant4EclipseConfiguration configuration = ServiceRegistryAccess.instance().getService(
+        Ant4EclipseConfiguration.class);
+    for (Pair<String, String> listener : configuration.getAllProperties(TargetPlatformRegistryImpl.PREFIX_LISTENER)) {
+      listeners.add(listener.getSecond());
+    }
+    Assert.assertTrue(listeners.contains(ResolvedClasspathInvalidator.class.getName()));
+  }
+
+  /**
+   * <p>
+   * Records the registries it has been notified about.
+   * </p>
+   */
+  public static class RecordingListener implements TargetPlatformRegistryListener {
+
+    public void targetPlatformRegistryChanged(TargetPlatformRegistry registry) {
+      CHANGES.add(registry);
+    }
+  }
+
+} /* ENDCLASS */
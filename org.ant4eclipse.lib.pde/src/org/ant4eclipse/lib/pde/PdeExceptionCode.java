@@ -68,6 +68,10 @@ public class PdeExceptionCode extends ExceptionCode {
   @NLSMessage("File '%s' doesn't contain a feature manifest file and will be ignored.")
   public static PdeExceptionCode WARNING_FILE_DOES_NOT_CONTAIN_FEATURE_MANIFEST_FILE;
 
+  /** - */
+  @NLSMessage("The feature manifest file of '%s' couldn't be read and will be ignored: %s")
+  public static PdeExceptionCode WARNING_FEATURE_MANIFEST_FILE_NOT_READABLE;
+
   /** the ant attribute is not set */
   @NLSMessage("Attribute '%s' is not set.")
   public static PdeExceptionCode ANT_ATTRIBUTE_NOT_SET;
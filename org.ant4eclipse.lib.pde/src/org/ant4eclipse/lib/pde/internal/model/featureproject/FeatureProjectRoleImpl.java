@@ -29,6 +29,9 @@ import java.io.File;
  */
 public class FeatureProjectRoleImpl extends AbstractProjectRole implements FeatureProjectRole {
 
+  /** serialVersionUID */
+  private static final long      serialVersionUID = 1L;
+
   private EclipseProject         _project;
 
   /** the feature */
@@ -23,6 +23,8 @@ import java.util.jar.Manifest;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.JarFilePool;
 import org.ant4eclipse.lib.pde.PdeExceptionCode;
 import org.ant4eclipse.lib.pde.model.pluginproject.BundleSource;
 import org.ant4eclipse.lib.pde.model.pluginproject.Constants;
@@ -57,15 +59,89 @@ public class BundleDescriptionLoader {
     // TODO: handle projects with plugin.xml that may not have a MANIFEST-file
     Manifest manifest = new Manifest(new FileInputStream(manifestFile));
 
+    return loadFromPluginProject(project, manifest);
+  }
+
+  /**
+   * <p>
+   * Creates the {@link BundleDescription} for the given plug-in project from the given bundle manifest (e.g. the
+   * manifest of a project that has been restored from a workspace snapshot).
+   * </p>
+   * 
+   * @param project
+   *          the plug-in project
+   * @param manifest
+   *          the bundle manifest of the project
+   * @return the {@link BundleDescription}
+   * @throws BundleException
+   */
+  public static BundleDescription loadFromPluginProject(EclipseProject project, Manifest manifest)
+      throws BundleException {
+    Assure.notNull("project", project);
+    Assure.notNull("manifest", manifest);
+
     BundleDescription description = createBundleDescription(manifest, project.getFolder().getAbsolutePath(), project);
     BundleSource.getBundleSource(description);
     return description;
   }
 
+  /**
+   * <p>
+   * Creates the {@link BundleDescription} for the given plugin (a jar file or a directory) from its (cached) bundle
+   * manifest.
+   * </p>
+   * 
+   * @param manifest
+   *          the bundle manifest of the plugin
+   * @param file
+   *          the plugin
+   * @return the {@link BundleDescription}
+   * @throws BundleException
+   */
+  public static BundleDescription loadFromManifest(Manifest manifest, File file) throws BundleException {
+    Assure.notNull("manifest", manifest);
+    Assure.notNull("file", file);
+    return createBundleDescription(manifest, file.getAbsolutePath(), file);
+  }
+
+  /**
+   * <p>
+   * Creates a copy of the given {@link BundleDescription} with the given bundle id. The copy is created from the bundle
+   * manifest of the given description and shares its {@link BundleSource}.
+   * </p>
+   * 
+   * @param description
+   *          the {@link BundleDescription} to copy
+   * @param bundleId
+   *          the bundle id of the copy
+   * @return the copy
+   * @throws BundleException
+   */
+  public static BundleDescription copyBundleDescription(BundleDescription description, long bundleId)
+      throws BundleException {
+    Assure.notNull("description", description);
+    BundleSource bundleSource = BundleSource.getBundleSource(description);
+    BundleDescription result = _factory.createBundleDescription(null, convertManifest(bundleSource
+        .getBundleManifest()), description.getLocation(), bundleId);
+    result.setUserObject(bundleSource);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the next bundle id. Bundles might be loaded concurrently, so the counter is synchronized.
+   * </p>
+   * 
+   * @return the next bundle id.
+   */
+  private static synchronized long nextBundleId() {
+    return COUNTER++;
+  }
+
   private static BundleDescription createBundleDescription(Manifest manifest, String path, Object source)
       throws BundleException {
 
-    long counter = isSystemBundle(manifest) ? 0 : COUNTER++;
+    long counter = isSystemBundle(manifest) ? 0 : nextBundleId();
 
     Properties manifestProperties = convertManifest(manifest);
     BundleDescription bundleDescription = _factory.createBundleDescription(null, manifestProperties, path, counter);
@@ -107,15 +183,38 @@ public class BundleDescriptionLoader {
    * @throws FileParserException
    */
   public static BundleDescription parsePlugin(File file) {
+    Manifest manifest = readBundleManifest(file);
+    if (manifest == null) {
+      return null;
+    }
+    try {
+      return createBundleDescription(manifest, file.getAbsolutePath(), file);
+    } catch (BundleException e) {
+      throw new RuntimeException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * <p>
+   * Reads the bundle manifest of the given plugin (which might be a jar-file or a directory) without creating a
+   * {@link BundleDescription}, so that the bundle ids can be assigned later on in a well-defined order (see
+   * {@link #loadFromManifest(Manifest, File)}).
+   * </p>
+   * 
+   * @param file
+   *          the plugin
+   * @return the bundle manifest or <code>null</code> if the plugin doesn't contain a bundle manifest.
+   */
+  public static Manifest readBundleManifest(File file) {
     Assure.exists("file", file);
-    BundleDescription description = null;
+    Manifest manifest = null;
     try {
       if (file.isFile() && file.getName().endsWith(".jar")) {
-        description = parsePluginJarFile(file);
+        manifest = readPluginJarFileManifest(file);
       } else if (file.isDirectory()) {
-        description = parsePluginDirectory(file);
+        manifest = readPluginDirectoryManifest(file);
       }
-      if (description == null && A4ELogging.isDebuggingEnabled()) {
+      if (manifest == null && A4ELogging.isDebuggingEnabled()) {
         A4ELogging.debug(PdeExceptionCode.WARNING_FILE_DOES_NOT_CONTAIN_BUNDLE_MANIFEST_FILE.getMessage(),
             file.getAbsoluteFile());
       }
@@ -123,27 +222,30 @@ public class BundleDescriptionLoader {
       throw new RuntimeException(e.getMessage(), e);
     } catch (IOException e) {
       throw new RuntimeException(e.getMessage(), e);
-    } catch (BundleException e) {
-      throw new RuntimeException(e.getMessage(), e);
     }
 
-    return description;
+    return manifest;
   }
 
-  private static BundleDescription parsePluginJarFile(File file) {
+  private static Manifest readPluginJarFileManifest(File file) {
     Assure.isFile("file", file);
 
+    JarFilePool jarFilePool = ServiceRegistryAccess.instance().getService(JarFilePool.class);
+    JarFile jarFile = null;
+
     try {
-      // create jar file
-      JarFile jarFile = new JarFile(file);
+      // get the (shared) jar file
+      jarFile = jarFilePool.acquire(file);
 
       // support for plugins based on the osgi bundle model
       Manifest manifest = jarFile.getManifest();
       if ((manifest != null) && isBundleManifest(manifest)) {
-        return createBundleDescription(manifest, file.getAbsolutePath(), file);
+        return manifest;
       }
     } catch (Exception e) {
       throw new RuntimeException("Exception while parsing plugin jar '" + file.getName() + "'!", e);
+    } finally {
+      jarFilePool.release(jarFile);
     }
 
     // throw FileParserException since jar is no valid plugin jar
@@ -154,18 +256,16 @@ public class BundleDescriptionLoader {
   }
 
   /**
-   * Returns the plugin descriptor for the given plugin directory.
+   * Returns the bundle manifest of the given plugin directory.
    * 
    * @param directory
    *          the plugin directory.
-   * @return the plugin descriptor for the given plugin directory.
+   * @return the bundle manifest of the given plugin directory.
    * @throws FileParserException
    * @throws IOException
    * @throws FileNotFoundException
-   * @throws BundleException
    */
-  private static BundleDescription parsePluginDirectory(File directory) throws FileNotFoundException, IOException,
-      BundleException {
+  private static Manifest readPluginDirectoryManifest(File directory) throws FileNotFoundException, IOException {
 
     Assure.isDirectory("directory", directory);
 
@@ -175,7 +275,7 @@ public class BundleDescriptionLoader {
       Manifest manifest = new Manifest(new FileInputStream(bundleManifestFile));
 
       if (isBundleManifest(manifest)) {
-        return createBundleDescription(manifest, directory.getAbsolutePath(), directory);
+        return manifest;
       }
     }
 
@@ -13,14 +13,22 @@ package org.ant4eclipse.lib.pde.internal.model.pluginproject;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.JarFilePool;
+import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.pde.PdeExceptionCode;
 import org.ant4eclipse.lib.pde.internal.tools.FeatureDescription;
 import org.ant4eclipse.lib.pde.model.featureproject.FeatureManifest;
 import org.ant4eclipse.lib.pde.model.featureproject.FeatureManifestParser;
 import org.ant4eclipse.lib.pde.model.pluginproject.Constants;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -45,10 +53,16 @@ public class FeatureDescriptionLoader {
   public static FeatureDescription parseFeature(File file) {
     Assure.exists("file", file);
 
-    if (file.isFile() && file.getName().endsWith(".jar")) {
-      return parseFeatureJarFile(file);
-    } else if (file.isDirectory()) {
-      return parseFeatureDirectory(file);
+    byte[] featureManifest = null;
+    try {
+      featureManifest = readFeatureManifest(file);
+    } catch (IOException e) {
+      A4ELogging.warn(PdeExceptionCode.WARNING_FEATURE_MANIFEST_FILE_NOT_READABLE.getMessage(), file
+          .getAbsoluteFile(), e.getMessage());
+      return null;
+    }
+    if (featureManifest != null) {
+      return parseFeature(file, featureManifest);
     }
 
     if (A4ELogging.isDebuggingEnabled()) {
@@ -62,72 +76,88 @@ public class FeatureDescriptionLoader {
 
   /**
    * <p>
-   * Parses a {@link FeatureDescription} from a given feature jar file.
+   * Reads the content of the feature manifest (<code>feature.xml</code>) of the given feature jar file or directory.
    * </p>
    * 
    * @param file
-   *          the given feature jar file.
-   * @return the {@link FeatureDescription}
+   *          the feature file
+   * @return the content of the feature manifest or <code>null</code> if the file doesn't contain a feature manifest.
+   * @throws IOException
+   *           if the feature jar file or the feature manifest couldn't be read
    */
-  private static FeatureDescription parseFeatureJarFile(File file) {
-    Assure.isFile("file", file);
+  public static byte[] readFeatureManifest(File file) throws IOException {
+    Assure.exists("file", file);
+
+    if (file.isDirectory()) {
+      File featureManifestFile = new File(file, Constants.FEATURE_MANIFEST);
+      if (!featureManifestFile.isFile()) {
+        return null;
+      }
+      InputStream inputStream = null;
+      try {
+        inputStream = new FileInputStream(featureManifestFile);
+        return readContent(inputStream);
+      } finally {
+        Utilities.close((Closeable) inputStream);
+      }
+    } else if (!file.getName().endsWith(".jar")) {
+      return null;
+    }
+
+    JarFilePool jarFilePool = ServiceRegistryAccess.instance().getService(JarFilePool.class);
+    JarFile jarFile = null;
+    InputStream inputStream = null;
 
     try {
-      // create jar file
-      JarFile jarFile = new JarFile(file);
+      // get the (shared) jar file
+      jarFile = jarFilePool.acquire(file);
 
       // get the feature manifest
       ZipEntry zipEntry = jarFile.getEntry(Constants.FEATURE_MANIFEST);
-
-      // return null if no feature manifest
       if (zipEntry == null) {
         return null;
       }
 
-      // parse the feature manifest
-      FeatureManifest featureManifest = FeatureManifestParser.parseFeature(jarFile.getInputStream(zipEntry));
-
-      // return the feature description
-      return new FeatureDescription(file, featureManifest);
+      inputStream = jarFile.getInputStream(zipEntry);
+      return readContent(inputStream);
 
-    } catch (Exception e) {
-      // throw new RuntimeException();
-      // TODO: handle exception
-      return null;
+    } finally {
+      Utilities.close((Closeable) inputStream);
+      jarFilePool.release(jarFile);
     }
   }
 
   /**
    * <p>
-   * Parses the feature description for the given (feature) directory. The directory must contain a valid
-   * <code>feature.xml</code> file, otherwise this method returns <code>null</code>.
+   * Reads the content of the given stream.
+   * </p>
+   */
+  private static byte[] readContent(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    Utilities.copy(inputStream, result, new byte[8192]);
+    return result.toByteArray();
+  }
+
+  /**
+   * <p>
+   * Parses the {@link FeatureDescription} of the given feature jar file or directory from the (cached) content of its
+   * feature manifest.
    * </p>
    * 
-   * @param directory
-   *          the feature directory
-   * @return the {@link FeatureDescription} or <code>null</code>, if the directory doesn't contain a
-   *         <code>feature.xml</code> file, the method returns <code>null</code>.
+   * @param file
+   *          the feature file
+   * @param featureManifest
+   *          the content of the feature manifest
+   * @return the {@link FeatureDescription} or <code>null</code> if the feature manifest couldn't be parsed.
    */
-  private static FeatureDescription parseFeatureDirectory(File directory) {
-    Assure.isDirectory("directory", directory);
+  public static FeatureDescription parseFeature(File file, byte[] featureManifest) {
+    Assure.notNull("file", file);
+    Assure.notNull("featureManifest", featureManifest);
 
     try {
-      // create jar file
-      File featureManifestFile = new File(directory, Constants.FEATURE_MANIFEST);
-
-      // return null if no feature manifest
-      if (!featureManifestFile.exists() || !featureManifestFile.isFile()) {
-        return null;
-      }
-
-      // parse the feature manifest
-      FeatureManifest featureManifest = FeatureManifestParser.parseFeature(new FileInputStream(featureManifestFile));
-
-      // return the feature description
-      return new FeatureDescription(directory, featureManifest);
-
+      FeatureManifest manifest = FeatureManifestParser.parseFeature(new ByteArrayInputStream(featureManifest));
+      return new FeatureDescription(file, manifest);
     } catch (Exception e) {
-      // throw new RuntimeException(e.getMessage(), e);
       // TODO: handle exception
       return null;
     }
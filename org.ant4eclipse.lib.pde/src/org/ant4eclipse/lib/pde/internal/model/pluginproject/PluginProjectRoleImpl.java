@@ -13,32 +13,52 @@ package org.ant4eclipse.lib.pde.internal.model.pluginproject;
 
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.pde.model.buildproperties.PluginBuildProperties;
+import org.ant4eclipse.lib.pde.model.pluginproject.BundleSource;
 import org.ant4eclipse.lib.pde.model.pluginproject.PluginProjectRole;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 import org.ant4eclipse.lib.platform.model.resource.role.AbstractProjectRole;
 import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.osgi.framework.BundleException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.jar.Manifest;
 
 /**
  * <p>
  * Implements the eclipse plug-in project role. The plug-in project role contains the BundleDescription and the build
  * properties.
  * </p>
+ * <p>
+ * A serialized role (see <code>WorkspaceSnapshot</code>) contains the bundle manifest instead of the
+ * {@link BundleDescription}. The {@link BundleDescription} is created from the manifest when it is requested for the
+ * first time.
+ * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public class PluginProjectRoleImpl extends AbstractProjectRole implements PluginProjectRole {
 
+  /** serialVersionUID */
+  private static final long           serialVersionUID         = 1L;
+
   /** PLUGIN_NATURE */
-  public static final String    PLUGIN_NATURE            = "org.eclipse.pde.PluginNature";
+  public static final String          PLUGIN_NATURE            = "org.eclipse.pde.PluginNature";
 
   /** PLUGIN_PROJECT_ROLE_NAME */
-  public static final String    PLUGIN_PROJECT_ROLE_NAME = "PluginProjectRole";
+  public static final String          PLUGIN_PROJECT_ROLE_NAME = "PluginProjectRole";
 
   /** the BundleDescription of the underlying plug-in project */
-  private BundleDescription     _bundleDescription;
+  private transient BundleDescription _bundleDescription;
+
+  /** the bundle manifest of a deserialized role, until the BundleDescription has been created */
+  private transient Manifest          _bundleManifest;
 
   /** the build properties */
-  private PluginBuildProperties _buildProperties;
+  private PluginBuildProperties       _buildProperties;
 
   /**
    * <p>
@@ -85,7 +105,16 @@ public class PluginProjectRoleImpl extends AbstractProjectRole implements Plugin
   /**
    * {@inheritDoc}
    */
-  public BundleDescription getBundleDescription() {
+  public synchronized BundleDescription getBundleDescription() {
+    if (this._bundleDescription == null) {
+      try {
+        this._bundleDescription = BundleDescriptionLoader.loadFromPluginProject(getEclipseProject(),
+            this._bundleManifest);
+      } catch (BundleException e) {
+        throw new RuntimeException(e.getMessage(), e);
+      }
+      this._bundleManifest = null;
+    }
     return this._bundleDescription;
   }
 
@@ -110,4 +139,32 @@ public class PluginProjectRoleImpl extends AbstractProjectRole implements Plugin
     this._buildProperties = buildProperties;
   }
 
+  /**
+   * <p>
+   * Writes the bundle manifest instead of the (not serializable) {@link BundleDescription}.
+   * </p>
+   */
+  private synchronized void writeObject(ObjectOutputStream output) throws IOException {
+    output.defaultWriteObject();
+    Manifest manifest = this._bundleDescription != null ? BundleSource.getBundleSource(this._bundleDescription)
+        .getBundleManifest() : this._bundleManifest;
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    manifest.write(bytes);
+    output.writeInt(bytes.size());
+    output.write(bytes.toByteArray());
+  }
+
+  /**
+   * <p>
+   * Reads the bundle manifest. The {@link BundleDescription} can't be created yet, as the project this role belongs to
+   * might not have been read completely.
+   * </p>
+   */
+  private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+    input.defaultReadObject();
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    this._bundleManifest = new Manifest(new ByteArrayInputStream(bytes));
+  }
+
 }
@@ -11,14 +11,18 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pde.internal.tools;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphExecutor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexHandler;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.util.StopWatch;
-import org.ant4eclipse.lib.pde.model.featureproject.FeatureManifest;
 import org.ant4eclipse.lib.pde.tools.PdeBuildHelper;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.osgi.framework.Version;
@@ -27,23 +31,45 @@ import org.osgi.framework.Version;
  * <p>
  * Abstract base implementation for all {@link BundleAndFeatureSet BundleAndFeatureSets}.
  * </p>
+ * <p>
+ * Implementations may read their bundles and features concurrently using
+ * {@link #executeConcurrently(List, VertexHandler)}. The number of threads can be configured using the system property
+ * <code>ant4eclipse.bundleScanThreads</code> (defaults to the number of available processors, <code>1</code> reads
+ * everything sequentially).
+ * </p>
+ * <p>
+ * The bundles and features are indexed by their symbolic name (or feature id). The entries of each index are sorted by
+ * descending version, so the highest version can be looked up without iterating over all bundles and features.
+ * </p>
  * 
  * @author Nils Hartmann (nils@nilshartmann.net)
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
 public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet {
 
+  /** the maximum number of threads used to read bundles and features */
+  static final int                              THREAD_COUNT   = Math.max(1, Integer.getInteger(
+                                                                   "ant4eclipse.bundleScanThreads",
+                                                                   Runtime.getRuntime().availableProcessors())
+                                                                   .intValue());
+
   /** the list that contains all the bundle descriptions */
-  private List<BundleDescription>  _bundleDescriptionList;
+  private List<BundleDescription>               _bundleDescriptionList;
 
   /** the list that contains all the feature descriptions */
-  private List<FeatureDescription> _featureDescriptionList;
+  private List<FeatureDescription>              _featureDescriptionList;
+
+  /** the bundle descriptions per symbolic name, sorted by descending version */
+  private Map<String, List<BundleDescription>>  _bundleIndex;
+
+  /** the feature descriptions per feature id, in the order they have been added */
+  private Map<String, List<FeatureDescription>> _featureIndex;
 
   /** indicates whether or not the platform is initialized */
-  private boolean                  _isInitialised = false;
+  private boolean                               _isInitialised = false;
 
   /** a description of this BundleAndFeatureSet */
-  private String                   _description;
+  private String                                _description;
 
   /**
    * <p>
@@ -64,6 +90,10 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
 
     // create the feature description list
     this._featureDescriptionList = new LinkedList<FeatureDescription>();
+
+    // create the indices
+    this._bundleIndex = new HashMap<String, List<BundleDescription>>();
+    this._featureIndex = new HashMap<String, List<FeatureDescription>>();
   }
 
   /**
@@ -77,7 +107,7 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
   /**
    * {@inheritDoc}
    */
-  public final void initialize() {
+  public final synchronized void initialize() {
 
     // return if already initialized
     if (this._isInitialised) {
@@ -90,6 +120,17 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     this._isInitialised = true;
   }
 
+  /**
+   * <p>
+   * Returns <code>true</code> if this set has been initialized.
+   * </p>
+   * 
+   * @return <code>true</code> if this set has been initialized
+   */
+  final synchronized boolean isInitialised() {
+    return this._isInitialised;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -100,13 +141,19 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    // iterate over feature list
-    for (FeatureDescription featureDescription : this._featureDescriptionList) {
+    // get the features with the given id
+    List<FeatureDescription> featureDescriptions = this._featureIndex.get(featureId);
+    if (featureDescriptions == null) {
+      return null;
+    }
+
+    // iterate over the features with the given id (in the order they have been added, so the first match wins)
+    String contextQualifier = PdeBuildHelper.getResolvedContextQualifier();
+    for (FeatureDescription featureDescription : featureDescriptions) {
 
       // return if match
-      if (featureDescription.getFeatureManifest().getId().equals(featureId)
-          && PdeBuildHelper.resolveVersion(featureDescription.getFeatureManifest().getVersion(),
-              PdeBuildHelper.getResolvedContextQualifier()).equals(version)) {
+      if (PdeBuildHelper.resolveVersion(featureDescription.getFeatureManifest().getVersion(), contextQualifier).equals(
+          version)) {
 
         return featureDescription;
       }
@@ -125,29 +172,20 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    // result
-    FeatureDescription result = null;
-
-    // iterate over feature descriptions
-    for (FeatureDescription featureDescription : this._featureDescriptionList) {
-
-      // get the feature manifest
-      FeatureManifest featureManifest = featureDescription.getFeatureManifest();
+    // get the features with the given id
+    List<FeatureDescription> featureDescriptions = this._featureIndex.get(featureId);
+    if (featureDescriptions == null) {
+      return null;
+    }
 
-      // if match -> set as result
-      if (featureManifest.getId().equals(featureId)) {
-        if (result == null) {
-          result = featureDescription;
-        } else {
-          // the current feature description has a higher version, so use this one
-          if (result.getFeatureManifest().getVersion().compareTo(featureDescription.getFeatureManifest().getVersion()) < 0) {
-            result = featureDescription;
-          }
-        }
+    // the first feature with the highest version
+    FeatureDescription result = featureDescriptions.get(0);
+    for (FeatureDescription featureDescription : featureDescriptions) {
+      Version resultVersion = result.getFeatureManifest().getVersion();
+      if (resultVersion.compareTo(featureDescription.getFeatureManifest().getVersion()) < 0) {
+        result = featureDescription;
       }
     }
-
-    // return result
     return result;
   }
 
@@ -160,27 +198,9 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    // result
-    BundleDescription result = null;
-
-    for (BundleDescription bundleDescription : this._bundleDescriptionList) {
-
-      // if match -> set as result
-      if (bundleDescription.getSymbolicName().equals(bundleid)) {
-        if (result == null) {
-          result = bundleDescription;
-        } else {
-          // the current feature description has a higher version, so use this one
-          if (result.getVersion().compareTo(bundleDescription.getVersion()) < 0) {
-            result = bundleDescription;
-          }
-        }
-      }
-    }
-
-    // return result
-    return result;
-
+    // the bundle with the highest version is the first one
+    List<BundleDescription> bundleDescriptions = this._bundleIndex.get(bundleid);
+    return bundleDescriptions != null ? bundleDescriptions.get(0) : null;
   }
 
   /**
@@ -203,19 +223,10 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     // initialize if necessary
     initialize();
 
-    Iterator<BundleDescription> iterator = this._bundleDescriptionList.iterator();
-
-    while (iterator.hasNext()) {
-      BundleDescription description = iterator.next();
-      if (symbolicName.equals(description.getSymbolicName())
-      /*
-       * TODO || "system.bundle".equals(symbolicName) && description.isSystemBundle()
-       */) {
-        return true;
-      }
-    }
-
-    return false;
+    /*
+     * TODO || "system.bundle".equals(symbolicName) && description.isSystemBundle()
+     */
+    return this._bundleIndex.containsKey(symbolicName);
   }
 
   /**
@@ -229,6 +240,21 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
   protected final void addBundleDescription(BundleDescription bundleDescription) {
     Assure.notNull("bundleDescription", bundleDescription);
     this._bundleDescriptionList.add(bundleDescription);
+
+    // add the bundle to the index
+    if (bundleDescription.getSymbolicName() != null) {
+      List<BundleDescription> bundleDescriptions = this._bundleIndex.get(bundleDescription.getSymbolicName());
+      if (bundleDescriptions == null) {
+        bundleDescriptions = new ArrayList<BundleDescription>(1);
+        this._bundleIndex.put(bundleDescription.getSymbolicName(), bundleDescriptions);
+      }
+      int index = 0;
+      while ((index < bundleDescriptions.size())
+          && (bundleDescriptions.get(index).getVersion().compareTo(bundleDescription.getVersion()) >= 0)) {
+        index++;
+      }
+      bundleDescriptions.add(index, bundleDescription);
+    }
   }
 
   /**
@@ -242,6 +268,60 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
   protected final void addFeaturesDescription(FeatureDescription featureDescription) {
     Assure.notNull("featureDescription", featureDescription);
     this._featureDescriptionList.add(featureDescription);
+
+    // add the feature to the index
+    String featureId = featureDescription.getFeatureManifest().getId();
+    List<FeatureDescription> featureDescriptions = this._featureIndex.get(featureId);
+    if (featureDescriptions == null) {
+      featureDescriptions = new ArrayList<FeatureDescription>(1);
+      this._featureIndex.put(featureId, featureDescriptions);
+    }
+    featureDescriptions.add(featureDescription);
+  }
+
+  /**
+   * <p>
+   * Executes the given handler for each of the given items using a bounded pool of threads. The handler might be called
+   * concurrently, so it must not add bundles or features to this set directly. Instead the results should be collected
+   * per item and added afterwards in the order of the items, so the content of this set doesn't depend on the
+   * scheduling of the threads. A failure of the handler is rethrown unchanged.
+   * </p>
+   * 
+   * @param items
+   *          the items to handle
+   * @param handler
+   *          the handler
+   */
+  static <T> void executeConcurrently(List<T> items, final VertexHandler<T> handler) {
+    Assure.notNull("items", items);
+    Assure.notNull("handler", handler);
+
+    if (items.isEmpty()) {
+      return;
+    }
+
+    // the executor handles each vertex only once, so equal items are handled by index
+    final List<T> list = new ArrayList<T>(items);
+    List<Integer> indices = new ArrayList<Integer>(list.size());
+    for (int i = 0; i < list.size(); i++) {
+      indices.add(Integer.valueOf(i));
+    }
+
+    try {
+      new DependencyGraphExecutor<Integer>(THREAD_COUNT).execute(indices, null, new VertexHandler<Integer>() {
+        public void handleVertex(Integer index) throws Exception {
+          handler.handleVertex(list.get(index.intValue()));
+        }
+      });
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+      throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+    }
   }
 
   /**
@@ -249,7 +329,7 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
    * Refreshes the {@link BundleAndFeatureSet}.
    * </p>
    */
-  public final void refresh() {
+  public final synchronized void refresh() {
 
     // debug
     A4ELogging.info("Trying to read bundles and feature from '%s'.", this._description);
@@ -264,7 +344,11 @@ public abstract class AbstractBundleAndFeatureSet implements BundleAndFeatureSet
     this._bundleDescriptionList.clear();
 
     // clear list of features...
-    this._bundleDescriptionList.clear();
+    this._featureDescriptionList.clear();
+
+    // clear the indices...
+    this._bundleIndex.clear();
+    this._featureIndex.clear();
 
     // read all bundles and features...
     readBundlesAndFeatures();
@@ -12,19 +12,30 @@
 package org.ant4eclipse.lib.pde.internal.tools;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.dependencygraph.VertexHandler;
 import org.ant4eclipse.lib.pde.internal.model.pluginproject.BundleDescriptionLoader;
-import org.ant4eclipse.lib.pde.internal.model.pluginproject.FeatureDescriptionLoader;
 import org.ant4eclipse.lib.pde.model.link.LinkFile;
 import org.ant4eclipse.lib.pde.model.link.LinkFileFactory;
-import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.osgi.framework.BundleException;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.jar.Manifest;
 
 /**
  * <p>
  * A {@link BundleAndFeatureSet} implementation that represent an eclipse target platform containing binary bundles and
  * features.
  * </p>
+ * <p>
+ * The bundle manifests and feature manifests are read through a {@link PluginDirectoryCache}, so only plugins and
+ * features that have been changed since the last scan have to be opened. The plugins and features of all directories
+ * are read concurrently. The bundle descriptions (and so their bundle ids) are created afterwards in the order of the
+ * directories and the file names, so they don't depend on the scheduling of the threads.
+ * </p>
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  * @author Nils Hartmann (nils@nilshartmann.net)
@@ -40,6 +51,9 @@ public class BinaryBundleAndFeatureSet extends AbstractBundleAndFeatureSet {
   /** the location of the platform against which the workspace plug-ins will be compiled and tested */
   private File               _targetPlatformLocation;
 
+  /** the result of a {@link #scan(List)} that hasn't been added yet, guarded by <code>this</code> */
+  private Scan               _scan;
+
   /**
    * <p>
    * Creates a new instance of type BinaryBundleAndFeatureSet.
@@ -54,49 +68,94 @@ public class BinaryBundleAndFeatureSet extends AbstractBundleAndFeatureSet {
     this._targetPlatformLocation = targetPlatformLocation;
   }
 
+  /**
+   * <p>
+   * Reads the plugins and features of the given sets that haven't been initialized yet on a single pool of threads. The
+   * sets can be initialized afterwards without reading their plugins and features again.
+   * </p>
+   * 
+   * @param bundleAndFeatureSets
+   *          the sets
+   */
+  static void scan(List<BinaryBundleAndFeatureSet> bundleAndFeatureSets) {
+    Assure.notNull("bundleAndFeatureSets", bundleAndFeatureSets);
+
+    List<BinaryBundleAndFeatureSet> sets = new ArrayList<BinaryBundleAndFeatureSet>();
+    List<Scan> scans = new ArrayList<Scan>();
+    List<Entry> entries = new ArrayList<Entry>();
+    for (BinaryBundleAndFeatureSet set : bundleAndFeatureSets) {
+      if (!set.isInitialised() && !sets.contains(set)) {
+        Scan scan = set.collectEntries();
+        sets.add(set);
+        scans.add(scan);
+        entries.addAll(scan._entries);
+      }
+    }
+
+    executeConcurrently(entries, READ_ENTRY);
+
+    for (int i = 0; i < sets.size(); i++) {
+      BinaryBundleAndFeatureSet set = sets.get(i);
+      synchronized (set) {
+        set._scan = scans.get(i);
+      }
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   protected void readBundlesAndFeatures() {
 
-    // 1. read plugin from target location
-    // TODO: ERROR-HANDLING...
-    File pluginsDirectory = new File(this._targetPlatformLocation, DEFAULT_PLUGIN_DIRECTORY);
-    if (!pluginsDirectory.exists()) {
-      pluginsDirectory = this._targetPlatformLocation;
+    // read the plugins and features concurrently (unless this has been done by scan(List) already)...
+    Scan scan = null;
+    synchronized (this) {
+      scan = this._scan;
+      this._scan = null;
     }
-    if ((pluginsDirectory != null) && pluginsDirectory.exists()) {
-      File[] plugins = pluginsDirectory.listFiles();
-      for (File plugin : plugins) {
-        BundleDescription bundleDescription = BundleDescriptionLoader.parsePlugin(plugin);
-        if (bundleDescription != null) {
-          addBundleDescription(bundleDescription);
-        }
-      }
+    if (scan == null) {
+      scan = collectEntries();
+      executeConcurrently(scan._entries, READ_ENTRY);
     }
 
-    // 2. read plugins from linked directories in target location
-    if (this._targetPlatformLocation != null) {
-      LinkFile[] linkFiles = LinkFileFactory.getLinkFiles(this._targetPlatformLocation);
-      for (LinkFile file : linkFiles) {
-        if (file.isValidDestination()) {
-          File pluginsDirectory1 = file.getPluginsDirectory();
-          if ((pluginsDirectory1 != null) && pluginsDirectory1.exists()) {
-            File[] plugins = pluginsDirectory1.listFiles();
-            for (File plugin : plugins) {
-              BundleDescription bundleDescription = BundleDescriptionLoader.parsePlugin(plugin);
-              if (bundleDescription != null) {
-                addBundleDescription(bundleDescription);
-              }
-            }
-          }
+    // ... and add them in the order of the directories and file names
+    for (Entry entry : scan._entries) {
+      if (entry._bundleManifest != null) {
+        try {
+          addBundleDescription(BundleDescriptionLoader.loadFromManifest(entry._bundleManifest, entry._file));
+        } catch (BundleException e) {
+          throw new RuntimeException(e.getMessage(), e);
         }
+      } else if (entry._featureDescription != null) {
+        addFeaturesDescription(entry._featureDescription);
       }
     }
 
-    // 1. read features from target location
+    for (PluginDirectoryCache cache : scan._caches) {
+      cache.save();
+    }
+  }
+
+  /**
+   * <p>
+   * Collects the plugins and features of the target location and of its link files.
+   * </p>
+   * 
+   * @return the entries that have to be read
+   */
+  private Scan collectEntries() {
+
+    List<File> pluginDirectories = new LinkedList<File>();
+    List<File> featureDirectories = new LinkedList<File>();
+
+    // 1. read plugins and features from target location
     // TODO: ERROR-HANDLING...
+    File pluginsDirectory = new File(this._targetPlatformLocation, DEFAULT_PLUGIN_DIRECTORY);
+    if (!pluginsDirectory.exists()) {
+      pluginsDirectory = this._targetPlatformLocation;
+    }
+    pluginDirectories.add(pluginsDirectory);
 
     // try to search features in the 'features' directory
     File featuresDirectory = new File(this._targetPlatformLocation, DEFAULT_FEATURE_DIRECTORY);
@@ -105,41 +164,120 @@ public class BinaryBundleAndFeatureSet extends AbstractBundleAndFeatureSet {
     if (!featuresDirectory.exists()) {
       featuresDirectory = this._targetPlatformLocation;
     }
+    featureDirectories.add(featuresDirectory);
 
-    //
-    readFeature(featuresDirectory);
-
-    // 2. read plugins from linked directories in target location
-    if (this._targetPlatformLocation != null) {
-
-      LinkFile[] linkFiles = LinkFileFactory.getLinkFiles(this._targetPlatformLocation);
-
-      for (LinkFile linkFile : linkFiles) {
-
-        if (linkFile.isValidDestination()) {
-          readFeature(linkFile.getFeaturesDirectory());
-        }
+    // 2. read plugins and features from linked directories in target location
+    LinkFile[] linkFiles = LinkFileFactory.getLinkFiles(this._targetPlatformLocation);
+    for (LinkFile linkFile : linkFiles) {
+      if (linkFile.isValidDestination()) {
+        pluginDirectories.add(linkFile.getPluginsDirectory());
+        featureDirectories.add(linkFile.getFeaturesDirectory());
       }
     }
+
+    // 3. collect the plugins and features of all directories
+    Scan result = new Scan();
+    for (File directory : pluginDirectories) {
+      addEntries(directory, false, result);
+    }
+    for (File directory : featureDirectories) {
+      addEntries(directory, true, result);
+    }
+    return result;
   }
 
   /**
    * <p>
+   * Adds an entry for each plugin or feature (jar files and directories) of the given directory, sorted by their names.
    * </p>
    * 
    * @param directory
+   *          the plugin or feature directory, might be <code>null</code>
+   * @param features
+   *          <code>true</code> if the directory contains features
+   * @param scan
+   *          receives the entries and the cache of the directory
    */
-  private void readFeature(File directory) {
+  private void addEntries(File directory, boolean features, Scan scan) {
 
-    if (directory == null || !directory.exists()) {
+    if (directory == null || !directory.isDirectory()) {
       return;
     }
 
-    for (File feature : directory.listFiles()) {
-      FeatureDescription featureDescription = FeatureDescriptionLoader.parseFeature(feature);
+    PluginDirectoryCache cache = new PluginDirectoryCache(directory, features);
+    scan._caches.add(cache);
+
+    File[] files = directory.listFiles();
+    Arrays.sort(files);
+    for (File file : files) {
+      scan._entries.add(new Entry(file, features, cache));
+    }
+  }
+
+  /** reads the manifest of an entry */
+  private static final VertexHandler<Entry> READ_ENTRY = new VertexHandler<Entry>() {
+                                                         public void handleVertex(Entry entry) {
+                                                           entry.read();
+                                                         }
+                                                       };
+
+  /**
+   * <p>
+   * The plugins and features of a target location.
+   * </p>
+   */
+  private static final class Scan {
+
+    /** the plugins and features in the order they are added */
+    private List<Entry>                _entries = new ArrayList<Entry>();
+
+    /** the caches of the directories */
+    private List<PluginDirectoryCache> _caches  = new LinkedList<PluginDirectoryCache>();
+  }
+
+  /**
+   * <p>
+   * A plugin or feature that has to be read.
+   * </p>
+   */
+  private static final class Entry {
+
+    /** the jar file or directory */
+    private File                 _file;
+
+    /** <code>true</code> if the entry is a feature */
+    private boolean              _feature;
+
+    /** the cache of the directory that contains the entry */
+    private PluginDirectoryCache _cache;
+
+    /** the bundle manifest, <code>null</code> if the entry isn't a bundle (or hasn't been read yet) */
+    private Manifest             _bundleManifest;
+
+    /** the feature description, <code>null</code> if the entry isn't a feature (or hasn't been read yet) */
+    private FeatureDescription   _featureDescription;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link Entry}.
+     * </p>
+     */
+    public Entry(File file, boolean feature, PluginDirectoryCache cache) {
+      this._file = file;
+      this._feature = feature;
+      this._cache = cache;
+    }
 
-      if (featureDescription != null) {
-        addFeaturesDescription(featureDescription);
+    /**
+     * <p>
+     * Reads the bundle manifest or feature description of this entry.
+     * </p>
+     */
+    public void read() {
+      if (this._feature) {
+        this._featureDescription = this._cache.getFeatureDescription(this._file);
+      } else {
+        this._bundleManifest = this._cache.getBundleManifest(this._file);
       }
     }
   }
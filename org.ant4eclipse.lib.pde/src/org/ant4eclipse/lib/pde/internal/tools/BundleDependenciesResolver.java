@@ -252,7 +252,7 @@ public class BundleDependenciesResolver {
     }
     // jar -> JaredBundleLayoutResolver
     else {
-      return new JaredBundleLayoutResolver(location, ExpansionDirectory.getExpansionDir());
+      return new JaredBundleLayoutResolver(location, ExpansionDirectory.getBundleExpansionDir());
     }
   }
 
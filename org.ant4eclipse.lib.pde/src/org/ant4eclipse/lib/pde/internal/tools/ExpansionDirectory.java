@@ -39,9 +39,38 @@ public class ExpansionDirectory {
   /** skip removal of expansion dir when ant4eclipse ends */
   public static final String EXPANSION_DIRECTORY_DONOTREMOVE_ON_EXIT_PROPERTY_NAME = "a4e.expansion.directory.do-not-remove-on-exit";
 
+  /** disables the persistent cache for expanded bundles (they are expanded to the expansion directory instead) */
+  public static final String DISABLE_BUNDLE_EXPANSION_CACHE_PROPERTY_NAME          = "ant4eclipse.disableBundleExpansionCache";
+
+  /** the name of the persistent cache for expanded bundles */
+  public static final String BUNDLE_EXPANSION_CACHE_NAME                           = "expandedbundles";
+
   /** the expansion directory */
   private static File        expansionDir                                          = null;
 
+  /**
+   * <p>
+   * Returns the directory the class path entries of jared bundles are expanded to (see
+   * {@link org.ant4eclipse.lib.core.osgi.JaredBundleLayoutResolver}). Expanded bundles are addressed by their content, so
+   * by default they are kept in a persistent cache (see {@link Utilities#getCacheDir(String)}) that is shared by all
+   * builds. If the cache is disabled using the system property <code>ant4eclipse.disableBundleExpansionCache</code>,
+   * the expansion directory is used.
+   * </p>
+   * <p>
+   * Expanded bundles that haven't been used for 30 days (see the system property
+   * <code>ant4eclipse.bundleExpansionCacheMaxAge</code>) are removed from the cache. To purge it completely, delete the
+   * directory <code>expandedbundles</code> within the ant4eclipse cache directory while no build is running.
+   * </p>
+   * 
+   * @return the directory the class path entries of jared bundles are expanded to.
+   */
+  public static File getBundleExpansionDir() {
+    if (!Boolean.getBoolean(DISABLE_BUNDLE_EXPANSION_CACHE_PROPERTY_NAME)) {
+      return Utilities.getCacheDir(BUNDLE_EXPANSION_CACHE_NAME);
+    }
+    return getExpansionDir();
+  }
+
   /**
    * <p>
    * Returns the expansion directory.
@@ -0,0 +1,481 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.pde.PdeExceptionCode;
+import org.ant4eclipse.lib.pde.internal.model.pluginproject.BundleDescriptionLoader;
+import org.ant4eclipse.lib.pde.internal.model.pluginproject.FeatureDescriptionLoader;
+import org.ant4eclipse.lib.pde.model.pluginproject.Constants;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.osgi.framework.BundleException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * <p>
+ * Caches the bundle manifests (or feature manifests) of all plugins (or features) in a directory of a target platform,
+ * so that a target platform doesn't have to open each jar file every time it is read. The cache of each directory is
+ * persisted to the ant4eclipse cache directory (see {@link Utilities#getCacheDir(String)}).
+ * </p>
+ * <p>
+ * A cached manifest is keyed by the file name of its plugin and is valid as long as the size and the modification time
+ * of the jar file (or of the manifest file within a plugin directory) haven't changed. Plugins that don't contain a
+ * manifest are cached as well. The plugins that had to be read again are reported when the cache is saved.
+ * </p>
+ * <p>
+ * The cache can be disabled using the system property <code>ant4eclipse.disableBundleManifestCache</code>.
+ * </p>
+ * <p>
+ * The plugins or features of a directory may be looked up concurrently, but {@link #save()} must only be called after
+ * all lookups have been finished.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class PluginDirectoryCache {
+
+  /** System-Property that disables the cache */
+  private static final boolean DISABLE_CACHE  = Boolean.getBoolean("ant4eclipse.disableBundleManifestCache");
+
+  /** the version of the cache file format */
+  private static final int     FORMAT_VERSION = 1;
+
+  /** the name of the cache directory */
+  private static final String  CACHE_NAME     = "bundlemanifests";
+
+  /** the suffix of the cache files */
+  private static final String  CACHE_SUFFIX   = ".cache";
+
+  /** the directory containing the plugins or features */
+  private File                 _directory;
+
+  /** <code>true</code> if the directory contains features */
+  private boolean              _features;
+
+  /** the cache file, <code>null</code> if the cache is disabled */
+  private File                 _cacheFile;
+
+  /** <code>true</code> if the cache file has been read */
+  private boolean              _existing;
+
+  /** the entries read from the cache file (file name -> entry) */
+  private Map<String, Entry>   _cached;
+
+  /** the entries of the current scan (file name -> entry), guarded by <code>this</code> */
+  private Map<String, Entry>   _current;
+
+  /** the names of the files that have been read again, guarded by <code>this</code> */
+  private List<String>         _reread;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link PluginDirectoryCache} and reads the cache file of the given directory (if
+   * any).
+   * </p>
+   *
+   * @param directory
+   *          the directory containing the plugins or features
+   * @param features
+   *          <code>true</code> if the directory contains features
+   */
+  public PluginDirectoryCache(File directory, boolean features) {
+    Assure.isDirectory("directory", directory);
+    this._directory = directory;
+    this._features = features;
+    this._cached = new HashMap<String, Entry>();
+    this._current = new HashMap<String, Entry>();
+    this._reread = new ArrayList<String>();
+    if (!DISABLE_CACHE) {
+      try {
+        this._cacheFile = getCacheFile(Utilities.getCanonicalFile(directory), features);
+        this._existing = read();
+      } catch (Ant4EclipseException ex) {
+        A4ELogging.warn("The bundle manifest cache has been disabled: %s", ex.getMessage());
+        this._cacheFile = null;
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the {@link BundleDescription} of the given plugin (a jar file or a directory within the directory of this
+   * cache).
+   * </p>
+   *
+   * @param plugin
+   *          the plugin
+   * @return the {@link BundleDescription} or <code>null</code> if the plugin doesn't contain a bundle manifest.
+   */
+  public BundleDescription getBundleDescription(File plugin) {
+    Manifest manifest = getBundleManifest(plugin);
+    if (manifest == null) {
+      return null;
+    }
+    try {
+      return BundleDescriptionLoader.loadFromManifest(manifest, plugin);
+    } catch (BundleException e) {
+      throw new RuntimeException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the bundle manifest of the given plugin (a jar file or a directory within the directory of this cache).
+   * Unlike {@link #getBundleDescription(File)} this doesn't assign a bundle id, so the plugins can be read concurrently
+   * and their {@link BundleDescription BundleDescriptions} can be created afterwards in a well-defined order.
+   * </p>
+   *
+   * @param plugin
+   *          the plugin
+   * @return the bundle manifest or <code>null</code> if the plugin doesn't contain a bundle manifest.
+   */
+  public Manifest getBundleManifest(File plugin) {
+    long[] stamp = getStamp(plugin);
+    Entry entry = this._cached.get(plugin.getName());
+
+    if ((entry != null) && entry.matches(stamp)) {
+      record(plugin.getName(), entry, false);
+      if (entry._headers == null) {
+        return null;
+      }
+      Manifest manifest = new Manifest();
+      for (int i = 0; i < entry._headers.length; i += 2) {
+        manifest.getMainAttributes().putValue(entry._headers[i], entry._headers[i + 1]);
+      }
+      return manifest;
+    }
+
+    Manifest result = BundleDescriptionLoader.readBundleManifest(plugin);
+    String[] headers = null;
+    if (result != null) {
+      Attributes attributes = result.getMainAttributes();
+      headers = new String[attributes.size() * 2];
+      int i = 0;
+      for (Map.Entry<Object, Object> header : attributes.entrySet()) {
+        headers[i++] = header.getKey().toString();
+        headers[i++] = (String) header.getValue();
+      }
+    }
+    record(plugin.getName(), new Entry(stamp, headers, null), true);
+    return result;
+  }
+
+  /**
+   * <p>
+   * Returns the {@link FeatureDescription} of the given feature (a jar file or a directory within the directory of this
+   * cache).
+   * </p>
+   *
+   * @param feature
+   *          the feature
+   * @return the {@link FeatureDescription} or <code>null</code> if the feature doesn't contain a feature manifest or if
+   *         the feature manifest couldn't be read.
+   */
+  public FeatureDescription getFeatureDescription(File feature) {
+    long[] stamp = getStamp(feature);
+    Entry entry = this._cached.get(feature.getName());
+
+    byte[] content = null;
+    if ((entry != null) && entry.matches(stamp)) {
+      content = entry._content;
+      record(feature.getName(), entry, false);
+    } else {
+      try {
+        content = FeatureDescriptionLoader.readFeatureManifest(feature);
+      } catch (IOException e) {
+        // no entry is recorded, so the feature will be read again instead of being cached as a non-feature
+        A4ELogging.warn(PdeExceptionCode.WARNING_FEATURE_MANIFEST_FILE_NOT_READABLE.getMessage(), feature
+            .getAbsoluteFile(), e.getMessage());
+        return null;
+      }
+      record(feature.getName(), new Entry(stamp, null, content), true);
+    }
+
+    return content != null ? FeatureDescriptionLoader.parseFeature(feature, content) : null;
+  }
+
+  /**
+   * <p>
+   * Records the given entry for the current scan.
+   * </p>
+   *
+   * @param name
+   *          the file name of the plugin or feature
+   * @param entry
+   *          the entry
+   * @param reread
+   *          <code>true</code> if the plugin or feature has been read again
+   */
+  private synchronized void record(String name, Entry entry, boolean reread) {
+    this._current.put(name, entry);
+    if (reread) {
+      this._reread.add(name);
+    }
+  }
+
+  /**
+   * <p>
+   * Saves the cache (if it has been changed) and reports the plugins or features that have been read again.
+   * </p>
+   */
+  public synchronized void save() {
+    if (this._cacheFile == null) {
+      return;
+    }
+
+    int removed = 0;
+    for (String name : this._cached.keySet()) {
+      if (!this._current.containsKey(name)) {
+        removed++;
+      }
+    }
+
+    boolean changed = !this._reread.isEmpty() || (removed > 0);
+    Collections.sort(this._reread);
+    String directory = this._directory.getAbsolutePath();
+
+    if (!this._existing) {
+      A4ELogging.debug("Bundle manifest cache for '%s' has been created (%d entries).", directory, Integer
+          .valueOf(this._current.size()));
+    } else if (changed) {
+      A4ELogging.info("Bundle manifest cache for '%s': %d of %d %s have been read again %s, %d have been removed.",
+          directory, Integer.valueOf(this._reread.size()), Integer.valueOf(this._current.size()),
+          this._features ? "features" : "plugins", this._reread, Integer.valueOf(removed));
+    }
+
+    if (!this._existing || changed) {
+      write();
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the stamp (size and modification time) of the given plugin or feature. For a directory the stamp of its
+   * manifest file is used, as the modification time of the directory doesn't change if the manifest is modified.
+   * </p>
+   */
+  private long[] getStamp(File file) {
+    File stampFile = file;
+    if (file.isDirectory()) {
+      stampFile = new File(file, this._features ? Constants.FEATURE_MANIFEST : Constants.OSGI_BUNDLE_MANIFEST);
+    }
+    return new long[] { stampFile.length(), stampFile.lastModified() };
+  }
+
+  /**
+   * <p>
+   * Returns the cache file for the given directory. The name of the cache file contains the MD5 digest of the path of
+   * the directory, so directories with the same name in different locations don't collide.
+   * </p>
+   */
+  static File getCacheFile(File canonicalDirectory, boolean features) {
+    String name = canonicalDirectory.getName().replaceAll("[^A-Za-z0-9_.-]", "_");
+    StringBuilder builder = new StringBuilder(name).append('-');
+    try {
+      byte[] digest = MessageDigest.getInstance("MD5").digest(canonicalDirectory.getPath().getBytes("UTF-8"));
+      for (byte b : digest) {
+        builder.append(Integer.toHexString((b >> 4) & 0xF));
+        builder.append(Integer.toHexString(b & 0xF));
+      }
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    } catch (IOException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    }
+    builder.append(features ? "-features" : "-plugins").append(CACHE_SUFFIX);
+    return new File(Utilities.getCacheDir(CACHE_NAME), builder.toString());
+  }
+
+  /**
+   * <p>
+   * Reads the cache file.
+   * </p>
+   *
+   * @return <code>true</code> if the cache file could be read.
+   */
+  private boolean read() {
+    if (!this._cacheFile.isFile()) {
+      return false;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(this._cacheFile)));
+      if ((input.readInt() != FORMAT_VERSION)
+          || !Utilities.getCanonicalFile(this._directory).getPath().equals(input.readUTF())) {
+        return false;
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String name = input.readUTF();
+        long[] stamp = new long[] { input.readLong(), input.readLong() };
+        String[] headers = null;
+        byte[] content = null;
+        int length = input.readInt();
+        if (length >= 0) {
+          if (this._features) {
+            content = new byte[length];
+            input.readFully(content);
+          } else {
+            headers = new String[length];
+            for (int j = 0; j < length; j++) {
+              headers[j] = readString(input);
+            }
+          }
+        }
+        this._cached.put(name, new Entry(stamp, headers, content));
+      }
+      return true;
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read bundle manifest cache '%s': %s", this._cacheFile, ex.getMessage());
+      this._cached.clear();
+      return false;
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Writes the entries of the current scan to the cache file. The cache is written to a temporary file first which is
+   * renamed afterwards, so concurrent builds never see a partially written cache.
+   * </p>
+   */
+  private void write() {
+    File tempFile = null;
+    DataOutputStream output = null;
+    try {
+      tempFile = File.createTempFile("a4e", CACHE_SUFFIX, this._cacheFile.getParentFile());
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(FORMAT_VERSION);
+      output.writeUTF(Utilities.getCanonicalFile(this._directory).getPath());
+      output.writeInt(this._current.size());
+      for (Map.Entry<String, Entry> mapEntry : this._current.entrySet()) {
+        Entry entry = mapEntry.getValue();
+        output.writeUTF(mapEntry.getKey());
+        output.writeLong(entry._size);
+        output.writeLong(entry._lastModified);
+        if (entry._content != null) {
+          output.writeInt(entry._content.length);
+          output.write(entry._content);
+        } else if (entry._headers != null) {
+          output.writeInt(entry._headers.length);
+          for (String header : entry._headers) {
+            writeString(output, header);
+          }
+        } else {
+          output.writeInt(-1);
+        }
+      }
+      output.close();
+      output = null;
+      if (!tempFile.renameTo(this._cacheFile)) {
+        // the target may exist on some platforms
+        this._cacheFile.delete();
+        if (!tempFile.renameTo(this._cacheFile)) {
+          tempFile.delete();
+        }
+      }
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not write bundle manifest cache '%s': %s", this._cacheFile, ex.getMessage());
+      Utilities.close((Closeable) output);
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Writes the given string. Header values may exceed the length limit of {@link DataOutputStream#writeUTF(String)}, so
+   * the string is written as UTF-8 encoded bytes.
+   * </p>
+   */
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes("UTF-8");
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /**
+   * <p>
+   * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+   * </p>
+   */
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  /**
+   * <p>
+   * A cached plugin or feature.
+   * </p>
+   */
+  private static class Entry {
+
+    /** the size of the jar file or manifest file */
+    private long     _size;
+
+    /** the modification time of the jar file or manifest file */
+    private long     _lastModified;
+
+    /** the main attributes of the bundle manifest (name/value pairs), <code>null</code> if it isn't a bundle */
+    private String[] _headers;
+
+    /** the content of the feature manifest, <code>null</code> if there is no feature manifest */
+    private byte[]   _content;
+
+    /**
+     * <p>
+     * Creates a new instance of type {@link Entry}.
+     * </p>
+     */
+    public Entry(long[] stamp, String[] headers, byte[] content) {
+      this._size = stamp[0];
+      this._lastModified = stamp[1];
+      this._headers = headers;
+      this._content = content;
+    }
+
+    /**
+     * <p>
+     * Returns <code>true</code> if this entry has been created for the given stamp.
+     * </p>
+     */
+    public boolean matches(long[] stamp) {
+      return (this._size == stamp[0]) && (this._lastModified == stamp[1]);
+    }
+  }
+} /* ENDCLASS */
@@ -0,0 +1,35 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import org.ant4eclipse.lib.jdt.tools.JdtResolver;
+import org.ant4eclipse.lib.pde.tools.TargetPlatformRegistry;
+import org.ant4eclipse.lib.pde.tools.TargetPlatformRegistryListener;
+
+/**
+ * <p>
+ * Drops the cached class paths of the {@link JdtResolver} whenever the {@link TargetPlatformRegistry} has been changed,
+ * as the class paths of plug-in projects have been resolved against the target platforms.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ResolvedClasspathInvalidator implements TargetPlatformRegistryListener {
+
+  /**
+   * {@inheritDoc}
+   */
+  public void targetPlatformRegistryChanged(TargetPlatformRegistry registry) {
+    JdtResolver.invalidateCache();
+  }
+
+} /* ENDCLASS */
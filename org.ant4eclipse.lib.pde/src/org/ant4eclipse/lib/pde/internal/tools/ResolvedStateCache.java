@@ -0,0 +1,256 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.internal.tools;
+
+import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.pde.model.pluginproject.BundleSource;
+import org.eclipse.osgi.framework.internal.core.FrameworkProperties;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.osgi.service.resolver.State;
+import org.eclipse.osgi.service.resolver.StateObjectFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+
+/**
+ * <p>
+ * Persists resolved {@link State states} of target platforms to the ant4eclipse cache directory (see
+ * {@link Utilities#getCacheDir(String)}) using the state writer of Equinox, so that a target platform doesn't have to
+ * be resolved again by each ant invocation.
+ * </p>
+ * <p>
+ * A state is keyed by a digest of the fingerprints of its bundles (the location and the bundle manifest of each
+ * bundle), the platform properties and the uses mode it has been resolved with and the Equinox implementation.
+ * Equinox doesn't persist the user objects of the bundles and the resolver errors, so these have to be restored by the
+ * caller.
+ * </p>
+ * <p>
+ * The cache can be disabled using the system property <code>ant4eclipse.disableResolvedStateCache</code>.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public class ResolvedStateCache {
+
+  /** System-Property that disables the cache */
+  private static final boolean DISABLE_CACHE  = Boolean.getBoolean("ant4eclipse.disableResolvedStateCache");
+
+  /** the version of the key format */
+  private static final int     FORMAT_VERSION = 1;
+
+  /** the name of the cache directory */
+  private static final String  CACHE_NAME     = "resolvedstates";
+
+  /** the cache directory, <code>null</code> if the cache is disabled */
+  private File                 _cacheDirectory;
+
+  /**
+   * <p>
+   * Creates a new instance of type {@link ResolvedStateCache}.
+   * </p>
+   */
+  public ResolvedStateCache() {
+    if (!DISABLE_CACHE) {
+      try {
+        this._cacheDirectory = Utilities.getCacheDir(CACHE_NAME);
+      } catch (Ant4EclipseException ex) {
+        A4ELogging.warn("The resolved state cache has been disabled: %s", ex.getMessage());
+        this._cacheDirectory = null;
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the state that has been stored with the given key or <code>null</code> if there is no such state. The
+   * returned state has no resolver.
+   * </p>
+   *
+   * @param key
+   *          the key of the state (see {@link #getKey(Collection, Properties)})
+   * @return the state or <code>null</code>.
+   */
+  public State readState(String key) {
+    if (this._cacheDirectory == null) {
+      return null;
+    }
+
+    File stateDirectory = new File(this._cacheDirectory, key);
+    if (!stateDirectory.isDirectory()) {
+      return null;
+    }
+
+    try {
+      return StateObjectFactory.defaultFactory.readState(stateDirectory);
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read resolved state '%s': %s", stateDirectory, ex.getMessage());
+      return null;
+    } catch (RuntimeException ex) {
+      A4ELogging.debug("Could not read resolved state '%s': %s", stateDirectory, ex.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * <p>
+   * Stores the given (resolved) state with the given key. The state is written to a temporary directory first which is
+   * renamed afterwards, so concurrent builds never see a partially written state.
+   * </p>
+   *
+   * @param key
+   *          the key of the state (see {@link #getKey(Collection, Properties)})
+   * @param state
+   *          the resolved state
+   */
+  public void writeState(String key, State state) {
+    if (this._cacheDirectory == null) {
+      return;
+    }
+
+    File stateDirectory = new File(this._cacheDirectory, key);
+    File tempDirectory = null;
+    try {
+      tempDirectory = File.createTempFile("a4e", ".state", this._cacheDirectory);
+      if (!tempDirectory.delete() || !tempDirectory.mkdir()) {
+        throw new IOException("Could not create directory " + tempDirectory);
+      }
+      StateObjectFactory.defaultFactory.writeState(state, tempDirectory);
+      // another build might have stored the same state in the meantime
+      if (!tempDirectory.renameTo(stateDirectory)) {
+        Utilities.delete(tempDirectory);
+      }
+      A4ELogging.debug("Resolved state '%s' has been stored.", stateDirectory);
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not write resolved state '%s': %s", stateDirectory, ex.getMessage());
+      if (tempDirectory != null) {
+        Utilities.delete(tempDirectory);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the fingerprint of the given bundle, i.e. a digest of its location and its bundle manifest.
+   * </p>
+   *
+   * @param bundleDescription
+   *          the bundle
+   * @return the fingerprint of the bundle
+   */
+  public static String getFingerprint(BundleDescription bundleDescription) {
+    MessageDigest digest = newDigest();
+    update(digest, bundleDescription.getLocation());
+    Attributes attributes = BundleSource.getBundleSource(bundleDescription).getBundleManifest().getMainAttributes();
+    Map<String, String> headers = new TreeMap<String, String>();
+    for (Map.Entry<Object, Object> header : attributes.entrySet()) {
+      headers.put(header.getKey().toString(), String.valueOf(header.getValue()));
+    }
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      update(digest, header.getKey());
+      update(digest, header.getValue());
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * <p>
+   * Returns the key of a state that contains the bundles with the given fingerprints (in the given order) and is
+   * resolved with the given platform properties.
+   * </p>
+   *
+   * @param fingerprints
+   *          the fingerprints of the bundles (see {@link #getFingerprint(BundleDescription)})
+   * @param platformProperties
+   *          the platform properties
+   * @return the key of the state
+   */
+  public static String getKey(Collection<String> fingerprints, Properties platformProperties) {
+    MessageDigest digest = newDigest();
+    update(digest, String.valueOf(FORMAT_VERSION));
+    update(digest, getImplementation());
+    update(digest, String.valueOf(FrameworkProperties.getProperty("osgi.resolver.usesMode")));
+    Map<String, String> properties = new TreeMap<String, String>();
+    for (Map.Entry<Object, Object> property : platformProperties.entrySet()) {
+      properties.put(String.valueOf(property.getKey()), String.valueOf(property.getValue()));
+    }
+    for (Map.Entry<String, String> property : properties.entrySet()) {
+      update(digest, property.getKey());
+      update(digest, property.getValue());
+    }
+    for (String fingerprint : fingerprints) {
+      update(digest, fingerprint);
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * <p>
+   * Returns the location and the time stamp of the Equinox implementation, as states written by another
+   * implementation can't be read (or might be resolved differently).
+   * </p>
+   */
+  private static String getImplementation() {
+    CodeSource codeSource = StateObjectFactory.class.getProtectionDomain().getCodeSource();
+    if ((codeSource == null) || (codeSource.getLocation() == null)) {
+      return "";
+    }
+    try {
+      File location = new File(codeSource.getLocation().toURI());
+      return location.getPath() + ":" + location.lastModified();
+    } catch (Exception ex) {
+      return codeSource.getLocation().toExternalForm();
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    }
+  }
+
+  /**
+   * <p>
+   * Adds the given text (terminated by a zero byte, so that subsequent texts can't be confused) to the given digest.
+   * </p>
+   */
+  private static void update(MessageDigest digest, String text) {
+    try {
+      digest.update(text.getBytes("UTF-8"));
+      digest.update((byte) 0);
+    } catch (UnsupportedEncodingException ex) {
+      throw new RuntimeException(ex.getMessage(), ex);
+    }
+  }
+
+  private static String toHex(byte[] digest) {
+    StringBuilder builder = new StringBuilder();
+    for (byte b : digest) {
+      builder.append(Integer.toHexString((b >> 4) & 0xF));
+      builder.append(Integer.toHexString(b & 0xF));
+    }
+    return builder.toString();
+  }
+
+} /* ENDCLASS */
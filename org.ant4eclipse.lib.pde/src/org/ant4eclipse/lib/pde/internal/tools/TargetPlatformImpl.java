@@ -14,7 +14,9 @@ package org.ant4eclipse.lib.pde.internal.tools;
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +25,7 @@ import java.util.Properties;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.Set;
 import java.util.TreeSet;
 
 import org.ant4eclipse.lib.core.Assure;
@@ -31,6 +34,7 @@ import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.core.util.Pair;
 import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.pde.PdeExceptionCode;
+import org.ant4eclipse.lib.pde.internal.model.pluginproject.BundleDescriptionLoader;
 import org.ant4eclipse.lib.pde.model.featureproject.FeatureManifest;
 import org.ant4eclipse.lib.pde.model.featureproject.FeatureManifest.Includes;
 import org.ant4eclipse.lib.pde.model.featureproject.FeatureManifest.Plugin;
@@ -39,12 +43,14 @@ import org.ant4eclipse.lib.pde.tools.PlatformConfiguration;
 import org.ant4eclipse.lib.pde.tools.ResolvedFeature;
 import org.ant4eclipse.lib.pde.tools.TargetPlatform;
 import org.eclipse.osgi.framework.internal.core.FrameworkProperties;
+import org.eclipse.osgi.internal.module.ResolverImpl;
 import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.eclipse.osgi.service.resolver.ResolverError;
 import org.eclipse.osgi.service.resolver.State;
 import org.eclipse.osgi.service.resolver.StateHelper;
 import org.eclipse.osgi.service.resolver.StateObjectFactory;
 import org.eclipse.osgi.service.resolver.VersionConstraint;
+import org.osgi.framework.BundleException;
 import org.osgi.framework.Filter;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.InvalidSyntaxException;
@@ -73,6 +79,18 @@ public final class TargetPlatformImpl implements TargetPlatform {
   /** the state object */
   private State                     _state;
 
+  /** the cache for resolved states */
+  private ResolvedStateCache        _stateCache;
+
+  /** the key of the state, <code>null</code> if the state can't be cached */
+  private String                    _stateKey;
+
+  /** the fingerprints of the bundles of the state (location -> fingerprint) */
+  private Map<String, String>       _fingerprints;
+
+  /** the platform properties the state has been resolved with */
+  private Properties                _platformProperties;
+
   /** - */
   private File[]                    _targetplatformLocations;
 
@@ -109,6 +127,8 @@ public final class TargetPlatformImpl implements TargetPlatform {
 
     this._targetplatformLocations = targetlocations;
 
+    this._stateCache = new ResolvedStateCache();
+
     // initialize
     initialize();
   }
@@ -583,19 +603,91 @@ public final class TargetPlatformImpl implements TargetPlatform {
 
   /**
    * <p>
+   * Returns the resolved state of this target platform. The current state is reused if neither the bundles nor the
+   * platform properties have changed. Otherwise the state is read from the {@link ResolvedStateCache} if the same
+   * bundles have been resolved with the same platform properties before, or - if only some bundles have changed since
+   * the current state has been resolved - the changed bundles are re-resolved incrementally. If none of these applies,
+   * a new state is created and resolved.
    * </p>
    * 
-   * @return
+   * @return the resolved state
    */
   private State resolve() {
 
     // TODO
     FrameworkProperties.setProperty("osgi.resolver.usesMode", "ignore");
 
+    List<BundleDescription> bundleDescriptions = getAllBundleDescriptions(this._configuration.isPreferProjects());
+    Properties platformProperties = this._configuration.getConfigurationProperties();
+
+    // step 1: compute the key of the state
+    Map<String, BundleDescription> bundlesByLocation = new HashMap<String, BundleDescription>();
+    Map<String, String> fingerprints = new LinkedHashMap<String, String>();
+    for (BundleDescription bundleDescription : bundleDescriptions) {
+      bundlesByLocation.put(bundleDescription.getLocation(), bundleDescription);
+      fingerprints.put(bundleDescription.getLocation(), ResolvedStateCache.getFingerprint(bundleDescription));
+    }
+    String key = ResolvedStateCache.getKey(fingerprints.values(), platformProperties);
+
+    // bundles of a cached state are identified by their location, so the location has to be unique
+    boolean cacheable = bundlesByLocation.size() == bundleDescriptions.size();
+
+    // step 2: reuse the current state, read the cached state or re-resolve the current state incrementally
+    State state = null;
+    if (cacheable) {
+      if ((this._state != null) && key.equals(this._stateKey)) {
+        state = this._state;
+        // the bundle sets might have created new bundle descriptions
+        attachUserObjects(state, bundlesByLocation);
+      } else {
+        state = readCachedState(key, bundlesByLocation);
+        if ((state == null) && (this._stateKey != null) && platformProperties.equals(this._platformProperties)) {
+          state = resolveIncrementally(bundleDescriptions, fingerprints);
+        }
+      }
+    }
+
+    // step 3: resolve a new state
+    if (state == null) {
+      state = resolve(bundleDescriptions, platformProperties);
+      if (cacheable) {
+        this._stateCache.writeState(key, state);
+      }
+    }
+
+    this._stateKey = cacheable ? key : null;
+    this._fingerprints = fingerprints;
+    this._platformProperties = platformProperties;
+
+    // log errors if any
+    if (A4ELogging.isDebuggingEnabled()) {
+      String resolverErrors = dumpResolverErrors(state.getBundles(), true);
+      if (resolverErrors != null && !resolverErrors.trim().equals("")) {
+        A4ELogging.debug(resolverErrors);
+      }
+    }
+
+    // return the state
+    return state;
+  }
+
+  /**
+   * <p>
+   * Creates a new state that contains the given bundles and resolves it.
+   * </p>
+   * 
+   * @param bundleDescriptions
+   *          the bundles of the state
+   * @param platformProperties
+   *          the platform properties
+   * @return the resolved state
+   */
+  private State resolve(List<BundleDescription> bundleDescriptions, Properties platformProperties) {
+
     // step 1: create new state
     State state = StateObjectFactory.defaultFactory.createState(true);
 
-    for (BundleDescription bundleDescription : getAllBundleDescriptions(this._configuration.isPreferProjects())) {
+    for (BundleDescription bundleDescription : bundleDescriptions) {
       BundleDescription copy = StateObjectFactory.defaultFactory.createBundleDescription(bundleDescription);
       copy.setUserObject(bundleDescription.getUserObject());
       if (!state.addBundle(copy)) {
@@ -608,7 +700,6 @@ public final class TargetPlatformImpl implements TargetPlatform {
     }
 
     // set the platform properties
-    Properties platformProperties = this._configuration.getConfigurationProperties();
     if (A4ELogging.isDebuggingEnabled()) {
       A4ELogging.debug(Utilities.toString("Initializing TargetPlatform with properties: ", platformProperties));
     }
@@ -617,20 +708,176 @@ public final class TargetPlatformImpl implements TargetPlatform {
     // resolve the state
     state.resolve();
 
-    // log errors if any
-    BundleDescription[] bundleDescriptions = state.getBundles();
-    // boolean allStatesResolved = true;
+    return state;
+  }
 
-    if (A4ELogging.isDebuggingEnabled()) {
-      String resolverErrors = dumpResolverErrors(bundleDescriptions, true);
-      if (resolverErrors != null && !resolverErrors.trim().equals("")) {
-        A4ELogging.debug(resolverErrors);
+  /**
+   * <p>
+   * Reads the state with the given key from the {@link ResolvedStateCache} and prepares it for its use.
+   * </p>
+   * 
+   * @param key
+   *          the key of the state
+   * @param bundlesByLocation
+   *          the bundles of the state (location -> bundle)
+   * @return the state or <code>null</code> if it isn't cached (or doesn't match the given bundles).
+   */
+  private State readCachedState(String key, Map<String, BundleDescription> bundlesByLocation) {
+
+    State state = this._stateCache.readState(key);
+    if ((state == null) || (state.getBundles().length != bundlesByLocation.size())
+        || !attachUserObjects(state, bundlesByLocation)) {
+      return null;
+    }
+
+    // a state that has been read has no resolver (see StateObjectFactory.createState(boolean))
+    state.setResolver(new ResolverImpl(null, false));
+
+    // the resolver errors aren't stored, so the unresolved bundles are resolved again to recreate them
+    List<BundleDescription> unresolved = new LinkedList<BundleDescription>();
+    for (BundleDescription bundleDescription : state.getBundles()) {
+      if (!bundleDescription.isResolved()) {
+        unresolved.add(bundleDescription);
       }
     }
-    // return the state
+    if (!unresolved.isEmpty()) {
+      state.resolve(unresolved.toArray(new BundleDescription[unresolved.size()]));
+    }
+
+    A4ELogging.debug("Read resolved state of target platform from cache (%d bundles, %d unresolved).", Integer
+        .valueOf(bundlesByLocation.size()), Integer.valueOf(unresolved.size()));
+    return state;
+  }
+
+  /**
+   * <p>
+   * Updates the current state so that it contains the given bundles and re-resolves the bundles that have been added,
+   * removed or changed since it has been resolved. All bundles with the same symbolic names are re-resolved as well (so
+   * that the selection of singletons doesn't depend on the order of the changes), as are the bundles that depend on a
+   * removed or updated bundle and the unresolved bundles, which might depend on an added bundle.
+   * </p>
+   * 
+   * @param bundleDescriptions
+   *          the bundles of the state
+   * @param fingerprints
+   *          the fingerprints of the bundles (location -> fingerprint)
+   * @return the resolved state
+   */
+  private State resolveIncrementally(List<BundleDescription> bundleDescriptions, Map<String, String> fingerprints) {
+
+    State state = this._state;
+    Set<String> changedNames = new HashSet<String>();
+    List<BundleDescription> changed = new LinkedList<BundleDescription>();
+    Set<BundleDescription> dependents = new HashSet<BundleDescription>();
+    int removed = 0;
+
+    // step 1: remove the bundles that don't exist anymore
+    long nextBundleId = 1;
+    for (BundleDescription bundleDescription : state.getBundles()) {
+      if (!fingerprints.containsKey(bundleDescription.getLocation())) {
+        addDependents(state, bundleDescription, dependents);
+        state.removeBundle(bundleDescription);
+        changedNames.add(bundleDescription.getSymbolicName());
+        removed++;
+      }
+      nextBundleId = Math.max(nextBundleId, bundleDescription.getBundleId() + 1);
+    }
+
+    // step 2: add the new bundles and update the changed bundles
+    for (BundleDescription bundleDescription : bundleDescriptions) {
+      String location = bundleDescription.getLocation();
+      BundleDescription existing = state.getBundleByLocation(location);
+      if ((existing != null) && fingerprints.get(location).equals(this._fingerprints.get(location))) {
+        existing.setUserObject(bundleDescription.getUserObject());
+        continue;
+      }
+
+      // the ids of the copies must not clash with the ids of the existing bundles
+      long bundleId = 0;
+      if (existing != null) {
+        bundleId = existing.getBundleId();
+      } else if (bundleDescription.getBundleId() != 0) {
+        bundleId = nextBundleId++;
+      }
+      BundleDescription copy = null;
+      try {
+        copy = BundleDescriptionLoader.copyBundleDescription(bundleDescription, bundleId);
+      } catch (BundleException ex) {
+        throw new RuntimeException(ex.getMessage(), ex);
+      }
+      if (existing != null) {
+        addDependents(state, existing, dependents);
+      }
+      boolean success = existing != null ? state.updateBundle(copy) : state.addBundle(copy);
+      if (!success) {
+        // TODO: NLS
+        throw new RuntimeException("Could not add bundle '" + bundleDescription + "' to state!");
+      }
+      changed.add(copy);
+      changedNames.add(copy.getSymbolicName());
+      if (existing != null) {
+        changedNames.add(existing.getSymbolicName());
+      }
+    }
+
+    // step 3: re-resolve the changed bundles, the bundles that depend on removed or updated bundles (so that they are
+    // wired again) and the unresolved bundles (as they might be resolvable now)
+    List<BundleDescription> reResolve = new LinkedList<BundleDescription>(changed);
+    for (BundleDescription bundleDescription : state.getBundles()) {
+      boolean affected = changedNames.contains(bundleDescription.getSymbolicName())
+          || dependents.contains(bundleDescription) || !bundleDescription.isResolved();
+      if (affected && !changed.contains(bundleDescription)) {
+        reResolve.add(bundleDescription);
+      }
+    }
+    state.resolve(reResolve.toArray(new BundleDescription[reResolve.size()]));
+
+    A4ELogging.debug("Re-resolved state of target platform incrementally (%d bundles changed, %d removed).", Integer
+        .valueOf(changed.size()), Integer.valueOf(removed));
     return state;
   }
 
+  /**
+   * <p>
+   * Adds the bundles that depend (directly or indirectly) on the given bundle to the given set.
+   * </p>
+   * 
+   * @param state
+   *          the state that contains the bundle
+   * @param bundleDescription
+   *          the bundle
+   * @param dependents
+   *          receives the dependent bundles
+   */
+  private static void addDependents(State state, BundleDescription bundleDescription,
+      Set<BundleDescription> dependents) {
+    BundleDescription[] bundleDescriptions = new BundleDescription[] { bundleDescription };
+    dependents.addAll(Arrays.asList(state.getStateHelper().getDependentBundles(bundleDescriptions)));
+  }
+
+  /**
+   * <p>
+   * Attaches the user objects (the {@link BundleSource BundleSources}) of the given bundles to the bundles of the given
+   * state with the same location.
+   * </p>
+   * 
+   * @param state
+   *          the state
+   * @param bundlesByLocation
+   *          the bundles (location -> bundle)
+   * @return <code>false</code> if the state contains a bundle that isn't contained in the given bundles.
+   */
+  private static boolean attachUserObjects(State state, Map<String, BundleDescription> bundlesByLocation) {
+    for (BundleDescription bundleDescription : state.getBundles()) {
+      BundleDescription source = bundlesByLocation.get(bundleDescription.getLocation());
+      if (source == null) {
+        return false;
+      }
+      bundleDescription.setUserObject(source.getUserObject());
+    }
+    return true;
+  }
+
   /**
    * Returns <code>true</code> if the current target configuration matches a given system specification.
    * 
@@ -12,6 +12,7 @@
 package org.ant4eclipse.lib.pde.internal.tools;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -20,13 +21,19 @@ import java.util.List;
 import java.util.Map;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.Lifecycle;
+import org.ant4eclipse.lib.core.configuration.Ant4EclipseConfiguration;
 import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Pair;
+import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.pde.PdeExceptionCode;
 import org.ant4eclipse.lib.pde.tools.PlatformConfiguration;
 import org.ant4eclipse.lib.pde.tools.TargetPlatform;
 import org.ant4eclipse.lib.pde.tools.TargetPlatformDefinition;
 import org.ant4eclipse.lib.pde.tools.TargetPlatformRegistry;
+import org.ant4eclipse.lib.pde.tools.TargetPlatformRegistryListener;
 import org.ant4eclipse.lib.platform.model.resource.Workspace;
 
 /**
@@ -37,7 +44,14 @@ import org.ant4eclipse.lib.platform.model.resource.Workspace;
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  * @author Nils Hartmann (nils@nilshartmann.net)
  */
-public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
+public class TargetPlatformRegistryImpl implements TargetPlatformRegistry, Lifecycle {
+
+  /** the prefix of the configuration entries that name the {@link TargetPlatformRegistryListener} classes */
+  public static final String                     PREFIX_LISTENER             = "targetPlatformRegistryListener";
+
+  /** System-Property that enables reading several target locations at the same time */
+  private static final boolean                   CONCURRENT_LOCATIONS        = Boolean
+                                                                                 .getBoolean("ant4eclipse.concurrentTargetLocations");
 
   /** the current {@link TargetPlatform}, maybe null **/
   private TargetPlatform                         _currentTargetPlatform;
@@ -54,6 +68,38 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
   /** - */
   private Map<TargetPlatformKey, TargetPlatform> _targetPlatformMap          = new HashMap<TargetPlatformKey, TargetPlatform>();
 
+  /** the listeners that are notified when this registry has been changed, <code>null</code> if not initialized */
+  private List<TargetPlatformRegistryListener>   _listeners;
+
+  /**
+   * {@inheritDoc}
+   */
+  public void initialize() {
+    Ant4EclipseConfiguration config = ServiceRegistryAccess.instance().getService(Ant4EclipseConfiguration.class);
+    List<TargetPlatformRegistryListener> listeners = new ArrayList<TargetPlatformRegistryListener>();
+    for (Pair<String, String> types : config.getAllProperties(PREFIX_LISTENER)) {
+      // only the class name (the value of the entry) is relevant
+      TargetPlatformRegistryListener listener = Utilities.newInstance(types.getSecond());
+      A4ELogging.trace("Register TargetPlatformRegistryListener '%s'", listener);
+      listeners.add(listener);
+    }
+    this._listeners = listeners;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public boolean isInitialized() {
+    return this._listeners != null;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public void dispose() {
+    this._listeners = null;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -61,6 +107,9 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
     for (TargetPlatform targetPlatform : this._targetPlatformMap.values()) {
       targetPlatform.refresh();
     }
+
+    // class paths that have been resolved against the target platforms are outdated
+    fireChanged();
   }
 
   /**
@@ -82,6 +131,7 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
    */
   public void setCurrent(TargetPlatform targetPlatform) {
     this._currentTargetPlatform = targetPlatform;
+    fireChanged();
   }
 
   /**
@@ -91,6 +141,7 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
     this._bundleAndFeatureSetMap.clear();
     this._targetPlatformDefnitionMap.clear();
     this._targetPlatformMap.clear();
+    fireChanged();
   }
 
   /**
@@ -99,6 +150,7 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
    */
   public void addPlatformConfiguration(String identifier, PlatformConfiguration platformConfiguration) {
     this._platformConfigurationMap.put(identifier, platformConfiguration);
+    fireChanged();
   }
 
   /**
@@ -120,7 +172,7 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
    */
   public void addTargetPlatformDefinition(String identifier, TargetPlatformDefinition targetPlatformDefinition) {
     this._targetPlatformDefnitionMap.put(identifier, targetPlatformDefinition);
-
+    fireChanged();
   }
 
   /**
@@ -211,7 +263,18 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
     BundleAndFeatureSet workspaceBundleSet = workspace != null ? getPluginProjectSet(workspace) : null;
 
     // get the binary bundle sets
-    BundleAndFeatureSet[] binaryPluginSets = targetLocations != null ? getBinaryPluginSet(targetLocations) : null;
+    BinaryBundleAndFeatureSet[] binaryPluginSets = targetLocations != null ? getBinaryPluginSet(targetLocations)
+        : null;
+
+    // the target locations are independent of each other, so their plugins and features can be read together on one
+    // pool of threads if requested (disabled by default, as the log messages of the target locations are interleaved in
+    // this case). The sets are initialized in the order of the target locations afterwards.
+    if (CONCURRENT_LOCATIONS && (binaryPluginSets != null) && (binaryPluginSets.length > 1)) {
+      BinaryBundleAndFeatureSet.scan(Arrays.asList(binaryPluginSets));
+      for (BinaryBundleAndFeatureSet binaryPluginSet : binaryPluginSets) {
+        binaryPluginSet.initialize();
+      }
+    }
 
     // create and return the target platform instance
     TargetPlatform targetPlatform = new TargetPlatformImpl(workspaceBundleSet, binaryPluginSets,
@@ -256,6 +319,19 @@ public class TargetPlatformRegistryImpl implements TargetPlatformRegistry {
     return result.toArray(new BinaryBundleAndFeatureSet[0]);
   }
 
+  /**
+   * <p>
+   * Notifies the listeners that this registry has been changed.
+   * </p>
+   */
+  private void fireChanged() {
+    if (this._listeners != null) {
+      for (TargetPlatformRegistryListener listener : this._listeners) {
+        listener.targetPlatformRegistryChanged(this);
+      }
+    }
+  }
+
   /**
    * <p>
    * The key of a target platform.
@@ -11,6 +11,8 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pde.model.buildproperties;
 
+import java.io.Serializable;
+
 import org.ant4eclipse.lib.core.Assure;
 
 /**
@@ -22,7 +24,10 @@ import org.ant4eclipse.lib.core.Assure;
  * @author Gerd Wuetherich (gerd@gerd-wuetherich.de)
  * @spec Eclipse Help - PDE Guide - "Feature and Plug-in Build Configuration Properties"
  */
-public class AbstractBuildProperties {
+public class AbstractBuildProperties implements Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID  = 1L;
 
   /** SELF */
   public static String  SELF              = ".";
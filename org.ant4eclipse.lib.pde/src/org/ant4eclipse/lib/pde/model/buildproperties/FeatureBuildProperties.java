@@ -19,6 +19,9 @@ package org.ant4eclipse.lib.pde.model.buildproperties;
  */
 public class FeatureBuildProperties extends AbstractBuildProperties {
 
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
+
   // TODO add additional feature properties
 
 }
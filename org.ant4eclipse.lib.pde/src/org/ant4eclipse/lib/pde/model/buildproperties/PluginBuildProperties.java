@@ -11,6 +11,7 @@
  **********************************************************************/
 package org.ant4eclipse.lib.pde.model.buildproperties;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -26,6 +27,9 @@ import org.ant4eclipse.lib.core.logging.A4ELogging;
  */
 public class PluginBuildProperties extends AbstractBuildProperties {
 
+  /** serialVersionUID */
+  private static final long    serialVersionUID = 1L;
+
   /** list of libraries */
   private Map<String, Library> _libraries;
 
@@ -197,7 +201,10 @@ public class PluginBuildProperties extends AbstractBuildProperties {
    * 
    * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
    */
-  public static class Library {
+  public static class Library implements Serializable {
+
+    /** serialVersionUID */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The name of the library.
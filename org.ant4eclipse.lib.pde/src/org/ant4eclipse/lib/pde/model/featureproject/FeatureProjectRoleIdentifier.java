@@ -39,6 +39,13 @@ public class FeatureProjectRoleIdentifier implements ProjectRoleIdentifier {
     return project.hasNature(FeatureProjectRole.FEATURE_NATURE);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public Class<? extends ProjectRole> getRoleType() {
+    return FeatureProjectRole.class;
+  }
+
   /**
    * {@inheritDoc}
    */
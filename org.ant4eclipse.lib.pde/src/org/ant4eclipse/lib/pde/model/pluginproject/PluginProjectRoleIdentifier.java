@@ -35,6 +35,13 @@ public class PluginProjectRoleIdentifier implements ProjectRoleIdentifier {
     return project.hasNature(PluginProjectRole.PLUGIN_NATURE);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public Class<? extends ProjectRole> getRoleType() {
+    return PluginProjectRole.class;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,39 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.pde.tools;
+
+/**
+ * <p>
+ * A {@link TargetPlatformRegistryListener} is notified whenever the {@link TargetPlatformRegistry} has been changed,
+ * i.e. the current target platform, the target platform definitions or the platform configurations have been changed
+ * or the target platforms have been refreshed.
+ * </p>
+ * <p>
+ * Listeners are contributed through the ant4eclipse configuration using the prefix
+ * <code>targetPlatformRegistryListener</code>.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface TargetPlatformRegistryListener {
+
+  /**
+   * <p>
+   * Called after the given {@link TargetPlatformRegistry} has been changed.
+   * </p>
+   *
+   * @param registry
+   *          the {@link TargetPlatformRegistry}
+   */
+  void targetPlatformRegistryChanged(TargetPlatformRegistry registry);
+
+} /* ENDINTERFACE */
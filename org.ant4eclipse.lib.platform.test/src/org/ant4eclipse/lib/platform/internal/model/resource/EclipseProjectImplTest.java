@@ -0,0 +1,105 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.platform.internal.model.resource;
+
+import java.io.File;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.EclipseProjectBuilder;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EclipseProjectImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testWorkspace;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testWorkspace = new TestDirectory();
+    new EclipseProjectBuilder("simpleproject1").createIn(this._testWorkspace.getRootDir());
+    new EclipseProjectBuilder("simpleproject2").withProjectReference("simpleproject1").createIn(
+        this._testWorkspace.getRootDir());
+    new EclipseProjectBuilder("simpleproject3").withProjectReference("simpleproject2").createIn(
+        this._testWorkspace.getRootDir());
+  }
+
+  @Override
+  public void dispose() {
+    this._testWorkspace.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void equalsAndHashCode() {
+    File projectDirectory = new File(this._testWorkspace.getRootDir(), "simpleproject1");
+    EclipseProjectImpl project = new EclipseProjectImpl(null, projectDirectory, 7);
+    EclipseProjectImpl sameDirectory = new EclipseProjectImpl(null, projectDirectory, 7);
+
+    // projects are compared by identity
+    Assert.assertTrue(project.equals(project));
+    Assert.assertFalse(project.equals(sameDirectory));
+    Assert.assertFalse(project.equals(null));
+    Set<EclipseProject> projects = new HashSet<EclipseProject>();
+    projects.add(project);
+    projects.add(sameDirectory);
+    projects.add(project);
+    Assert.assertEquals(2, projects.size());
+
+    // the hash code is the id
+    Assert.assertEquals(7, project.getId());
+    Assert.assertEquals(7, project.hashCode());
+    project.attach(null, 3);
+    Assert.assertEquals(3, project.getId());
+    Assert.assertEquals(3, project.hashCode());
+  }
+
+  @Test
+  public void idAssignment() {
+    WorkspaceRegistry workspaceRegistry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    Workspace workspace = workspaceRegistry.registerWorkspace("workspace", new DefaultEclipseWorkspaceDefinition(
+        this._testWorkspace.getRootDir()));
+
+    // the ids are the indices of the projects within the workspace
+    Assert.assertEquals(3, workspace.getProjectCount());
+    BitSet ids = new BitSet();
+    for (EclipseProject project : workspace.getAllProjects()) {
+      Assert.assertFalse(ids.get(project.getId()));
+      ids.set(project.getId());
+      Assert.assertSame(project, workspace.getProject(project.getSpecifiedName()));
+      Assert.assertEquals(project.getId(), project.hashCode());
+    }
+    Assert.assertEquals(workspace.getProjectCount(), ids.cardinality());
+    Assert.assertEquals(workspace.getProjectCount(), ids.length());
+
+    // a refreshed workspace contains new instances with the same ids
+    EclipseProject project1 = workspace.getProject("simpleproject1");
+    workspaceRegistry.refreshWorkspace("workspace");
+    Workspace refreshed = workspaceRegistry.getWorkspace("workspace");
+    EclipseProject refreshedProject1 = refreshed.getProject("simpleproject1");
+    Assert.assertNotSame(project1, refreshedProject1);
+    Assert.assertFalse(project1.equals(refreshedProject1));
+    Assert.assertEquals(project1.getId(), refreshedProject1.getId());
+  }
+
+} /* ENDCLASS */
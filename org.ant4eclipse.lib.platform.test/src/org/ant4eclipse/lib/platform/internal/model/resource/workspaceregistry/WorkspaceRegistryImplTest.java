@@ -0,0 +1,78 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.platform.internal.model.resource.workspaceregistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.DefaultEclipseWorkspaceDefinition;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.lib.platform.tools.BuildOrderResolver;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.EclipseProjectBuilder;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Test;
+
+public class WorkspaceRegistryImplTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory _testWorkspace;
+
+  @Override
+  public void setup() {
+    super.setup();
+
+    this._testWorkspace = new TestDirectory();
+
+    new EclipseProjectBuilder("simpleproject1").createIn(this._testWorkspace.getRootDir());
+    new EclipseProjectBuilder("simpleproject2").withProjectReference("simpleproject1").createIn(
+        this._testWorkspace.getRootDir());
+    new EclipseProjectBuilder("simpleproject3").withProjectReference("simpleproject2").createIn(
+        this._testWorkspace.getRootDir());
+  }
+
+  @Override
+  public void dispose() {
+    this._testWorkspace.dispose();
+
+    super.dispose();
+  }
+
+  @Test
+  public void concurrentRegistration() {
+    WorkspaceRegistry workspaceRegistry = ServiceRegistryAccess.instance().getService(WorkspaceRegistry.class);
+    Workspace sequential = workspaceRegistry.registerWorkspace("sequential", new DefaultEclipseWorkspaceDefinition(
+        this._testWorkspace.getRootDir()));
+    Workspace concurrent = workspaceRegistry.registerWorkspace("concurrent", new DefaultEclipseWorkspaceDefinition(
+        this._testWorkspace.getRootDir()), 4);
+
+    // the projects get the same ids regardless of the number of threads
+    assertEquals(sequential.getProjectCount(), concurrent.getProjectCount());
+    for (EclipseProject project : sequential.getAllProjects()) {
+      assertEquals(project.getId(), concurrent.getProject(project.getSpecifiedName()).getId());
+      assertSame(concurrent, concurrent.getProject(project.getSpecifiedName()).getWorkspace());
+    }
+
+    List<EclipseProject> projects = BuildOrderResolver.resolveBuildOrder(concurrent, new String[] { "simpleproject3",
+        "simpleproject1", "simpleproject2" }, null, null);
+
+    assertEquals(3, projects.size());
+    assertSame(concurrent.getProject("simpleproject1"), projects.get(0));
+    assertSame(concurrent.getProject("simpleproject2"), projects.get(1));
+    assertSame(concurrent.getProject("simpleproject3"), projects.get(2));
+  }
+
+} /* ENDCLASS */
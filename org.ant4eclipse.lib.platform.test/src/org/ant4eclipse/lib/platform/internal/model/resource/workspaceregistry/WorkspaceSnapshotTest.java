@@ -0,0 +1,199 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.platform.internal.model.resource.workspaceregistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.platform.internal.model.resource.EclipseProjectImpl;
+import org.ant4eclipse.lib.platform.internal.model.resource.WorkspaceImpl;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
+import org.ant4eclipse.testframework.EclipseProjectBuilder;
+import org.ant4eclipse.testframework.JUnitUtilities;
+import org.ant4eclipse.testframework.TestDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkspaceSnapshotTest extends ConfigurableAnt4EclipseTestCase {
+
+  private TestDirectory  _testWorkspace;
+
+  private File           _snapshotDir;
+
+  private File           _projectDir;
+
+  private ProjectFactory _projectFactory;
+
+  @Override
+  public void setup() {
+    super.setup();
+    this._testWorkspace = new TestDirectory();
+    this._snapshotDir = JUnitUtilities.createTempDir();
+    System.setProperty(WorkspaceSnapshot.SNAPSHOT_DIRECTORY_PROPERTY, this._snapshotDir.getAbsolutePath());
+
+    this._projectDir = new EclipseProjectBuilder("simpleproject").withNature("org.example.nature").createIn(
+        this._testWorkspace.getRootDir());
+    writeFile(".settings/org.example.core.prefs", "a=b");
+    writeFile(".settings/nested/org.example.ui.prefs", "c=d");
+    this._projectFactory = new ProjectFactory();
+  }
+
+  @Override
+  public void dispose() {
+    System.clearProperty(WorkspaceSnapshot.SNAPSHOT_DIRECTORY_PROPERTY);
+    Utilities.delete(this._snapshotDir);
+    this._testWorkspace.dispose();
+    super.dispose();
+  }
+
+  @Test
+  public void disabled() {
+    System.clearProperty(WorkspaceSnapshot.SNAPSHOT_DIRECTORY_PROPERTY);
+    Assert.assertNull(WorkspaceSnapshot.getSnapshot("workspace", this._projectFactory));
+  }
+
+  @Test
+  public void missAndHit() {
+    // nothing has been stored yet
+    WorkspaceSnapshot snapshot = getSnapshot();
+    Assert.assertNull(snapshot.restore(new WorkspaceImpl(), this._projectDir, 0));
+    storeProject(snapshot);
+    Assert.assertEquals(1, this._snapshotDir.listFiles().length);
+
+    WorkspaceImpl workspace = new WorkspaceImpl();
+    EclipseProjectImpl project = getSnapshot().restore(workspace, this._projectDir, 3);
+    Assert.assertNotNull(project);
+    Assert.assertSame(workspace, project.getWorkspace());
+    Assert.assertEquals(3, project.getId());
+    Assert.assertEquals("simpleproject", project.getSpecifiedName());
+    Assert.assertTrue(project.hasNature("org.example.nature"));
+    Assert.assertEquals(Utilities.getCanonicalFile(this._projectDir), Utilities.getCanonicalFile(project.getFolder()));
+
+    // a snapshot is per workspace
+    Assert.assertNull(WorkspaceSnapshot.getSnapshot("other", this._projectFactory).restore(workspace,
+        this._projectDir, 0));
+  }
+
+  @Test
+  public void changedProjectFile() {
+    storeProject(getSnapshot());
+    touch(writeFile(".project", Utilities.readTextContent(new File(this._projectDir, ".project"), "UTF-8", true)
+        .toString().replace("org.example.nature", "org.example.other")));
+    Assert.assertNull(getSnapshot().restore(new WorkspaceImpl(), this._projectDir, 0));
+  }
+
+  @Test
+  public void changedNestedFile() {
+    storeProject(getSnapshot());
+    touch(writeFile(".settings/nested/org.example.ui.prefs", "c=e"));
+    Assert.assertNull(getSnapshot().restore(new WorkspaceImpl(), this._projectDir, 0));
+  }
+
+  @Test
+  public void addedNestedFile() {
+    storeProject(getSnapshot());
+    writeFile("META-INF/nested/added.txt", "added");
+    Assert.assertNull(getSnapshot().restore(new WorkspaceImpl(), this._projectDir, 0));
+  }
+
+  @Test
+  public void otherFilesDontInvalidate() {
+    storeProject(getSnapshot());
+    writeFile("src/org/example/Test.java", "class Test { }");
+    Assert.assertNotNull(getSnapshot().restore(new WorkspaceImpl(), this._projectDir, 0));
+  }
+
+  @Test
+  public void corruptSnapshot() {
+    storeProject(getSnapshot());
+    File snapshotFile = this._snapshotDir.listFiles()[0];
+    Utilities.writeFile(snapshotFile, "corrupt", "UTF-8");
+
+    // the corrupt snapshot is ignored and replaced
+    WorkspaceSnapshot snapshot = getSnapshot();
+    Assert.assertNull(snapshot.restore(new WorkspaceImpl(), this._projectDir, 0));
+    storeProject(snapshot);
+    Assert.assertNotNull(getSnapshot().restore(new WorkspaceImpl(), this._projectDir, 0));
+  }
+
+  @Test
+  public void truncatedSnapshot() throws Exception {
+    storeProject(getSnapshot());
+    File snapshotFile = this._snapshotDir.listFiles()[0];
+    RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+    try {
+      file.setLength(file.length() - 10);
+    } finally {
+      file.close();
+    }
+    Assert.assertNull(getSnapshot().restore(new WorkspaceImpl(), this._projectDir, 0));
+  }
+
+  @Test
+  public void allowedClasses() throws Exception {
+    Assert.assertTrue(WorkspaceSnapshot.isAllowedClass(EclipseProjectImpl.class.getName()));
+    Assert.assertTrue(WorkspaceSnapshot.isAllowedClass(String.class.getName()));
+    Assert.assertTrue(WorkspaceSnapshot.isAllowedClass(String[].class.getName()));
+    Assert.assertTrue(WorkspaceSnapshot.isAllowedClass(byte[].class.getName()));
+    Assert.assertTrue(WorkspaceSnapshot.isAllowedClass(EclipseProjectImpl[][].class.getName()));
+    Assert.assertFalse(WorkspaceSnapshot.isAllowedClass(Date.class.getName()));
+    Assert.assertFalse(WorkspaceSnapshot.isAllowedClass(Date[].class.getName()));
+    Assert.assertFalse(WorkspaceSnapshot.isAllowedClass("B"));
+    Assert.assertFalse(WorkspaceSnapshot.isAllowedClass("org.ant4eclipse.lib.core.util.Utilities"));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream output = new ObjectOutputStream(bytes);
+    output.writeObject(new Date());
+    output.close();
+    try {
+      WorkspaceSnapshot.deserialize(bytes.toByteArray());
+      Assert.fail();
+    } catch (InvalidClassException ex) {
+      // the class is rejected before it is loaded
+    }
+  }
+
+  private WorkspaceSnapshot getSnapshot() {
+    WorkspaceSnapshot result = WorkspaceSnapshot.getSnapshot("workspace", this._projectFactory);
+    Assert.assertNotNull(result);
+    return result;
+  }
+
+  private void storeProject(WorkspaceSnapshot snapshot) {
+    EclipseProject project = this._projectFactory.readProjectFromWorkspace(new WorkspaceImpl(), this._projectDir, 0);
+    snapshot.store(project);
+    snapshot.save();
+  }
+
+  private File writeFile(String path, String content) {
+    File file = new File(this._projectDir, path);
+    Utilities.mkdirs(file.getParentFile());
+    Utilities.writeFile(file, content, "UTF-8");
+    return file;
+  }
+
+  /**
+   * <p>
+   * Moves the time stamp of the given file into the future, as the file system might have a granularity of seconds.
+   * </p>
+   */
+  private void touch(File file) {
+    Assert.assertTrue(file.setLastModified(file.lastModified() + 10000));
+  }
+
+} /* ENDCLASS */
@@ -12,14 +12,22 @@
 package org.ant4eclipse.lib.platform.model.resource.role;
 
 import org.ant4eclipse.lib.core.util.StringMap;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.platform.internal.model.resource.EclipseProjectImpl;
 import org.ant4eclipse.lib.platform.internal.model.resource.role.ProjectRoleIdentifierRegistry;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 import org.ant4eclipse.lib.platform.model.resource.role.ProjectRole;
 import org.ant4eclipse.lib.platform.model.resource.role.ProjectRoleIdentifier;
+import org.ant4eclipse.lib.platform.model.resource.validator.ProjectValidator;
+import org.ant4eclipse.lib.platform.model.resource.validator.ValidatorRegistry;
 import org.ant4eclipse.testframework.ConfigurableAnt4EclipseTestCase;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
 public class ProjectRoleIdentifierRegistryTest extends ConfigurableAnt4EclipseTestCase {
 
   @Override
@@ -27,6 +35,7 @@ public class ProjectRoleIdentifierRegistryTest extends ConfigurableAnt4EclipseTe
     // add TestProjectRoleIdentifier to ant4eclipse properties
     properties.put(ProjectRoleIdentifierRegistry.ROLEIDENTIFIER_PREFIX + ".dummyRole", TestProjectRoleIdentifier.class
         .getName());
+    properties.put(ValidatorRegistry.PREFIX_VALIDATOR + ".counting", CountingProjectValidator.class.getName());
     return properties;
   }
 
@@ -41,6 +50,96 @@ public class ProjectRoleIdentifierRegistryTest extends ConfigurableAnt4EclipseTe
     Assert.assertTrue(roleIdentifier.getClass().getName(), roleIdentifier instanceof TestProjectRoleIdentifier);
   }
 
+  @Test
+  public void lazyRoles() {
+    File projectDirectory = Utilities.createTempDir();
+    try {
+      EclipseProjectImpl project = new EclipseProjectImpl(null, projectDirectory, 0);
+      CountingProjectRoleIdentifier identifier = new CountingProjectRoleIdentifier();
+      project.addPendingRole(identifier);
+
+      // the role type is sufficient to answer these
+      Assert.assertTrue(project.hasRole(ProjectRole.class));
+      Assert.assertTrue(project.hasRole(AbstractProjectRole.class));
+      Assert.assertEquals(0, identifier._created);
+
+      // a more specific role type requires the role
+      Assert.assertFalse(project.hasRole(OtherProjectRole.class));
+      Assert.assertEquals(1, identifier._created);
+
+      Assert.assertTrue(project.getRole(ProjectRole.class) instanceof CountingProjectRole);
+      Assert.assertEquals(1, project.getRoles().length);
+      Assert.assertEquals(1, identifier._created);
+    } finally {
+      Utilities.delete(projectDirectory);
+    }
+  }
+
+  @Test
+  public void validationKeepsRolesPending() {
+    File projectDirectory = Utilities.createTempDir();
+    try {
+      EclipseProjectImpl project = new EclipseProjectImpl(null, projectDirectory, 0);
+      project.addRole(new CountingProjectRole(project));
+      CountingProjectRoleIdentifier identifier = new CountingProjectRoleIdentifier();
+      project.addPendingRole(identifier);
+
+      // only the existing role is validated
+      CountingProjectValidator.reset();
+      project.validateRoles(new ValidatorRegistry());
+      Assert.assertEquals(0, identifier._created);
+      Assert.assertEquals(1, CountingProjectValidator._validated);
+
+      // the pending role is validated when it is created
+      ProjectRole[] roles = project.getRoles();
+      Assert.assertEquals(2, roles.length);
+      Assert.assertEquals(1, identifier._created);
+      Assert.assertEquals(2, CountingProjectValidator._validated);
+
+      project.getRoles();
+      Assert.assertEquals(2, CountingProjectValidator._validated);
+    } finally {
+      Utilities.delete(projectDirectory);
+    }
+  }
+
+  @Test
+  public void concurrentRoleCreation() throws Exception {
+    File projectDirectory = Utilities.createTempDir();
+    try {
+      final EclipseProjectImpl project = new EclipseProjectImpl(null, projectDirectory, 0);
+      final BlockingProjectRoleIdentifier identifier = new BlockingProjectRoleIdentifier();
+      project.addPendingRole(identifier);
+      CountingProjectValidator.reset();
+      project.validateRoles(new ValidatorRegistry());
+
+      // both threads have to create the role at the same time, which fails if the project is locked meanwhile
+      final ProjectRole[] roles = new ProjectRole[2];
+      Thread[] threads = new Thread[roles.length];
+      for (int i = 0; i < threads.length; i++) {
+        final int index = i;
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            roles[index] = project.getRole(CountingProjectRole.class);
+          }
+        };
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      Assert.assertEquals(2, identifier._created);
+      Assert.assertNotNull(roles[0]);
+      Assert.assertSame(roles[0], roles[1]);
+      Assert.assertSame(roles[0], project.getRoles()[0]);
+      Assert.assertEquals(1, CountingProjectValidator._validated);
+    } finally {
+      Utilities.delete(projectDirectory);
+    }
+  }
+
   public static class TestProjectRoleIdentifier implements ProjectRoleIdentifier {
 
     /**
@@ -57,6 +156,10 @@ public class ProjectRoleIdentifierRegistryTest extends ConfigurableAnt4EclipseTe
       return false;
     }
 
+    public Class<? extends ProjectRole> getRoleType() {
+      return ProjectRole.class;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -65,4 +168,91 @@ public class ProjectRoleIdentifierRegistryTest extends ConfigurableAnt4EclipseTe
 
   } /* ENDCLASS */
 
+  public static class CountingProjectRoleIdentifier implements ProjectRoleIdentifier {
+
+    private int _created;
+
+    public ProjectRole createRole(EclipseProject project) {
+      this._created++;
+      return new CountingProjectRole(project);
+    }
+
+    public boolean isRoleSupported(EclipseProject project) {
+      return true;
+    }
+
+    public Class<? extends ProjectRole> getRoleType() {
+      return AbstractProjectRole.class;
+    }
+
+    public void postProcess(EclipseProject project) {
+    }
+
+  } /* ENDCLASS */
+
+  public static class BlockingProjectRoleIdentifier extends CountingProjectRoleIdentifier {
+
+    private CyclicBarrier _barrier = new CyclicBarrier(2);
+
+    private int           _created;
+
+    @Override
+    public ProjectRole createRole(EclipseProject project) {
+      synchronized (this) {
+        this._created++;
+      }
+      try {
+        // returns as soon as the other thread creates the role, too
+        this._barrier.await(10, TimeUnit.SECONDS);
+      } catch (Exception ex) {
+        throw new RuntimeException(ex);
+      }
+      return new CountingProjectRole(project);
+    }
+
+  } /* ENDCLASS */
+
+  public static class CountingProjectValidator implements ProjectValidator {
+
+    private static int _validated;
+
+    public CountingProjectValidator(String key) {
+    }
+
+    public static synchronized void reset() {
+      _validated = 0;
+    }
+
+    public boolean canValidate(ProjectRole role) {
+      return role instanceof CountingProjectRole;
+    }
+
+    public void validate(ProjectRole role) {
+      synchronized (CountingProjectValidator.class) {
+        _validated++;
+      }
+    }
+
+  } /* ENDCLASS */
+
+  public static class CountingProjectRole extends AbstractProjectRole {
+
+    private static final long serialVersionUID = 1L;
+
+    public CountingProjectRole(EclipseProject project) {
+      super("CountingProjectRole", project);
+    }
+
+  } /* ENDCLASS */
+
+  public abstract static class OtherProjectRole extends AbstractProjectRole {
+
+    private static final long serialVersionUID = 1L;
+
+    public OtherProjectRole(EclipseProject project) {
+      super("OtherProjectRole", project);
+    }
+
+  } /* ENDCLASS */
+
 } /* ENDCLASS */
@@ -14,6 +14,8 @@ package org.ant4eclipse.lib.platform.internal.model.resource;
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.platform.model.resource.BuildCommand;
 
+import java.io.Serializable;
+
 /**
  * <p>
  * Encapsulates an build command of an eclipse java project.
@@ -21,7 +23,10 @@ import org.ant4eclipse.lib.platform.model.resource.BuildCommand;
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
-public class BuildCommandImpl implements BuildCommand {
+public class BuildCommandImpl implements BuildCommand, Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
 
   /** the name of the build command */
   private String _name;
@@ -19,13 +19,16 @@ import org.ant4eclipse.lib.platform.model.resource.BuildCommand;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 import org.ant4eclipse.lib.platform.model.resource.ProjectNature;
 import org.ant4eclipse.lib.platform.model.resource.Workspace;
-import org.ant4eclipse.lib.platform.model.resource.role.AbstractProjectRole;
 import org.ant4eclipse.lib.platform.model.resource.role.ProjectRole;
+import org.ant4eclipse.lib.platform.model.resource.role.ProjectRoleIdentifier;
+import org.ant4eclipse.lib.platform.model.resource.validator.ValidatorRegistry;
 
 import java.io.File;
-import java.util.Iterator;
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Encapsultes a project. A project contains a workspace and is represented by a directory in this workspace. A project
@@ -33,13 +36,19 @@ import java.util.List;
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
-public final class EclipseProjectImpl implements EclipseProject {
+public final class EclipseProjectImpl implements EclipseProject, Serializable {
+
+  /** serialVersionUID */
+  private static final long        serialVersionUID     = 1L;
 
   /** The name of the projects <tt>.settings</tt> folder */
   public static final String       SETTINGS_FOLDER_NAME = ".settings";
 
-  /** the workspace that contains this project */
-  private Workspace                _workspace;
+  /** the workspace that contains this project (not stored in a snapshot) */
+  private transient Workspace      _workspace;
+
+  /** the id of this project within the workspace */
+  private int                      _id;
 
   /** the file that represents this project */
   private File                     _projectDirectory;
@@ -56,8 +65,8 @@ public final class EclipseProjectImpl implements EclipseProject {
   /** the list of project natures */
   private List<ProjectNature>      _natures;
 
-  /** the list of project roles */
-  private List<ProjectRole>        _roles;
+  /** the list of project roles (roles that have only been announced are created on first access) */
+  private List<RoleSlot>           _roles;
 
   /** the list of buildCommands */
   private List<BuildCommand>       _buildCommands;
@@ -71,21 +80,27 @@ public final class EclipseProjectImpl implements EclipseProject {
   /** the names of the linked resource. used for the mapping */
   private List<String>             _linkedResourceNames;
 
+  /** validates the roles once the project has been set up, <code>null</code> before */
+  private transient volatile ValidatorRegistry _validatorRegistry;
+
   /**
    * Creates a new instance of type project.
    * 
    * @param workspace
    *          the workspace
-   * @param projectName
-   *          the name of the project
+   * @param projectDirectory
+   *          the directory of the project
+   * @param id
+   *          the id of the project within the workspace
    */
-  public EclipseProjectImpl(Workspace workspace, File projectDirectory) {
+  public EclipseProjectImpl(Workspace workspace, File projectDirectory, int id) {
     Assure.isDirectory("projectDirectory", projectDirectory);
 
     this._workspace = workspace;
+    this._id = id;
     this._projectDirectory = Utilities.getCanonicalFile(projectDirectory);
     this._natures = new LinkedList<ProjectNature>();
-    this._roles = new LinkedList<ProjectRole>();
+    this._roles = new LinkedList<RoleSlot>();
     this._buildCommands = new LinkedList<BuildCommand>();
     this._referencedProjects = new LinkedList<String>();
     this._linkedResources = new LinkedList<LinkedResourceImpl>();
@@ -95,6 +110,29 @@ public final class EclipseProjectImpl implements EclipseProject {
     this._settingsFolder = (settingsFolder.isDirectory() ? settingsFolder : null);
   }
 
+  /**
+   * <p>
+   * Attaches this project to the given workspace. This is used for projects that have been restored from a snapshot of
+   * a previous run, as neither the workspace nor the id of a project are part of the snapshot.
+   * </p>
+   * 
+   * @param workspace
+   *          the workspace
+   * @param id
+   *          the id of the project within the workspace
+   */
+  public void attach(Workspace workspace, int id) {
+    this._workspace = workspace;
+    this._id = id;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public int getId() {
+    return this._id;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -399,7 +437,26 @@ public final class EclipseProjectImpl implements EclipseProject {
       throw new RuntimeException("ProjectRole " + role.getClass() + " is already set!");
     }
 
-    this._roles.add(role);
+    RoleSlot slot = new RoleSlot(role);
+    synchronized (this) {
+      this._roles.add(slot);
+    }
+    validateRole(slot, role);
+  }
+
+  /**
+   * <p>
+   * Announces a role that will be created by the given identifier. The role is created (i.e. its metadata is parsed)
+   * the first time it is requested by {@link #getRole(Class)} or {@link #getRoles()}. {@link #hasRole(Class)} can
+   * usually be answered from the role type of the identifier without creating the role.
+   * </p>
+   * 
+   * @param projectRoleIdentifier
+   *          the identifier that creates the role. The identifier must support this project.
+   */
+  public synchronized void addPendingRole(ProjectRoleIdentifier projectRoleIdentifier) {
+    Assure.notNull("projectRoleIdentifier", projectRoleIdentifier);
+    this._roles.add(new RoleSlot(projectRoleIdentifier));
   }
 
   /**
@@ -407,9 +464,19 @@ public final class EclipseProjectImpl implements EclipseProject {
    */
   public boolean hasRole(Class<? extends ProjectRole> projectRoleClass) {
     Assure.notNull("projectRoleClass", projectRoleClass);
-    Iterator<ProjectRole> iterator = this._roles.iterator();
-    while (iterator.hasNext()) {
-      AbstractProjectRole role = (AbstractProjectRole) iterator.next();
+    for (RoleSlot slot : getRoleSlots()) {
+      ProjectRole role = slot._role;
+      if (role == null) {
+        Class<? extends ProjectRole> roleType = slot._identifier.getRoleType();
+        if (projectRoleClass.isAssignableFrom(roleType)) {
+          return true;
+        }
+        if (!roleType.isAssignableFrom(projectRoleClass)) {
+          continue;
+        }
+        // a more specific class has been requested, so we have to know the actual role
+        role = createRole(slot);
+      }
       if (projectRoleClass.isAssignableFrom(role.getClass())) {
         return true;
       }
@@ -426,23 +493,95 @@ public final class EclipseProjectImpl implements EclipseProject {
     Assure.assertTrue(hasRole(projectRoleClass), "hasRole(projectRoleClass) on project '" + getFolderName()
         + "'has to be true for role '" + projectRoleClass + "'!");
 
-    Iterator<ProjectRole> iterator = this._roles.iterator();
-
-    ProjectRole role = null;
-    while (iterator.hasNext()) {
-      role = iterator.next();
+    for (RoleSlot slot : getRoleSlots()) {
+      ProjectRole role = slot._role;
+      if (role == null) {
+        Class<? extends ProjectRole> roleType = slot._identifier.getRoleType();
+        if (!projectRoleClass.isAssignableFrom(roleType) && !roleType.isAssignableFrom(projectRoleClass)) {
+          continue;
+        }
+        role = createRole(slot);
+      }
       if (projectRoleClass.isAssignableFrom(role.getClass())) {
-        break;
+        return (T) role;
       }
     }
-    return (T) role;
+    return null;
   }
 
   /**
    * {@inheritDoc}
    */
   public ProjectRole[] getRoles() {
-    return this._roles.toArray(new ProjectRole[this._roles.size()]);
+    RoleSlot[] slots = getRoleSlots();
+    ProjectRole[] result = new ProjectRole[slots.length];
+    for (int i = 0; i < slots.length; i++) {
+      ProjectRole role = slots[i]._role;
+      result[i] = (role != null ? role : createRole(slots[i]));
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Validates the roles of this project with the given registry. Roles that have already been created are validated
+   * immediately, roles that have only been announced are validated when they are created.
+   * </p>
+   * 
+   * @param validatorRegistry
+   *          the registry that validates the roles
+   */
+  public void validateRoles(ValidatorRegistry validatorRegistry) {
+    Assure.notNull("validatorRegistry", validatorRegistry);
+    this._validatorRegistry = validatorRegistry;
+    for (RoleSlot slot : getRoleSlots()) {
+      ProjectRole role = slot._role;
+      if (role != null) {
+        validateRole(slot, role);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns a copy of the role slots, so that they can be traversed without holding the lock of this project.
+   * </p>
+   */
+  private synchronized RoleSlot[] getRoleSlots() {
+    return this._roles.toArray(new RoleSlot[this._roles.size()]);
+  }
+
+  /**
+   * <p>
+   * Creates the announced role of the given slot. The role is created without holding a lock, as creating a role might
+   * require access to other projects. If several threads create the role concurrently, the role that has been
+   * published first is used by all of them.
+   * </p>
+   * 
+   * @param slot
+   *          the slot that contains the identifier of the role
+   * @return the role of the slot
+   */
+  private ProjectRole createRole(RoleSlot slot) {
+    ProjectRole role = slot._identifier.createRole(this);
+    Assure.notNull("role", role);
+    RoleSlot.ROLE_UPDATER.compareAndSet(slot, null, role);
+    role = slot._role;
+    validateRole(slot, role);
+    return role;
+  }
+
+  /**
+   * <p>
+   * Validates the role of the given slot, if the validators are known already and if the role hasn't been validated
+   * yet.
+   * </p>
+   */
+  private void validateRole(RoleSlot slot, ProjectRole role) {
+    ValidatorRegistry validatorRegistry = this._validatorRegistry;
+    if ((validatorRegistry != null) && RoleSlot.VALIDATED_UPDATER.compareAndSet(slot, 0, 1)) {
+      validatorRegistry.validate(role);
+    }
   }
 
   /**
@@ -522,6 +661,15 @@ public final class EclipseProjectImpl implements EclipseProject {
     return this._linkedResourceNames.contains(name);
   }
 
+  /**
+   * Returns true if this project contains at least one linked resource.
+   * 
+   * @return true <=> This project contains at least one linked resource.
+   */
+  public boolean hasLinkedResources() {
+    return !this._linkedResources.isEmpty();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -545,97 +693,14 @@ public final class EclipseProjectImpl implements EclipseProject {
   }
 
   /**
-   * {@inheritDoc}
+   * <p>
+   * Projects are canonical: a workspace contains exactly one instance per project, so two projects are equal if and
+   * only if they are the same instance.
+   * </p>
    */
   @Override
   public boolean equals(Object o) {
-    if (this == o) {
-      return true;
-    }
-    if (o == null) {
-      return false;
-    }
-    if (o.getClass() != getClass()) {
-      return false;
-    }
-    EclipseProjectImpl castedObj = (EclipseProjectImpl) o;
-    if (this._workspace == null) {
-      if (castedObj._workspace != null) {
-        return false;
-      }
-    } else {
-      if (!this._workspace.equals(castedObj._workspace)) {
-        return false;
-      }
-    }
-    if (this._projectDirectory == null) {
-      if (castedObj._projectDirectory != null) {
-        return false;
-      }
-    } else {
-      if (!this._projectDirectory.equals(castedObj._projectDirectory)) {
-        return false;
-      }
-    }
-    if (this._specifiedName == null) {
-      if (castedObj._specifiedName != null) {
-        return false;
-      }
-    } else {
-      if (!this._specifiedName.equals(castedObj._specifiedName)) {
-        return false;
-      }
-    }
-    if (this._comment == null) {
-      if (castedObj._comment != null) {
-        return false;
-      }
-    } else {
-      if (!this._comment.equals(castedObj._comment)) {
-        return false;
-      }
-    }
-    if (this._natures == null) {
-      if (castedObj._natures != null) {
-        return false;
-      }
-    } else {
-      if (!this._natures.equals(castedObj._natures)) {
-        return false;
-      }
-    }
-    if (this._roles == null) {
-      if (castedObj._roles != null) {
-        return false;
-      }
-    } else {
-      if (!this._roles.equals(castedObj._roles)) {
-        return false;
-      }
-    }
-    if (this._buildCommands == null) {
-      if (castedObj._buildCommands != null) {
-        return false;
-      }
-    } else {
-      if (!this._buildCommands.equals(castedObj._buildCommands)) {
-        return false;
-      }
-    }
-    if (this._referencedProjects == null) {
-      if (castedObj._referencedProjects != null) {
-        return false;
-      }
-    } else {
-      if (!this._referencedProjects.equals(castedObj._referencedProjects)) {
-        return false;
-      }
-    }
-    if (this._linkedResources == null) {
-      return castedObj._linkedResources == null;
-    } else {
-      return this._linkedResources.equals(castedObj._linkedResources);
-    }
+    return this == o;
   }
 
   /**
@@ -643,14 +708,49 @@ public final class EclipseProjectImpl implements EclipseProject {
    */
   @Override
   public int hashCode() {
-    int hashCode = 1;
-    hashCode = 31 * hashCode + (this._projectDirectory == null ? 0 : this._projectDirectory.hashCode());
-    hashCode = 31 * hashCode + (this._specifiedName == null ? 0 : this._specifiedName.hashCode());
-    hashCode = 31 * hashCode + (this._comment == null ? 0 : this._comment.hashCode());
-    hashCode = 31 * hashCode + (this._natures == null ? 0 : this._natures.hashCode());
-    hashCode = 31 * hashCode + (this._roles == null ? 0 : this._roles.hashCode());
-    hashCode = 31 * hashCode + (this._buildCommands == null ? 0 : this._buildCommands.hashCode());
-    hashCode = 31 * hashCode + (this._linkedResources == null ? 0 : this._linkedResources.hashCode());
-    return hashCode;
+    return this._id;
+  }
+
+  /**
+   * <p>
+   * A role of the project. Either the role itself or the identifier that creates it on first access is set. The role is
+   * published with a compare-and-set: concurrent threads might create it more than once, but all of them use the role
+   * that has been published first.
+   * </p>
+   */
+  private static final class RoleSlot implements Serializable {
+
+    /** serialVersionUID */
+    private static final long                                               serialVersionUID  = 1L;
+
+    /** publishes the role of a slot */
+    private static final AtomicReferenceFieldUpdater<RoleSlot, ProjectRole> ROLE_UPDATER      = AtomicReferenceFieldUpdater
+                                                                                                  .newUpdater(
+                                                                                                      RoleSlot.class,
+                                                                                                      ProjectRole.class,
+                                                                                                      "_role");
+
+    /** marks the role of a slot as validated */
+    private static final AtomicIntegerFieldUpdater<RoleSlot>                VALIDATED_UPDATER = AtomicIntegerFieldUpdater
+                                                                                                  .newUpdater(
+                                                                                                      RoleSlot.class,
+                                                                                                      "_validated");
+
+    /** the identifier that creates the role, <code>null</code> for roles that have been added directly */
+    private transient ProjectRoleIdentifier                                 _identifier;
+
+    /** the role, <code>null</code> as long as it hasn't been created */
+    private volatile ProjectRole                                            _role;
+
+    /** <code>1</code> once the role has been validated */
+    private transient volatile int                                          _validated;
+
+    public RoleSlot(ProjectRole role) {
+      this._role = role;
+    }
+
+    public RoleSlot(ProjectRoleIdentifier identifier) {
+      this._identifier = identifier;
+    }
   }
 }
\ No newline at end of file
@@ -11,6 +11,8 @@
  **********************************************************************/
 package org.ant4eclipse.lib.platform.internal.model.resource;
 
+import java.io.Serializable;
+
 /**
  * <p>
  * Represents a "linked resource" of an eclipse project.
@@ -18,7 +20,10 @@ package org.ant4eclipse.lib.platform.internal.model.resource;
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
-public class LinkedResourceImpl {
+public class LinkedResourceImpl implements Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
 
   /** the name of the linked resource */
   private String _name;
@@ -14,6 +14,8 @@ package org.ant4eclipse.lib.platform.internal.model.resource;
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.platform.model.resource.ProjectNature;
 
+import java.io.Serializable;
+
 /**
  * <p>
  * Encapsulates a nature of a project. A project can have multiple natures.
@@ -21,7 +23,10 @@ import org.ant4eclipse.lib.platform.model.resource.ProjectNature;
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
-public class ProjectNatureImpl implements ProjectNature {
+public class ProjectNatureImpl implements ProjectNature, Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
 
   /** the name of the nature */
   private String _name;
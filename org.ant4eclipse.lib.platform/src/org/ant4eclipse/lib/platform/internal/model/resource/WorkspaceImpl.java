@@ -114,6 +114,13 @@ public final class WorkspaceImpl implements Workspace {
     return result.toArray(new EclipseProject[0]);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public int getProjectCount() {
+    return this._projects.size();
+  }
+
   /**
    * <p>
    * Creates a new instance of type {@link WorkspaceImpl}.
@@ -137,40 +144,4 @@ public final class WorkspaceImpl implements Workspace {
 
     this._projects.put(key, eclipseProject);
   }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public int hashCode() {
-    int prime = 31;
-    int result = 1;
-    result = prime * result + ((this._projects == null) ? 0 : this._projects.hashCode());
-    return result;
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public boolean equals(Object obj) {
-    if (this == obj) {
-      return true;
-    }
-    if (obj == null) {
-      return false;
-    }
-    if (getClass() != obj.getClass()) {
-      return false;
-    }
-    WorkspaceImpl other = (WorkspaceImpl) obj;
-    if (this._projects == null) {
-      if (other._projects != null) {
-        return false;
-      }
-    } else if (!this._projects.equals(other._projects)) {
-      return false;
-    }
-    return true;
-  }
 } /* ENDCLASS */
\ No newline at end of file
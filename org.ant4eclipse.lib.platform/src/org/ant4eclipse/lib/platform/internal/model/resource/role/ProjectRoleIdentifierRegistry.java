@@ -18,7 +18,6 @@ import org.ant4eclipse.lib.core.util.Pair;
 import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.platform.internal.model.resource.EclipseProjectImpl;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
-import org.ant4eclipse.lib.platform.model.resource.role.ProjectRole;
 import org.ant4eclipse.lib.platform.model.resource.role.ProjectRoleIdentifier;
 
 import java.util.LinkedList;
@@ -47,7 +46,9 @@ public class ProjectRoleIdentifierRegistry {
   }
 
   /**
-   * Modifies the supplied project according to all currently registered RoleIdentifier instances.
+   * Modifies the supplied project according to all currently registered RoleIdentifier instances. The roles are only
+   * announced to the project: a role is created by its identifier when it is accessed for the first time, so the
+   * metadata of projects that are never used is not parsed.
    * 
    * @param project
    *          The project that shall be modified. Not <code>null</code>.
@@ -55,8 +56,7 @@ public class ProjectRoleIdentifierRegistry {
   public void applyRoles(EclipseProjectImpl project) {
     for (ProjectRoleIdentifier projectRoleIdentifier : this._projectRoleIdentifiers) {
       if (projectRoleIdentifier.isRoleSupported(project)) {
-        ProjectRole projectRole = projectRoleIdentifier.createRole(project);
-        project.addRole(projectRole);
+        project.addPendingRole(projectRoleIdentifier);
       }
     }
   }
@@ -17,6 +17,7 @@ import org.ant4eclipse.lib.platform.internal.model.resource.EclipseProjectImpl;
 import org.ant4eclipse.lib.platform.internal.model.resource.WorkspaceImpl;
 import org.ant4eclipse.lib.platform.internal.model.resource.role.ProjectRoleIdentifierRegistry;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.role.ProjectRoleIdentifier;
 import org.ant4eclipse.lib.platform.model.resource.validator.ValidatorRegistry;
 
 import java.io.File;
@@ -44,16 +45,18 @@ public class ProjectFactory {
    *          The workspace that contains the project
    * @param projectDirectory
    *          The root directory of the project
+   * @param id
+   *          The id of the project within the workspace
    * @return a configured EclipseProject instance
    */
-  public EclipseProject readProjectFromWorkspace(WorkspaceImpl workspace, File projectDirectory) {
+  public EclipseProject readProjectFromWorkspace(WorkspaceImpl workspace, File projectDirectory, int id) {
 
     A4ELogging.trace("ProjectFactory: readProjectFromWorkspace(%s, %s)", workspace, projectDirectory.getAbsolutePath());
 
     Assure.notNull("workspace", workspace);
     Assure.isDirectory("projectDirectory", projectDirectory);
 
-    EclipseProjectImpl project = new EclipseProjectImpl(workspace, projectDirectory);
+    EclipseProjectImpl project = new EclipseProjectImpl(workspace, projectDirectory, id);
 
     // parses the project description
     ProjectFileParser.parseProject(project);
@@ -66,6 +69,29 @@ public class ProjectFactory {
 
   }
 
+  /**
+   * Returns a description of the configuration that is used to read projects, i.e. the names of the registered role
+   * identifiers. Projects that have been read with a different configuration must not be reused.
+   * 
+   * @return a description of the configuration that is used to read projects.
+   */
+  public String getConfiguration() {
+    StringBuilder builder = new StringBuilder();
+    for (ProjectRoleIdentifier projectRoleIdentifier : this._projectRoleIdentifierRegistry.getProjectRoleIdentifiers()) {
+      builder.append(projectRoleIdentifier.getClass().getName()).append(';');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns the role identifiers that are used to read projects.
+   * 
+   * @return the role identifiers that are used to read projects.
+   */
+  public Iterable<ProjectRoleIdentifier> getProjectRoleIdentifiers() {
+    return this._projectRoleIdentifierRegistry.getProjectRoleIdentifiers();
+  }
+
   /**
    * Performs a postprocessing for each registere project role. The project roles already have been setup but operations
    * that might require to have access to other projects can be performed now.
@@ -76,7 +102,12 @@ public class ProjectFactory {
   public void postProcessRoleSetup(EclipseProject project) {
     A4ELogging.trace("ProjectFactory: postProcessRoleSetup(%s)", project.getSpecifiedName());
     this._projectRoleIdentifierRegistry.postProcessRoles(project);
-    this._validatorRegistry.validate(project);
+    if (project instanceof EclipseProjectImpl) {
+      // pending roles are validated when they are created, so they don't have to be created here
+      ((EclipseProjectImpl) project).validateRoles(this._validatorRegistry);
+    } else {
+      this._validatorRegistry.validate(project);
+    }
   }
 
 }
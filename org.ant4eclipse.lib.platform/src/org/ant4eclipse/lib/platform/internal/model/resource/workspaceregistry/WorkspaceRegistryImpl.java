@@ -16,14 +16,22 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.configuration.Ant4EclipseConfiguration;
+import org.ant4eclipse.lib.core.dependencygraph.DependencyGraphExecutor;
+import org.ant4eclipse.lib.core.dependencygraph.VertexHandler;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.service.ServiceRegistryAccess;
+import org.ant4eclipse.lib.core.util.Pair;
+import org.ant4eclipse.lib.core.util.Utilities;
 import org.ant4eclipse.lib.platform.internal.model.resource.WorkspaceImpl;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 import org.ant4eclipse.lib.platform.model.resource.Workspace;
 import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceDefinition;
 import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistry;
+import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRegistryListener;
 
 /**
  * <p>
@@ -34,9 +42,15 @@ import org.ant4eclipse.lib.platform.model.resource.workspaceregistry.WorkspaceRe
  */
 public class WorkspaceRegistryImpl implements WorkspaceRegistry {
 
+  /** the prefix of the configuration entries that name the {@link WorkspaceRegistryListener} classes */
+  public static final String                           PREFIX_WORKSPACE_REGISTRY_LISTENER = "workspaceRegistryListener";
+
   /** The factory used to build projects */
   private ProjectFactory                               _projectFactory;
 
+  /** the listeners that are notified when a workspace has been registered */
+  private List<WorkspaceRegistryListener>              _listeners;
+
   /** the workspace map (String, Workspace) */
   private Map<String, WorkspaceDefinitionAndWorkspace> _registry;
 
@@ -99,15 +113,24 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
     WorkspaceDefinitionAndWorkspace workspaceDefinitionAndWorkspace = this._registry.get(id);
 
     // re-register workspace
-    registerWorkspace(id, workspaceDefinitionAndWorkspace.getWorkspaceDefinition());
+    registerWorkspace(id, workspaceDefinitionAndWorkspace.getWorkspaceDefinition(), workspaceDefinitionAndWorkspace
+        .getThreadCount());
   }
 
   /**
    * {@inheritDoc}
    */
   public Workspace registerWorkspace(String id, WorkspaceDefinition workspaceDefinition) {
+    return registerWorkspace(id, workspaceDefinition, 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public Workspace registerWorkspace(String id, WorkspaceDefinition workspaceDefinition, int threadCount) {
     Assure.nonEmpty("id", id);
     Assure.notNull("workspaceDefinition", workspaceDefinition);
+    Assure.assertTrue(threadCount > 0, "threadCount must be greater than 0");
 
     // create new workspace implementation
     WorkspaceImpl workspace = new WorkspaceImpl();
@@ -120,25 +143,136 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
           Integer.valueOf(projectFolders.length));
     }
 
-    // read the projects and add them to the workspace
-    List<EclipseProject> projects = new ArrayList<EclipseProject>();
-    for (File projectFolder : projectFolders) {
-      EclipseProject eclipseProject = this._projectFactory.readProjectFromWorkspace(workspace, projectFolder);
-      projects.add(eclipseProject);
-      workspace.registerEclipseProject(eclipseProject);
+    // unchanged projects are restored from the snapshot of a previous run (if enabled)
+    WorkspaceSnapshot snapshot = WorkspaceSnapshot.getSnapshot(id, this._projectFactory);
+
+    // read the projects and add them to the workspace. The id of a project is its index in the workspace.
+    if ((threadCount > 1) && (projectFolders.length > 1)) {
+      readProjectsConcurrently(workspace, projectFolders, threadCount, snapshot);
+    } else {
+      List<EclipseProject> projects = new ArrayList<EclipseProject>();
+      for (File projectFolder : projectFolders) {
+        EclipseProject eclipseProject = readProject(workspace, projectFolder, projects.size(), snapshot);
+        projects.add(eclipseProject);
+        workspace.registerEclipseProject(eclipseProject);
+      }
+
+      for (EclipseProject project : projects) {
+        this._projectFactory.postProcessRoleSetup(project);
+      }
     }
 
-    for (EclipseProject project : projects) {
-      this._projectFactory.postProcessRoleSetup(project);
+    if (snapshot != null) {
+      snapshot.save();
     }
 
     // add the workspace to the registry
-    this._registry.put(id, new WorkspaceDefinitionAndWorkspace(workspaceDefinition, workspace));
+    this._registry.put(id, new WorkspaceDefinitionAndWorkspace(workspaceDefinition, workspace, threadCount));
+
+    // the projects of a previously registered workspace have been replaced
+    for (WorkspaceRegistryListener listener : this._listeners) {
+      listener.workspaceRegistered(id, workspace);
+    }
 
     // return the workspace
     return workspace;
   }
 
+  /**
+   * <p>
+   * Reads the projects in the given folders concurrently. The projects are parsed and their roles are applied by up to
+   * <code>threadCount</code> threads. Afterwards the projects are registered with the workspace in the order of the
+   * given folders, before their roles are post processed concurrently, too.
+   * </p>
+   * 
+   * @param workspace
+   *          the workspace that receives the projects
+   * @param projectFolders
+   *          the project folders
+   * @param threadCount
+   *          the maximum number of threads
+   * @param snapshot
+   *          the snapshot of a previous run, maybe <code>null</code>
+   */
+  private void readProjectsConcurrently(final WorkspaceImpl workspace, final File[] projectFolders, int threadCount,
+      final WorkspaceSnapshot snapshot) {
+
+    // the index of each project folder is used as the id of the project
+    List<Integer> indices = new ArrayList<Integer>(projectFolders.length);
+    for (int i = 0; i < projectFolders.length; i++) {
+      indices.add(Integer.valueOf(i));
+    }
+    final EclipseProject[] projects = new EclipseProject[projectFolders.length];
+    DependencyGraphExecutor<Integer> executor = new DependencyGraphExecutor<Integer>(threadCount);
+
+    // phase 1: parse the projects and apply their roles
+    execute(executor, indices, new VertexHandler<Integer>() {
+      public void handleVertex(Integer index) {
+        int id = index.intValue();
+        projects[id] = readProject(workspace, projectFolders[id], id, snapshot);
+      }
+    });
+
+    // register the projects in a deterministic order
+    for (EclipseProject project : projects) {
+      workspace.registerEclipseProject(project);
+    }
+
+    // phase 2: post process the roles (requires access to the other projects of the workspace)
+    execute(executor, indices, new VertexHandler<Integer>() {
+      public void handleVertex(Integer index) {
+        WorkspaceRegistryImpl.this._projectFactory.postProcessRoleSetup(projects[index.intValue()]);
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Reads the project in the given folder. If the project is contained in the given snapshot and its metadata files
+   * haven't been changed, the project is restored from the snapshot instead.
+   * </p>
+   * 
+   * @param workspace
+   *          the workspace that contains the project
+   * @param projectFolder
+   *          the project folder
+   * @param id
+   *          the id of the project
+   * @param snapshot
+   *          the snapshot of a previous run, maybe <code>null</code>
+   * @return the project
+   */
+  private EclipseProject readProject(WorkspaceImpl workspace, File projectFolder, int id, WorkspaceSnapshot snapshot) {
+    EclipseProject result = snapshot != null ? snapshot.restore(workspace, projectFolder, id) : null;
+    if (result == null) {
+      result = this._projectFactory.readProjectFromWorkspace(workspace, projectFolder, id);
+      if (snapshot != null) {
+        snapshot.store(result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Executes the given handler for the given project indices. A failure of the handler is rethrown unchanged.
+   * </p>
+   */
+  private void execute(DependencyGraphExecutor<Integer> executor, List<Integer> indices,
+      VertexHandler<Integer> handler) {
+    try {
+      executor.execute(indices, null, handler);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+      throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -146,6 +280,7 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
     this._registry.clear();
     this._registry = null;
     this._projectFactory = null;
+    this._listeners = null;
   }
 
   /**
@@ -154,6 +289,16 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
   public void initialize() {
     this._registry = new HashMap<String, WorkspaceDefinitionAndWorkspace>();
     this._projectFactory = new ProjectFactory();
+
+    Ant4EclipseConfiguration config = ServiceRegistryAccess.instance().getService(Ant4EclipseConfiguration.class);
+    List<WorkspaceRegistryListener> listeners = new ArrayList<WorkspaceRegistryListener>();
+    for (Pair<String, String> types : config.getAllProperties(PREFIX_WORKSPACE_REGISTRY_LISTENER)) {
+      // only the class name (the value of the entry) is relevant
+      WorkspaceRegistryListener listener = Utilities.newInstance(types.getSecond());
+      A4ELogging.trace("Register WorkspaceRegistryListener '%s'", listener);
+      listeners.add(listener);
+    }
+    this._listeners = listeners;
   }
 
   /**
@@ -168,10 +313,14 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
 
     private final Workspace           _workspace;
 
-    public WorkspaceDefinitionAndWorkspace(WorkspaceDefinition workspaceDefinition, Workspace workspace) {
+    private final int                 _threadCount;
+
+    public WorkspaceDefinitionAndWorkspace(WorkspaceDefinition workspaceDefinition, Workspace workspace,
+        int threadCount) {
       super();
       this._workspaceDefinition = workspaceDefinition;
       this._workspace = workspace;
+      this._threadCount = threadCount;
     }
 
     public WorkspaceDefinition getWorkspaceDefinition() {
@@ -182,6 +331,10 @@ public class WorkspaceRegistryImpl implements WorkspaceRegistry {
       return this._workspace;
     }
 
+    public int getThreadCount() {
+      return this._threadCount;
+    }
+
   }
 
 }
@@ -0,0 +1,518 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.platform.internal.model.resource.workspaceregistry;
+
+import org.ant4eclipse.lib.core.Assure;
+import org.ant4eclipse.lib.core.logging.A4ELogging;
+import org.ant4eclipse.lib.core.util.Utilities;
+import org.ant4eclipse.lib.platform.internal.model.resource.EclipseProjectImpl;
+import org.ant4eclipse.lib.platform.internal.model.resource.WorkspaceImpl;
+import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
+import org.ant4eclipse.lib.platform.model.resource.role.ProjectRoleIdentifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * A snapshot of the projects of a workspace as they have been read in a previous run. For each project the snapshot
+ * contains the serialized {@link EclipseProjectImpl} (including its roles, e.g. the bundle manifest of a plug-in
+ * project) and a fingerprint of the metadata files of the project, i.e. the files in the project directory and all
+ * files below its <code>.settings</code>, <code>META-INF</code> and <code>CVS</code> folders. A project is restored
+ * from the snapshot as long as its fingerprint is unchanged, all other projects are read again.
+ * </p>
+ * <p>
+ * Projects that contain linked resources are never stored, as their locations depend on path variables and external
+ * files. Projects with roles that can't be serialized are never stored either. Only the classes of the ant4eclipse
+ * model (and a few basic JDK types) are accepted when a snapshot is read, a snapshot that refers to any other class is
+ * not used. The snapshot is discarded as a whole if it has been written by a different build of ant4eclipse (or of the
+ * role identifiers) or with a different set of role identifiers.
+ * </p>
+ * <p>
+ * Snapshots are enabled by setting the system property <code>ant4eclipse.workspaceSnapshotDirectory</code> to the
+ * directory that should contain them (e.g. <code>-Dant4eclipse.workspaceSnapshotDirectory=/tmp/a4e</code>).
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public final class WorkspaceSnapshot {
+
+  /** the name of the property that specifies the directory that contains the snapshots */
+  public static final String               SNAPSHOT_DIRECTORY_PROPERTY = "ant4eclipse.workspaceSnapshotDirectory";
+
+  /** the version of the file format */
+  private static final int                 FORMAT_VERSION              = 2;
+
+  /** the suffix of snapshot files */
+  private static final String              SNAPSHOT_SUFFIX             = ".a4e-workspace";
+
+  /** the folders of a project that contain metadata files */
+  private static final String[]            METADATA_FOLDERS            = { ".settings", "META-INF", "CVS" };
+
+  /** the JDK classes that may be contained in a snapshot (besides the classes of the ant4eclipse model) */
+  private static final Set<String>         JDK_CLASSES                 = new HashSet<String>(Arrays.asList(
+                                                                           "java.lang.Boolean", "java.lang.Byte",
+                                                                           "java.lang.Character", "java.lang.Double",
+                                                                           "java.lang.Enum", "java.lang.Float",
+                                                                           "java.lang.Integer", "java.lang.Long",
+                                                                           "java.lang.Number", "java.lang.Short",
+                                                                           "java.lang.String", "java.io.File",
+                                                                           "java.util.ArrayList", "java.util.HashMap",
+                                                                           "java.util.HashSet", "java.util.Hashtable",
+                                                                           "java.util.LinkedHashMap",
+                                                                           "java.util.LinkedHashSet",
+                                                                           "java.util.LinkedList",
+                                                                           "java.util.Properties"));
+
+  /** the code stamps that have been computed, keyed by the location of the code */
+  private static final Map<String, String> CODE_STAMPS                 = new HashMap<String, String>();
+
+  /** the file that contains the snapshot */
+  private File                             _file;
+
+  /** the configuration the snapshot has been created with */
+  private String                           _configuration;
+
+  /** the entries read from the snapshot file, keyed by the path of the project directory */
+  private Map<String, Entry>               _previous;
+
+  /** the entries of the current run, keyed by the path of the project directory */
+  private Map<String, Entry>               _current;
+
+  /** the fingerprints that have been computed in the current run, keyed by the path of the project directory */
+  private Map<String, String>              _fingerprints;
+
+  /** indicates whether a project has been stored in the current run */
+  private boolean                          _modified;
+
+  /**
+   * <p>
+   * Creates a new (empty) instance of type {@link WorkspaceSnapshot}.
+   * </p>
+   *
+   * @param file
+   *          the file that contains the snapshot.
+   * @param configuration
+   *          the configuration the snapshot is created with.
+   */
+  private WorkspaceSnapshot(File file, String configuration) {
+    this._file = file;
+    this._configuration = configuration;
+    this._previous = new HashMap<String, Entry>();
+    this._current = new LinkedHashMap<String, Entry>();
+    this._fingerprints = new HashMap<String, String>();
+  }
+
+  /**
+   * <p>
+   * Returns the snapshot for the workspace with the given identifier. If no snapshot exists (or if the existing one
+   * can't be used) an empty snapshot is returned.
+   * </p>
+   *
+   * @param workspaceId
+   *          the identifier of the workspace
+   * @param projectFactory
+   *          the factory that is used to read the projects
+   * @return the snapshot or <code>null</code> if snapshots are not enabled.
+   */
+  public static WorkspaceSnapshot getSnapshot(String workspaceId, ProjectFactory projectFactory) {
+    Assure.notNull("workspaceId", workspaceId);
+    Assure.notNull("projectFactory", projectFactory);
+    String directory = System.getProperty(SNAPSHOT_DIRECTORY_PROPERTY);
+    if ((directory == null) || (directory.trim().length() == 0)) {
+      return null;
+    }
+
+    // the snapshot depends on the role identifiers and on the code that reads the projects
+    StringBuilder configuration = new StringBuilder(projectFactory.getConfiguration());
+    Set<String> codeStamps = new LinkedHashSet<String>();
+    codeStamps.add(getCodeStamp(WorkspaceSnapshot.class));
+    for (ProjectRoleIdentifier projectRoleIdentifier : projectFactory.getProjectRoleIdentifiers()) {
+      codeStamps.add(getCodeStamp(projectRoleIdentifier.getClass()));
+    }
+    for (String codeStamp : codeStamps) {
+      configuration.append(codeStamp).append(';');
+    }
+
+    File file = new File(directory, hash(workspaceId) + SNAPSHOT_SUFFIX);
+    return load(file, hash(configuration.toString()));
+  }
+
+  /**
+   * <p>
+   * Returns the project in the given directory if it is contained in this snapshot and if its metadata files have not
+   * been changed since the snapshot has been created. The returned project is attached to the given workspace.
+   * </p>
+   *
+   * @param workspace
+   *          the workspace that contains the project
+   * @param projectDirectory
+   *          the directory of the project
+   * @param id
+   *          the id of the project within the workspace
+   * @return the project or <code>null</code> if the project has to be read again.
+   */
+  public EclipseProjectImpl restore(WorkspaceImpl workspace, File projectDirectory, int id) {
+    String key = Utilities.getCanonicalFile(projectDirectory).getPath();
+    String fingerprint = computeFingerprint(projectDirectory);
+
+    Entry entry;
+    synchronized (this) {
+      this._fingerprints.put(key, fingerprint);
+      entry = this._previous.get(key);
+    }
+    if ((entry == null) || !entry._fingerprint.equals(fingerprint)) {
+      return null;
+    }
+
+    EclipseProjectImpl result;
+    try {
+      result = deserialize(entry._data);
+    } catch (Exception ex) {
+      A4ELogging.debug("Could not restore project '%s' from workspace snapshot: %s", key, ex);
+      return null;
+    }
+    result.attach(workspace, id);
+
+    synchronized (this) {
+      this._current.put(key, entry);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Stores the given project (that has just been read) in this snapshot.
+   * </p>
+   *
+   * @param project
+   *          the project
+   */
+  public void store(EclipseProject project) {
+    Assure.notNull("project", project);
+    String key = project.getFolder().getPath();
+    synchronized (this) {
+      this._modified = true;
+    }
+    if (!(project instanceof EclipseProjectImpl) || ((EclipseProjectImpl) project).hasLinkedResources()) {
+      return;
+    }
+
+    // the snapshot contains the complete project, so all of its roles have to be created now
+    try {
+      project.getRoles();
+    } catch (RuntimeException ex) {
+      A4ELogging.debug("Project '%s' can't be stored in the workspace snapshot: %s", project.getSpecifiedName(), ex);
+      return;
+    }
+
+    Entry entry = new Entry();
+    synchronized (this) {
+      entry._fingerprint = this._fingerprints.get(key);
+    }
+    if (entry._fingerprint == null) {
+      entry._fingerprint = computeFingerprint(project.getFolder());
+    }
+    try {
+      entry._data = serialize((EclipseProjectImpl) project);
+    } catch (IOException ex) {
+      A4ELogging.debug("Project '%s' can't be stored in the workspace snapshot: %s", project.getSpecifiedName(), ex);
+      return;
+    }
+
+    synchronized (this) {
+      this._current.put(key, entry);
+    }
+  }
+
+  /**
+   * <p>
+   * Saves this snapshot if it has been changed. Only the projects that have been restored or stored in the current run
+   * are saved.
+   * </p>
+   */
+  public synchronized void save() {
+    if (!this._modified && (this._current.size() == this._previous.size())) {
+      return;
+    }
+
+    this._file.getParentFile().mkdirs();
+    File tempFile = new File(this._file.getParentFile(), this._file.getName() + ".tmp");
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(FORMAT_VERSION);
+      output.writeUTF(this._configuration);
+      output.writeInt(this._current.size());
+      for (Map.Entry<String, Entry> entry : this._current.entrySet()) {
+        output.writeUTF(entry.getKey());
+        output.writeUTF(entry.getValue()._fingerprint);
+        output.writeInt(entry.getValue()._data.length);
+        output.write(entry.getValue()._data);
+      }
+      output.close();
+      output = null;
+      if (!tempFile.renameTo(this._file)) {
+        // the target may exist on some platforms
+        this._file.delete();
+        if (!tempFile.renameTo(this._file)) {
+          tempFile.delete();
+        }
+      }
+    } catch (IOException ex) {
+      A4ELogging.warn("Could not write workspace snapshot '%s': %s", this._file, ex.getMessage());
+      Utilities.close((Closeable) output);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * <p>
+   * Loads the snapshot from the given file.
+   * </p>
+   *
+   * @return the snapshot. If the file doesn't exist or can't be used, the snapshot is empty.
+   */
+  private static WorkspaceSnapshot load(File file, String configuration) {
+    WorkspaceSnapshot result = new WorkspaceSnapshot(file, configuration);
+    if (!file.isFile()) {
+      return result;
+    }
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if ((input.readInt() != FORMAT_VERSION) || !configuration.equals(input.readUTF())) {
+        return result;
+      }
+      int count = input.readInt();
+      for (int i = 0; i < count; i++) {
+        String key = input.readUTF();
+        Entry entry = new Entry();
+        entry._fingerprint = input.readUTF();
+        entry._data = new byte[input.readInt()];
+        input.readFully(entry._data);
+        result._previous.put(key, entry);
+      }
+    } catch (IOException ex) {
+      A4ELogging.debug("Could not read workspace snapshot '%s': %s", file, ex.getMessage());
+      result._previous.clear();
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+    return result;
+  }
+
+  /**
+   * <p>
+   * Computes the fingerprint of the metadata files of the given project directory.
+   * </p>
+   */
+  private static String computeFingerprint(File projectDirectory) {
+    StringBuilder builder = new StringBuilder();
+    appendFiles(builder, projectDirectory, "", false);
+    for (String folder : METADATA_FOLDERS) {
+      File metadataFolder = new File(projectDirectory, folder);
+      if (metadataFolder.isDirectory()) {
+        builder.append(folder).append("/\n");
+        appendFiles(builder, metadataFolder, folder + "/", true);
+      }
+    }
+    return hash(builder.toString());
+  }
+
+  /**
+   * <p>
+   * Appends the names, lengths and time stamps of the files in the given directory. If <code>recursive</code> is set,
+   * the names of the sub directories and the files they contain are appended, too.
+   * </p>
+   */
+  private static void appendFiles(StringBuilder builder, File directory, String prefix, boolean recursive) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files);
+    for (File file : files) {
+      if (file.isFile()) {
+        builder.append(prefix).append(file.getName()).append(':').append(file.length()).append(':').append(
+            file.lastModified()).append('\n');
+      } else if (recursive && file.isDirectory()) {
+        builder.append(prefix).append(file.getName()).append("/\n");
+        appendFiles(builder, file, prefix + file.getName() + "/", true);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Returns a stamp of the code the given class has been loaded from, so that snapshots written by a different build
+   * of ant4eclipse are discarded. If the code is located in a directory, the stamp covers all files below that
+   * directory. As the loaded code doesn't change while the VM is running, the stamps are computed only once.
+   * </p>
+   */
+  static String getCodeStamp(Class<?> type) {
+    CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+    if ((codeSource == null) || (codeSource.getLocation() == null)) {
+      return "";
+    }
+    String key = codeSource.getLocation().toExternalForm();
+    synchronized (CODE_STAMPS) {
+      String result = CODE_STAMPS.get(key);
+      if (result == null) {
+        try {
+          File location = new File(codeSource.getLocation().toURI());
+          StringBuilder builder = new StringBuilder(location.getPath());
+          if (location.isDirectory()) {
+            builder.append('\n');
+            appendFiles(builder, location, "", true);
+            result = hash(builder.toString());
+          } else {
+            result = builder.append(':').append(location.length()).append(':').append(location.lastModified())
+                .toString();
+          }
+        } catch (Exception ex) {
+          result = key;
+        }
+        CODE_STAMPS.put(key, result);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * <p>
+   * Returns the MD5 hash of the given text as a hexadecimal string.
+   * </p>
+   */
+  private static String hash(String text) {
+    try {
+      byte[] digest = MessageDigest.getInstance("MD5").digest(text.getBytes("UTF-8"));
+      StringBuilder builder = new StringBuilder();
+      for (byte b : digest) {
+        builder.append(Integer.toHexString((b >> 4) & 0xF));
+        builder.append(Integer.toHexString(b & 0xF));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      return Integer.toHexString(text.hashCode());
+    } catch (IOException ex) {
+      return Integer.toHexString(text.hashCode());
+    }
+  }
+
+  private static byte[] serialize(EclipseProjectImpl project) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream output = new ObjectOutputStream(bytes);
+    output.writeObject(project);
+    output.close();
+    return bytes.toByteArray();
+  }
+
+  static EclipseProjectImpl deserialize(byte[] data) throws IOException, ClassNotFoundException {
+    ObjectInputStream input = new SnapshotInputStream(new ByteArrayInputStream(data));
+    try {
+      return (EclipseProjectImpl) input.readObject();
+    } finally {
+      Utilities.close((Closeable) input);
+    }
+  }
+
+  /**
+   * <p>
+   * Returns <code>true</code> if instances of the class with the given name may be read from a snapshot. These are the
+   * classes of the ant4eclipse model (and arrays of them), arrays of primitive types and a few basic JDK classes.
+   * </p>
+   */
+  static boolean isAllowedClass(String className) {
+    String name = className;
+    while (name.startsWith("[")) {
+      name = name.substring(1);
+    }
+    if (name.length() == 1) {
+      // array of a primitive type
+      return !name.equals(className);
+    }
+    if (name.startsWith("L") && name.endsWith(";")) {
+      name = name.substring(1, name.length() - 1);
+    }
+    if (JDK_CLASSES.contains(name)) {
+      return true;
+    }
+    return name.startsWith("org.ant4eclipse.lib.") && (name.indexOf(".model.") != -1);
+  }
+
+  /**
+   * <p>
+   * The entry of a single project.
+   * </p>
+   */
+  private static class Entry {
+
+    /** the fingerprint of the metadata files */
+    private String _fingerprint;
+
+    /** the serialized project */
+    private byte[] _data;
+  }
+
+  /**
+   * <p>
+   * Resolves the classes of the serialized projects using the class loader of ant4eclipse (which is not necessarily the
+   * class loader that is used by default). Classes that are not allowed in a snapshot (see
+   * {@link WorkspaceSnapshot#isAllowedClass(String)}) are rejected before they are loaded.
+   * </p>
+   */
+  private static class SnapshotInputStream extends ObjectInputStream {
+
+    public SnapshotInputStream(InputStream input) throws IOException {
+      super(input);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException {
+      if (!isAllowedClass(description.getName())) {
+        throw new InvalidClassException(description.getName(), "not allowed in a workspace snapshot");
+      }
+      try {
+        return Class.forName(description.getName(), false, WorkspaceSnapshot.class.getClassLoader());
+      } catch (ClassNotFoundException ex) {
+        return super.resolveClass(description);
+      }
+    }
+  }
+
+} /* ENDCLASS */
@@ -22,7 +22,7 @@ import org.ant4eclipse.lib.platform.tools.ReferencedProjectsResolverService;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -66,7 +66,7 @@ public class ReferencedProjectsResolverServiceImpl implements ReferencedProjects
     // lazy initialization of the resolver services
     init();
 
-    Set<EclipseProject> result = new HashSet<EclipseProject>();
+    Set<EclipseProject> result = new LinkedHashSet<EclipseProject>();
 
     referenceTypes = Utilities.cleanup(referenceTypes);
 
@@ -48,6 +48,20 @@ public interface EclipseProject {
    */
   Workspace getWorkspace();
 
+  /**
+   * <p>
+   * Returns the id of this project. The ids of the projects of a workspace are assigned in the order the projects have
+   * been read, starting with <code>0</code>, so they can be used as indices into arrays or bit sets of the size
+   * {@link Workspace#getProjectCount()}.
+   * </p>
+   * <p>
+   * A workspace contains exactly one instance per project, so projects can be compared by identity.
+   * </p>
+   * 
+   * @return the id of this project within its workspace.
+   */
+  int getId();
+
   /**
    * <p>
    * Returns the name of the project as specified in the <code>.project</code> file. If the name is not explicitly set,
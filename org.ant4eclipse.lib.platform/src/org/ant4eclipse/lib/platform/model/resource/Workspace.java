@@ -88,4 +88,14 @@ public interface Workspace {
    */
   EclipseProject[] getAllProjects(Class<? extends ProjectRole> projectRole);
 
+  /**
+   * <p>
+   * Returns the number of {@link EclipseProject EclipseProjects} that are contained in the {@link Workspace}. The ids
+   * of the projects (see {@link EclipseProject#getId()}) are smaller than this number.
+   * </p>
+   * 
+   * @return the number of {@link EclipseProject EclipseProjects} that are contained in the {@link Workspace}.
+   */
+  int getProjectCount();
+
 } /* ENDCLASS */
\ No newline at end of file
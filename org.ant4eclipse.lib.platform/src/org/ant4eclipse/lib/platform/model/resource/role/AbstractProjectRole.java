@@ -14,6 +14,8 @@ package org.ant4eclipse.lib.platform.model.resource.role;
 import org.ant4eclipse.lib.core.Assure;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 
+import java.io.Serializable;
+
 /**
  * <p>
  * Abstract base class for all {@link ProjectRole ProjectRoles}.
@@ -21,7 +23,10 @@ import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
-public abstract class AbstractProjectRole implements ProjectRole {
+public abstract class AbstractProjectRole implements ProjectRole, Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
 
   /** the name of the project role */
   private String         _name;
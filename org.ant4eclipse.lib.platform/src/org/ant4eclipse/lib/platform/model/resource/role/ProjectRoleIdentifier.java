@@ -36,6 +36,17 @@ public interface ProjectRoleIdentifier {
    */
   boolean isRoleSupported(EclipseProject project);
 
+  /**
+   * <p>
+   * Returns the type of the roles created by this identifier. The type is used to decide whether a project has a
+   * specific role without creating the role, so {@link #isRoleSupported(EclipseProject)} must be cheap while the
+   * expensive parsing of metadata is done in {@link #createRole(EclipseProject)}.
+   * </p>
+   * 
+   * @return the type of the roles created by this identifier. Not <code>null</code>.
+   */
+  Class<? extends ProjectRole> getRoleType();
+
   /**
    * <p>
    * Creates the specific {@link ProjectRole} for the given {@link EclipseProject}. During the parsing process you must
@@ -70,10 +70,22 @@ public class ValidatorRegistry {
   public void validate(EclipseProject project) {
     ProjectRole[] roles = project.getRoles();
     for (ProjectRole role : roles) {
-      for (ProjectValidator validator : this._validators) {
-        if (validator.canValidate(role)) {
-          validator.validate(role);
-        }
+      validate(role);
+    }
+  }
+
+  /**
+   * <p>
+   * Validates a single role of a project.
+   * </p>
+   * 
+   * @param role
+   *          the role that has to be validated
+   */
+  public void validate(ProjectRole role) {
+    for (ProjectValidator validator : this._validators) {
+      if (validator.canValidate(role)) {
+        validator.validate(role);
       }
     }
   }
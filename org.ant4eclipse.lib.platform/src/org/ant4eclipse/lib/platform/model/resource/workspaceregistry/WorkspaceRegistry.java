@@ -35,6 +35,26 @@ public interface WorkspaceRegistry extends Lifecycle {
    */
   Workspace registerWorkspace(String id, WorkspaceDefinition workspaceDefinition);
 
+  /**
+   * <p>
+   * Registers a new instance of type {@link Workspace} that is described by the given {@link WorkspaceDefinition} under
+   * the specified id. The projects of the workspace are read by up to <code>threadCount</code> concurrent threads.
+   * </p>
+   * <p>
+   * The result doesn't depend on the number of threads: the projects are always registered in the order of the project
+   * folders, so they get the same ids as if they were read one after another.
+   * </p>
+   * 
+   * @param id
+   *          the identifier under which the new {@link Workspace} instance is stored.
+   * @param WorkspaceDefinition
+   *          the workspace definition
+   * @param threadCount
+   *          the maximum number of threads used to read the projects. Must be greater than 0.
+   * @return the new {@link Workspace} instance
+   */
+  Workspace registerWorkspace(String id, WorkspaceDefinition workspaceDefinition, int threadCount);
+
   /**
    * <p>
    * Returns <code>true</code> if the registry contains a {@link Workspace} that is registered under the specified
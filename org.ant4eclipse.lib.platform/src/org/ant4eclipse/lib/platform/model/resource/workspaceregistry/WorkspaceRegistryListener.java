@@ -0,0 +1,43 @@
+/**********************************************************************
+ * Copyright (c) 2005-2009 ant4eclipse project team.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Nils Hartmann, Daniel Kasmeroglu, Gerd Wuetherich
+ **********************************************************************/
+package org.ant4eclipse.lib.platform.model.resource.workspaceregistry;
+
+import org.ant4eclipse.lib.platform.model.resource.Workspace;
+
+/**
+ * <p>
+ * A {@link WorkspaceRegistryListener} is notified whenever a {@link Workspace} has been registered with the
+ * {@link WorkspaceRegistry}. This includes the re-registration of a workspace when it is refreshed.
+ * </p>
+ * <p>
+ * Listeners are contributed through the ant4eclipse configuration using the prefix
+ * <code>workspaceRegistryListener</code>.
+ * </p>
+ *
+ * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
+ */
+public interface WorkspaceRegistryListener {
+
+  /**
+   * <p>
+   * Called after the given {@link Workspace} has been registered under the given id. A previously registered workspace
+   * with the same id (and all of its projects) has been replaced.
+   * </p>
+   *
+   * @param id
+   *          the identifier of the workspace
+   * @param workspace
+   *          the new {@link Workspace} instance
+   */
+  void workspaceRegistered(String id, Workspace workspace);
+
+} /* ENDCLASS */
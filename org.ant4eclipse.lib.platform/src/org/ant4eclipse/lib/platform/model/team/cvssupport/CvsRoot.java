@@ -16,6 +16,8 @@ import org.ant4eclipse.lib.core.exception.Ant4EclipseException;
 import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.platform.PlatformExceptionCode;
 
+import java.io.Serializable;
+
 /**
  * <p>
  * Encapsulates a cvsroot.
@@ -23,7 +25,10 @@ import org.ant4eclipse.lib.platform.PlatformExceptionCode;
  * 
  * @author Gerd W&uuml;therich (gerd@gerd-wuetherich.de)
  */
-public final class CvsRoot implements Cloneable {
+public final class CvsRoot implements Cloneable, Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
   /** the connectiontype * */
   private String _connectionType;
 
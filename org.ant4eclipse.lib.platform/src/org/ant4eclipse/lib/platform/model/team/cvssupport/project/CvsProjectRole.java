@@ -23,8 +23,11 @@ import org.ant4eclipse.lib.platform.model.team.cvssupport.CvsRoot;
  */
 public final class CvsProjectRole extends AbstractProjectRole {
 
+  /** serialVersionUID */
+  private static final long  serialVersionUID = 1L;
+
   /** the name for this role */
-  public static final String NAME = "CvsProjectRole";
+  public static final String NAME             = "CvsProjectRole";
 
   /** the cvsRoot for the project * */
   private CvsRoot            _cvsRoot;
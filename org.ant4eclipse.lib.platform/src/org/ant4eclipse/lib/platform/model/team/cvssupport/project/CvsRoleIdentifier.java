@@ -32,6 +32,13 @@ public class CvsRoleIdentifier implements ProjectRoleIdentifier {
     return CvsParser.isCvsProject(project);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public Class<? extends ProjectRole> getRoleType() {
+    return CvsProjectRole.class;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -18,8 +18,10 @@ import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 import org.ant4eclipse.lib.platform.model.resource.Workspace;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * <p>
@@ -46,6 +48,58 @@ public class BuildOrderResolver {
   public static final List<EclipseProject> resolveBuildOrder(Workspace workspace, String[] projectNames,
       String[] referenceTypes, List<Object> additionalElements) {
 
+    // create the dependency graph and calculate the order
+    return resolveBuildOrder(resolveDependencyGraph(workspace, projectNames, referenceTypes, additionalElements),
+        projectNames);
+  }
+
+  /**
+   * <p>
+   * Resolves the build order of the projects with the given names using the given dependency graph.
+   * </p>
+   * 
+   * @param dependencyGraph
+   *          the dependency graph as returned by {@link #resolveDependencyGraph(Workspace, String[], String[], List)}.
+   * @param projectNames
+   *          an array with the names of all projects that should be sorted.
+   * @return the projects with the given names in build order.
+   */
+  public static final List<EclipseProject> resolveBuildOrder(DependencyGraph<EclipseProject> dependencyGraph,
+      String[] projectNames) {
+
+    // calculate the order
+    List<EclipseProject> orderProjects = dependencyGraph.calculateOrder();
+
+    // filter result - only the requested projects should be listed
+    List<EclipseProject> result = new LinkedList<EclipseProject>();
+    Set<String> names = new HashSet<String>(Arrays.asList(projectNames));
+    for (EclipseProject eclipseProject : orderProjects) {
+      if (names.contains(eclipseProject.getSpecifiedName())) {
+        result.add(eclipseProject);
+      }
+    }
+
+    // return the result
+    return result;
+  }
+
+  /**
+   * <p>
+   * Resolves the dependency graph of the projects with the given names. The graph contains the given projects and all
+   * projects they reference, with an edge from each project to each of its referenced projects.
+   * </p>
+   * 
+   * @param workspace
+   *          the workspace
+   * @param projectNames
+   *          an array with the names of all projects that should be sorted.
+   * @param referenceTypes
+   * @param additionalElements
+   * @return the dependency graph
+   */
+  public static final DependencyGraph<EclipseProject> resolveDependencyGraph(Workspace workspace,
+      String[] projectNames, String[] referenceTypes, List<Object> additionalElements) {
+
     // retrieve all eclipse projects from the workspace
     EclipseProject[] eclipseProjects = workspace.getProjects(projectNames, true);
 
@@ -84,19 +138,7 @@ public class BuildOrderResolver {
       }
     }
 
-    // calculate the order
-    List<EclipseProject> orderProjects = dependencyGraph.calculateOrder();
-
-    // filter result - only the requested projects should be listed
-    List<EclipseProject> result = new LinkedList<EclipseProject>();
-    List<String> names = Arrays.asList(projectNames);
-    for (EclipseProject eclipseProject : orderProjects) {
-      if (names.contains(eclipseProject.getSpecifiedName())) {
-        result.add(eclipseProject);
-      }
-    }
-
     // return the result
-    return result;
+    return dependencyGraph;
   }
 }
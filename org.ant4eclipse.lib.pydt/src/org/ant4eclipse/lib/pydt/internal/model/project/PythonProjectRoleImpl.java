@@ -31,7 +31,10 @@ import java.util.List;
  */
 public class PythonProjectRoleImpl extends AbstractProjectRole implements DLTKProjectRole, PyDevProjectRole {
 
-  public static final String NAME = "PythonProjectRole";
+  /** serialVersionUID */
+  private static final long  serialVersionUID = 1L;
+
+  public static final String NAME             = "PythonProjectRole";
 
   private List<RawPathEntry> _rawpathentries;
 
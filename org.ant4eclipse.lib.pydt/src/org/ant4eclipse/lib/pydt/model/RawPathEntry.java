@@ -13,13 +13,18 @@ package org.ant4eclipse.lib.pydt.model;
 
 import org.ant4eclipse.lib.core.Assure;
 
+import java.io.Serializable;
+
 /**
  * A raw path entry is a reference to another entity which has not been resolved. It's only used to represent the data
  * stored within the configuration file.
  * 
  * @author Daniel Kasmeroglu (Daniel.Kasmeroglu@Kasisoft.net)
  */
-public class RawPathEntry {
+public class RawPathEntry implements Serializable {
+
+  /** serialVersionUID */
+  private static final long serialVersionUID = 1L;
 
   private ReferenceKind _kind;
 
@@ -16,6 +16,7 @@ import org.ant4eclipse.lib.core.logging.A4ELogging;
 import org.ant4eclipse.lib.platform.model.resource.EclipseProject;
 import org.ant4eclipse.lib.platform.model.resource.role.ProjectRole;
 import org.ant4eclipse.lib.platform.model.resource.role.ProjectRoleIdentifier;
+import org.ant4eclipse.lib.pydt.internal.model.project.PythonProjectRole;
 import org.ant4eclipse.lib.pydt.internal.model.project.PythonProjectRoleImpl;
 import org.ant4eclipse.lib.pydt.internal.tools.DLTKParser;
 
@@ -37,6 +38,13 @@ public final class DLTKRoleIdentifier implements ProjectRoleIdentifier {
     return project.hasNature(DLTKProjectRole.NATURE);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public Class<? extends ProjectRole> getRoleType() {
+    return PythonProjectRole.class;
+  }
+
   /**
    * <p>
    * Adds a {@link DLTKProjectRole} to the given project and parses the pathes.